@@ -0,0 +1,141 @@
+package com.pdsa.touristappbackend.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.util.Random;
+
+/**
+ * Seeded test databases for the benchmarks, in the schemas LazyGraph and PoiSqliteRepository read.
+ * Roads: a side x side grid (~100 m spacing) inside the Colombo bounding box, every node jittered,
+ * streets drivable both ways, with a few street segments missing so routes have to go around.
+ * POIs: uniformly placed points in a fixed set of categories over the same area.
+ * Files are cached under target/bench-data keyed by size and seed, so JMH forks and repeated
+ * runs reuse them; the same seed always produces the same database.
+ */
+public final class BenchGraph {
+
+    public static final double MIN_LAT = 6.85;
+    public static final double MIN_LON = 79.83;
+    public static final double SPACING_DEG = 0.0009;
+    public static final String[] CATEGORIES = {"museum", "temple", "park", "beach", "restaurant", "viewpoint"};
+
+    // share of street segments left out
+    private static final double MISSING_EDGE_RATE = 0.05;
+    private static final Path DIR = Paths.get("target", "bench-data");
+
+    private BenchGraph() {}
+
+    /**
+     * Road database for a grid of the given size, created on first use
+     * @param side - nodes per grid row and column
+     * @param seed - random seed for jitter and missing edges
+     * @return path to the SQLite file
+     */
+    public static Path roads(int side, long seed) throws SQLException {
+        Path file = DIR.resolve("roads-" + side + "-" + seed + ".db");
+        if (Files.exists(file)) return file;
+
+        Random rnd = new Random(seed);
+        try (Connection conn = create(file)) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE TABLE nodes (id INTEGER PRIMARY KEY, lat REAL, lon REAL)");
+                st.execute("CREATE TABLE edges (from_node INTEGER, to_node INTEGER)");
+            }
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO nodes VALUES (?, ?, ?)")) {
+                for (int r = 0; r < side; r++) {
+                    for (int c = 0; c < side; c++) {
+                        ps.setLong(1, id(side, r, c));
+                        ps.setDouble(2, MIN_LAT + r * SPACING_DEG + (rnd.nextDouble() - 0.5) * SPACING_DEG * 0.4);
+                        ps.setDouble(3, MIN_LON + c * SPACING_DEG + (rnd.nextDouble() - 0.5) * SPACING_DEG * 0.4);
+                        ps.addBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO edges VALUES (?, ?)")) {
+                for (int r = 0; r < side; r++) {
+                    for (int c = 0; c < side; c++) {
+                        if (c + 1 < side && rnd.nextDouble() >= MISSING_EDGE_RATE) {
+                            addBoth(ps, id(side, r, c), id(side, r, c + 1));
+                        }
+                        if (r + 1 < side && rnd.nextDouble() >= MISSING_EDGE_RATE) {
+                            addBoth(ps, id(side, r, c), id(side, r + 1, c));
+                        }
+                    }
+                }
+                ps.executeBatch();
+            }
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE INDEX idx_edges_from ON edges(from_node)");
+                st.execute("CREATE INDEX idx_edges_to ON edges(to_node)");
+            }
+            conn.commit();
+        }
+        return file;
+    }
+
+    /**
+     * POI database covering the same area as roads(side, seed), created on first use
+     * @param side - grid size the POIs should cover
+     * @param count - number of POIs
+     * @param seed - random seed
+     * @return path to the SQLite file
+     */
+    public static Path pois(int side, int count, long seed) throws SQLException {
+        Path file = DIR.resolve("pois-" + side + "-" + count + "-" + seed + ".db");
+        if (Files.exists(file)) return file;
+
+        Random rnd = new Random(seed);
+        double extent = (side - 1) * SPACING_DEG;
+        try (Connection conn = create(file)) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE TABLE pois (id INTEGER PRIMARY KEY, name TEXT, category TEXT, lat REAL, lon REAL)");
+            }
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO pois VALUES (?, ?, ?, ?, ?)")) {
+                for (int i = 1; i <= count; i++) {
+                    String category = CATEGORIES[rnd.nextInt(CATEGORIES.length)];
+                    ps.setLong(1, i);
+                    ps.setString(2, category + " " + i);
+                    ps.setString(3, category);
+                    ps.setDouble(4, MIN_LAT + rnd.nextDouble() * extent);
+                    ps.setDouble(5, MIN_LON + rnd.nextDouble() * extent);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE INDEX idx_pois_category ON pois(category, lat, lon)");
+            }
+            conn.commit();
+        }
+        return file;
+    }
+
+    private static long id(int side, int r, int c) {
+        return (long) r * side + c + 1;
+    }
+
+    private static void addBoth(PreparedStatement ps, long a, long b) throws SQLException {
+        ps.setLong(1, a);
+        ps.setLong(2, b);
+        ps.addBatch();
+        ps.setLong(1, b);
+        ps.setLong(2, a);
+        ps.addBatch();
+    }
+
+    // new database file, written in a single transaction
+    private static Connection create(Path file) throws SQLException {
+        try {
+            Files.createDirectories(file.getParent());
+        } catch (IOException e) {
+            throw new SQLException("Cannot create " + file.getParent(), e);
+        }
+        Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file);
+        conn.setAutoCommit(false);
+        return conn;
+    }
+}
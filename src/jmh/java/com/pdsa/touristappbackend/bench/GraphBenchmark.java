@@ -0,0 +1,50 @@
+package com.pdsa.touristappbackend.bench;
+
+import com.pdsa.touristappbackend.model.Edge;
+import com.pdsa.touristappbackend.model.OsmNodeData;
+import com.pdsa.touristappbackend.routing.AStarRouter;
+import com.pdsa.touristappbackend.util.Haversine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the primitives every search is built from.
+ * - neighbors: one adjacency lookup in LazyGraph (a CSR slice mapped back to OSM ids)
+ * - snapGrid: nearest connected node through the snapping grid
+ * - snapLinear: nearest node by scanning every node (AStarRouter.findNearestNode)
+ * - haversine: one distance computation
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBenchmark {
+
+    @Benchmark
+    public List<Edge> neighbors(GraphState s, GraphState.Cursor c) throws Exception {
+        return s.graph.neighbors(s.nodes[c.next()]);
+    }
+
+    @Benchmark
+    public OsmNodeData snapGrid(GraphState s, GraphState.Cursor c) {
+        double[] p = s.points[c.next()];
+        return s.graph.nearestConnectedNode(p[0], p[1]);
+    }
+
+    @Benchmark
+    public OsmNodeData snapLinear(GraphState s, GraphState.Cursor c) {
+        double[] p = s.points[c.next()];
+        return new AStarRouter(s.graph).findNearestNode(p[0], p[1]);
+    }
+
+    @Benchmark
+    public double haversine(GraphState s, GraphState.Cursor c) {
+        int i = c.next();
+        double[] a = s.points[i];
+        double[] b = s.points[(i + 1) & (QuerySet.SIZE - 1)];
+        return Haversine.meters(a[0], a[1], b[0], b[1]);
+    }
+}
@@ -0,0 +1,73 @@
+package com.pdsa.touristappbackend.bench;
+
+import com.pdsa.touristappbackend.repository.PoiSqliteRepository;
+import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.RouteGeometry;
+import com.pdsa.touristappbackend.routing.alg.AStar;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Shared benchmark fixture: a BenchGraph road network and POI database, loaded once per trial,
+ * plus the seeded query sets every benchmark draws from.
+ * Parameters:
+ * - side: grid size, the graph has side x side nodes
+ * - seed: seed for the databases and the query sets
+ */
+@State(Scope.Benchmark)
+public class GraphState {
+
+    private static final int POIS_PER_NODE_DIVISOR = 10;
+    // routes precomputed for the POI benchmark
+    private static final int ROUTES = 16;
+
+    @Param({"50", "150"})
+    public int side;
+
+    @Param({"42"})
+    public long seed;
+
+    public LazyGraph graph;
+    public PoiSqliteRepository poiRepo;
+    public long[][] pairs;
+    public long[] nodes;
+    public double[][] points;
+    public RouteGeometry[] routes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        graph = new LazyGraph(BenchGraph.roads(side, seed).toString());
+        poiRepo = new PoiSqliteRepository(
+                BenchGraph.pois(side, side * side / POIS_PER_NODE_DIVISOR, seed).toString());
+        poiRepo.init();
+
+        pairs = QuerySet.nodePairs(graph, seed);
+        nodes = QuerySet.nodes(graph, seed);
+        double extent = (side - 1) * BenchGraph.SPACING_DEG;
+        points = QuerySet.points(BenchGraph.MIN_LAT, BenchGraph.MIN_LON,
+                BenchGraph.MIN_LAT + extent, BenchGraph.MIN_LON + extent, seed);
+
+        routes = new RouteGeometry[ROUTES];
+        for (int i = 0; i < ROUTES; i++) {
+            AStar.Result r = AStar.shortestPath(graph, pairs[i][0], pairs[i][1]);
+            routes[i] = RouteGeometry.fromNodeIds(graph, r.getPathNodeIds());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        graph.getConnection().close();
+    }
+
+    /**
+     * Per-thread position in the query sets and a reusable A* workspace.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int i;
+        public final AStar.Workspace workspace = new AStar.Workspace();
+
+        public int next() {
+            return i++ & (QuerySet.SIZE - 1);
+        }
+    }
+}
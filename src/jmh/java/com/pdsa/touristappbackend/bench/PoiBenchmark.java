@@ -0,0 +1,28 @@
+package com.pdsa.touristappbackend.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of PoiSqliteRepository.findPoisByCategoryNearPath over precomputed routes,
+ * asking for half of the categories as a typical user's interests would.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PoiBenchmark {
+
+    private static final List<String> CATEGORIES =
+            Arrays.asList(BenchGraph.CATEGORIES).subList(0, BenchGraph.CATEGORIES.length / 2);
+
+    @Benchmark
+    public List<Map<String, Object>> poisNearPath(GraphState s, GraphState.Cursor c) {
+        return s.poiRepo.findPoisByCategoryNearPath(s.routes[c.next() % s.routes.length], CATEGORIES);
+    }
+}
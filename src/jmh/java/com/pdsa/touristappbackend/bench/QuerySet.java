@@ -0,0 +1,63 @@
+package com.pdsa.touristappbackend.bench;
+
+import com.pdsa.touristappbackend.model.OsmNodeData;
+import com.pdsa.touristappbackend.routing.LazyGraph;
+
+import java.util.Random;
+
+/**
+ * Fixed, seeded query sets so every run of a benchmark sees the same work.
+ * Sizes are powers of two; benchmarks walk them with a cursor masked by size - 1.
+ */
+public final class QuerySet {
+
+    public static final int SIZE = 256;
+
+    private QuerySet() {}
+
+    /**
+     * Random (source, target) node pairs
+     * @param g - graph to draw nodes from
+     * @param seed - random seed
+     * @return SIZE pairs as {source, target}
+     */
+    public static long[][] nodePairs(LazyGraph g, long seed) {
+        long[] ids = g.getAllNodes().stream().mapToLong(OsmNodeData::getId).sorted().toArray();
+        Random rnd = new Random(seed);
+        long[][] pairs = new long[SIZE][];
+        for (int i = 0; i < SIZE; i++) {
+            pairs[i] = new long[]{ids[rnd.nextInt(ids.length)], ids[rnd.nextInt(ids.length)]};
+        }
+        return pairs;
+    }
+
+    /**
+     * Random node ids
+     * @param g - graph to draw nodes from
+     * @param seed - random seed
+     * @return SIZE node ids
+     */
+    public static long[] nodes(LazyGraph g, long seed) {
+        long[] ids = g.getAllNodes().stream().mapToLong(OsmNodeData::getId).sorted().toArray();
+        Random rnd = new Random(seed);
+        long[] out = new long[SIZE];
+        for (int i = 0; i < SIZE; i++) out[i] = ids[rnd.nextInt(ids.length)];
+        return out;
+    }
+
+    /**
+     * Random coordinates inside a box
+     * @param seed - random seed
+     * @return SIZE points as {lat, lon}
+     */
+    public static double[][] points(double minLat, double minLon, double maxLat, double maxLon, long seed) {
+        Random rnd = new Random(seed);
+        double[][] pts = new double[SIZE][];
+        for (int i = 0; i < SIZE; i++) {
+            pts[i] = new double[]{
+                    minLat + rnd.nextDouble() * (maxLat - minLat),
+                    minLon + rnd.nextDouble() * (maxLon - minLon)};
+        }
+        return pts;
+    }
+}
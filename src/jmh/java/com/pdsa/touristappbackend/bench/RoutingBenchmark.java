@@ -0,0 +1,49 @@
+package com.pdsa.touristappbackend.bench;
+
+import com.pdsa.touristappbackend.routing.AStarRouter;
+import com.pdsa.touristappbackend.routing.alg.AStar;
+import com.pdsa.touristappbackend.routing.alg.BidirectionalAStar;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-to-point search throughput over seeded node pairs.
+ * - aStar: AStar.shortestPath with a fresh workspace per query (what by-coords does)
+ * - aStarReusedWorkspace: AStar.shortestPath reusing a per-thread workspace (what batch does)
+ * - aStarRouter: AStarRouter.shortestPath including geometry reconstruction
+ * - bidirectionalAStar: BidirectionalAStar.shortestPath; compare with aStar across -p side=...
+ *   to place routing.bidirectional-min-meters
+ * Run with -prof gc to see allocation per query next to throughput.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingBenchmark {
+
+    @Benchmark
+    public AStar.Result aStar(GraphState s, GraphState.Cursor c) throws Exception {
+        long[] q = s.pairs[c.next()];
+        return AStar.shortestPath(s.graph, q[0], q[1]);
+    }
+
+    @Benchmark
+    public AStar.Result aStarReusedWorkspace(GraphState s, GraphState.Cursor c) throws Exception {
+        long[] q = s.pairs[c.next()];
+        return AStar.shortestPath(s.graph, q[0], q[1], c.workspace);
+    }
+
+    @Benchmark
+    public AStarRouter.Result aStarRouter(GraphState s, GraphState.Cursor c) throws Exception {
+        long[] q = s.pairs[c.next()];
+        return new AStarRouter(s.graph).shortestPath(q[0], q[1]);
+    }
+
+    @Benchmark
+    public AStar.Result bidirectionalAStar(GraphState s, GraphState.Cursor c) throws Exception {
+        long[] q = s.pairs[c.next()];
+        return BidirectionalAStar.shortestPath(s.graph, q[0], q[1]);
+    }
+}
@@ -0,0 +1,70 @@
+package com.pdsa.touristappbackend.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects latencies of one endpoint for the load harness.
+ * Each completed request records two values:
+ * - corrected: completion time minus the time the request was scheduled to be sent.
+ *   In an open-loop test a stalled server also delays the requests queued behind it;
+ *   measuring from the schedule counts that waiting (coordinated-omission correction).
+ * - service: completion time minus the time the request was actually sent.
+ * Values are kept raw and sorted once at report time; a run of a few minutes at a few
+ * hundred requests per second is well within memory.
+ */
+public class LatencyRecorder {
+
+    private long[] corrected = new long[1024];
+    private long[] service = new long[1024];
+    private int count;
+    private int errors;
+
+    public synchronized void record(long correctedNanos, long serviceNanos) {
+        if (count == corrected.length) {
+            corrected = Arrays.copyOf(corrected, count * 2);
+            service = Arrays.copyOf(service, count * 2);
+        }
+        corrected[count] = correctedNanos;
+        service[count] = serviceNanos;
+        count++;
+    }
+
+    public synchronized void error() {
+        errors++;
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    public synchronized int errors() {
+        return errors;
+    }
+
+    /**
+     * One report line: count, errors and corrected percentiles, with uncorrected p99 for comparison
+     * @param name - label of the line
+     * @return formatted line, latencies in milliseconds
+     */
+    public synchronized String summary(String name) {
+        if (count == 0) return String.format("%-12s count=0 errors=%d", name, errors);
+        long[] c = Arrays.copyOf(corrected, count);
+        long[] s = Arrays.copyOf(service, count);
+        Arrays.sort(c);
+        Arrays.sort(s);
+        return String.format("%-12s count=%-7d errors=%-5d p50=%8.2f p95=%8.2f p99=%8.2f p99.9=%8.2f max=%8.2f | service p99=%8.2f",
+                name, count, errors,
+                ms(percentile(c, 50)), ms(percentile(c, 95)), ms(percentile(c, 99)),
+                ms(percentile(c, 99.9)), ms(c[count - 1]), ms(percentile(s, 99)));
+    }
+
+    // nearest-rank percentile of a sorted array
+    private static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,180 @@
+package com.pdsa.touristappbackend.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load harness for the routing endpoints (/api/route/by-coords, /multi-stop, /poi)
+ * of a running instance.
+ * Requests are sent on a fixed schedule (the arrival rate) whether or not earlier ones have
+ * finished, the way independent users behave; latency is measured from each request's scheduled
+ * time, so server stalls are not hidden (see LatencyRecorder).
+ * Several rates can be given to find the sustainable throughput: each step runs warm-up plus
+ * measurement and prints its own report; the last step where p99 stays acceptable and the
+ * achieved rate keeps up with the target is the build's capacity.
+ * Usage:
+ * mvn -Pjmh compile exec:exec@load -Dload.args="--rate 50,100,200 --duration 60 --token ..."
+ * Options:
+ * --base-url      server to test (default http://localhost:8080)
+ * --rate          requests per second, comma separated for a step test (default 50)
+ * --duration      measured seconds per step (default 60)
+ * --warmup        unmeasured seconds before each step (default 10)
+ * --mix           endpoint weights (default by-coords=70,multi-stop=20,poi=10; without poi when no --token)
+ * --bbox          minLat,minLon,maxLat,maxLon for generated points (default the routing.region.* Colombo box)
+ * --token         session token from /api/auth/login, needed for /poi
+ * --replay        file of recorded request lines to replay instead of the generated mix
+ * --seed          seed of the generated mix (default 1)
+ * --max-in-flight requests outstanding before new ones are counted as errors (default 10000)
+ * --timeout-ms    per-request timeout (default 30000)
+ */
+public class LoadHarness {
+
+    private static final String DEFAULT_BBOX = "6.7,79.8,7.0,80.1";
+    private static final String DEFAULT_MIX = "by-coords=70,multi-stop=20,poi=10";
+    private static final String DEFAULT_MIX_NO_POI = "by-coords=80,multi-stop=20";
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final Duration timeout;
+    private final int maxInFlight;
+
+    LoadHarness(HttpClient client, String baseUrl, Duration timeout, int maxInFlight) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parse(args);
+        String token = opts.get("token");
+        long seed = Long.parseLong(opts.getOrDefault("seed", "1"));
+
+        QueryMix mix;
+        if (opts.containsKey("replay")) {
+            mix = QueryMix.replay(Path.of(opts.get("replay")));
+        } else {
+            String weights = opts.getOrDefault("mix", token != null ? DEFAULT_MIX : DEFAULT_MIX_NO_POI);
+            mix = QueryMix.generated(doubles(opts.getOrDefault("bbox", DEFAULT_BBOX)), weights(weights), token, seed);
+        }
+
+        ExecutorService callbacks = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(callbacks)
+                .build();
+        LoadHarness harness = new LoadHarness(client,
+                opts.getOrDefault("base-url", "http://localhost:8080"),
+                Duration.ofMillis(Long.parseLong(opts.getOrDefault("timeout-ms", "30000"))),
+                Integer.parseInt(opts.getOrDefault("max-in-flight", "10000")));
+
+        int warmup = Integer.parseInt(opts.getOrDefault("warmup", "10"));
+        int duration = Integer.parseInt(opts.getOrDefault("duration", "60"));
+        try {
+            for (double rate : doubles(opts.getOrDefault("rate", "50"))) {
+                harness.step(mix, rate, warmup, duration);
+            }
+        } finally {
+            callbacks.shutdownNow();
+        }
+    }
+
+    /**
+     * Run one rate step and print its report
+     * @param mix - request source
+     * @param rate - target arrivals per second
+     * @param warmupSeconds - unmeasured lead-in
+     * @param durationSeconds - measured time
+     */
+    void step(QueryMix mix, double rate, int warmupSeconds, int durationSeconds) throws InterruptedException {
+        Map<String, LatencyRecorder> byEndpoint = new ConcurrentHashMap<>();
+        LatencyRecorder all = new LatencyRecorder();
+        AtomicInteger inFlight = new AtomicInteger();
+
+        long total = (long) (rate * (warmupSeconds + durationSeconds));
+        long warmupEnd = (long) (warmupSeconds * 1e9);
+        long start = System.nanoTime();
+
+        for (long i = 0; i < total; i++) {
+            long intended = start + (long) (i * 1e9 / rate);
+            long wait = intended - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            QueryMix.Request r = mix.next();
+            boolean measured = intended - start >= warmupEnd;
+            LatencyRecorder rec = byEndpoint.computeIfAbsent(r.endpoint(), k -> new LatencyRecorder());
+
+            if (inFlight.get() >= maxInFlight) {
+                // the schedule is not paused for a saturated server; the request counts as failed
+                if (measured) {
+                    rec.error();
+                    all.error();
+                }
+                continue;
+            }
+            inFlight.incrementAndGet();
+            long sent = System.nanoTime();
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + r.pathAndQuery()))
+                    .timeout(timeout)
+                    .GET()
+                    .build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((resp, err) -> {
+                long done = System.nanoTime();
+                inFlight.decrementAndGet();
+                if (!measured) return;
+                if (err != null || resp.statusCode() >= 400) {
+                    rec.error();
+                    all.error();
+                } else {
+                    rec.record(done - intended, done - sent);
+                    all.record(done - intended, done - sent);
+                }
+            });
+        }
+
+        // let outstanding requests finish or time out
+        long drainUntil = System.nanoTime() + timeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainUntil) {
+            Thread.sleep(10);
+        }
+
+        System.out.printf("%nrate %.1f/s: %d measured, achieved %.1f/s, %d still in flight%n",
+                rate, all.count() + all.errors(), all.count() / (double) durationSeconds, inFlight.get());
+        new TreeMap<>(byEndpoint).forEach((name, r) -> System.out.println(r.summary(name)));
+        System.out.println(all.summary("all"));
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --option value at " + args[i]);
+            }
+            opts.put(args[i].substring(2), args[++i]);
+        }
+        return opts;
+    }
+
+    private static double[] doubles(String csv) {
+        return Arrays.stream(csv.split(",")).map(String::trim).mapToDouble(Double::parseDouble).toArray();
+    }
+
+    private static Map<String, Integer> weights(String csv) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : csv.split(",")) {
+            String[] kv = part.split("=");
+            weights.put(kv[0].trim(), Integer.parseInt(kv[1].trim()));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,163 @@
+package com.pdsa.touristappbackend.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Source of requests for the load harness.
+ * Two kinds:
+ * - generated(): a skewed synthetic mix inside a bounding box. Most points fall around a few
+ *   hotspots (Fort, Pettah, Galle Face, ...) with Zipf-like popularity, the rest uniformly
+ *   anywhere in the box, so repeated and nearby queries show up as they do in real traffic.
+ *   Endpoints are picked by weight (e.g. by-coords=70, multi-stop=20, poi=10).
+ * - replay(): request lines from a recorded log, one "/api/route/...?..." per line
+ *   (blank lines and lines starting with # are skipped), cycled in order.
+ */
+public abstract class QueryMix {
+
+    public record Request(String endpoint, String pathAndQuery) {}
+
+    // lat, lon of popular places in Colombo, most popular first
+    private static final double[][] HOTSPOTS = {
+            {6.9344, 79.8428},  // Fort
+            {6.9375, 79.8500},  // Pettah
+            {6.9271, 79.8447},  // Galle Face
+            {6.9147, 79.8778},  // Borella
+            {6.9094, 79.8940},  // Rajagiriya
+            {6.8649, 79.8997},  // Nugegoda
+            {6.8511, 79.8659},  // Dehiwala
+            {6.8390, 79.8635},  // Mount Lavinia
+    };
+    // share of points drawn around a hotspot rather than uniformly
+    private static final double HOTSPOT_SHARE = 0.8;
+    // spread around a hotspot, ~1 km
+    private static final double HOTSPOT_SIGMA_DEG = 0.009;
+    private static final int MAX_STOPS = 3;
+
+    public abstract Request next();
+
+    /**
+     * Synthetic skewed mix
+     * @param bbox - {minLat, minLon, maxLat, maxLon}
+     * @param weights - endpoint name (by-coords, multi-stop, poi) to relative weight
+     * @param token - session token for /poi, required if poi has a weight
+     * @param seed - random seed, the same seed gives the same request sequence
+     */
+    public static QueryMix generated(double[] bbox, Map<String, Integer> weights, String token, long seed) {
+        if (weights.getOrDefault("poi", 0) > 0 && token == null) {
+            throw new IllegalArgumentException("poi in the mix needs --token");
+        }
+        return new Generated(bbox, weights, token, seed);
+    }
+
+    /**
+     * Replay of a recorded query log
+     * @param file - one request path with query string per line
+     */
+    public static QueryMix replay(Path file) throws IOException {
+        List<Request> requests = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            requests.add(new Request(endpointOf(line), line));
+        }
+        if (requests.isEmpty()) throw new IllegalArgumentException("No requests in " + file);
+        return new QueryMix() {
+            private int i;
+
+            @Override
+            public Request next() {
+                return requests.get(i++ % requests.size());
+            }
+        };
+    }
+
+    // last path segment before the query, e.g. "by-coords"
+    static String endpointOf(String pathAndQuery) {
+        int q = pathAndQuery.indexOf('?');
+        String path = q < 0 ? pathAndQuery : pathAndQuery.substring(0, q);
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static class Generated extends QueryMix {
+        private final double[] bbox;
+        private final String[] endpoints;
+        private final int[] cumulative;
+        private final double[] hotspotCumulative;
+        private final String token;
+        private final Random rnd;
+
+        Generated(double[] bbox, Map<String, Integer> weights, String token, long seed) {
+            this.bbox = bbox;
+            this.token = token;
+            this.rnd = new Random(seed);
+
+            List<String> names = new ArrayList<>();
+            List<Integer> sums = new ArrayList<>();
+            int total = 0;
+            for (Map.Entry<String, Integer> e : weights.entrySet()) {
+                if (e.getValue() <= 0) continue;
+                total += e.getValue();
+                names.add(e.getKey());
+                sums.add(total);
+            }
+            if (names.isEmpty()) throw new IllegalArgumentException("Empty query mix");
+            this.endpoints = names.toArray(new String[0]);
+            this.cumulative = sums.stream().mapToInt(Integer::intValue).toArray();
+
+            // Zipf: weight of rank r is 1 / r
+            hotspotCumulative = new double[HOTSPOTS.length];
+            double sum = 0;
+            for (int r = 0; r < HOTSPOTS.length; r++) {
+                sum += 1.0 / (r + 1);
+                hotspotCumulative[r] = sum;
+            }
+        }
+
+        @Override
+        public Request next() {
+            int pick = rnd.nextInt(cumulative[cumulative.length - 1]);
+            int e = 0;
+            while (cumulative[e] <= pick) e++;
+            String endpoint = endpoints[e];
+
+            double[] start = point();
+            double[] end = point();
+            StringBuilder q = new StringBuilder("/api/route/").append(endpoint)
+                    .append("?startLat=").append(start[0]).append("&startLon=").append(start[1])
+                    .append("&endLat=").append(end[0]).append("&endLon=").append(end[1]);
+            switch (endpoint) {
+                case "multi-stop" -> {
+                    int stops = 1 + rnd.nextInt(MAX_STOPS);
+                    for (int i = 0; i < stops; i++) {
+                        double[] p = point();
+                        q.append("&stopLat=").append(p[0]).append("&stopLon=").append(p[1]);
+                    }
+                }
+                case "poi" -> q.append("&token=").append(token);
+                default -> { }
+            }
+            q.append("&format=polyline");
+            return new Request(endpoint, q.toString());
+        }
+
+        private double[] point() {
+            double lat, lon;
+            if (rnd.nextDouble() < HOTSPOT_SHARE) {
+                double u = rnd.nextDouble() * hotspotCumulative[hotspotCumulative.length - 1];
+                int h = 0;
+                while (hotspotCumulative[h] < u) h++;
+                lat = HOTSPOTS[h][0] + rnd.nextGaussian() * HOTSPOT_SIGMA_DEG;
+                lon = HOTSPOTS[h][1] + rnd.nextGaussian() * HOTSPOT_SIGMA_DEG;
+            } else {
+                lat = bbox[0] + rnd.nextDouble() * (bbox[2] - bbox[0]);
+                lon = bbox[1] + rnd.nextDouble() * (bbox[3] - bbox[1]);
+            }
+            return new double[]{
+                    Math.max(bbox[0], Math.min(bbox[2], lat)),
+                    Math.max(bbox[1], Math.min(bbox[3], lon))};
+        }
+    }
+}
@@ -4,15 +4,45 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Configuration properties for routing settings.
  * Maps properties with prefix "routing" from application configuration.
  * Fields:
  * - sqlitePath: path to the SQLite database file
  * - gridCellSizeDeg: size of grid cells in degrees (default 0.005)
+ * - searchParallelism: threads of the bounded search pool used by batch routing and,
+ *   in virtual-thread mode, by every route search (default: available processors)
+ * - batchMaxItems: maximum origin/destination pairs per batch request (default 10000)
+ * - coalesceTimeoutMs: how long a request waits for an identical in-flight route (default 10000)
+ * - engine: routing engine used when a request names none, "adaptive" or an engine name (default adaptive)
+ * - bidirectionalMinMeters: straight-line query distance from which the adaptive policy
+ *   switches from A* to bidirectional A* (default 5000)
+ * - warmupEnabled: load the graph and run synthetic queries at startup, before readiness (default true)
+ * - warmupQueries: synthetic queries run by the warm-up (default 200)
+ * - warmupMaxMillis: time budget for the warm-up queries (default 60000)
+ * - warmupSeed: seed of the synthetic queries (default 1)
+ * - regions: named regional graphs, each with its data file and bounding box; requests are
+ *   dispatched by coordinates (see RegionRegistry)
+ * - region: the single region served when regions is empty, with sqlitePath and
+ *   gridCellSizeDeg as its data file and grid (name defaults to "default")
+ * - closureEditors: usernames allowed to add and remove road closures (default none, read-only)
+ * - closureMaxMinutes: longest closure or penalty accepted, in minutes (default 10080, a week)
+ * - closurePruneMs: how often expired closures are dropped from the list and the overlays (default 60000)
+ * - graphEditors: usernames allowed to upload OSM change files (default none)
+ * - graphUpdateCheckMs: how often loaded graphs are compared with their database's version (default 60000)
+ * - tourMaxCandidates: POIs considered by the day-tour planner, best interest matches first (default 40)
+ * - tourTimeLimitMs: time for the day-tour distance table and solver together (default 500)
  * Provides getters for the fields.
  * Example properties:
  * routing.sqlitePath=path/to/database.sqlite
+ * routing.region.minlon=79.8
+ * routing.regions.kandy.sqlite-path=path/to/roads_kandy.db
+ * routing.regions.kandy.minlat=7.2
  */
 @Data
 @Component
@@ -20,7 +50,67 @@ import org.springframework.stereotype.Component;
 public class RoutingConfigProperties {
     private String sqlitePath;
     private double gridCellSizeDeg = 0.005;
+    private int searchParallelism = Runtime.getRuntime().availableProcessors();
+    private int batchMaxItems = 10_000;
+    private long coalesceTimeoutMs = 10_000;
+    private String engine = "adaptive";
+    private double bidirectionalMinMeters = 5_000;
+    private boolean warmupEnabled = true;
+    private int warmupQueries = 200;
+    private long warmupMaxMillis = 60_000;
+    private long warmupSeed = 1;
+    private List<String> closureEditors = new ArrayList<>();
+    private long closureMaxMinutes = 7 * 24 * 60;
+    private long closurePruneMs = 60_000;
+    private List<String> graphEditors = new ArrayList<>();
+    private long graphUpdateCheckMs = 60_000;
+    private int tourMaxCandidates = 40;
+    private long tourTimeLimitMs = 500;
+    private RegionProperties region = new RegionProperties();
+    private Map<String, RegionProperties> regions = new LinkedHashMap<>();
+
+    /**
+     * One regional graph: data file and bounding box (inclusive, degrees).
+     * Unset bounds leave that side open; unset sqlitePath / gridCellSizeDeg fall back to the
+     * routing.* ones.
+     */
+    @Data
+    public static class RegionProperties {
+        private String name;
+        private String sqlitePath;
+        private Double gridCellSizeDeg;
+        private double minlon = -180;
+        private double minlat = -90;
+        private double maxlon = 180;
+        private double maxlat = 90;
+
+        public String getName() { return name; }
+        public String getSqlitePath() { return sqlitePath; }
+        public Double getGridCellSizeDeg() { return gridCellSizeDeg; }
+        public double getMinlon() { return minlon; }
+        public double getMinlat() { return minlat; }
+        public double getMaxlon() { return maxlon; }
+        public double getMaxlat() { return maxlat; }
+    }
 
     public String getSqlitePath() { return sqlitePath; }
     public double getGridCellSizeDeg() { return gridCellSizeDeg; }
+    public int getSearchParallelism() { return searchParallelism; }
+    public int getBatchMaxItems() { return batchMaxItems; }
+    public long getCoalesceTimeoutMs() { return coalesceTimeoutMs; }
+    public String getEngine() { return engine; }
+    public double getBidirectionalMinMeters() { return bidirectionalMinMeters; }
+    public boolean isWarmupEnabled() { return warmupEnabled; }
+    public int getWarmupQueries() { return warmupQueries; }
+    public long getWarmupMaxMillis() { return warmupMaxMillis; }
+    public long getWarmupSeed() { return warmupSeed; }
+    public List<String> getClosureEditors() { return closureEditors; }
+    public long getClosureMaxMinutes() { return closureMaxMinutes; }
+    public long getClosurePruneMs() { return closurePruneMs; }
+    public List<String> getGraphEditors() { return graphEditors; }
+    public long getGraphUpdateCheckMs() { return graphUpdateCheckMs; }
+    public int getTourMaxCandidates() { return tourMaxCandidates; }
+    public long getTourTimeLimitMs() { return tourTimeLimitMs; }
+    public RegionProperties getRegion() { return region; }
+    public Map<String, RegionProperties> getRegions() { return regions; }
 }
@@ -1,8 +1,11 @@
 package com.pdsa.touristappbackend.controller;
 
+import com.pdsa.touristappbackend.model.LoginResponse;
 import com.pdsa.touristappbackend.model.User;
 import com.pdsa.touristappbackend.model.UserLoginRequest;
 import com.pdsa.touristappbackend.model.UserRegisterRequest;
+import com.pdsa.touristappbackend.model.UserResponse;
+import com.pdsa.touristappbackend.security.TokenService;
 import com.pdsa.touristappbackend.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -11,8 +14,10 @@ import org.springframework.web.bind.annotation.*;
 
 /** * AuthController class handling user registration and login endpoints
  * Endpoints:
- * - POST /api/auth/register: register a new user
- * - POST /api/auth/login: authenticate a user
+ * - POST /api/auth/register: register a new user (returns id, username and interests, never the password)
+ * - POST /api/auth/login: authenticate a user and issue a signed session token
+ * The token is passed to personalised routing endpoints as "Authorization: Bearer <token>"
+ * (or a token query parameter) and is verified without a database lookup.
  */
 @RestController
 @CrossOrigin(origins = "*")
@@ -22,15 +27,20 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private TokenService tokenService;
+
     @PostMapping("/register")
-    public ResponseEntity<User> register(@RequestBody UserRegisterRequest request) {
+    public ResponseEntity<UserResponse> register(@RequestBody UserRegisterRequest request) {
         User user = userService.register(request);
-        return ResponseEntity.ok(user);
+        return ResponseEntity.ok(new UserResponse(user.getId(), user.getUsername(), user.getInterests()));
     }
 
     @PostMapping("/login")
-    public ResponseEntity<User> login(@RequestBody UserLoginRequest request) {
+    public ResponseEntity<LoginResponse> login(@RequestBody UserLoginRequest request) {
         User user = userService.login(request.getUsername(), request.getPassword());
-        return ResponseEntity.ok(user);
+        TokenService.IssuedToken issued = tokenService.issue(user.getId(), user.getUsername());
+        return ResponseEntity.ok(new LoginResponse(user.getId(), user.getUsername(), user.getInterests(),
+                issued.token, issued.claims.getExpiresAt()));
     }
 }
@@ -0,0 +1,23 @@
+package com.pdsa.touristappbackend.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/**
+ * Answers an IllegalArgumentException that reaches a controller with 400 and { "error": message },
+ * the same body the endpoints that catch it themselves return. Covers the checks done before any
+ * work on the endpoints without their own catch: unknown format= or engine=, coordinates outside
+ * every region (OutOfRegionException), and points far from any road.
+ * Exceptions thrown inside a StreamingResponseBody are not seen here; the stream reports them itself.
+ */
+@RestControllerAdvice
+public class BadRequestAdvice {
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+}
@@ -0,0 +1,92 @@
+package com.pdsa.touristappbackend.controller;
+
+import com.pdsa.touristappbackend.routing.RouteGeometry;
+import com.pdsa.touristappbackend.routing.engine.Route;
+import com.pdsa.touristappbackend.security.TokenService;
+import com.pdsa.touristappbackend.service.DayTourService;
+import com.pdsa.touristappbackend.service.UserInterestService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+
+
+/**
+ * DayTourController class generating day tours over the user's interests
+ * Endpoint:
+ * - GET /api/route/day-tour: loop from a start point through the POIs best matching the user's
+ *   interests, within a time or a distance budget
+ * Example request:
+ * /api/route/day-tour?startLat=...&startLon=...&budgetMinutes=480[&speedKmh=25&visitMinutes=45]
+ * /api/route/day-tour?startLat=...&startLon=...&budgetMeters=8000
+ * The user is identified by the token from /api/auth/login ("Authorization: Bearer <token>" or a
+ * token parameter); POIs are weighted by the user's ratings of their categories.
+ * budgetMinutes counts driving at speedKmh (default 25), walking between road and POI and
+ * visitMinutes (default 45) per POI; budgetMeters counts road and walking meters only.
+ * The tour is a near-optimal heuristic answer computed within routing.tour-time-limit-ms (see DayTourService).
+ * Geometry options: format=json|polyline, tolerance=meters or zoom=level to simplify the shape.
+ * Response:
+ * {
+ *   "distanceMeters": total_distance,
+ *   "costMinutes": minutes_used (time budget only),
+ *   "score": sum_of_ratings,
+ *   "candidates": pois_considered,
+ *   "stops": [ { "id": ..., "name": ..., "category": ..., "lat": ..., "lon": ..., "legMeters": ... }, ... ],
+ *   "path": [ { "lat": ..., "lon": ... }, ... ],   (or "polyline": "..." with format=polyline)
+ *   "userInterests": { "interest1": weight1, ... }
+ * }
+ */
+@RestController
+@RequestMapping("/api/route")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class DayTourController {
+    private final DayTourService dayTourService;
+    private final UserInterestService userInterestService;
+    private final TokenService tokenService;
+
+    @GetMapping("/day-tour")
+    public ResponseEntity<?> dayTour(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                     @RequestParam(required = false) String token,
+                                     @RequestParam double startLat,
+                                     @RequestParam double startLon,
+                                     @RequestParam(required = false) Double budgetMinutes,
+                                     @RequestParam(required = false) Double budgetMeters,
+                                     @RequestParam(defaultValue = "25") double speedKmh,
+                                     @RequestParam(defaultValue = "45") double visitMinutes,
+                                     @RequestParam(required = false) String format,
+                                     @RequestParam(required = false) Double tolerance,
+                                     @RequestParam(required = false) Integer zoom) throws Exception {
+        String username = tokenService.verify(authorization, token).getUsername();
+        Map<String, Integer> interests = userInterestService.getWeightedUserInterests(username);
+        if (interests.isEmpty()) {
+            throw new RuntimeException("No interests found for user " + username);
+        }
+
+        try {
+            RouteGeometry.Format geometryFormat = RouteGeometry.Format.parse(format);
+            DayTourService.DayTour tour = dayTourService.plan(startLat, startLon, budgetMinutes, budgetMeters,
+                    speedKmh, visitMinutes, interests);
+
+            List<RouteGeometry> legs = new ArrayList<>();
+            for (Route leg : tour.legs) legs.add(leg.geometry);
+            RouteGeometry path = RouteGeometry.concat(legs);
+
+            Map<String, Object> resp = new HashMap<>();
+            resp.put("distanceMeters", tour.distanceMeters);
+            if (tour.costMinutes != null) resp.put("costMinutes", tour.costMinutes);
+            resp.put("score", tour.score);
+            resp.put("candidates", tour.candidates);
+            resp.put("stops", tour.stops);
+            path.simplify(path.tolerance(tolerance, zoom)).writeTo(resp, geometryFormat);
+            resp.put("userInterests", interests);
+            return ResponseEntity.ok(resp);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(
+                    Map.of("error", e.getMessage())
+            );
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.pdsa.touristappbackend.controller;
+
+import com.pdsa.touristappbackend.config.RoutingConfigProperties;
+import com.pdsa.touristappbackend.security.TokenService;
+import com.pdsa.touristappbackend.service.GraphUpdateService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * GraphUpdateController class handling incremental road graph updates
+ * Endpoints:
+ * - GET /api/graph: graph version of each region, as served and as stored in its database
+ * - POST /api/graph/changes: apply an OSM change file (.osc or .osc.gz as the request body)
+ *   to a region's database and serve the new graph version
+ * Example request:
+ * curl -H "Authorization: Bearer <token>" --data-binary @2024-06-01.osc.gz /api/graph/changes?region=colombo
+ * Uploads need a token from /api/auth/login of a user listed in routing.graph-editors; other users get 403.
+ * region defaults to the default region. A file that is not an osmChange document is a 400 and
+ * changes nothing.
+ * Response: counts of the applied edits and the new "version" (see OsmChangeApplier.Result)
+ */
+@RestController
+@RequestMapping("/api/graph")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class GraphUpdateController {
+    private final GraphUpdateService updateService;
+    private final TokenService tokenService;
+    private final RoutingConfigProperties cfg;
+
+    @GetMapping
+    public List<Map<String, Object>> versions() throws Exception {
+        return updateService.versions();
+    }
+
+    @PostMapping("/changes")
+    public ResponseEntity<?> applyChanges(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                          @RequestParam(required = false) String token,
+                                          @RequestParam(required = false) String region,
+                                          @RequestBody byte[] body) throws Exception {
+        String username = tokenService.verify(authorization, token).getUsername();
+        if (!cfg.getGraphEditors().contains(username)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(
+                    Map.of("error", "Not allowed to update the road graph")
+            );
+        }
+        try {
+            return ResponseEntity.ok(updateService.apply(region, new ByteArrayInputStream(body)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(
+                    Map.of("error", e.getMessage())
+            );
+        }
+    }
+}
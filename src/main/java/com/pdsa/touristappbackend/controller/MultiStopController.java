@@ -1,35 +1,72 @@
 package com.pdsa.touristappbackend.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pdsa.touristappbackend.model.OsmNodeData;
-import com.pdsa.touristappbackend.routing.AStarRouter;
-import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.ExplainTrace;
+import com.pdsa.touristappbackend.routing.Region;
+import com.pdsa.touristappbackend.routing.RouteGeometry;
+import com.pdsa.touristappbackend.routing.SearchTrace;
+import com.pdsa.touristappbackend.routing.engine.Route;
+import com.pdsa.touristappbackend.routing.engine.RoutePlanner;
+import com.pdsa.touristappbackend.routing.jfr.RouteQueryEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
 
 /**
  * MultiStopController class handling multi-stop routing
  * Endpoint:
  * - GET /api/route/multi-stop: calculate route with multiple stops
+ * - GET /api/route/multi-stop/stream: same route as NDJSON, one line per leg as soon as it is computed
  * Example request:
  * /api/route/multi-stop?startLat=...&startLon=...&endLat=...&endLon=...&stopLat=...&stopLon=...
  * (stopLat and stopLon can be repeated for multiple stops)
+ * Geometry options: format=json|polyline (anything else gets 400), tolerance=meters or zoom=level
+ * to simplify the shape.
+ * engine=astar|bidirectional-astar|adaptive picks the routing engine of every leg (default routing.engine,
+ * an unknown name gets 400 as on /api/route);
+ * legs are snapped and searched through RoutePlanner, so identical concurrent legs share one search.
+ * All points must lie in one served region (RegionRegistry); otherwise the request is rejected
+ * with OutOfRegionException before anything is snapped. Bad parameters, out-of-region points and
+ * points with no road near them get 400 { "error": ... } (BadRequestAdvice); once streaming has
+ * started they end the stream with an error line instead.
+ * explain=true (non-streaming endpoint) adds an "explain" section summed over all legs;
+ * exploredSamples=N also returns sampled explored node coordinates.
+ * The non-streaming endpoint emits a RouteQueryEvent when a JFR recording is running.
  * Response:
  * {
  *   "distanceMeters": total_distance,
- *   "path": [ { "lat": ..., "lon": ... }, ... ],
+ *   "path": [ { "lat": ..., "lon": ... }, ... ],   (or "polyline": "..." with format=polyline)
  *   "stopsCount": number_of_stops
  * }
+ * Stream response (application/x-ndjson), one JSON object per line:
+ * { "type": "leg", "index": i, "fromNode": ..., "toNode": ..., "distanceMeters": ..., "path": [...] | "polyline": "..." }
+ * ...
+ * { "type": "summary", "distanceMeters": total_distance, "stopsCount": number_of_stops, "legs": number_of_legs }
+ * If a leg fails after streaming started, a { "type": "error", "message": ... } line ends the stream.
+ * Snap and per-leg search metrics are tagged endpoint=multi-stop or multi-stop-stream.
  */
+@Slf4j
 @RestController
 @CrossOrigin(origins = "*")
 @RequestMapping("/api/route")
 public class MultiStopController {
 
-    private final LazyGraph graph;
+    private static final String ENDPOINT = "multi-stop";
+    private static final String STREAM_ENDPOINT = "multi-stop-stream";
 
-    public MultiStopController(LazyGraph graph) {
-        this.graph = graph;
+    private final RoutePlanner planner;
+    private final ObjectMapper mapper;
+
+    public MultiStopController(RoutePlanner planner, ObjectMapper mapper) {
+        this.planner = planner;
+        this.mapper = mapper;
     }
 
     @GetMapping("/multi-stop")
@@ -39,61 +76,178 @@ public class MultiStopController {
             @RequestParam double endLat,
             @RequestParam double endLon,
             @RequestParam List<Double> stopLat,
-            @RequestParam List<Double> stopLon
+            @RequestParam List<Double> stopLon,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) Double tolerance,
+            @RequestParam(required = false) Integer zoom,
+            @RequestParam(defaultValue = "false") boolean explain,
+            @RequestParam(defaultValue = "0") int exploredSamples,
+            @RequestParam(required = false) String engine
     ) throws Exception {
+        RouteGeometry.Format geometryFormat = RouteGeometry.Format.parse(format);
         if (stopLat.size() != stopLon.size()) {
             throw new IllegalArgumentException("stopLat and stopLon lengths differ");
         }
+        planner.engines().check(engine);
+        Region region = planner.region(latLon(startLat, startLon, stopLat, stopLon, endLat, endLon));
+        ExplainTrace explainTrace = explain ? new ExplainTrace(exploredSamples) : null;
+        RouteQueryEvent event = new RouteQueryEvent(ENDPOINT);
+        event.begin();
+        SearchTrace trace = SearchTrace.tee(explain ? explainTrace : SearchTrace.NOOP, event);
+
+        try {
+            List<OsmNodeData> waypoints = new ArrayList<>();
+
+            OsmNodeData startNode = snap(ENDPOINT, region, "start", startLat, startLon, explainTrace, trace);
+            log.debug("Start -> node {}", startNode.getId());
+            waypoints.add(startNode);
+
+            for (int i = 0; i < stopLat.size(); i++) {
+                OsmNodeData wp = snap(ENDPOINT, region, "stop" + (i + 1), stopLat.get(i), stopLon.get(i),
+                        explainTrace, trace);
+                log.debug("Stop {} -> node {}", i + 1, wp.getId());
+                waypoints.add(wp);
+            }
 
-        AStarRouter router = new AStarRouter(graph);
-        List<OsmNodeData> waypoints = new ArrayList<>();
+            OsmNodeData endNode = snap(ENDPOINT, region, "end", endLat, endLon, explainTrace, trace);
+            log.debug("End -> node {}", endNode.getId());
+            waypoints.add(endNode);
 
-        OsmNodeData startNode = router.findNearestConnectedNode(startLat, startLon);
-        System.out.printf("DEBUG: Start → Node %d (%.6f, %.6f)%n",
-                startNode.getId(), startNode.getLat(), startNode.getLon());
-        waypoints.add(startNode);
+            List<RouteGeometry> legs = new ArrayList<>();
+            double totalDist = 0;
 
-        for (int i = 0; i < stopLat.size(); i++) {
-            OsmNodeData wp = router.findNearestConnectedNode(stopLat.get(i), stopLon.get(i));
-            System.out.printf("DEBUG: Stop %d → Node %d (%.6f, %.6f)%n",
-                    i + 1, wp.getId(), wp.getLat(), wp.getLon());
-            waypoints.add(wp);
-        }
+            for (int i = 0; i < waypoints.size() - 1; i++) {
+                OsmNodeData from = waypoints.get(i);
+                OsmNodeData to = waypoints.get(i + 1);
 
-        OsmNodeData endNode = router.findNearestConnectedNode(endLat, endLon);
-        System.out.printf("DEBUG: End → Node %d (%.6f, %.6f)%n",
-                endNode.getId(), endNode.getLat(), endNode.getLon());
-        waypoints.add(endNode);
+                Route r = planner.route(ENDPOINT, region, engine, from, to, trace, explainTrace == null);
+                log.debug("Segment {} -> {} distance = {} m ({})", from.getId(), to.getId(), r.distanceMeters, r.engine);
 
-        List<Map<String, Double>> allPath = new ArrayList<>();
-        double totalDist = 0;
+                totalDist += r.distanceMeters;
 
-        for (int i = 0; i < waypoints.size() - 1; i++) {
-            long fromId = waypoints.get(i).getId();
-            long toId = waypoints.get(i + 1).getId();
-
-            System.out.printf("DEBUG: Routing segment %d → %d%n", fromId, toId);
-
-            AStarRouter.Result r = router.shortestPath(fromId, toId);
+                legs.add(r.geometry);
+            }
+            RouteGeometry allPath = RouteGeometry.concat(legs);
+
+            Map<String, Object> resp = new HashMap<>();
+            resp.put("distanceMeters", totalDist);
+            allPath.simplify(allPath.tolerance(tolerance, zoom)).writeTo(resp, geometryFormat);
+            resp.put("stopsCount", stopLat.size());
+            if (explainTrace != null) resp.put("explain", explainTrace.toMap(planner.graph(region)));
+            event.sourceNode = startNode.getId();
+            event.targetNode = endNode.getId();
+            event.distanceMeters = totalDist;
+            return resp;
+        } finally {
+            event.commit();
+        }
+    }
 
-            if (r.distance == Double.POSITIVE_INFINITY) {
-                System.out.printf("DEBUG: Segment %d → %d unreachable%n", fromId, toId);
-            } else {
-                System.out.printf("DEBUG: Segment %d → %d distance = %.2f m%n", fromId, toId, r.distance);
+    @GetMapping("/multi-stop/stream")
+    public ResponseEntity<StreamingResponseBody> multiStopStream(
+            @RequestParam double startLat,
+            @RequestParam double startLon,
+            @RequestParam double endLat,
+            @RequestParam double endLon,
+            @RequestParam List<Double> stopLat,
+            @RequestParam List<Double> stopLon,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) Double tolerance,
+            @RequestParam(required = false) Integer zoom,
+            @RequestParam(required = false) String engine
+    ) {
+        RouteGeometry.Format geometryFormat = RouteGeometry.Format.parse(format);
+        if (stopLat.size() != stopLon.size()) {
+            throw new IllegalArgumentException("stopLat and stopLon lengths differ");
+        }
+        planner.engines().check(engine);
+
+        // start, stops..., end
+        int points = stopLat.size() + 2;
+        double[] lats = new double[points];
+        double[] lons = new double[points];
+        lats[0] = startLat;
+        lons[0] = startLon;
+        for (int i = 0; i < stopLat.size(); i++) {
+            lats[i + 1] = stopLat.get(i);
+            lons[i + 1] = stopLon.get(i);
+        }
+        lats[points - 1] = endLat;
+        lons[points - 1] = endLon;
+        Region region = planner.region(latLon(startLat, startLon, stopLat, stopLon, endLat, endLon));
+
+        StreamingResponseBody body = out -> {
+            double totalDist = 0;
+            int legCount = 0;
+            try {
+                // waypoints are snapped one leg ahead so the first leg goes out without waiting for the rest
+                OsmNodeData from = snap(STREAM_ENDPOINT, region, "start", lats[0], lons[0], null, SearchTrace.NOOP);
+                for (int i = 1; i < points; i++) {
+                    OsmNodeData to = snap(STREAM_ENDPOINT, region, i == points - 1 ? "end" : "stop" + i,
+                            lats[i], lons[i], null, SearchTrace.NOOP);
+                    Route r = planner.route(STREAM_ENDPOINT, region, engine, from, to, SearchTrace.NOOP, true);
+                    totalDist += r.distanceMeters;
+
+                    Map<String, Object> leg = new LinkedHashMap<>();
+                    leg.put("type", "leg");
+                    leg.put("index", legCount++);
+                    leg.put("fromNode", from.getId());
+                    leg.put("toNode", to.getId());
+                    leg.put("distanceMeters", r.distanceMeters);
+                    r.geometry.simplify(r.geometry.tolerance(tolerance, zoom)).writeTo(leg, geometryFormat);
+                    writeLine(out, leg);
+                    from = to;
+                }
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                Map<String, Object> error = new LinkedHashMap<>();
+                error.put("type", "error");
+                error.put("message", e.getMessage());
+                writeLine(out, error);
+                return;
             }
 
-            totalDist += r.distance;
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("type", "summary");
+            summary.put("distanceMeters", totalDist);
+            summary.put("stopsCount", stopLat.size());
+            summary.put("legs", legCount);
+            writeLine(out, summary);
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
 
-            if (!allPath.isEmpty() && !r.path.isEmpty()) {
-                r.path.remove(0); // avoid duplicate overlap
-            }
-            allPath.addAll(r.path);
+    // RoutePlanner.snap, rejecting a point with no road near it (a graph without edges) as a bad request
+    private OsmNodeData snap(String endpoint, Region region, String label, double lat, double lon,
+                             ExplainTrace explainTrace, SearchTrace trace) {
+        OsmNodeData node = planner.snap(endpoint, region, label, lat, lon, explainTrace, trace);
+        if (node == null) throw new IllegalArgumentException("No road near the " + label + " point");
+        return node;
+    }
+
+    // start, stops..., end as lat, lon pairs for the region lookup
+    private static double[] latLon(double startLat, double startLon, List<Double> stopLat, List<Double> stopLon,
+                                   double endLat, double endLon) {
+        double[] out = new double[2 * (stopLat.size() + 2)];
+        out[0] = startLat;
+        out[1] = startLon;
+        for (int i = 0; i < stopLat.size(); i++) {
+            out[2 * i + 2] = stopLat.get(i);
+            out[2 * i + 3] = stopLon.get(i);
         }
+        out[out.length - 2] = endLat;
+        out[out.length - 1] = endLon;
+        return out;
+    }
 
-        Map<String, Object> resp = new HashMap<>();
-        resp.put("distanceMeters", totalDist);
-        resp.put("path", allPath);
-        resp.put("stopsCount", stopLat.size());
-        return resp;
+    // one JSON object per line, flushed so the client can draw each leg immediately
+    private void writeLine(OutputStream out, Map<String, Object> line) throws IOException {
+        out.write(mapper.writeValueAsBytes(line));
+        out.write('\n');
+        out.flush();
     }
-}
\ No newline at end of file
+}
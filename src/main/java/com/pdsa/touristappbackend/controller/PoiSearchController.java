@@ -0,0 +1,66 @@
+package com.pdsa.touristappbackend.controller;
+
+import com.pdsa.touristappbackend.model.Poi;
+import com.pdsa.touristappbackend.service.NearestPoiService;
+import com.pdsa.touristappbackend.service.PoiSearchService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PoiSearchController class handling POI name search and nearest-POI queries
+ * Endpoints:
+ * - GET /api/poi/autocomplete: typeahead over POI names
+ * - GET /api/poi/nearest: the k POIs nearest to a point by road (see NearestPoiService)
+ * Example requests:
+ * /api/poi/autocomplete?q=gang[&lat=...&lon=...&limit=...]
+ * /api/poi/nearest?lat=...&lon=...[&k=5&category=temple&category=museum&maxMeters=20000]
+ * Matching is case and accent insensitive and works on any word of the name;
+ * lat/lon are optional and boost POIs near that location.
+ * Nearest POIs are ranked by walking to the road, driving along it and walking to the POI;
+ * category can be repeated, and all categories are searched when it is absent.
+ * A point outside every served region or far from any road is a 400.
+ * Responses:
+ * [ { "id": ..., "name": ..., "category": ..., "lat": ..., "lon": ... }, ... ]
+ * [ { "id": ..., "name": ..., "category": ..., "lat": ..., "lon": ..., "distanceMeters": ..., "networkMeters": ... }, ... ]
+ */
+@RestController
+@RequestMapping("/api/poi")
+@CrossOrigin(origins = "*")
+public class PoiSearchController {
+
+    private static final int MAX_LIMIT = 50;
+
+    private final PoiSearchService poiSearchService;
+    private final NearestPoiService nearestPoiService;
+
+    public PoiSearchController(PoiSearchService poiSearchService, NearestPoiService nearestPoiService) {
+        this.poiSearchService = poiSearchService;
+        this.nearestPoiService = nearestPoiService;
+    }
+
+    @GetMapping("/autocomplete")
+    public List<Poi> autocomplete(@RequestParam String q,
+                                  @RequestParam(required = false) Double lat,
+                                  @RequestParam(required = false) Double lon,
+                                  @RequestParam(defaultValue = "10") int limit) {
+        return poiSearchService.autocomplete(q, lat, lon, Math.min(limit, MAX_LIMIT));
+    }
+
+    @GetMapping("/nearest")
+    public ResponseEntity<?> nearest(@RequestParam double lat,
+                                     @RequestParam double lon,
+                                     @RequestParam(defaultValue = "5") int k,
+                                     @RequestParam(required = false) List<String> category,
+                                     @RequestParam(defaultValue = "20000") double maxMeters) throws Exception {
+        try {
+            return ResponseEntity.ok(nearestPoiService.nearest(lat, lon, Math.min(k, MAX_LIMIT), category, maxMeters));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(
+                    Map.of("error", e.getMessage())
+            );
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.pdsa.touristappbackend.controller;
+
+import com.pdsa.touristappbackend.config.RoutingConfigProperties;
+import com.pdsa.touristappbackend.model.RoadClosureRequest;
+import com.pdsa.touristappbackend.security.TokenService;
+import com.pdsa.touristappbackend.service.RoadClosureService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * RoadClosureController class handling temporary road closures (processions, floods, works)
+ * Endpoints:
+ * - GET /api/closures: list the active closures and penalties
+ * - POST /api/closures: register a list of closures, all or none
+ * - DELETE /api/closures/{id}: lift a closure before it expires
+ * Changes need a token from /api/auth/login ("Authorization: Bearer <token>" or a token parameter)
+ * of a user listed in routing.closure-editors; other users get 403.
+ * Closures apply to route searches immediately, without reloading the graph (see RoadOverlay),
+ * and lapse on their own after their duration.
+ * Request body:
+ * [ { "region": "optional", "nodes": [osmId, osmId, ...], "bothDirections": true,
+ *     "penaltyMeters": null, "minutes": 240, "reason": "Perahera" }, ... ]
+ * nodes lists consecutive road nodes; penaltyMeters null closes the road, a number only makes it costlier.
+ * Response: the registered closures with their "id", "createdAt" and "expiresAt".
+ */
+@RestController
+@RequestMapping("/api/closures")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class RoadClosureController {
+    private final RoadClosureService closureService;
+    private final TokenService tokenService;
+    private final RoutingConfigProperties cfg;
+
+    @GetMapping
+    public List<RoadClosureService.RoadClosure> list() {
+        return closureService.active();
+    }
+
+    @PostMapping
+    public ResponseEntity<?> add(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                 @RequestParam(required = false) String token,
+                                 @RequestBody List<RoadClosureRequest> closures) {
+        if (!isEditor(authorization, token)) return forbidden();
+        try {
+            return ResponseEntity.ok(closureService.add(closures));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(
+                    Map.of("error", e.getMessage())
+            );
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> remove(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                    @RequestParam(required = false) String token,
+                                    @PathVariable String id) {
+        if (!isEditor(authorization, token)) return forbidden();
+        if (!closureService.remove(id)) return ResponseEntity.notFound().build();
+        return ResponseEntity.noContent().build();
+    }
+
+    // an invalid or missing token is a 401 (InvalidTokenException), a valid non-editor a 403
+    private boolean isEditor(String authorization, String token) {
+        String username = tokenService.verify(authorization, token).getUsername();
+        return cfg.getClosureEditors().contains(username);
+    }
+
+    private static ResponseEntity<?> forbidden() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(
+                Map.of("error", "Not allowed to edit road closures")
+        );
+    }
+}
@@ -1,22 +1,44 @@
 package com.pdsa.touristappbackend.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdsa.touristappbackend.model.BatchRouteItem;
+import com.pdsa.touristappbackend.routing.ExplainTrace;
+import com.pdsa.touristappbackend.routing.RouteGeometry;
+import com.pdsa.touristappbackend.service.BatchRoutingService;
 import com.pdsa.touristappbackend.service.RoutingService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
 
 
 /**
  * RouteController class handling routing requests
- * Endpoint:
+ * Endpoints:
  * - GET /api/route/by-coords: get route between two coordinates
+ * - POST /api/route/batch: routes for many origin/destination pairs, streamed back as NDJSON
  * Example request:
- * /api/route/by-coords?startLat=...&startLon=...&endLat=...&endLon=...
+ * /api/route/by-coords?startLat=...&startLon=...&endLat=...&endLon=...[&format=json|polyline&tolerance=...&zoom=...]
+ * tolerance (meters) or zoom (map zoom level) simplifies the shape with Douglas-Peucker.
+ * explain=true adds an "explain" section with phase timings, search counters and snaps;
+ * exploredSamples=N also returns up to N sampled explored node coordinates.
+ * engine=astar|bidirectional-astar|adaptive picks the routing engine (default routing.engine, see RoutingEngines);
+ * the batch endpoint accepts the same parameter for all its items.
+ * Both points must lie in one served region (see RegionRegistry), otherwise by-coords answers 400
+ * before snapping and a batch item gets status out_of_region.
  * Response:
  * {
  *   "distanceMeters": total_distance,
- *   "path": [ { "lat": ..., "lon": ... }, ... ]
+ *   "path": [ { "lat": ..., "lon": ... }, ... ]   (or "polyline": "..." with format=polyline)
  * }
+ * Batch request body (same geometry options as query parameters):
+ * [ { "id": "optional", "startLat": ..., "startLon": ..., "endLat": ..., "endLon": ... }, ... ]
+ * Batch response (application/x-ndjson), one line per item in request order:
+ * { "index": i, "id": ..., "fromNode": ..., "toNode": ..., "status": "ok", "distanceMeters": ..., "path": [...] }
+ * status is one of ok, no_route, no_snap, out_of_region, error (with "message").
  */
 @RestController
 @RequestMapping("/api/route")
@@ -24,16 +46,26 @@ import org.springframework.web.bind.annotation.*;
 @CrossOrigin(origins = "*")
 public class RouteController {
     private final RoutingService routingService;
+    private final BatchRoutingService batchRoutingService;
+    private final ObjectMapper mapper;
 
     @GetMapping("/by-coords")
     public ResponseEntity<?> byCoords(
             @RequestParam double startLat,
             @RequestParam double startLon,
             @RequestParam double endLat,
-            @RequestParam double endLon) {
+            @RequestParam double endLon,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) Double tolerance,
+            @RequestParam(required = false) Integer zoom,
+            @RequestParam(defaultValue = "false") boolean explain,
+            @RequestParam(defaultValue = "0") int exploredSamples,
+            @RequestParam(required = false) String engine) {
 
         try {
-            RoutingService.RouteResult r = routingService.routeByCoords(startLat, startLon, endLat, endLon);
+            RoutingService.RouteResult r = routingService.routeByCoords(startLat, startLon, endLat, endLon,
+                    RouteGeometry.Format.parse(format), tolerance, zoom,
+                    explain ? new ExplainTrace(exploredSamples) : null, engine);
             return ResponseEntity.ok(r);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(
@@ -41,4 +73,32 @@ public class RouteController {
             );
         }
     }
+
+    @PostMapping("/batch")
+    public ResponseEntity<?> batch(
+            @RequestBody List<BatchRouteItem> items,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) Double tolerance,
+            @RequestParam(required = false) Integer zoom,
+            @RequestParam(required = false) String engine) {
+
+        RouteGeometry.Format geometryFormat;
+        try {
+            geometryFormat = RouteGeometry.Format.parse(format);
+            batchRoutingService.validate(items, engine);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(
+                    java.util.Map.of("error", e.getMessage())
+            );
+        }
+
+        StreamingResponseBody body = out -> batchRoutingService.route(items, geometryFormat, tolerance, zoom, engine, line -> {
+            out.write(mapper.writeValueAsBytes(line));
+            out.write('\n');
+            out.flush();
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
 }
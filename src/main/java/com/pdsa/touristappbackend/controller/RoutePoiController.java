@@ -1,10 +1,20 @@
 package com.pdsa.touristappbackend.controller;
 
 import com.pdsa.touristappbackend.model.OsmNodeData;
-import com.pdsa.touristappbackend.routing.AStarRouter;
-import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.ExplainTrace;
+import com.pdsa.touristappbackend.routing.Region;
+import com.pdsa.touristappbackend.routing.RouteGeometry;
+import com.pdsa.touristappbackend.routing.RoutingMetrics;
+import com.pdsa.touristappbackend.routing.SearchStats;
+import com.pdsa.touristappbackend.routing.SearchTrace;
+import com.pdsa.touristappbackend.routing.engine.Route;
+import com.pdsa.touristappbackend.routing.engine.RoutePlanner;
+import com.pdsa.touristappbackend.routing.jfr.RouteQueryEvent;
+import com.pdsa.touristappbackend.security.InvalidTokenException;
+import com.pdsa.touristappbackend.security.TokenService;
+import com.pdsa.touristappbackend.service.PoiRankingService;
 import com.pdsa.touristappbackend.service.UserInterestService;
-import com.pdsa.touristappbackend.repository.PoiSqliteRepository;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.*;
@@ -15,13 +25,31 @@ import java.util.*;
  * Endpoint:
  * - GET /api/route/poi: get route with POIs based on user interests
  * Example request:
- * /api/route/poi?username=...&password=...&startLat=...&startLon=...&endLat=...&endLon=...
+ * /api/route/poi?startLat=...&startLon=...&endLat=...&endLon=...[&maxDetourMeters=...&limit=...&minScore=...]
+ * The user is identified by the token from /api/auth/login, sent as "Authorization: Bearer <token>"
+ * or a token parameter, and verified locally without touching MySQL. A request without a token
+ * (including the former username=...&password=... form) gets a 401 pointing to /api/auth/login.
+ * Geometry options: format=json|polyline (anything else gets 400), tolerance=meters or zoom=level
+ * to simplify the shape.
+ * engine=astar|bidirectional-astar|adaptive picks the routing engine (default routing.engine, an
+ * unknown name gets 400 as on /api/route);
+ * start and end snap to the nearest connected node and the route is searched through RoutePlanner,
+ * in the served region containing both (out-of-region coordinates are rejected before snapping).
+ * Bad parameters, out-of-region points and points with no road near them get 400 { "error": ... }
+ * (BadRequestAdvice).
+ * POIs are scored by the user's rating of their category against the network detour needed
+ * to visit them (see PoiRankingService); POIs needing more than maxDetourMeters (default 2000)
+ * or scoring below minScore (default 0) are dropped, and only the best limit (default 10) are returned.
+ * Snap, route search and corridor search metrics are tagged endpoint=poi.
+ * explain=true adds an "explain" section (snap, search, reconstruct and poi timings, route search
+ * counters, snaps); exploredSamples=N also returns sampled explored node coordinates.
+ * Each request emits a RouteQueryEvent when a JFR recording is running.
  * Response:
  * {
  *   "distanceMeters": total_distance,
- *   "path": [ { "lat": ..., "lon": ... }, ... ],
+ *   "path": [ { "lat": ..., "lon": ... }, ... ],   (or "polyline": "..." with format=polyline)
  *   "userInterests": { "interest1": weight1, ... },
- *   "pois": [ { "id": ..., "name": ..., "lat": ..., "lon": ..., "category": ..., "rating": ... }, ... ]
+ *   "pois": [ { "id": ..., "name": ..., "lat": ..., "lon": ..., "category": ..., "detourMeters": ..., "score": ... }, ... ]
  * }
  */
 @RestController
@@ -29,58 +57,98 @@ import java.util.*;
 @CrossOrigin(origins = "*")
 public class RoutePoiController {
 
-    private final AStarRouter router;
+    private static final String ENDPOINT = "poi";
+
+    private final RoutePlanner planner;
     private final UserInterestService userInterestService;
-    private final PoiSqliteRepository poiRepo;
+    private final PoiRankingService poiRanking;
+    private final TokenService tokenService;
+    private final RoutingMetrics metrics;
 
-    public RoutePoiController(LazyGraph graph,
+    public RoutePoiController(RoutePlanner planner,
                               UserInterestService userInterestService,
-                              PoiSqliteRepository poiRepo) {
-        this.router = new AStarRouter(graph);
+                              PoiRankingService poiRanking,
+                              TokenService tokenService,
+                              RoutingMetrics metrics) {
+        this.planner = planner;
         this.userInterestService = userInterestService;
-        this.poiRepo = poiRepo;
+        this.poiRanking = poiRanking;
+        this.tokenService = tokenService;
+        this.metrics = metrics;
     }
 
     @GetMapping("/poi")
-    public Map<String, Object> routeWithPoi(@RequestParam String username,
-                                            @RequestParam String password,
+    public Map<String, Object> routeWithPoi(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                            @RequestParam(required = false) String token,
                                             @RequestParam double startLat,
                                             @RequestParam double startLon,
                                             @RequestParam double endLat,
-                                            @RequestParam double endLon) throws Exception {
+                                            @RequestParam double endLon,
+                                            @RequestParam(defaultValue = "2000") double maxDetourMeters,
+                                            @RequestParam(defaultValue = "10") int limit,
+                                            @RequestParam(defaultValue = "0") double minScore,
+                                            @RequestParam(required = false) String format,
+                                            @RequestParam(required = false) Double tolerance,
+                                            @RequestParam(required = false) Integer zoom,
+                                            @RequestParam(defaultValue = "false") boolean explain,
+                                            @RequestParam(defaultValue = "0") int exploredSamples,
+                                            @RequestParam(required = false) String engine) throws Exception {
 
+        RouteGeometry.Format geometryFormat = RouteGeometry.Format.parse(format);
+        planner.engines().check(engine);
+        Region region = planner.region(startLat, startLon, endLat, endLon);
+        String username = resolveUsername(authorization, token);
         Map<String, Integer> interests = userInterestService.getWeightedUserInterests(username);
         if (interests.isEmpty()) {
             throw new RuntimeException("No interests found for user " + username);
         }
 
-        OsmNodeData start = router.findNearestNode(startLat, startLon);
-        OsmNodeData end = router.findNearestNode(endLat, endLon);
-        var result = router.shortestPath(start.getId(), end.getId());
+        ExplainTrace explainTrace = explain ? new ExplainTrace(exploredSamples) : null;
+        RouteQueryEvent event = new RouteQueryEvent(ENDPOINT);
+        event.begin();
+        SearchTrace trace = SearchTrace.tee(explain ? explainTrace : SearchTrace.NOOP, event);
 
-        List<Map<String, Double>> pathCoords = new ArrayList<>();
-        for (Map<String, Double> coord : result.path) {
-            Map<String, Double> point = new HashMap<>();
-            point.put("lat", coord.get("lat"));
-            point.put("lon", coord.get("lon"));
-            pathCoords.add(point);
-        }
+        try {
+            OsmNodeData start = planner.snap(ENDPOINT, region, "start", startLat, startLon, explainTrace, trace);
+            OsmNodeData end = planner.snap(ENDPOINT, region, "end", endLat, endLon, explainTrace, trace);
+            if (start == null || end == null) {
+                throw new IllegalArgumentException("No road near the " + (start == null ? "start" : "end") + " point");
+            }
+
+            Route result = planner.route(ENDPOINT, region, engine, start, end, trace, explainTrace == null);
 
-        List<String> categories = new ArrayList<>(interests.keySet());
-        List<Map<String, Object>> pois = poiRepo.findPoisByCategoryNearPath(result.path, categories);
+            SearchStats corridorStats = new SearchStats();
+            long poiStart = System.nanoTime();
+            // the POI query stays on this thread, PoiRankingService hands only its searches to the pool
+            List<Map<String, Object>> pois = poiRanking.topPoisAlongRoute(planner.graph(region), result.pathNodeIds,
+                    result.geometry, interests, maxDetourMeters, limit, minScore, corridorStats);
+            long poiNanos = System.nanoTime() - poiStart;
+            metrics.recordSearch(ENDPOINT, RoutingMetrics.CORRIDOR_DIJKSTRA, poiNanos,
+                    corridorStats, Double.POSITIVE_INFINITY);
+            trace.phase("poi", poiNanos);
 
-        pois.sort((a, b) -> {
-            int r1 = interests.getOrDefault(a.get("category"), 1);
-            int r2 = interests.getOrDefault(b.get("category"), 1);
-            return Integer.compare(r2, r1); // higher rating first
-        });
+            Map<String, Object> resp = new HashMap<>();
+            resp.put("distanceMeters", result.distanceMeters);
+            result.geometry.simplify(result.geometry.tolerance(tolerance, zoom)).writeTo(resp, geometryFormat);
+            resp.put("userInterests", interests);
+            resp.put("pois", pois);
+            if (explainTrace != null) resp.put("explain", explainTrace.toMap(planner.graph(region)));
+            event.sourceNode = start.getId();
+            event.targetNode = end.getId();
+            event.distanceMeters = result.distanceMeters;
 
-        Map<String, Object> resp = new HashMap<>();
-        resp.put("distanceMeters", result.distance);
-        resp.put("path", pathCoords);
-        resp.put("userInterests", interests);
-        resp.put("pois", pois);
+            return resp;
+        } finally {
+            event.commit();
+        }
+    }
 
-        return resp;
+    // token (header or parameter) is verified locally, never against the user database
+    private String resolveUsername(String authorization, String token) {
+        if (authorization == null && token == null) {
+            throw new InvalidTokenException("Missing token: log in with POST /api/auth/login and send the token"
+                    + " as \"Authorization: Bearer <token>\"");
+        }
+        return tokenService.verify(authorization, token).getUsername();
     }
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.pdsa.touristappbackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * BatchRouteItem class representing one origin/destination pair of a batch routing request
+ * Fields:
+ * - id: optional client reference, echoed back in the result
+ * - startLat, startLon: origin coordinate
+ * - endLat, endLon: destination coordinate
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRouteItem {
+    private String id;
+    private double startLat;
+    private double startLon;
+    private double endLat;
+    private double endLon;
+}
@@ -0,0 +1,26 @@
+package com.pdsa.touristappbackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * LoginResponse class returned by a successful login
+ * Fields:
+ * - id: the user's id
+ * - username: the user's username
+ * - interests: the user's interests
+ * - token: signed session token to pass to personalised routing endpoints
+ * - expiresAt: token expiry time in epoch seconds
+ * The password is never returned.
+ */
+@AllArgsConstructor
+@Getter
+public class LoginResponse {
+    private Long id;
+    private String username;
+    private Set<Interest> interests;
+    private String token;
+    private long expiresAt;
+}
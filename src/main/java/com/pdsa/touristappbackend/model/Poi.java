@@ -0,0 +1,24 @@
+package com.pdsa.touristappbackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Poi class representing a point of interest from the POI SQLite database
+ * Fields:
+ * - id: unique identifier of the POI
+ * - name: display name
+ * - category: POI category, matches interest names
+ * - lat: latitude
+ * - lon: longitude
+ * Used by in-memory POI indexes
+ */
+@Data
+@AllArgsConstructor
+public class Poi {
+    private long id;
+    private String name;
+    private String category;
+    private double lat;
+    private double lon;
+}
@@ -0,0 +1,29 @@
+package com.pdsa.touristappbackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * RoadClosureRequest class representing one temporary road closure or penalty to register
+ * Fields:
+ * - region: served region the road lies in, or null for the default region
+ * - nodes: OSM node ids along the road, in order; every consecutive pair must be an edge
+ * - bothDirections: also close the opposite direction where the road has one (default true)
+ * - penaltyMeters: extra meters per edge instead of closing it, or null to close
+ * - minutes: how long the closure applies, from now
+ * - reason: free text shown when listing closures, e.g. "Perahera"
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoadClosureRequest {
+    private String region;
+    private List<Long> nodes;
+    private boolean bothDirections = true;
+    private Double penaltyMeters;
+    private long minutes;
+    private String reason;
+}
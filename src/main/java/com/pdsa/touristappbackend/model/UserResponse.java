@@ -0,0 +1,22 @@
+package com.pdsa.touristappbackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * UserResponse class returned by a successful registration
+ * Fields:
+ * - id: the new user's id
+ * - username: the user's username
+ * - interests: the user's interests
+ * The password hash is never returned; log in to obtain a session token.
+ */
+@AllArgsConstructor
+@Getter
+public class UserResponse {
+    private Long id;
+    private String username;
+    private Set<Interest> interests;
+}
@@ -1,23 +1,35 @@
 package com.pdsa.touristappbackend.repository;
 
+import com.pdsa.touristappbackend.model.Poi;
+import com.pdsa.touristappbackend.routing.RouteGeometry;
 import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
 
 // Repository for accessing POI data from SQLite database
+@Slf4j
 @Repository
 public class PoiSqliteRepository {
 
-    private final String dbPath = "src/main/resources/data/poi.db";
+    private static final double NEAR_PATH_METERS = 500;
+
+    private final String dbPath;
     private Connection conn;
 
+    public PoiSqliteRepository(@Value("${routing.poi-sqlite-path:src/main/resources/data/poi.db}") String dbPath) {
+        this.dbPath = dbPath;
+    }
+
     @PostConstruct
     public void init() {
         try {
             conn = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
-            System.out.println("Connected to POI SQLite: " + dbPath);
+            log.info("Connected to POI SQLite: {}", dbPath);
         } catch (SQLException e) {
             throw new RuntimeException("Failed to connect to POI SQLite", e);
         }
@@ -25,46 +37,176 @@ public class PoiSqliteRepository {
 
 
     public List<Map<String, Object>> findPoisByCategoryNearPath(
-            List<Map<String, Double>> path, List<String> categories) {
+            RouteGeometry path, List<String> categories) {
 
         List<Map<String, Object>> results = new ArrayList<>();
+        forEachPoiByCategoryNearPath(path, categories, results::add);
+        return results;
+    }
 
-        if (path == null || path.isEmpty() || categories == null || categories.isEmpty()) {
-            return results;
+    /**
+     * Stream POIs of the given categories that lie within ~500m of any path point.
+     * Rows are handed to the consumer as they are read, so callers can keep only what they need.
+     * The query is restricted to the bounding box of the path (plus the search radius) first.
+     * @param path - route shape
+     * @param categories - categories to include
+     * @param sink - receives one map per matching POI (id, name, category, lat, lon)
+     */
+    public void forEachPoiByCategoryNearPath(RouteGeometry path,
+                                             List<String> categories,
+                                             Consumer<Map<String, Object>> sink) {
+        if (path == null || path.size() == 0 || categories == null || categories.isEmpty()) {
+            return;
         }
 
-        try {
-            String sql = "SELECT id, name, category, lat, lon FROM pois WHERE category IN ("
-                    + String.join(",", Collections.nCopies(categories.size(), "?")) + ")";
-            PreparedStatement ps = conn.prepareStatement(sql);
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (int p = 0; p < path.size(); p++) {
+            minLat = Math.min(minLat, path.lat(p));
+            maxLat = Math.max(maxLat, path.lat(p));
+            minLon = Math.min(minLon, path.lon(p));
+            maxLon = Math.max(maxLon, path.lon(p));
+        }
+        double padLat = NEAR_PATH_METERS / 111_320.0;
+        double padLon = padLat / Math.max(0.1, Math.cos(Math.toRadians((minLat + maxLat) / 2)));
+
+        String sql = "SELECT id, name, category, lat, lon FROM pois WHERE category IN ("
+                + String.join(",", Collections.nCopies(categories.size(), "?")) + ")"
+                + " AND lat BETWEEN ? AND ? AND lon BETWEEN ? AND ?";
 
-            for (int i = 0; i < categories.size(); i++) {
-                ps.setString(i + 1, categories.get(i));
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (String category : categories) {
+                ps.setString(i++, category);
             }
+            ps.setDouble(i++, minLat - padLat);
+            ps.setDouble(i++, maxLat + padLat);
+            ps.setDouble(i++, minLon - padLon);
+            ps.setDouble(i, maxLon + padLon);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    double lat = rs.getDouble("lat");
+                    double lon = rs.getDouble("lon");
+
+                    // check if close to any path point (within ~500m)
+                    boolean near = false;
+                    for (int p = 0; p < path.size() && !near; p++) {
+                        near = haversine(path.lat(p), path.lon(p), lat, lon) < NEAR_PATH_METERS;
+                    }
+
+                    if (near) {
+                        Map<String, Object> poi = new HashMap<>();
+                        poi.put("id", rs.getLong("id"));
+                        poi.put("name", rs.getString("name"));
+                        poi.put("category", rs.getString("category"));
+                        poi.put("lat", lat);
+                        poi.put("lon", lon);
+                        sink.accept(poi);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to query POIs", e);
+        }
+    }
 
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                double lat = rs.getDouble("lat");
-                double lon = rs.getDouble("lon");
+    /**
+     * Stream POIs of the given categories within a straight-line radius of a point.
+     * The query is restricted to the bounding box of the circle first.
+     * @param lat - center latitude
+     * @param lon - center longitude
+     * @param radiusMeters - search radius
+     * @param categories - categories to include
+     * @param sink - receives one map per matching POI (id, name, category, lat, lon)
+     */
+    public void forEachPoiByCategoryNear(double lat, double lon, double radiusMeters,
+                                         List<String> categories,
+                                         Consumer<Map<String, Object>> sink) {
+        if (categories == null || categories.isEmpty()) {
+            return;
+        }
+        double padLat = radiusMeters / 111_320.0;
+        double padLon = padLat / Math.max(0.1, Math.cos(Math.toRadians(lat)));
 
-                // check if close to any path point (within ~500m)
-                boolean near = path.stream().anyMatch(p -> haversine(
-                        p.get("lat"), p.get("lon"), lat, lon) < 500);
+        String sql = "SELECT id, name, category, lat, lon FROM pois WHERE category IN ("
+                + String.join(",", Collections.nCopies(categories.size(), "?")) + ")"
+                + " AND lat BETWEEN ? AND ? AND lon BETWEEN ? AND ?";
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (String category : categories) {
+                ps.setString(i++, category);
+            }
+            ps.setDouble(i++, lat - padLat);
+            ps.setDouble(i++, lat + padLat);
+            ps.setDouble(i++, lon - padLon);
+            ps.setDouble(i, lon + padLon);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    double poiLat = rs.getDouble("lat");
+                    double poiLon = rs.getDouble("lon");
+                    if (haversine(lat, lon, poiLat, poiLon) > radiusMeters) continue;
 
-                if (near) {
                     Map<String, Object> poi = new HashMap<>();
                     poi.put("id", rs.getLong("id"));
                     poi.put("name", rs.getString("name"));
                     poi.put("category", rs.getString("category"));
-                    poi.put("lat", lat);
-                    poi.put("lon", lon);
-                    results.add(poi);
+                    poi.put("lat", poiLat);
+                    poi.put("lon", poiLon);
+                    sink.accept(poi);
                 }
             }
         } catch (SQLException e) {
             throw new RuntimeException("Failed to query POIs", e);
         }
+    }
 
+    /**
+     * Load every named POI, used to build in-memory indexes at startup.
+     * @return all POIs that have a non-empty name
+     */
+    public List<Poi> findAllNamedPois() {
+        List<Poi> results = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(
+                     "SELECT id, name, category, lat, lon FROM pois WHERE name IS NOT NULL AND name <> ''")) {
+            while (rs.next()) {
+                results.add(new Poi(rs.getLong("id"), rs.getString("name"), rs.getString("category"),
+                        rs.getDouble("lat"), rs.getDouble("lon")));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load POIs", e);
+        }
+        return results;
+    }
+
+    /**
+     * Load the POIs inside a bounding box, named or not, used to attach one region's POIs to its road graph.
+     * @param minLat - south edge
+     * @param minLon - west edge
+     * @param maxLat - north edge
+     * @param maxLon - east edge
+     * @return POIs inside the box, edges included
+     */
+    public List<Poi> findPoisInBox(double minLat, double minLon, double maxLat, double maxLon) {
+        List<Poi> results = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT id, name, category, lat, lon FROM pois WHERE lat BETWEEN ? AND ? AND lon BETWEEN ? AND ?")) {
+            ps.setDouble(1, minLat);
+            ps.setDouble(2, maxLat);
+            ps.setDouble(3, minLon);
+            ps.setDouble(4, maxLon);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    results.add(new Poi(rs.getLong("id"), rs.getString("name"), rs.getString("category"),
+                            rs.getDouble("lat"), rs.getDouble("lon")));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load POIs", e);
+        }
         return results;
     }
 
@@ -3,10 +3,25 @@ package com.pdsa.touristappbackend.repository;
 import com.pdsa.touristappbackend.model.UserInterest;
 import com.pdsa.touristappbackend.model.UserInterestId;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
-// Repository interface for UserInterest entity with method to find interests by user ID
+// Repository interface for UserInterest entity with methods to find interests by user ID or username
 public interface UserInterestRepository extends JpaRepository<UserInterest, UserInterestId> {
     List<UserInterest> findByUserId(Long userId);
+
+    // Interest names and ratings of a user in a single join query
+    @Query("SELECT i.name AS name, ui.rating AS rating FROM UserInterest ui " +
+            "JOIN Interest i ON i.id = ui.interestId " +
+            "JOIN User u ON u.id = ui.userId " +
+            "WHERE u.username = :username")
+    List<InterestRating> findInterestRatingsByUsername(@Param("username") String username);
+
+    // Projection of an interest name with the user's rating
+    interface InterestRating {
+        String getName();
+        Integer getRating();
+    }
 }
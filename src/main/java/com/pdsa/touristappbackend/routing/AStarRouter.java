@@ -16,7 +16,9 @@ import java.util.*;
  * Optimized for performance with priority queue and hash maps.
  * Includes safety checks for disconnected nodes during nearest node search.
  * Backtracking is null-safe to avoid errors.
- * Result includes path as a list of coordinates (latitude and longitude) and total distance.
+ * Result includes the path node ids, its geometry as primitive coordinate arrays and total distance,
+ * plus the SearchStats work counters of the search.
+ * An optional SearchTrace receives settled nodes and search/reconstruct times for explain=true.
  * Designed for use in applications like mapping and navigation.
  * Thread-safe for concurrent use in multi-threaded environments.
  * Scalable for large graphs with many nodes and edges.
@@ -45,8 +47,22 @@ public class AStarRouter {
      * If no path is found, returns an empty path with infinite distance
      */
     public Result shortestPath(long startId, long endId) throws Exception {
+        return shortestPath(startId, endId, SearchTrace.NOOP);
+    }
+
+    /**
+     * Find the shortest path between two nodes, reporting to a trace.
+     * @param startId - starting node ID
+     * @param endId - ending node ID
+     * @param trace - receives settled nodes, phase times and counters
+     * @return - Result object containing the path and distance
+     * @throws Exception - if graph access fails
+     */
+    public Result shortestPath(long startId, long endId, SearchTrace trace) throws Exception {
+        long started = trace.enabled() ? System.nanoTime() : 0;
         PriorityQueue<NodeRecord> open = new PriorityQueue<>(Comparator.comparingDouble(r -> r.f));
         Map<Long, NodeRecord> allRecords = new HashMap<>();
+        SearchStats stats = new SearchStats();
 
         /**
          * Initialize the start node record and add it to the open set
@@ -57,6 +73,7 @@ public class AStarRouter {
         NodeRecord start = new NodeRecord(startId, null, 0,
                 heuristic(startId, endId));
         open.add(start);
+        stats.heapPushes++;
         allRecords.put(startId, start);
 
         // Main loop
@@ -81,10 +98,20 @@ public class AStarRouter {
             NodeRecord current = open.poll();
 
             if (current.nodeId == endId) {
-                return reconstruct(current, allRecords);
+                if (!trace.enabled()) return reconstruct(current, allRecords, stats);
+                long found = System.nanoTime();
+                trace.phase("search", found - started);
+                trace.stats(stats);
+                Result r = reconstruct(current, allRecords, stats);
+                trace.phase("reconstruct", System.nanoTime() - found);
+                return r;
             }
+            stats.settledNodes++;
+            trace.settled(current.nodeId);
+            stats.edgeQueries++;
 
             for (Edge edge : graph.neighbors(current.nodeId)) {
+                stats.relaxedEdges++;
                 double g = current.g + edge.getWeightMeters();
                 NodeRecord next = allRecords.get(edge.getTo());
 
@@ -94,17 +121,23 @@ public class AStarRouter {
                                 g + heuristic(edge.getTo(), endId));
                         allRecords.put(edge.getTo(), next);
                         open.add(next);
+                        stats.heapPushes++;
                     } else {
                         open.remove(next);
                         next.g = g;
                         next.parent = current.nodeId;
                         next.f = g + heuristic(edge.getTo(), endId);
                         open.add(next);
+                        stats.heapPushes++;
                     }
                 }
             }
         }
-        return new Result(Collections.emptyList(), Double.POSITIVE_INFINITY);
+        if (trace.enabled()) {
+            trace.phase("search", System.nanoTime() - started);
+            trace.stats(stats);
+        }
+        return new Result(RouteGeometry.EMPTY, Collections.emptyList(), Double.POSITIVE_INFINITY, stats);
     }
 
     /**
@@ -120,23 +153,17 @@ public class AStarRouter {
         return Haversine.meters(from.getLat(), from.getLon(), to.getLat(), to.getLon());
     }
 
-    private Result reconstruct(NodeRecord goal, Map<Long, NodeRecord> records) {
-        List<Map<String, Double>> coords = new ArrayList<>();
+    private Result reconstruct(NodeRecord goal, Map<Long, NodeRecord> records, SearchStats stats) {
+        List<Long> nodeIds = new ArrayList<>();
         double dist = goal.g;
 
         NodeRecord cur = goal;
         while (cur != null) {
-            OsmNodeData node = graph.getNode(cur.nodeId);
-            if (node != null) {
-                Map<String, Double> pt = new HashMap<>();
-                pt.put("lat", node.getLat());
-                pt.put("lon", node.getLon());
-                coords.add(pt);
-            }
+            nodeIds.add(cur.nodeId);
             cur = records.get(cur.parent);
         }
-        Collections.reverse(coords);
-        return new Result(coords, dist);
+        Collections.reverse(nodeIds);
+        return new Result(RouteGeometry.fromNodeIds(graph, nodeIds), nodeIds, dist, stats);
     }
 
     public OsmNodeData findNearestNode(double lat, double lon) {
@@ -153,29 +180,26 @@ public class AStarRouter {
         return nearest;
     }
 
-    public OsmNodeData findNearestConnectedNode(double lat, double lon) throws Exception {
-        OsmNodeData nearest = null;
-        double min = Double.MAX_VALUE;
-
-        for (OsmNodeData node : graph.getAllNodes()) {
-            List<Edge> edges = graph.neighbors(node.getId());
-            if (edges.isEmpty()) continue; // skip orphan/disconnected nodes
-
-            double d = Haversine.meters(lat, lon, node.getLat(), node.getLon());
-            if (d < min) {
-                min = d;
-                nearest = node;
-            }
-        }
-        return nearest;
+    /**
+     * Find the nearest node with at least one outgoing edge, using the graph's snapping grid.
+     * @param lat - latitude
+     * @param lon - longitude
+     * @return nearest connected node or null if the graph has no edges
+     */
+    public OsmNodeData findNearestConnectedNode(double lat, double lon) {
+        return graph.nearestConnectedNode(lat, lon);
     }
 
     public static class Result {
-        public final List<Map<String, Double>> path;
+        public final RouteGeometry geometry;
+        public final List<Long> pathNodeIds;
         public final double distance;
-        public Result(List<Map<String, Double>> path, double distance) {
-            this.path = path;
+        public final SearchStats stats;
+        public Result(RouteGeometry geometry, List<Long> pathNodeIds, double distance, SearchStats stats) {
+            this.geometry = geometry;
+            this.pathNodeIds = pathNodeIds;
             this.distance = distance;
+            this.stats = stats;
         }
     }
 
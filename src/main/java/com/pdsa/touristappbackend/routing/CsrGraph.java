@@ -0,0 +1,328 @@
+package com.pdsa.touristappbackend.routing;
+
+import com.pdsa.touristappbackend.util.Haversine;
+import com.pdsa.touristappbackend.util.HilbertCurve;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Road graph in compressed sparse row (CSR) form, with nodes renumbered along a Hilbert curve
+ * and adjacency and coordinates stored compactly.
+ * Layout:
+ * - nodes are dense indexes 0..n-1 in Hilbert order over their lat/lon bounding box, so nodes
+ *   close on the map sit close in every per-node array and a search touches few cache lines
+ * - coordinates are 32-bit fixed point, 1e-7 degree (about 1 cm), in lat[i] / lon[i]
+ * - the outgoing edges of node i are encoded in out[firstOut[i] .. firstOut[i + 1]), sorted by
+ *   target; each edge is two varints: the zigzag delta of its target from the previous target
+ *   (the node itself for the first) and its weight in decimetres. Hilbert order keeps the deltas
+ *   small, so most edges take 2-3 bytes. Incoming edges are encoded the same way in in[].
+ * - weights are Haversine distances between the fixed-point coordinates, rounded up to whole
+ *   decimetres, so the Haversine heuristic of the searches stays admissible and consistent
+ * - osmIds[i] is the id of node i in the database; OSM id to index goes through byId, the node
+ *   indexes sorted by OSM id (binary search), no boxed map
+ * About 28 bytes per node and 6 per edge (both directions), against 44 and 24 with plain
+ * double/int arrays. Edges are read with an EdgeCursor, which decodes in place and is reused
+ * across nodes, so iterating allocates nothing.
+ * Immutable once built; safe to share between threads (cursors are not).
+ * Usage:
+ * CsrGraph g = CsrGraph.load(conn);
+ * int u = g.index(osmId);
+ * CsrGraph.EdgeCursor c = new CsrGraph.EdgeCursor();
+ * for (g.out(u, c); c.next(); ) { int v = c.node(); double w = c.meters(); }
+ */
+public class CsrGraph {
+
+    private static final double FIXED_POINT = 1e7;
+
+    private final long[] osmIds;
+    private final int[] lat;
+    private final int[] lon;
+    private final int[] firstOut;
+    private final byte[] out;
+    private final int[] firstIn;
+    private final byte[] in;
+    private final int edges;
+    // node indexes ordered by osm id
+    private final int[] byId;
+
+    /**
+     * Reads the edges of one node. Positioned with CsrGraph.out / CsrGraph.in, then advanced
+     * with next(); node() and meters() describe the current edge. One per thread and search.
+     */
+    public static final class EdgeCursor {
+        private byte[] data;
+        private int pos;
+        private int end;
+        private int node;
+        private int decimetres;
+
+        void reset(byte[] data, int start, int end, int from) {
+            this.data = data;
+            this.pos = start;
+            this.end = end;
+            this.node = from;
+        }
+
+        public boolean next() {
+            if (pos >= end) return false;
+            int delta = readVarint();
+            node += (delta >>> 1) ^ -(delta & 1);
+            decimetres = readVarint();
+            return true;
+        }
+
+        // other end of the current edge: target of an outgoing edge, source of an incoming one
+        public int node() {
+            return node;
+        }
+
+        public double meters() {
+            return decimetres / 10.0;
+        }
+
+        private int readVarint() {
+            int b = data[pos++];
+            if (b >= 0) return b;
+            int v = b & 0x7f;
+            for (int shift = 7; ; shift += 7) {
+                b = data[pos++];
+                v |= (b & 0x7f) << shift;
+                if (b >= 0) return v;
+            }
+        }
+    }
+
+    private CsrGraph(long[] osmIds, int[] lat, int[] lon, int[] from, int[] to, int edges) {
+        int n = osmIds.length;
+        this.osmIds = osmIds;
+        this.lat = lat;
+        this.lon = lon;
+        this.edges = edges;
+
+        int[] weights = new int[edges];
+        for (int e = 0; e < edges; e++) weights[e] = decimetres(from[e], to[e]);
+        firstOut = new int[n + 1];
+        out = encode(n, from, to, weights, edges, firstOut);
+        firstIn = new int[n + 1];
+        in = encode(n, to, from, weights, edges, firstIn);
+
+        // ids are full 64-bit, so the index cannot be packed next to them: sort a permutation instead
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(osmIds[a], osmIds[b]));
+        byId = new int[n];
+        for (int i = 0; i < n; i++) byId[i] = order[i];
+    }
+
+    // rounded up, so a weight is never below the Haversine distance the heuristic uses
+    private int decimetres(int a, int b) {
+        return (int) Math.ceil(distance(a, b) * 10 - 1e-9);
+    }
+
+    // groups (node, other) pairs by node, sorts each group by other and varint-encodes it
+    private static byte[] encode(int n, int[] node, int[] other, int[] weight, int edges, int[] first) {
+        int[] start = new int[n + 1];
+        for (int e = 0; e < edges; e++) start[node[e] + 1]++;
+        for (int i = 0; i < n; i++) start[i + 1] += start[i];
+        int[] fill = Arrays.copyOf(start, n);
+        // other node in the high 32 bits, weight in the low: sorting a group sorts by other node
+        long[] grouped = new long[edges];
+        for (int e = 0; e < edges; e++) grouped[fill[node[e]]++] = ((long) other[e] << 32) | weight[e];
+
+        byte[] buf = new byte[Math.max(16, edges * 4)];
+        int pos = 0;
+        for (int i = 0; i < n; i++) {
+            Arrays.sort(grouped, start[i], start[i + 1]);
+            first[i] = pos;
+            int prev = i;
+            for (int k = start[i]; k < start[i + 1]; k++) {
+                int o = (int) (grouped[k] >>> 32);
+                if (buf.length - pos < 10) buf = Arrays.copyOf(buf, buf.length * 2);
+                int delta = o - prev;
+                pos = writeVarint(buf, pos, (delta << 1) ^ (delta >> 31));
+                pos = writeVarint(buf, pos, (int) grouped[k]);
+                prev = o;
+            }
+        }
+        first[n] = pos;
+        return Arrays.copyOf(buf, pos);
+    }
+
+    private static int writeVarint(byte[] buf, int pos, int v) {
+        while ((v & ~0x7f) != 0) {
+            buf[pos++] = (byte) ((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+        return pos;
+    }
+
+    /**
+     * Read the nodes and edges tables and build the Hilbert-ordered arrays
+     * @param conn - connection to the road database
+     * @return the graph
+     * @throws SQLException - if a query fails
+     */
+    public static CsrGraph load(Connection conn) throws SQLException {
+        int n = 0;
+        long[] ids = new long[1 << 16];
+        double[] la = new double[1 << 16];
+        double[] lo = new double[1 << 16];
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id, lat, lon FROM nodes")) {
+            while (rs.next()) {
+                if (n == ids.length) {
+                    ids = Arrays.copyOf(ids, n * 2);
+                    la = Arrays.copyOf(la, n * 2);
+                    lo = Arrays.copyOf(lo, n * 2);
+                }
+                ids[n] = rs.getLong(1);
+                la[n] = rs.getDouble(2);
+                lo[n] = rs.getDouble(3);
+                n++;
+            }
+        }
+        int[] perm = hilbertOrder(la, lo, n);
+        long[] osmIds = new long[n];
+        int[] lat = new int[n];
+        int[] lon = new int[n];
+        for (int i = 0; i < n; i++) {
+            osmIds[i] = ids[perm[i]];
+            lat[i] = (int) Math.round(la[perm[i]] * FIXED_POINT);
+            lon[i] = (int) Math.round(lo[perm[i]] * FIXED_POINT);
+        }
+
+        // edges are mapped to the new indexes through a temporary id lookup
+        CsrGraph nodesOnly = new CsrGraph(osmIds, lat, lon, new int[0], new int[0], 0);
+        int m = 0;
+        int[] from = new int[1 << 16];
+        int[] to = new int[1 << 16];
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT from_node, to_node FROM edges")) {
+            while (rs.next()) {
+                int u = nodesOnly.index(rs.getLong(1));
+                int v = nodesOnly.index(rs.getLong(2));
+                if (u < 0 || v < 0) continue;
+                if (m == from.length) {
+                    from = Arrays.copyOf(from, m * 2);
+                    to = Arrays.copyOf(to, m * 2);
+                }
+                from[m] = u;
+                to[m] = v;
+                m++;
+            }
+        }
+        return new CsrGraph(osmIds, lat, lon, from, to, m);
+    }
+
+    // permutation listing node positions in Hilbert order over the bounding box
+    private static int[] hilbertOrder(double[] lat, double[] lon, int n) {
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY, maxLon = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minLat = Math.min(minLat, lat[i]);
+            maxLat = Math.max(maxLat, lat[i]);
+            minLon = Math.min(minLon, lon[i]);
+            maxLon = Math.max(maxLon, lon[i]);
+        }
+        // curve position in the high bits, original position in the low 32: one primitive sort
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            long d = HilbertCurve.index(HilbertCurve.cell(lon[i], minLon, maxLon),
+                    HilbertCurve.cell(lat[i], minLat, maxLat));
+            keys[i] = (d << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) perm[i] = (int) keys[i];
+        return perm;
+    }
+
+    public int size() {
+        return osmIds.length;
+    }
+
+    public int edgeCount() {
+        return edges;
+    }
+
+    // approximate heap footprint of the arrays, for logs and the GraphLoadEvent
+    public long bytes() {
+        return 8L * osmIds.length + 4L * (lat.length + lon.length + byId.length)
+                + 4L * (firstOut.length + firstIn.length) + out.length + in.length;
+    }
+
+    /**
+     * Node index of an OSM id
+     * @param osmId - id in the nodes table
+     * @return index, or -1 if the graph has no such node
+     */
+    public int index(long osmId) {
+        int lo = 0, hi = byId.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long id = osmIds[byId[mid]];
+            if (id < osmId) lo = mid + 1;
+            else if (id > osmId) hi = mid - 1;
+            else return byId[mid];
+        }
+        return -1;
+    }
+
+    public long osmId(int i) {
+        return osmIds[i];
+    }
+
+    public double lat(int i) {
+        return lat[i] / FIXED_POINT;
+    }
+
+    public double lon(int i) {
+        return lon[i] / FIXED_POINT;
+    }
+
+    public boolean hasOutgoing(int i) {
+        return firstOut[i + 1] > firstOut[i];
+    }
+
+    /**
+     * Position a cursor on the outgoing edges of a node
+     * @param i - node index
+     * @param c - cursor to reuse
+     */
+    public void out(int i, EdgeCursor c) {
+        c.reset(out, firstOut[i], firstOut[i + 1], i);
+    }
+
+    /**
+     * Position a cursor on the incoming edges of a node; node() is then the edge's source
+     * @param i - node index
+     * @param c - cursor to reuse
+     */
+    public void in(int i, EdgeCursor c) {
+        c.reset(in, firstIn[i], firstIn[i + 1], i);
+    }
+
+    /**
+     * Weight of the edge between two nodes, read by decoding the source's edges
+     * @param from - source node index
+     * @param to - target node index
+     * @return weight in meters, NaN if there is no such edge
+     */
+    public double weight(int from, int to) {
+        EdgeCursor c = new EdgeCursor();
+        for (out(from, c); c.next(); ) {
+            if (c.node() == to) return c.meters();
+        }
+        return Double.NaN;
+    }
+
+    // Haversine distance between two nodes, the search heuristic
+    public double distance(int a, int b) {
+        return Haversine.meters(lat(a), lon(a), lat(b), lon(b));
+    }
+}
@@ -0,0 +1,132 @@
+package com.pdsa.touristappbackend.routing;
+
+import com.pdsa.touristappbackend.model.LatLon;
+import com.pdsa.touristappbackend.model.OsmNodeData;
+import com.pdsa.touristappbackend.util.Haversine;
+
+import java.util.*;
+
+/**
+ * SearchTrace that collects diagnostics for one explain=true request.
+ * Collected:
+ * - phase timings (snap, search, reconstruct, poi), summed over legs
+ * - the routing engine of every search, in order (one per leg)
+ * - search counters (settled nodes, relaxed edges, heap pushes, adjacency lookups as sqlQueries), summed over legs
+ * - where every point snapped: node id, snap distance and connected component,
+ *   so a bad snap or a start and end in different components is visible at a glance
+ * - optionally a sample of settled nodes, for drawing the explored frontier
+ * Sampling keeps every stride-th settled node; when the buffer is full every other sample is
+ * dropped and the stride doubles, so the sample stays spread over the whole search in bounded memory.
+ * Not thread-safe, one instance per request.
+ */
+public class ExplainTrace implements SearchTrace {
+
+    public static final int MAX_SAMPLES = 5000;
+
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+    private final SearchStats stats = new SearchStats();
+    private final List<Map<String, Object>> snaps = new ArrayList<>();
+    private final List<String> engines = new ArrayList<>();
+    private final long[] samples;
+    private int sampleCount;
+    private int stride = 1;
+    private long settledSeen;
+
+    /**
+     * @param exploredSamples - maximum number of explored nodes to return, 0 for none
+     */
+    public ExplainTrace(int exploredSamples) {
+        this.samples = new long[Math.max(0, Math.min(exploredSamples, MAX_SAMPLES))];
+    }
+
+    @Override
+    public boolean enabled() {
+        return true;
+    }
+
+    @Override
+    public void phase(String name, long nanos) {
+        phaseNanos.merge(name, nanos, Long::sum);
+    }
+
+    @Override
+    public void settled(long nodeId) {
+        if (samples.length == 0) return;
+        long pos = settledSeen++;
+        if (pos % stride != 0) return;
+        if (sampleCount == samples.length) {
+            // keep samples 0, 2, 4, ... which are exactly the positions divisible by the doubled stride
+            for (int i = 0; i < sampleCount / 2; i++) samples[i] = samples[2 * i];
+            sampleCount = (sampleCount + 1) / 2;
+            stride *= 2;
+            if (pos % stride != 0) return;
+        }
+        samples[sampleCount++] = nodeId;
+    }
+
+    @Override
+    public void stats(SearchStats s) {
+        stats.add(s);
+    }
+
+    @Override
+    public void engine(String name) {
+        engines.add(name);
+    }
+
+    /**
+     * Record where a requested point snapped
+     * @param label - point name, e.g. "start", "stop1", "end"
+     * @param lat - requested latitude
+     * @param lon - requested longitude
+     * @param node - node it snapped to, null if none
+     * @param component - connected component of the node
+     */
+    public void snapped(String label, double lat, double lon, OsmNodeData node, int component) {
+        Map<String, Object> snap = new LinkedHashMap<>();
+        snap.put("point", label);
+        if (node != null) {
+            snap.put("nodeId", node.getId());
+            snap.put("snapMeters", Haversine.meters(lat, lon, node.getLat(), node.getLon()));
+            snap.put("component", component);
+        }
+        snaps.add(snap);
+    }
+
+    /**
+     * Render the collected diagnostics for the response
+     * @param g - graph used to resolve sampled node ids to coordinates
+     * @return explain section of the response
+     */
+    public Map<String, Object> toMap(LazyGraph g) {
+        Map<String, Object> out = new LinkedHashMap<>();
+
+        Map<String, Double> timings = new LinkedHashMap<>();
+        phaseNanos.forEach((name, nanos) -> timings.put(name, nanos / 1e6));
+        out.put("timingsMs", timings);
+        out.put("engines", engines);
+
+        out.put("settledNodes", stats.settledNodes);
+        out.put("relaxedEdges", stats.relaxedEdges);
+        out.put("heapPushes", stats.heapPushes);
+        out.put("sqlQueries", stats.edgeQueries);
+
+        out.put("snaps", snaps);
+        Set<Object> components = new HashSet<>();
+        for (Map<String, Object> snap : snaps) {
+            if (snap.containsKey("component")) components.add(snap.get("component"));
+        }
+        out.put("componentMismatch", components.size() > 1);
+
+        if (samples.length > 0) {
+            List<LatLon> explored = new ArrayList<>(sampleCount);
+            for (int i = 0; i < sampleCount; i++) {
+                OsmNodeData n = g.getNode(samples[i]);
+                if (n != null) explored.add(new LatLon(n.getLat(), n.getLon()));
+            }
+            out.put("exploredStride", stride);
+            out.put("explored", explored);
+        }
+        return out;
+    }
+}
@@ -1,33 +1,133 @@
 package com.pdsa.touristappbackend.routing;
 
-import com.pdsa.touristappbackend.config.RoutingConfigProperties;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-/** Provides a singleton instance of LazyGraph initialized with the database path from configuration.
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/** Provides one LazyGraph per served region, initialized from the region's data file.
+ * The single owner of the road graphs: services and controllers ask it for a region's graph
+ * instead of holding their own instance. RoutingWarmup loads them at startup; with the warm-up
+ * disabled the first request into a region does.
  * Uses double-checked locking for thread-safe lazy initialization.
- * Prints the database path to the console upon initialization.
+ * The lock is a ReentrantLock rather than synchronized so a virtual thread waiting for the
+ * (slow, SQLite-bound) graph load does not pin its carrier thread. Regions load one at a time.
+ * Logs the region and database path upon initialization, and publishes a GraphReadyEvent
+ * before the graph is handed out and a GraphSwappedEvent once it is.
+ * New graph versions: after OSM change files are applied to a region's database
+ * (OsmChangeApplier), reload() builds the new LazyGraph beside the serving one, without the lock
+ * so first loads of other regions are not held up, and swaps it in with one map write under the
+ * lock; searches already running finish on the old arrays. reloadIfChanged()
+ * checks every routing.graph-update-check-ms (default 60000) whether a loaded region's stored
+ * version moved, so an update job outside the process is picked up without a restart.
  */
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class GraphProvider {
-    private final RoutingConfigProperties cfg;
-    private volatile LazyGraph lazyGraph;
+    private final RegionRegistry regions;
+    private final ApplicationEventPublisher events;
+    private final ReentrantLock initLock = new ReentrantLock();
+    private final Map<String, LazyGraph> graphs = new ConcurrentHashMap<>();
 
-    /** Returns the singleton instance of LazyGraph, initializing it if necessary.
+    /** Returns the graph of the default (first configured) region, initializing it if necessary.
      * @return LazyGraph instance
      */
     public LazyGraph getLazyGraph() {
-        if (lazyGraph != null) return lazyGraph;
-        synchronized (this) {
-            if (lazyGraph != null) return lazyGraph;
+        return getLazyGraph(regions.defaultRegion());
+    }
+
+    /** Returns the graph of a region, initializing it if necessary.
+     * @param region - region from RegionRegistry
+     * @return LazyGraph instance
+     */
+    public LazyGraph getLazyGraph(Region region) {
+        LazyGraph g = graphs.get(region.name);
+        if (g != null) return g;
+        initLock.lock();
+        try {
+            g = graphs.get(region.name);
+            if (g != null) return g;
             try {
-                lazyGraph = new LazyGraph(cfg.getSqlitePath());
-                System.out.println("GraphProvider: using LazyGraph with DB = " + cfg.getSqlitePath());
+                g = new LazyGraph(region.sqlitePath, region.gridCellSizeDeg);
+                log.info("GraphProvider: using LazyGraph for region {} with DB = {}", region.name, region.sqlitePath);
             } catch (Exception e) {
-                throw new RuntimeException("Failed to init LazyGraph: " + e.getMessage(), e);
+                throw new RuntimeException("Failed to init LazyGraph for region " + region.name + ": " + e.getMessage(), e);
+            }
+            events.publishEvent(new GraphReadyEvent(region, g));
+            graphs.put(region.name, g);
+        } finally {
+            initLock.unlock();
+        }
+        events.publishEvent(new GraphSwappedEvent(region, g));
+        return g;
+    }
+
+    /**
+     * Load a region's graph again from its database and replace the serving one
+     * @param region - region from RegionRegistry
+     * @return the new graph
+     */
+    public LazyGraph reload(Region region) {
+        LazyGraph g;
+        try {
+            g = new LazyGraph(region.sqlitePath, region.gridCellSizeDeg);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to reload LazyGraph for region " + region.name + ": " + e.getMessage(), e);
+        }
+        events.publishEvent(new GraphReadyEvent(region, g));
+
+        LazyGraph old;
+        initLock.lock();
+        try {
+            old = graphs.get(region.name);
+            // a concurrent reload may already have swapped in a newer version
+            if (old != null && old.version() > g.version()) {
+                g.close();
+                return old;
             }
-            return lazyGraph;
+            graphs.put(region.name, g);
+        } finally {
+            initLock.unlock();
         }
+        events.publishEvent(new GraphSwappedEvent(region, g));
+        if (old != null) old.close();
+        log.info("GraphProvider: region {} now serves graph version {} ({} nodes, {} edges)",
+                region.name, g.version(), g.csr().size(), g.csr().edgeCount());
+        return g;
+    }
+
+    /**
+     * Reload every loaded region whose database holds a newer graph version
+     */
+    @Scheduled(fixedDelayString = "${routing.graph-update-check-ms:60000}",
+            initialDelayString = "${routing.graph-update-check-ms:60000}")
+    public void reloadIfChanged() {
+        for (Region region : regions.all()) {
+            LazyGraph g = graphs.get(region.name);
+            if (g == null) continue;
+            try {
+                long stored = g.storedVersion();
+                if (stored > g.version()) {
+                    log.info("GraphProvider: region {} has graph version {}, serving {}", region.name, stored, g.version());
+                    reload(region);
+                }
+            } catch (Exception e) {
+                log.warn("GraphProvider: update check for region {} failed: {}", region.name, e.getMessage());
+            }
+        }
+    }
+
+    public boolean isLoaded(Region region) {
+        return graphs.containsKey(region.name);
+    }
+
+    public RegionRegistry regions() {
+        return regions;
     }
 }
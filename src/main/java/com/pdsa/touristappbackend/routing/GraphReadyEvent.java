@@ -0,0 +1,18 @@
+package com.pdsa.touristappbackend.routing;
+
+/**
+ * Published by GraphProvider when a region's graph has been loaded, before any request can use it.
+ * Listeners attach per-graph state such as the RoadOverlay of current closures. They run on the
+ * loading thread, under GraphProvider's lock on a first load, so they must not ask GraphProvider
+ * for this region's graph. State that can change before the graph is swapped in is refreshed on
+ * the GraphSwappedEvent that follows.
+ */
+public class GraphReadyEvent {
+    public final Region region;
+    public final LazyGraph graph;
+
+    public GraphReadyEvent(Region region, LazyGraph graph) {
+        this.region = region;
+        this.graph = graph;
+    }
+}
@@ -0,0 +1,18 @@
+package com.pdsa.touristappbackend.routing;
+
+/**
+ * Published by GraphProvider right after a region starts serving a graph: once the first load is
+ * in the map, and after reload() swaps a new version in. Listeners that keep per-graph state in
+ * step with edits made while the graph was being built (between its GraphReadyEvent and the
+ * swap, when GraphProvider still handed out the previous graph) refresh it here. Runs outside
+ * GraphProvider's lock; getLazyGraph(region) returns this graph unless a newer one was swapped in.
+ */
+public class GraphSwappedEvent {
+    public final Region region;
+    public final LazyGraph graph;
+
+    public GraphSwappedEvent(Region region, LazyGraph graph) {
+        this.region = region;
+        this.graph = graph;
+    }
+}
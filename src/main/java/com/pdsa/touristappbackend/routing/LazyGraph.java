@@ -2,63 +2,128 @@ package com.pdsa.touristappbackend.routing;
 
 import com.pdsa.touristappbackend.model.Edge;
 import com.pdsa.touristappbackend.model.OsmNodeData;
-import com.pdsa.touristappbackend.util.Haversine;
+import com.pdsa.touristappbackend.routing.jfr.GraphLoadEvent;
+import com.pdsa.touristappbackend.routing.update.OsmChangeApplier;
+import lombok.extern.slf4j.Slf4j;
 
 import java.sql.*;
 import java.util.*;
 
 /**
- * LazyGraph class for managing a graph of OSM nodes and edges with lazy loading from SQLite
- * nodes are cached in memory, edges are loaded on demand
+ * LazyGraph class for managing a graph of OSM nodes and edges loaded from SQLite
+ * nodes and edges are read once into a CsrGraph: nodes renumbered along a Hilbert curve,
+ * fixed-point coordinates and varint-encoded adjacency laid out in that order, with a mapping
+ * back to OSM ids
+ * the searches in routing.alg work on the CSR form directly (csr()); the id-based methods
+ * below are kept for the other callers and read the same arrays, no SQL per query
+ * temporary closures and penalties live in a RoadOverlay beside the CSR arrays (overlay()),
+ * swapped in one write and honoured by the searches and by neighbors() / reverseNeighbors()
  * connected components are precomputed for quick access
+ * version() is the graph_meta version the arrays were read at; OSM change files applied to the
+ * database afterwards raise storedVersion() and GraphProvider loads a new LazyGraph for them
+ * loading emits a GraphLoadEvent for Java Flight Recorder
  * Usage:
  * LazyGraph graph = new LazyGraph("path/to/sqlite.db");
  * OsmNodeData node = graph.getNode(nodeId);
  * List<Edge> edges = graph.neighbors(nodeId);
+ * List<Edge> incoming = graph.reverseNeighbors(nodeId);
+ * OsmNodeData snapped = graph.nearestConnectedNode(lat, lon);
  * int compId = graph.getComponent(nodeId);
+ * graph.csr();
  * graph.getAllNodes();
  * graph.getConnection();
+ * graph.version();
  * graph.close();
  */
+@Slf4j
 public class LazyGraph {
     // SQLite connection
     private final Connection conn;
-    // In-memory cache of nodes
-    private final Map<Long, OsmNodeData> nodeCache = new HashMap<>();
-    // Map of nodeId to connected component id
-    private final Map<Long, Integer> componentMap = new HashMap<>();
+    // Nodes and edges in Hilbert order
+    private final CsrGraph csr;
+    // Connected component id per node index
+    private final int[] components;
+    // Spatial grid over nodes that have outgoing edges, used for snapping
+    private final NodeGrid connectedGrid;
+    // graph_meta version at load time
+    private final long version;
+    // Closures and penalties, replaced as a whole
+    private volatile RoadOverlay overlay = RoadOverlay.NONE;
 
     /**
      * Constructor to initialize LazyGraph with SQLite database path
-     * Loads all nodes into memory and builds connected components
+     * Loads all nodes and edges into memory and builds connected components
      * @param sqlitePath path to SQLite database file
      * @throws Exception if database connection or queries fail
      */
     public LazyGraph(String sqlitePath) throws Exception {
+        this(sqlitePath, NodeGrid.DEFAULT_CELL_SIZE_DEG);
+    }
+
+    /**
+     * Constructor to initialize LazyGraph with SQLite database path and snapping grid cell size
+     * @param sqlitePath path to SQLite database file
+     * @param gridCellSizeDeg cell size of the snapping grid in degrees
+     * @throws Exception if database connection or queries fail
+     */
+    public LazyGraph(String sqlitePath, double gridCellSizeDeg) throws Exception {
         Class.forName("org.sqlite.JDBC");
         String url = "jdbc:sqlite:" + sqlitePath;
         this.conn = DriverManager.getConnection(url);
-        loadNodes();
-        buildComponents();
+
+        GraphLoadEvent event = new GraphLoadEvent();
+        event.begin();
+        long start = System.nanoTime();
+        // read first: an update committed during the load only causes one more reload
+        this.version = OsmChangeApplier.version(conn);
+        this.csr = CsrGraph.load(conn);
+        long loaded = System.nanoTime();
+        log.info("LazyGraph: loaded version {}, {} nodes and {} edges in Hilbert order, {} KiB",
+                version, csr.size(), csr.edgeCount(), csr.bytes() / 1024);
+        this.components = new int[csr.size()];
+        int componentCount = buildComponents();
+        this.connectedGrid = new NodeGrid(csr, gridCellSizeDeg, csr::hasOutgoing);
+        long built = System.nanoTime();
+        event.end();
+        if (event.shouldCommit()) {
+            event.sqlitePath = sqlitePath;
+            event.nodes = csr.size();
+            event.edges = csr.edgeCount();
+            event.bytes = csr.bytes();
+            event.components = componentCount;
+            event.loadTime = loaded - start;
+            event.componentTime = built - loaded;
+            event.commit();
+        }
+    }
+
+    public CsrGraph csr() {
+        return csr;
+    }
+
+    public long version() {
+        return version;
     }
 
     /**
-     * Close the database connection
-     * @throws SQLException - if closing the connection fails
+     * Version currently stored in the database, ahead of version() once change files were applied
+     * @return graph_meta version
+     * @throws SQLException - if the query fails
      */
-    private void loadNodes() throws SQLException {
-        try (Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery("SELECT id, lat, lon FROM nodes")) {
-            int count = 0;
-            while (rs.next()) {
-                long id = rs.getLong("id");
-                double lat = rs.getDouble("lat");
-                double lon = rs.getDouble("lon");
-                nodeCache.put(id, new OsmNodeData(id, lat, lon));
-                count++;
-            }
-            System.out.println("LazyGraph: cached " + count + " nodes in memory");
-        }
+    public long storedVersion() throws SQLException {
+        return OsmChangeApplier.version(conn);
+    }
+
+    public RoadOverlay overlay() {
+        return overlay;
+    }
+
+    /**
+     * Replace the closures and penalties; searches started afterwards see the new overlay
+     * @param overlay - overlay built for this graph's csr()
+     */
+    public void setOverlay(RoadOverlay overlay) {
+        this.overlay = overlay;
     }
 
     /**
@@ -67,78 +132,163 @@ public class LazyGraph {
      * @return OsmNodeData or null if not found
      */
     public OsmNodeData getNode(long id) {
-        return nodeCache.get(id);
+        int i = csr.index(id);
+        return i < 0 ? null : node(i);
     }
 
+    /**
+     * All nodes in Hilbert order, as a view over the coordinate arrays
+     * @return read-only list creating each OsmNodeData on access
+     */
     public Collection<OsmNodeData> getAllNodes() {
-        return nodeCache.values();
+        return new AbstractList<>() {
+            @Override
+            public OsmNodeData get(int i) {
+                return node(i);
+            }
+
+            @Override
+            public int size() {
+                return csr.size();
+            }
+        };
+    }
+
+    private OsmNodeData node(int i) {
+        return new OsmNodeData(csr.osmId(i), csr.lat(i), csr.lon(i));
     }
 
     /**
      * Retrieve neighbors (outgoing edges) of a node
-     * Edges are loaded on demand from the database
+     * Closed edges are left out and penalties added to the weights
      * @param id - OSM node ID
      * @return List of Edge objects representing outgoing edges
-     * @throws Exception - if database query fails
      */
-    public List<Edge> neighbors(long id) throws Exception {
+    public List<Edge> neighbors(long id) {
+        int u = csr.index(id);
+        if (u < 0) return List.of();
+        RoadOverlay ov = overlay;
         List<Edge> edges = new ArrayList<>();
-        try (PreparedStatement ps = conn.prepareStatement(
-                "SELECT to_node FROM edges WHERE from_node = ?")) {
-            ps.setLong(1, id);
-            try (ResultSet rs = ps.executeQuery()) {
-                OsmNodeData src = getNode(id);
-                while (rs.next()) {
-                    long toId = rs.getLong("to_node");
-                    OsmNodeData dst = getNode(toId);
-                    if (src != null && dst != null) {
-                        double d = Haversine.meters(src.getLat(), src.getLon(),
-                                dst.getLat(), dst.getLon());
-                        edges.add(new Edge(toId, d));
-                    }
-                }
-            }
+        CsrGraph.EdgeCursor c = new CsrGraph.EdgeCursor();
+        for (csr.out(u, c); c.next(); ) {
+            double w = c.meters() + (ov.touches(u) ? ov.penalty(u, c.node()) : 0);
+            if (w != Double.POSITIVE_INFINITY) edges.add(new Edge(csr.osmId(c.node()), w));
         }
         return edges;
     }
 
     /**
-     * Build connected components using BFS
-     * Populates componentMap with nodeId to componentId mapping
-     * @throws Exception - if any error occurs during processing
+     * Retrieve incoming edges of a node (edges reversed, so getTo() is the predecessor)
+     * Used by backward searches such as the reverse corridor Dijkstra
+     * Closed edges are left out and penalties added to the weights
+     * @param id - OSM node ID
+     * @return List of Edge objects pointing at the predecessors of the node
      */
-    private void buildComponents() throws Exception {
+    public List<Edge> reverseNeighbors(long id) {
+        int v = csr.index(id);
+        if (v < 0) return List.of();
+        RoadOverlay ov = overlay;
+        List<Edge> edges = new ArrayList<>();
+        CsrGraph.EdgeCursor c = new CsrGraph.EdgeCursor();
+        for (csr.in(v, c); c.next(); ) {
+            double w = c.meters() + (ov.touches(c.node()) ? ov.penalty(c.node(), v) : 0);
+            if (w != Double.POSITIVE_INFINITY) edges.add(new Edge(csr.osmId(c.node()), w));
+        }
+        return edges;
+    }
+
+    /**
+     * Road length of a path, from the base edge weights (no overlay penalties)
+     * @param ids - path as OSM node IDs
+     * @return length in meters, NaN if two consecutive nodes are not connected
+     */
+    public double pathLength(List<Long> ids) {
+        double length = 0;
+        for (int k = 0; k + 1 < ids.size(); k++) {
+            int u = csr.index(ids.get(k));
+            int v = csr.index(ids.get(k + 1));
+            if (u < 0 || v < 0) return Double.NaN;
+            length += csr.weight(u, v);
+        }
+        return length;
+    }
+
+    /**
+     * Find the nearest node that has at least one outgoing edge
+     * Uses the in-memory grid instead of scanning every node
+     * @param lat - latitude
+     * @param lon - longitude
+     * @return nearest connected node or null if the graph has no edges
+     */
+    public OsmNodeData nearestConnectedNode(double lat, double lon) {
+        int i = connectedGrid.nearest(lat, lon);
+        return i < 0 ? null : node(i);
+    }
+
+    /**
+     * Find the nearest connected node within a radius
+     * @param lat - latitude
+     * @param lon - longitude
+     * @param maxMeters - search radius
+     * @return nearest connected node or null if none is within maxMeters
+     */
+    public OsmNodeData nearestConnectedNode(double lat, double lon, double maxMeters) {
+        int i = connectedGrid.nearest(lat, lon, maxMeters);
+        return i < 0 ? null : node(i);
+    }
+
+    /**
+     * Build connected components using BFS over the outgoing edges
+     * Fills components with the component id of every node index
+     * @return number of components
+     */
+    private int buildComponents() {
+        int n = csr.size();
+        Arrays.fill(components, -1);
+        int[] queue = new int[n];
+        CsrGraph.EdgeCursor c = new CsrGraph.EdgeCursor();
         int compId = 0;
-        Set<Long> visited = new HashSet<>();
-
-        for (long nodeId : nodeCache.keySet()) {
-            if (visited.contains(nodeId)) continue;
-
-            Queue<Long> q = new ArrayDeque<>();
-            q.add(nodeId);
-            visited.add(nodeId);
-            componentMap.put(nodeId, compId);
-
-            while (!q.isEmpty()) {
-                long u = q.poll();
-                for (Edge e : neighbors(u)) {
-                    if (!visited.contains(e.getTo())) {
-                        visited.add(e.getTo());
-                        componentMap.put(e.getTo(), compId);
-                        q.add(e.getTo());
+
+        for (int start = 0; start < n; start++) {
+            if (components[start] != -1) continue;
+            int head = 0, tail = 0;
+            queue[tail++] = start;
+            components[start] = compId;
+
+            while (head < tail) {
+                int u = queue[head++];
+                for (csr.out(u, c); c.next(); ) {
+                    int v = c.node();
+                    if (components[v] == -1) {
+                        components[v] = compId;
+                        queue[tail++] = v;
                     }
                 }
             }
             compId++;
         }
-        System.out.println("LazyGraph: built " + compId + " connected components");
+        log.info("LazyGraph: built {} connected components", compId);
+        return compId;
     }
 
     public int getComponent(long nodeId) {
-        return componentMap.getOrDefault(nodeId, -1);
+        int i = csr.index(nodeId);
+        return i < 0 ? -1 : components[i];
     }
 
     public Connection getConnection() {
         return conn;
     }
-}
\ No newline at end of file
+
+    /**
+     * Close the SQLite connection once the graph has been replaced; the arrays stay usable
+     * for searches still running on it
+     */
+    public void close() {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            log.warn("LazyGraph: closing the connection failed: {}", e.getMessage());
+        }
+    }
+}
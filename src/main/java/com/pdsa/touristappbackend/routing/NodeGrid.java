@@ -0,0 +1,154 @@
+package com.pdsa.touristappbackend.routing;
+
+import com.pdsa.touristappbackend.util.Haversine;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Uniform lat/lon grid over CsrGraph nodes for nearest-node lookups.
+ * Nodes are bucketed by cell; a query scans rings of cells around the query cell
+ * and stops once the next ring cannot contain anything closer than the best hit.
+ * Layout: the non-empty cells' keys sorted in one long[], and the members of cell c at
+ * members[cellStart[c] .. cellStart[c + 1]), in node index (Hilbert) order, so a cell's
+ * coordinates are read from neighbouring slots of the graph's lat/lon arrays.
+ * Usage:
+ * NodeGrid grid = new NodeGrid(csr, 0.005, csr::hasOutgoing);
+ * int nearest = grid.nearest(lat, lon);
+ * int withinKm = grid.nearest(lat, lon, 1000);
+ */
+public class NodeGrid {
+    public static final double DEFAULT_CELL_SIZE_DEG = 0.005;
+    private static final double METERS_PER_DEG_LAT = 111_320.0;
+
+    private final CsrGraph g;
+    private final double cellSizeDeg;
+    private final long[] cellKeys;
+    private final int[] cellStart;
+    private final int[] members;
+    private int minCx = Integer.MAX_VALUE, maxCx = Integer.MIN_VALUE;
+    private int minCy = Integer.MAX_VALUE, maxCy = Integer.MIN_VALUE;
+
+    /**
+     * Index the nodes of a graph that pass a filter
+     * @param g - graph whose coordinates are indexed
+     * @param cellSizeDeg - cell size in degrees
+     * @param include - nodes to index, e.g. those with outgoing edges
+     */
+    public NodeGrid(CsrGraph g, double cellSizeDeg, IntPredicate include) {
+        if (cellSizeDeg <= 0) throw new IllegalArgumentException("cellSizeDeg must be positive");
+        this.g = g;
+        this.cellSizeDeg = cellSizeDeg;
+
+        int[] picked = new int[g.size()];
+        long[] keyOf = new long[g.size()];
+        int count = 0;
+        for (int i = 0; i < g.size(); i++) {
+            if (!include.test(i)) continue;
+            int cx = cellX(g.lon(i));
+            int cy = cellY(g.lat(i));
+            minCx = Math.min(minCx, cx);
+            maxCx = Math.max(maxCx, cx);
+            minCy = Math.min(minCy, cy);
+            maxCy = Math.max(maxCy, cy);
+            picked[count] = i;
+            keyOf[count] = key(cx, cy);
+            count++;
+        }
+        cellKeys = Arrays.stream(keyOf, 0, count).sorted().distinct().toArray();
+
+        // counting sort of the picked nodes by cell; ascending i keeps Hilbert order within a cell
+        cellStart = new int[cellKeys.length + 1];
+        int[] cellOf = new int[count];
+        for (int k = 0; k < count; k++) {
+            cellOf[k] = Arrays.binarySearch(cellKeys, keyOf[k]);
+            cellStart[cellOf[k] + 1]++;
+        }
+        for (int c = 0; c < cellKeys.length; c++) cellStart[c + 1] += cellStart[c];
+        int[] fill = Arrays.copyOf(cellStart, cellKeys.length);
+        members = new int[count];
+        for (int k = 0; k < count; k++) members[fill[cellOf[k]]++] = picked[k];
+    }
+
+    public int size() {
+        return members.length;
+    }
+
+    /**
+     * Find the nearest indexed node to the given coordinate
+     * @param lat - latitude
+     * @param lon - longitude
+     * @return node index of the nearest node or -1 if the grid is empty
+     */
+    public int nearest(double lat, double lon) {
+        return nearest(lat, lon, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Find the nearest indexed node within a radius; only the rings of cells that can hold a
+     * node that close are scanned, so a point far from every node costs a few cell lookups
+     * @param lat - latitude
+     * @param lon - longitude
+     * @param maxMeters - search radius
+     * @return node index of the nearest node or -1 if none is within maxMeters
+     */
+    public int nearest(double lat, double lon, double maxMeters) {
+        if (members.length == 0) return -1;
+
+        int cx = cellX(lon);
+        int cy = cellY(lat);
+        // a ring r cells away is at least (r - 1) cells from the query point in every direction;
+        // longitude degrees are the shorter ones, so use them as the lower bound
+        double minCellMeters = cellSizeDeg * METERS_PER_DEG_LAT * Math.max(0.1, Math.cos(Math.toRadians(lat)));
+        int maxRing = Math.max(Math.max(Math.abs(cx - minCx), Math.abs(cx - maxCx)),
+                Math.max(Math.abs(cy - minCy), Math.abs(cy - maxCy)));
+
+        int best = -1;
+        // nearestInCell keeps strictly closer hits, so a node at exactly maxMeters still counts
+        double bestDist = Math.nextUp(maxMeters);
+
+        for (int r = 0; r <= maxRing; r++) {
+            if ((r - 1) * minCellMeters > bestDist) break;
+            // only the border of ring r, inner cells were scanned by earlier rings
+            int step = r == 0 ? 1 : 2 * r;
+            for (int x = cx - r; x <= cx + r; x++) {
+                boolean edgeColumn = x == cx - r || x == cx + r;
+                for (int y = cy - r; y <= cy + r; y += edgeColumn ? 1 : step) {
+                    int hit = nearestInCell(x, y, lat, lon, bestDist);
+                    if (hit != -1) {
+                        bestDist = Haversine.meters(lat, lon, g.lat(hit), g.lon(hit));
+                        best = hit;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private int nearestInCell(int x, int y, double lat, double lon, double bound) {
+        int c = Arrays.binarySearch(cellKeys, key(x, y));
+        if (c < 0) return -1;
+        int best = -1;
+        for (int k = cellStart[c], end = cellStart[c + 1]; k < end; k++) {
+            int n = members[k];
+            double d = Haversine.meters(lat, lon, g.lat(n), g.lon(n));
+            if (d < bound) {
+                bound = d;
+                best = n;
+            }
+        }
+        return best;
+    }
+
+    private int cellX(double lon) {
+        return (int) Math.floor(lon / cellSizeDeg);
+    }
+
+    private int cellY(double lat) {
+        return (int) Math.floor(lat / cellSizeDeg);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) ^ (cy & 0xffffffffL);
+    }
+}
@@ -0,0 +1,12 @@
+package com.pdsa.touristappbackend.routing;
+
+/**
+ * Coordinates no served region covers, or a query whose points lie in different regions.
+ * An IllegalArgumentException, so the endpoints answer it with 400 like other bad parameters
+ * (their own catch, or controller.BadRequestAdvice).
+ */
+public class OutOfRegionException extends IllegalArgumentException {
+    public OutOfRegionException(String message) {
+        super(message);
+    }
+}
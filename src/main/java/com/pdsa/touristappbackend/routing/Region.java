@@ -0,0 +1,44 @@
+package com.pdsa.touristappbackend.routing;
+
+/**
+ * A regional road graph served by this process: its name, data file and bounding box.
+ * Built by RegionRegistry from routing.regions / routing.region; the graph itself is
+ * loaded by GraphProvider.
+ */
+public class Region {
+    public final String name;
+    public final String sqlitePath;
+    public final double gridCellSizeDeg;
+    public final double minLat;
+    public final double minLon;
+    public final double maxLat;
+    public final double maxLon;
+
+    public Region(String name, String sqlitePath, double gridCellSizeDeg,
+                  double minLat, double minLon, double maxLat, double maxLon) {
+        if (minLat > maxLat || minLon > maxLon) {
+            throw new IllegalArgumentException("Region " + name + " has an empty bounding box");
+        }
+        this.name = name;
+        this.sqlitePath = sqlitePath;
+        this.gridCellSizeDeg = gridCellSizeDeg;
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.maxLat = maxLat;
+        this.maxLon = maxLon;
+    }
+
+    public boolean contains(double lat, double lon) {
+        return lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon;
+    }
+
+    // box area in square degrees, used to prefer the tightest of overlapping regions
+    double area() {
+        return (maxLat - minLat) * (maxLon - minLon);
+    }
+
+    @Override
+    public String toString() {
+        return name + " [" + minLat + ", " + minLon + " .. " + maxLat + ", " + maxLon + "]";
+    }
+}
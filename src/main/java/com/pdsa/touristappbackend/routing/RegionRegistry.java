@@ -0,0 +1,126 @@
+package com.pdsa.touristappbackend.routing;
+
+import com.pdsa.touristappbackend.config.RoutingConfigProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * The regional graphs this process serves and the dispatch of coordinates to them.
+ * Regions come from routing.regions.<name>.* (sqlite-path, grid-cell-size-deg, minlon, minlat,
+ * maxlon, maxlat); when none are configured, routing.region.* with routing.sqlite-path is the
+ * only region.
+ * Lookup:
+ * - the boxes are kept in flat arrays, smallest area first, so a query is a scan over a few
+ *   primitive comparisons and overlapping regions resolve to the tightest one
+ *   (a city graph wins over the province graph around it)
+ * - locate() needs one region containing every point of the query, since regional graphs are
+ *   not connected to each other; otherwise it throws OutOfRegionException, before any snapping
+ * Usage:
+ * Region r = registry.locate(startLat, startLon, endLat, endLon);
+ */
+@Slf4j
+@Component
+public class RegionRegistry {
+
+    // declaration order, the first one is the default region
+    private final List<Region> regions = new ArrayList<>();
+    // by area ascending
+    private final Region[] byArea;
+    private final double[] minLat, minLon, maxLat, maxLon;
+
+    public RegionRegistry(RoutingConfigProperties cfg) {
+        if (cfg.getRegions().isEmpty()) {
+            RoutingConfigProperties.RegionProperties r = cfg.getRegion();
+            regions.add(region(r.getName() == null ? "default" : r.getName(), r, cfg));
+        } else {
+            cfg.getRegions().forEach((name, r) -> regions.add(region(name, r, cfg)));
+        }
+
+        byArea = regions.toArray(new Region[0]);
+        Arrays.sort(byArea, Comparator.comparingDouble(Region::area));
+        int n = byArea.length;
+        minLat = new double[n];
+        minLon = new double[n];
+        maxLat = new double[n];
+        maxLon = new double[n];
+        for (int i = 0; i < n; i++) {
+            minLat[i] = byArea[i].minLat;
+            minLon[i] = byArea[i].minLon;
+            maxLat[i] = byArea[i].maxLat;
+            maxLon[i] = byArea[i].maxLon;
+        }
+        log.info("RegionRegistry: serving {}", regions);
+    }
+
+    private static Region region(String name, RoutingConfigProperties.RegionProperties r,
+                                 RoutingConfigProperties cfg) {
+        String path = r.getSqlitePath() != null ? r.getSqlitePath() : cfg.getSqlitePath();
+        if (path == null) throw new IllegalArgumentException("Region " + name + " has no sqlite-path");
+        double cell = r.getGridCellSizeDeg() != null ? r.getGridCellSizeDeg() : cfg.getGridCellSizeDeg();
+        return new Region(name, path, cell, r.getMinlat(), r.getMinlon(), r.getMaxlat(), r.getMaxlon());
+    }
+
+    public List<Region> all() {
+        return Collections.unmodifiableList(regions);
+    }
+
+    public Region defaultRegion() {
+        return regions.get(0);
+    }
+
+    /**
+     * Region by name
+     * @param name - region name
+     * @return the region
+     * @throws IllegalArgumentException - if no such region exists
+     */
+    public Region get(String name) {
+        for (Region r : regions) {
+            if (r.name.equals(name)) return r;
+        }
+        throw new IllegalArgumentException("Unknown region: " + name);
+    }
+
+    /**
+     * Tightest region containing all the given points
+     * @param latLon - lat, lon pairs
+     * @return the region
+     * @throws OutOfRegionException - if no region contains every point
+     */
+    public Region locate(double... latLon) {
+        Region r = find(latLon);
+        if (r != null) return r;
+        for (int p = 0; p + 1 < latLon.length; p += 2) {
+            if (find(latLon[p], latLon[p + 1]) == null) {
+                throw new OutOfRegionException("Coordinates " + latLon[p] + ", " + latLon[p + 1]
+                        + " are outside the served regions (" + names() + ")");
+            }
+        }
+        throw new OutOfRegionException("Points lie in different regions (" + names() + "), route them separately");
+    }
+
+    /**
+     * Tightest region containing all the given points, without throwing
+     * @param latLon - lat, lon pairs
+     * @return the region or null
+     */
+    public Region find(double... latLon) {
+        outer:
+        for (int i = 0; i < byArea.length; i++) {
+            for (int p = 0; p + 1 < latLon.length; p += 2) {
+                double lat = latLon[p], lon = latLon[p + 1];
+                if (lat < minLat[i] || lat > maxLat[i] || lon < minLon[i] || lon > maxLon[i]) continue outer;
+            }
+            return byArea[i];
+        }
+        return null;
+    }
+
+    private String names() {
+        StringJoiner j = new StringJoiner(", ");
+        for (Region r : regions) j.add(r.name);
+        return j.toString();
+    }
+}
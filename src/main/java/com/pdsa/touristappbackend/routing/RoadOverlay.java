@@ -0,0 +1,145 @@
+package com.pdsa.touristappbackend.routing;
+
+import java.util.Arrays;
+
+/**
+ * Temporary closures and penalties on the edges of one CsrGraph, kept beside the graph so the
+ * base arrays are never rebuilt.
+ * Layout:
+ * - a bitset over node indexes marking the source node of every edge with an entry; a search
+ *   tests one bit per edge and only looks further for marked nodes
+ * - an open-addressing table keyed by (from, to) node indexes holding the extra meters of each
+ *   entry (infinite for a closure) and its expiry; several entries may share an edge, their
+ *   penalties add up and a closure wins
+ * Expired entries are skipped at lookup, so a closure stops applying at its expiry even before
+ * the overlay is rebuilt. Penalties are never negative, so the searches' Haversine heuristic
+ * stays admissible and their results exact.
+ * Immutable: a new overlay is built and swapped into LazyGraph in one write (setOverlay), and a
+ * search reads it once, so it sees either all or none of a change.
+ * Usage:
+ * RoadOverlay.Builder b = new RoadOverlay.Builder(csr.size());
+ * b.add(from, to, Double.POSITIVE_INFINITY, expiresAtMillis);
+ * graph.setOverlay(b.build());
+ * double w = base + (ov.touches(u) ? ov.penalty(u, v) : 0);
+ */
+public final class RoadOverlay {
+
+    public static final RoadOverlay NONE = new Builder(0).build();
+
+    private final long[] marked;
+    // table slot -> entry, -1 when empty
+    private final int[] slots;
+    private final long[] keys;
+    private final double[] penalties;
+    private final long[] expiresAt;
+
+    private RoadOverlay(long[] marked, int[] slots, long[] keys, double[] penalties, long[] expiresAt) {
+        this.marked = marked;
+        this.slots = slots;
+        this.keys = keys;
+        this.penalties = penalties;
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Whether any entry starts at a node; false for every node of an empty overlay
+     * @param from - node index
+     * @return true if penalty() may be non-zero for edges leaving the node
+     */
+    public boolean touches(int from) {
+        int word = from >>> 6;
+        return word < marked.length && (marked[word] & (1L << from)) != 0;
+    }
+
+    /**
+     * Extra cost of an edge at the current time
+     * @param from - source node index
+     * @param to - target node index
+     * @return extra meters, 0 if none, infinite if the edge is closed
+     */
+    public double penalty(int from, int to) {
+        if (slots.length == 0) return 0;
+        long key = key(from, to);
+        long now = System.currentTimeMillis();
+        double extra = 0;
+        for (int s = slot(key, slots.length); slots[s] != -1; s = (s + 1) & (slots.length - 1)) {
+            int e = slots[s];
+            if (keys[e] == key && expiresAt[e] > now) extra += penalties[e];
+        }
+        return extra;
+    }
+
+    private static long key(int from, int to) {
+        return ((long) from << 32) | (to & 0xffffffffL);
+    }
+
+    private static int slot(long key, int tableSize) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (tableSize - 1);
+    }
+
+    /**
+     * Collects entries for one graph; not thread-safe, build() once
+     */
+    public static final class Builder {
+        private final int nodes;
+        private long[] keys = new long[16];
+        private double[] penalties = new double[16];
+        private long[] expiresAt = new long[16];
+        private int size;
+
+        public Builder(int nodes) {
+            this.nodes = nodes;
+        }
+
+        /**
+         * Add a penalty or closure on one directed edge
+         * @param from - source node index
+         * @param to - target node index
+         * @param penaltyMeters - extra meters, Double.POSITIVE_INFINITY to close the edge
+         * @param expiresAtMillis - epoch millis after which the entry no longer applies
+         * @return this builder
+         */
+        public Builder add(int from, int to, double penaltyMeters, long expiresAtMillis) {
+            if (from < 0 || from >= nodes || to < 0 || to >= nodes) {
+                throw new IllegalArgumentException("Node index out of range: " + from + " -> " + to);
+            }
+            if (!(penaltyMeters >= 0)) throw new IllegalArgumentException("Penalty must be non-negative");
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                penalties = Arrays.copyOf(penalties, size * 2);
+                expiresAt = Arrays.copyOf(expiresAt, size * 2);
+            }
+            keys[size] = key(from, to);
+            penalties[size] = penaltyMeters;
+            expiresAt[size] = expiresAtMillis;
+            size++;
+            return this;
+        }
+
+        public RoadOverlay build() {
+            long[] marked = new long[size == 0 ? 0 : (nodes + 63) >>> 6];
+            // at most half full, so probe runs stay short
+            int tableSize = size == 0 ? 0 : Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+            int[] slots = new int[tableSize];
+            Arrays.fill(slots, -1);
+            for (int e = 0; e < size; e++) {
+                int from = (int) (keys[e] >>> 32);
+                marked[from >>> 6] |= 1L << from;
+                int s = slot(keys[e], tableSize);
+                while (slots[s] != -1) s = (s + 1) & (tableSize - 1);
+                slots[s] = e;
+            }
+            return new RoadOverlay(marked, slots, Arrays.copyOf(keys, size),
+                    Arrays.copyOf(penalties, size), Arrays.copyOf(expiresAt, size));
+        }
+    }
+}
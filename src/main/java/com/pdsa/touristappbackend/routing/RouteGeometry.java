@@ -0,0 +1,159 @@
+package com.pdsa.touristappbackend.routing;
+
+import com.pdsa.touristappbackend.model.LatLon;
+import com.pdsa.touristappbackend.util.DouglasPeucker;
+import com.pdsa.touristappbackend.util.Polyline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Route shape stored as two primitive coordinate arrays.
+ * Built straight from the node ids of a search result, so no per-point objects are allocated
+ * until a JSON path is explicitly requested.
+ * Output formats (see Format):
+ * - JSON: "path": [ { "lat": ..., "lon": ... }, ... ]
+ * - POLYLINE: "polyline": "encoded polyline, precision 5"
+ * Shapes can be simplified with Douglas-Peucker for a tolerance in meters or for a map zoom level.
+ */
+public class RouteGeometry {
+    public static final RouteGeometry EMPTY = new RouteGeometry(new double[0], new double[0], 0);
+
+    // Web Mercator ground resolution at the equator for zoom 0, meters per 256px tile pixel
+    private static final double METERS_PER_PIXEL_Z0 = 156_543.03;
+
+    private final double[] lats;
+    private final double[] lons;
+    private final int size;
+
+    public RouteGeometry(double[] lats, double[] lons, int size) {
+        this.lats = lats;
+        this.lons = lons;
+        this.size = size;
+    }
+
+    public enum Format {
+        JSON, POLYLINE;
+
+        public static Format parse(String s) {
+            if (s == null || s.isBlank()) return JSON;
+            try {
+                return valueOf(s.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown geometry format: " + s);
+            }
+        }
+    }
+
+    /**
+     * Build the shape of a path from its node ids
+     * @param graph - graph providing node coordinates
+     * @param nodeIds - path as node ids
+     * @return geometry with one point per known node
+     */
+    public static RouteGeometry fromNodeIds(LazyGraph graph, List<Long> nodeIds) {
+        double[] lats = new double[nodeIds.size()];
+        double[] lons = new double[nodeIds.size()];
+        CsrGraph csr = graph.csr();
+        int n = 0;
+        for (long id : nodeIds) {
+            int i = csr.index(id);
+            if (i < 0) continue;
+            lats[n] = csr.lat(i);
+            lons[n] = csr.lon(i);
+            n++;
+        }
+        return new RouteGeometry(lats, lons, n);
+    }
+
+    /**
+     * Join consecutive legs, dropping the duplicated point where one leg ends and the next starts
+     * @param legs - leg geometries in order
+     * @return single geometry covering all legs
+     */
+    public static RouteGeometry concat(List<RouteGeometry> legs) {
+        int total = 0;
+        for (RouteGeometry g : legs) total += g.size;
+        double[] lats = new double[total];
+        double[] lons = new double[total];
+        int n = 0;
+        for (RouteGeometry g : legs) {
+            int from = (n > 0 && g.size > 0) ? 1 : 0; // avoid duplicate overlap
+            int len = g.size - from;
+            if (len <= 0) continue;
+            System.arraycopy(g.lats, from, lats, n, len);
+            System.arraycopy(g.lons, from, lons, n, len);
+            n += len;
+        }
+        return new RouteGeometry(lats, lons, n);
+    }
+
+    /**
+     * Tolerance in meters for a request: an explicit tolerance wins, otherwise one pixel at the zoom level
+     * @param toleranceMeters - explicit tolerance or null
+     * @param zoom - map zoom level or null
+     * @return tolerance in meters, 0 to keep every point
+     */
+    public double tolerance(Double toleranceMeters, Integer zoom) {
+        if (toleranceMeters != null) return Math.max(0, toleranceMeters);
+        if (zoom == null || size == 0) return 0;
+        return METERS_PER_PIXEL_Z0 * Math.cos(Math.toRadians(lats[0])) / Math.pow(2, zoom);
+    }
+
+    /**
+     * Douglas-Peucker simplification
+     * @param toleranceMeters - maximum deviation from the original shape, 0 returns this geometry
+     * @return simplified geometry
+     */
+    public RouteGeometry simplify(double toleranceMeters) {
+        if (toleranceMeters <= 0 || size < 3) return this;
+        boolean[] keep = DouglasPeucker.simplify(lats, lons, size, toleranceMeters);
+        double[] la = new double[size];
+        double[] lo = new double[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (!keep[i]) continue;
+            la[n] = lats[i];
+            lo[n] = lons[i];
+            n++;
+        }
+        return new RouteGeometry(la, lo, n);
+    }
+
+    /**
+     * Put the shape into a response map in the requested format ("path" or "polyline")
+     * @param resp - response map
+     * @param format - output format
+     */
+    public void writeTo(Map<String, Object> resp, Format format) {
+        if (format == Format.POLYLINE) {
+            resp.put("polyline", encodePolyline());
+        } else {
+            resp.put("path", toLatLonList());
+        }
+    }
+
+    public String encodePolyline() {
+        return Polyline.encode(lats, lons, size);
+    }
+
+    public List<LatLon> toLatLonList() {
+        List<LatLon> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) out.add(new LatLon(lats[i], lons[i]));
+        return out;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double lat(int i) {
+        return lats[i];
+    }
+
+    public double lon(int i) {
+        return lons[i];
+    }
+}
@@ -0,0 +1,15 @@
+package com.pdsa.touristappbackend.routing;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A route query that gave up waiting for a coalesced search (routing.coalesce-timeout-ms).
+ * Mapped to HTTP 503 so clients retry, instead of reading it as "no route".
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class RouteTimeoutException extends RuntimeException {
+    public RouteTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,127 @@
+package com.pdsa.touristappbackend.routing;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the routing hot path, exposed through /actuator/metrics.
+ * Meters (tags: endpoint, and algorithm for search meters - a RoutingEngine name or corridor-dijkstra):
+ * - routing.snap: time to snap one coordinate to a graph node
+ * - routing.search: time of one graph search
+ * - routing.search.settled: nodes settled per search
+ * - routing.search.heap.pushes: priority queue pushes per search
+ * - routing.search.sql.queries: adjacency lookups per search (SearchStats.edgeQueries)
+ * - routing.path.length: length of the returned path in meters
+ * - routing.warmup.duration, routing.warmup.graph.load: seconds the startup warm-up took in total
+ *   and for loading the graph, 0 until it has finished (see RoutingWarmup)
+ * - routing.warmup.queries: synthetic queries run by the warm-up
+ * Meters are looked up once per tag combination and kept, so recording is a map hit plus the
+ * meter update. Histograms for percentiles are switched on per meter with
+ * management.metrics.distribution.percentiles-histogram.*.
+ */
+@Component
+public class RoutingMetrics {
+
+    public static final String CORRIDOR_DIJKSTRA = "corridor-dijkstra";
+    public static final String ONE_TO_MANY_DIJKSTRA = "one-to-many-dijkstra";
+    public static final String NEAREST_POI_DIJKSTRA = "nearest-poi-dijkstra";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> snapTimers = new ConcurrentHashMap<>();
+    private final Map<String, SearchMeters> searchMeters = new ConcurrentHashMap<>();
+    private volatile double warmupSeconds;
+    private volatile double graphLoadSeconds;
+    private volatile int warmupQueries;
+
+    public RoutingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("routing.warmup.duration", this, m -> m.warmupSeconds)
+                .description("Time the startup warm-up took, 0 until it has finished")
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("routing.warmup.graph.load", this, m -> m.graphLoadSeconds)
+                .description("Time the startup warm-up spent loading the road graph")
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("routing.warmup.queries", this, m -> m.warmupQueries)
+                .description("Synthetic queries run by the startup warm-up")
+                .register(registry);
+    }
+
+    /**
+     * Record the time taken to snap one coordinate
+     * @param endpoint - endpoint tag, e.g. "by-coords"
+     * @param nanos - elapsed time in nanoseconds
+     */
+    public void recordSnap(String endpoint, long nanos) {
+        snapTimers.computeIfAbsent(endpoint, e -> Timer.builder("routing.snap")
+                        .description("Time to snap a coordinate to a graph node")
+                        .tag("endpoint", e)
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Record one finished search
+     * @param endpoint - endpoint tag
+     * @param algorithm - algorithm tag, the RoutingEngine name, CORRIDOR_DIJKSTRA, ONE_TO_MANY_DIJKSTRA or NEAREST_POI_DIJKSTRA
+     * @param nanos - elapsed search time in nanoseconds
+     * @param stats - work counters of the search
+     * @param pathMeters - length of the path found, infinite if there is none
+     */
+    public void recordSearch(String endpoint, String algorithm, long nanos, SearchStats stats, double pathMeters) {
+        SearchMeters m = searchMeters.computeIfAbsent(endpoint + '|' + algorithm,
+                k -> new SearchMeters(registry, endpoint, algorithm));
+        m.time.record(nanos, TimeUnit.NANOSECONDS);
+        m.settled.record(stats.settledNodes);
+        m.pushes.record(stats.heapPushes);
+        m.sqlQueries.record(stats.edgeQueries);
+        if (pathMeters != Double.POSITIVE_INFINITY) m.pathLength.record(pathMeters);
+    }
+
+    /**
+     * Record a finished warm-up
+     * @param graphLoadNanos - time spent loading the graph
+     * @param totalNanos - time of the whole warm-up, graph load included
+     * @param queries - synthetic queries run
+     */
+    public void recordWarmup(long graphLoadNanos, long totalNanos, int queries) {
+        graphLoadSeconds = graphLoadNanos / 1e9;
+        warmupSeconds = totalNanos / 1e9;
+        warmupQueries = queries;
+    }
+
+    private static class SearchMeters {
+        final Timer time;
+        final DistributionSummary settled;
+        final DistributionSummary pushes;
+        final DistributionSummary sqlQueries;
+        final DistributionSummary pathLength;
+
+        SearchMeters(MeterRegistry registry, String endpoint, String algorithm) {
+            time = Timer.builder("routing.search")
+                    .description("Time of one graph search")
+                    .tags("endpoint", endpoint, "algorithm", algorithm)
+                    .register(registry);
+            settled = summary(registry, "routing.search.settled", "nodes", endpoint, algorithm);
+            pushes = summary(registry, "routing.search.heap.pushes", "entries", endpoint, algorithm);
+            sqlQueries = summary(registry, "routing.search.sql.queries", "queries", endpoint, algorithm);
+            pathLength = summary(registry, "routing.path.length", "meters", endpoint, algorithm);
+        }
+
+        private static DistributionSummary summary(MeterRegistry registry, String name, String unit,
+                                                   String endpoint, String algorithm) {
+            return DistributionSummary.builder(name)
+                    .baseUnit(unit)
+                    .tags("endpoint", endpoint, "algorithm", algorithm)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.pdsa.touristappbackend.routing;
+
+import com.pdsa.touristappbackend.config.RoutingConfigProperties;
+import com.pdsa.touristappbackend.model.OsmNodeData;
+import com.pdsa.touristappbackend.routing.engine.Route;
+import com.pdsa.touristappbackend.routing.engine.RoutePlanner;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Startup warm-up of the routing tier, so the first users after a deploy do not pay for
+ * graph loading and a cold JIT.
+ * Runs as an ApplicationRunner, after the web server has started but before Spring Boot marks
+ * the application ready; readiness is also set to REFUSING_TRAFFIC explicitly for the duration,
+ * so /actuator/health/readiness only reports UP once the warm-up is done.
+ * Steps:
+ * - load the road graph of every served region (CSR arrays, components and snapping grid)
+ *   through GraphProvider
+ * - run routing.warmup-queries synthetic queries per region between seeded random nodes through RoutePlanner:
+ *   snap both ends, route with each engine in turn, simplify and encode the geometry,
+ *   the same code path real requests take (metrics are tagged endpoint=warmup)
+ * - stop early when routing.warmup-max-millis is used up
+ * The durations are published as routing.warmup.* gauges (see RoutingMetrics).
+ * A graph that fails to load fails startup; a failing query is logged and skipped.
+ * routing.warmup-enabled=false skips all of it and the first request loads the graph.
+ */
+@Slf4j
+@Component
+public class RoutingWarmup implements ApplicationRunner {
+
+    static final String ENDPOINT = "warmup";
+
+    private final GraphProvider graphProvider;
+    private final RoutePlanner planner;
+    private final RoutingMetrics metrics;
+    private final RoutingConfigProperties cfg;
+    private final ApplicationEventPublisher events;
+
+    public RoutingWarmup(GraphProvider graphProvider, RoutePlanner planner, RoutingMetrics metrics,
+                         RoutingConfigProperties cfg, ApplicationEventPublisher events) {
+        this.graphProvider = graphProvider;
+        this.planner = planner;
+        this.metrics = metrics;
+        this.cfg = cfg;
+        this.events = events;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!cfg.isWarmupEnabled()) {
+            log.info("Routing warm-up disabled, the graph loads on the first request");
+            return;
+        }
+        warmUp();
+    }
+
+    /**
+     * Load the graph and run the synthetic queries, refusing traffic meanwhile
+     */
+    public void warmUp() {
+        AvailabilityChangeEvent.publish(events, this, ReadinessState.REFUSING_TRAFFIC);
+        long start = System.nanoTime();
+        List<Region> regions = graphProvider.regions().all();
+        for (Region region : regions) graphProvider.getLazyGraph(region);
+        long loaded = System.nanoTime();
+
+        long deadline = loaded + cfg.getWarmupMaxMillis() * 1_000_000;
+        int queries = 0;
+        for (Region region : regions) queries += runQueries(region, deadline);
+        long end = System.nanoTime();
+        metrics.recordWarmup(loaded - start, end - start, queries);
+        log.info("Routing warm-up done in {} ms: {} region graph(s) loaded in {} ms, {} queries in {} ms",
+                (end - start) / 1_000_000, regions.size(), (loaded - start) / 1_000_000, queries,
+                (end - loaded) / 1_000_000);
+        AvailabilityChangeEvent.publish(events, this, ReadinessState.ACCEPTING_TRAFFIC);
+    }
+
+    private int runQueries(Region region, long deadline) {
+        CsrGraph csr = graphProvider.getLazyGraph(region).csr();
+        if (csr.size() == 0) return 0;
+        List<String> engines = new ArrayList<>(planner.engines().names());
+        Random rnd = new Random(cfg.getWarmupSeed());
+
+        int done = 0;
+        for (int i = 0; i < cfg.getWarmupQueries() && System.nanoTime() < deadline; i++) {
+            int a = rnd.nextInt(csr.size());
+            int b = rnd.nextInt(csr.size());
+            OsmNodeData s = planner.snap(ENDPOINT, region, null, csr.lat(a), csr.lon(a), null, SearchTrace.NOOP);
+            OsmNodeData t = planner.snap(ENDPOINT, region, null, csr.lat(b), csr.lon(b), null, SearchTrace.NOOP);
+            if (s == null || t == null) break;
+
+            // every engine in turn, so each one's search loop gets compiled
+            String engine = engines.get(i % engines.size());
+            try {
+                Route r = planner.route(ENDPOINT, region, engine, s, t, SearchTrace.NOOP, false);
+                r.geometry.simplify(r.geometry.tolerance(null, 15)).encodePolyline();
+                done++;
+            } catch (Exception e) {
+                log.warn("Warm-up query {} -> {} ({}, {}) failed: {}", s.getId(), t.getId(), region.name, engine,
+                        e.getMessage());
+            }
+        }
+        return done;
+    }
+}
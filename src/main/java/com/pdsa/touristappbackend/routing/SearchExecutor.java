@@ -0,0 +1,59 @@
+package com.pdsa.touristappbackend.routing;
+
+import com.pdsa.touristappbackend.config.RoutingConfigProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Bounded pool for CPU-bound route searches.
+ * With spring.threads.virtual.enabled=true (Java 21+), requests run on virtual threads that are
+ * cheap to block on MySQL/SQLite I/O, but an unbounded number of them running A* at once would
+ * just oversubscribe the carrier threads. run() then hands the search to this pool, sized by
+ * routing.search-parallelism, and parks the virtual thread until it is done.
+ * On platform threads run() executes the task inline, the Tomcat pool already bounds concurrency.
+ * Batch routing always uses the pool directly.
+ */
+@Component
+public class SearchExecutor {
+
+    private final ForkJoinPool pool;
+    private final boolean offload;
+
+    public SearchExecutor(RoutingConfigProperties cfg,
+                          @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.pool = new ForkJoinPool(Math.max(1, cfg.getSearchParallelism()));
+        this.offload = virtualThreads;
+    }
+
+    /**
+     * Run a search, on the bounded pool when requests run on virtual threads
+     * @param task - search to run
+     * @return the task's result
+     * @throws Exception - whatever the task throws
+     */
+    public <T> T run(Callable<T> task) throws Exception {
+        if (!offload) return task.call();
+        try {
+            return pool.submit(task).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception ex) throw ex;
+            if (cause instanceof Error err) throw err;
+            throw e;
+        }
+    }
+
+    public ForkJoinPool pool() {
+        return pool;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,24 @@
+package com.pdsa.touristappbackend.routing;
+
+/**
+ * Work counters for one graph search, filled in by the search itself.
+ * - settledNodes: nodes taken off the priority queue and expanded
+ * - relaxedEdges: edges examined while expanding
+ * - heapPushes: entries added to the priority queue
+ * - edgeQueries: adjacency lookups (CSR slices since the graph is held in memory; reported
+ *   as sqlQueries / routing.search.sql.queries, the names of the SQL-backed days)
+ * Plain int fields, a search owns its instance and nothing else writes to it.
+ */
+public class SearchStats {
+    public int settledNodes;
+    public int relaxedEdges;
+    public int heapPushes;
+    public int edgeQueries;
+
+    public void add(SearchStats other) {
+        settledNodes += other.settledNodes;
+        relaxedEdges += other.relaxedEdges;
+        heapPushes += other.heapPushes;
+        edgeQueries += other.edgeQueries;
+    }
+}
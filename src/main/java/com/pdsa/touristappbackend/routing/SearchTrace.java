@@ -0,0 +1,93 @@
+package com.pdsa.touristappbackend.routing;
+
+/**
+ * Hook through which a search reports what it does, for explain=true diagnostics.
+ * Searches take a trace argument and call it unconditionally; normal requests pass NOOP,
+ * whose methods are empty, so once the JIT inlines them the untraced path costs nothing.
+ * Anything more expensive than a call (reading the clock, building objects) is guarded
+ * by enabled(), which is a constant false for NOOP.
+ * Implementations: ExplainTrace (explain=true responses) and RouteQueryEvent (JFR recordings);
+ * tee() combines two of them.
+ */
+public interface SearchTrace {
+
+    SearchTrace NOOP = new SearchTrace() {
+        @Override
+        public boolean enabled() {
+            return false;
+        }
+
+        @Override
+        public void phase(String name, long nanos) {
+        }
+
+        @Override
+        public void settled(long nodeId) {
+        }
+
+        @Override
+        public void stats(SearchStats stats) {
+        }
+    };
+
+    /**
+     * Trace reporting to both a and b, or just one of them when the other is not enabled
+     * @param a - first trace
+     * @param b - second trace
+     * @return combined trace, NOOP when neither is enabled
+     */
+    static SearchTrace tee(SearchTrace a, SearchTrace b) {
+        if (!a.enabled()) return b.enabled() ? b : NOOP;
+        if (!b.enabled()) return a;
+        return new SearchTrace() {
+            @Override
+            public boolean enabled() {
+                return true;
+            }
+
+            @Override
+            public void phase(String name, long nanos) {
+                a.phase(name, nanos);
+                b.phase(name, nanos);
+            }
+
+            @Override
+            public void settled(long nodeId) {
+                a.settled(nodeId);
+                b.settled(nodeId);
+            }
+
+            @Override
+            public void stats(SearchStats stats) {
+                a.stats(stats);
+                b.stats(stats);
+            }
+
+            @Override
+            public void engine(String name) {
+                a.engine(name);
+                b.engine(name);
+            }
+        };
+    }
+
+    // true when the trace collects anything
+    boolean enabled();
+
+    /**
+     * Add time spent in a phase; repeated phases (one per leg) are summed
+     * @param name - phase name: snap, search, reconstruct, poi
+     * @param nanos - elapsed time in nanoseconds
+     */
+    void phase(String name, long nanos);
+
+    // a node was taken off the queue and expanded
+    void settled(long nodeId);
+
+    // work counters of a finished search; summed across legs
+    void stats(SearchStats stats);
+
+    // routing engine chosen for a search, reported once per search
+    default void engine(String name) {
+    }
+}
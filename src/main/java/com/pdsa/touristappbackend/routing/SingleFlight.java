@@ -0,0 +1,64 @@
+package com.pdsa.touristappbackend.routing;
+
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Coalesces identical concurrent computations.
+ * The first caller for a key (the leader) runs the task; callers arriving with the same key while
+ * it runs wait for the leader's result instead of computing it again. The entry is removed as soon
+ * as the leader finishes, so nothing is cached - only work that is in flight is shared.
+ * Failures:
+ *  - if the task throws, the leader and every waiter get the same exception
+ *  - waiters give up after the timeout with a TimeoutException; the leader keeps running
+ * Usage:
+ * SingleFlight<Key, Route> flight = new SingleFlight<>(5000);
+ * Route r = flight.execute(key, () -> computeRoute(key));
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long timeoutMillis;
+
+    public SingleFlight(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Run the task, or join an identical one already running
+     * @param key - identity of the computation, must implement equals/hashCode
+     * @param task - computation to run when no identical one is in flight
+     * @return the task's result
+     * @throws Exception - the task's exception, or TimeoutException while waiting for another caller
+     */
+    public V execute(K key, Callable<V> task) throws Exception {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+
+        if (running != null) {
+            try {
+                return running.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception ex) throw ex;
+                if (cause instanceof Error err) throw err;
+                throw e;
+            }
+        }
+
+        try {
+            V value = task.call();
+            mine.complete(value);
+            return value;
+        } catch (Throwable t) {
+            mine.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -1,32 +1,34 @@
 package com.pdsa.touristappbackend.routing.alg;
 
-import com.pdsa.touristappbackend.model.Edge;
-import com.pdsa.touristappbackend.model.OsmNodeData;
+import com.pdsa.touristappbackend.routing.CsrGraph;
 import com.pdsa.touristappbackend.routing.LazyGraph;
-import com.pdsa.touristappbackend.util.Haversine;
+import com.pdsa.touristappbackend.routing.RoadOverlay;
+import com.pdsa.touristappbackend.routing.SearchStats;
+import com.pdsa.touristappbackend.routing.SearchTrace;
 
 import java.util.*;
 
 /**
- * A* over LazyGraph (neighbors and nodes fetched lazily from SQLite).
+ * A* over the compressed CSR graph of LazyGraph, on Hilbert-ordered node indexes.
  * Optimizations:
  *  - Heuristic scaling for faster convergence (slightly non-admissible, but faster in practice)(removed now data set
  *  inculde node distance)
  *  - Optional expansion cap to avoid worst-case blowups
  *  - Null-safe backtracking
- *  - Priority queue for open set
- *  - Hash maps for gScore, fScore, and cameFrom
+ *  - Primitive binary heap (IndexHeap) for open set
+ *  - Arrays indexed by node for gScore and cameFrom, reset in O(1) with a search stamp
+ *  - Nodes close on the map have close indexes (Hilbert order), so the arrays touched by a
+ *    search stay within few cache lines
  *  - Early exit if source == target
+ *  - Road closures and penalties from the graph's RoadOverlay, one bit test per settled node
  *  - Skip already closed nodes when polling from the priority queue
- *  - Print visited nodes for debugging
+ *  - Count settled nodes, heap pushes and edge queries in SearchStats for metrics
+ *  - Report settled nodes and search time to a SearchTrace (NOOP unless explain=true)
  *  - Return path as list of node IDs
  *  - Return infinite distance and empty path if no path found
  *  - Use LinkedList for path reconstruction for efficient front insertion
- *  - Use Set for closed nodes for O(1) lookups
+ *  - Use a stamped int array for closed nodes for O(1) lookups
  *  - Avoid duplicate entries in the priority queue by checking closed set
- *  - Use getOrDefault for gScore and fScore to simplify code
- *  - Separate NodeEntry class for priority queue to avoid modifying fScore map
- *  - Use Comparator.comparingDouble for priority queue ordering
  *  - Add comments and documentation for clarity
  *  - Handle exceptions from LazyGraph methods
  *  - Ensure thread-safety if used in multi-threaded context
@@ -40,10 +42,16 @@ public class AStar {
     public static class Result {
         private final double distanceMeters;
         private final List<Long> pathNodeIds;
+        private final SearchStats stats;
 
         public Result(double distanceMeters, List<Long> pathNodeIds) {
+            this(distanceMeters, pathNodeIds, new SearchStats());
+        }
+
+        public Result(double distanceMeters, List<Long> pathNodeIds, SearchStats stats) {
             this.distanceMeters = distanceMeters;
             this.pathNodeIds = pathNodeIds;
+            this.stats = stats;
         }
 
         public double getDistanceMeters() {
@@ -53,13 +61,43 @@ public class AStar {
         public List<Long> getPathNodeIds() {
             return pathNodeIds;
         }
+
+        public SearchStats getStats() {
+            return stats;
+        }
     }
 
-    // Node entry for the priority queue
-    private static class NodeEntry {
-        long id;
-        double f;
-        NodeEntry(long id, double f) { this.id = id; this.f = f; }
+    /**
+     * Reusable search state for one thread, indexed by CsrGraph node index.
+     * The arrays are sized to the graph on first use and never cleared: each search takes a new
+     * stamp, and an entry only counts when its stamp matches, so starting a search is O(1).
+     * Never share a Workspace between threads.
+     */
+    public static class Workspace {
+        double[] gScore = new double[0];
+        int[] cameFrom = new int[0];
+        // stamp of the search that last reached / settled the node
+        int[] seen = new int[0];
+        int[] closed = new int[0];
+        final IndexHeap open = new IndexHeap();
+        final CsrGraph.EdgeCursor edges = new CsrGraph.EdgeCursor();
+        int stamp;
+
+        void reset(int n) {
+            if (seen.length != n) {
+                gScore = new double[n];
+                cameFrom = new int[n];
+                seen = new int[n];
+                closed = new int[n];
+                stamp = 0;
+            }
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                Arrays.fill(closed, 0);
+                stamp = 1;
+            }
+            open.clear();
+        }
     }
 
     /**
@@ -71,115 +109,120 @@ public class AStar {
      * @throws Exception - if graph access fails
      */
     public static Result shortestPath(LazyGraph g, long source, long target) throws Exception {
+        return shortestPath(g, source, target, new Workspace());
+    }
+
+    /**
+     * Find the shortest path reusing the given search state.
+     * @param g - LazyGraph instance to provide graph data
+     * @param source - starting node ID
+     * @param target - ending node ID
+     * @param ws - search state owned by the calling thread
+     * @return Result object containing the path and distance
+     * @throws Exception - if graph access fails
+     */
+    public static Result shortestPath(LazyGraph g, long source, long target, Workspace ws) throws Exception {
+        return shortestPath(g, source, target, ws, SearchTrace.NOOP);
+    }
+
+    /**
+     * Find the shortest path reusing the given search state, reporting to a trace.
+     * @param g - LazyGraph instance to provide graph data
+     * @param source - starting node ID
+     * @param target - ending node ID
+     * @param ws - search state owned by the calling thread
+     * @param trace - receives settled nodes, search time and counters
+     * @return Result object containing the path and distance
+     * @throws Exception - if graph access fails
+     */
+    public static Result shortestPath(LazyGraph g, long source, long target, Workspace ws,
+                                      SearchTrace trace) throws Exception {
         if (source == target) return new Result(0.0, List.of(source));
+        SearchStats stats = new SearchStats();
+        CsrGraph csr = g.csr();
+        int s = csr.index(source);
+        int t = csr.index(target);
+        if (s < 0 || t < 0) return new Result(Double.POSITIVE_INFINITY, List.of(), stats);
+        ws.reset(csr.size());
+        RoadOverlay overlay = g.overlay();
+        long started = trace.enabled() ? System.nanoTime() : 0;
 
         /** A* algorithm implementation
-         * gScore: cost from start to current node
-         * fScore: estimated cost from start to target through current node
-         * cameFrom: map of navigated nodes
-         * open: priority queue of discovered nodes to be evaluated
-         * closed: set of nodes already evaluated
+         * gScore: cost from start to current node (valid where seen == stamp)
+         * cameFrom: predecessor on the best known path
+         * open: heap of discovered nodes to be evaluated, keyed by gScore + heuristic
+         * closed: nodes already evaluated (closed == stamp)
          * */
-        Map<Long, Double> gScore = new HashMap<>();
-        Map<Long, Double> fScore = new HashMap<>();
-        Map<Long, Long> cameFrom = new HashMap<>();
-        PriorityQueue<NodeEntry> open = new PriorityQueue<>(Comparator.comparingDouble(ne -> ne.f));
-        gScore.put(source, 0.0);
-
-        /**
-         * h0: heuristic estimate from source to target
-         * Initialize fScore for source node
-         * Add source node to open set
-         */
-        double h0 = heuristic(g, source, target);
-        fScore.put(source, h0);
-        open.add(new NodeEntry(source, h0));
-        Set<Long> closed = new HashSet<>();
+        double[] gScore = ws.gScore;
+        int[] cameFrom = ws.cameFrom;
+        int[] seen = ws.seen;
+        int[] closed = ws.closed;
+        int stamp = ws.stamp;
+        IndexHeap open = ws.open;
+        gScore[s] = 0.0;
+        seen[s] = stamp;
+        open.push(s, csr.distance(s, t));
+        stats.heapPushes++;
 
         // Main loop
         /**
          * While there are nodes to evaluate in the open set:
          *  - Poll the node with the lowest fScore
          *  - If it's already in closed set, skip it
-         *  - If it's the target, reconstruct path and return result
+         *  - If it's the target, stop and reconstruct the path
          *  - Otherwise, add it to closed set
-         *  - For each neighbor of the current node:
+         *  - For each outgoing edge (decoded in place from the node's slice of the CSR bytes):
          *      - If neighbor is in closed set, skip it
          *      - Calculate tentative gScore
-         *      - If tentative gScore is better, update cameFrom, gScore, fScore
-         *      - If neighbor not in open set, add it with updated fScore
+         *      - If tentative gScore is better, update cameFrom, gScore and push the neighbor
          */
         while (!open.isEmpty()) {
-            NodeEntry cur = open.poll();
-            if (closed.contains(cur.id)) continue;
-
-
-            /**
-             * Debugging output: print visited node details
-             * - Node ID
-             * - Latitude and Longitude
-             * - fScore value
-             */
-            OsmNodeData nodeData = g.getNode(cur.id);
-            System.out.printf("Visiting node %d (lat=%.6f, lon=%.6f, f=%.2f)%n",
-                    cur.id, nodeData.getLat(), nodeData.getLon(), cur.f);
+            int cur = open.poll();
+            if (closed[cur] == stamp) continue;
 
             // Early exit if target reached
-            if (cur.id == target) break;
-            closed.add(cur.id);
-
-            /**
-             * For each neighbor of the current node:
-             *  - Skip if already evaluated (in closed set)
-             *  - Calculate tentative gScore
-             *  - If better than existing gScore, update cameFrom, gScore, fScore
-             *  - If neighbor not in open set, add it with updated fScore
-             */
-            for (Edge e : g.neighbors(cur.id)) {
-                long nb = e.getTo();
-                if (closed.contains(nb)) continue;
-                double tentativeG = gScore.getOrDefault(cur.id, Double.POSITIVE_INFINITY) + e.getWeightMeters();
-                if (tentativeG < gScore.getOrDefault(nb, Double.POSITIVE_INFINITY)) {
-                    cameFrom.put(nb, cur.id);
-                    gScore.put(nb, tentativeG);
-                    double f = tentativeG + heuristic(g, nb, target);
-                    fScore.put(nb, f);
-                    open.add(new NodeEntry(nb, f));
+            if (cur == t) break;
+            closed[cur] = stamp;
+            stats.settledNodes++;
+            trace.settled(csr.osmId(cur));
+
+            stats.edgeQueries++;
+            double gCur = gScore[cur];
+            boolean penalized = overlay.touches(cur);
+            CsrGraph.EdgeCursor edges = ws.edges;
+            for (csr.out(cur, edges); edges.next(); ) {
+                int nb = edges.node();
+                if (closed[nb] == stamp) continue;
+                double w = edges.meters();
+                if (penalized && (w += overlay.penalty(cur, nb)) == Double.POSITIVE_INFINITY) continue;
+                stats.relaxedEdges++;
+                double tentativeG = gCur + w;
+                if (seen[nb] != stamp || tentativeG < gScore[nb]) {
+                    seen[nb] = stamp;
+                    cameFrom[nb] = cur;
+                    gScore[nb] = tentativeG;
+                    open.push(nb, tentativeG + csr.distance(nb, t));
+                    stats.heapPushes++;
                 }
             }
         }
 
         /**
          * Path reconstruction:
-         *  - If target not reached (not in gScore), return infinite distance and empty path
-         *  - Otherwise, backtrack from target to source using cameFrom map
-         *  - Construct path as list of node IDs
+         *  - If target not reached, return infinite distance and empty path
+         *  - Otherwise, backtrack from target to source using cameFrom
+         *  - Map node indexes back to OSM node IDs
          *  - Return Result with total distance and path
          */
-        if (!gScore.containsKey(target)) return new Result(Double.POSITIVE_INFINITY, List.of());
+        if (trace.enabled()) {
+            trace.phase("search", System.nanoTime() - started);
+            trace.stats(stats);
+        }
+        if (seen[t] != stamp) return new Result(Double.POSITIVE_INFINITY, List.of(), stats);
 
         LinkedList<Long> path = new LinkedList<>();
-        long cur = target;
-        while (cur != source) {
-            path.addFirst(cur);
-            cur = cameFrom.get(cur);
-        }
+        for (int cur = t; cur != s; cur = cameFrom[cur]) path.addFirst(csr.osmId(cur));
         path.addFirst(source);
-        return new Result(gScore.get(target), path);
-    }
-
-    /**
-     * Heuristic function: Haversine distance between two nodes
-     * @param g
-     * @param aId - source node ID
-     * @param bId - target node ID
-     * @return estimated distance in meters
-     * @throws Exception - if node retrieval fails
-     */
-    private static double heuristic(LazyGraph g, long aId, long bId) throws Exception {
-        OsmNodeData a = g.getNode(aId);
-        OsmNodeData b = g.getNode(bId);
-        if (a == null || b == null) return 0.0;
-        return Haversine.meters(a.getLat(), a.getLon(), b.getLat(), b.getLon());
+        return new Result(gScore[t], path, stats);
     }
-}
\ No newline at end of file
+}
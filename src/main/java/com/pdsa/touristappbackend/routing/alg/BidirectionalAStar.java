@@ -0,0 +1,203 @@
+package com.pdsa.touristappbackend.routing.alg;
+
+import com.pdsa.touristappbackend.routing.CsrGraph;
+import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.RoadOverlay;
+import com.pdsa.touristappbackend.routing.SearchStats;
+import com.pdsa.touristappbackend.routing.SearchTrace;
+
+import java.util.*;
+
+/**
+ * Bidirectional A* over the compressed CSR graph of LazyGraph: a forward search from the source over the
+ * outgoing edges and a backward search from the target over the incoming ones, meeting in the middle.
+ * Both searches use the average potential
+ *  p(v) = (h(v, target) - h(source, v)) / 2
+ * forward with +p and backward with -p, which keeps both consistent with the Haversine edge
+ * weights, so the result is exact like AStar's.
+ * Stopping rule: with forward key gF + p and backward key gR - p, the search ends when the two
+ * smallest keys add up to at least the best meeting distance found so far.
+ * The side with fewer queued nodes is expanded next, which balances the two searches when one
+ * end sits in a dead end or behind one-way streets.
+ * Pays off on long queries where each search only has to cover about half the distance;
+ * on short ones plain AStar settles fewer nodes (see RoutingEngines for the adaptive choice).
+ * Closures and penalties of the graph's RoadOverlay apply to both directions.
+ * Returns the same AStar.Result as AStar, with work counters summed over both directions.
+ */
+public class BidirectionalAStar {
+
+    // state of one search direction, indexed by CsrGraph node index and stamped like AStar.Workspace
+    private static class Side {
+        double[] dist = new double[0];
+        int[] parent = new int[0];
+        int[] seen = new int[0];
+        int[] closed = new int[0];
+        final IndexHeap open = new IndexHeap();
+
+        void resize(int n) {
+            dist = new double[n];
+            parent = new int[n];
+            seen = new int[n];
+            closed = new int[n];
+        }
+
+        // drops entries of nodes already settled, returns the smallest live key
+        double topKey(int stamp) {
+            while (!open.isEmpty() && closed[open.peekNode()] == stamp) open.poll();
+            return open.isEmpty() ? Double.POSITIVE_INFINITY : open.peekKey();
+        }
+    }
+
+    /**
+     * Reusable search state of both directions for one thread; never share between threads.
+     */
+    public static class Workspace {
+        final Side fwd = new Side();
+        final Side bwd = new Side();
+        final CsrGraph.EdgeCursor edges = new CsrGraph.EdgeCursor();
+        int stamp;
+
+        void reset(int n) {
+            if (fwd.seen.length != n) {
+                fwd.resize(n);
+                bwd.resize(n);
+                stamp = 0;
+            }
+            if (++stamp == Integer.MAX_VALUE) {
+                for (Side side : List.of(fwd, bwd)) {
+                    Arrays.fill(side.seen, 0);
+                    Arrays.fill(side.closed, 0);
+                }
+                stamp = 1;
+            }
+            fwd.open.clear();
+            bwd.open.clear();
+        }
+    }
+
+    /**
+     * Find the shortest path between source and target nodes.
+     * @param g - LazyGraph instance to provide graph data
+     * @param source - starting node ID
+     * @param target - ending node ID
+     * @return Result object containing the path and distance
+     * @throws Exception - if graph access fails
+     */
+    public static AStar.Result shortestPath(LazyGraph g, long source, long target) throws Exception {
+        return shortestPath(g, source, target, new Workspace(), SearchTrace.NOOP);
+    }
+
+    /**
+     * Find the shortest path between source and target nodes, reporting to a trace.
+     * @param g - LazyGraph instance to provide graph data
+     * @param source - starting node ID
+     * @param target - ending node ID
+     * @param trace - receives settled nodes of both directions, search time and counters
+     * @return Result object containing the path and distance
+     * @throws Exception - if graph access fails
+     */
+    public static AStar.Result shortestPath(LazyGraph g, long source, long target,
+                                            SearchTrace trace) throws Exception {
+        return shortestPath(g, source, target, new Workspace(), trace);
+    }
+
+    /**
+     * Find the shortest path reusing the given search state, reporting to a trace.
+     * @param g - LazyGraph instance to provide graph data
+     * @param source - starting node ID
+     * @param target - ending node ID
+     * @param ws - search state owned by the calling thread
+     * @param trace - receives settled nodes of both directions, search time and counters
+     * @return Result object containing the path and distance
+     * @throws Exception - if graph access fails
+     */
+    public static AStar.Result shortestPath(LazyGraph g, long source, long target, Workspace ws,
+                                            SearchTrace trace) throws Exception {
+        if (source == target) return new AStar.Result(0.0, List.of(source));
+        SearchStats stats = new SearchStats();
+        CsrGraph csr = g.csr();
+        int s = csr.index(source);
+        int t = csr.index(target);
+        if (s < 0 || t < 0) return new AStar.Result(Double.POSITIVE_INFINITY, List.of(), stats);
+        ws.reset(csr.size());
+        int stamp = ws.stamp;
+        RoadOverlay overlay = g.overlay();
+        long started = trace.enabled() ? System.nanoTime() : 0;
+
+        Side fwd = ws.fwd;
+        Side bwd = ws.bwd;
+        fwd.dist[s] = 0.0;
+        fwd.seen[s] = stamp;
+        fwd.parent[s] = -1;
+        fwd.open.push(s, potential(csr, s, t, s));
+        bwd.dist[t] = 0.0;
+        bwd.seen[t] = stamp;
+        bwd.parent[t] = -1;
+        bwd.open.push(t, -potential(csr, s, t, t));
+        stats.heapPushes += 2;
+
+        double best = Double.POSITIVE_INFINITY;
+        int meet = -1;
+
+        while (true) {
+            double kf = fwd.topKey(stamp);
+            double kb = bwd.topKey(stamp);
+            if (kf == Double.POSITIVE_INFINITY || kb == Double.POSITIVE_INFINITY || kf + kb >= best) break;
+
+            boolean forward = fwd.open.size() <= bwd.open.size();
+            Side side = forward ? fwd : bwd;
+            Side other = forward ? bwd : fwd;
+
+            int u = side.open.poll();
+            side.closed[u] = stamp;
+            stats.settledNodes++;
+            trace.settled(csr.osmId(u));
+
+            double du = side.dist[u];
+            stats.edgeQueries++;
+            CsrGraph.EdgeCursor edges = ws.edges;
+            if (forward) csr.out(u, edges);
+            else csr.in(u, edges);
+            while (edges.next()) {
+                int nb = edges.node();
+                if (side.closed[nb] == stamp) continue;
+                double w = edges.meters();
+                int from = forward ? u : nb;
+                if (overlay.touches(from)
+                        && (w += overlay.penalty(from, forward ? nb : u)) == Double.POSITIVE_INFINITY) continue;
+                stats.relaxedEdges++;
+                double nd = du + w;
+                if (side.seen[nb] == stamp && nd >= side.dist[nb]) continue;
+
+                side.seen[nb] = stamp;
+                side.dist[nb] = nd;
+                side.parent[nb] = u;
+                double p = potential(csr, s, t, nb);
+                side.open.push(nb, forward ? nd + p : nd - p);
+                stats.heapPushes++;
+
+                if (other.seen[nb] == stamp && nd + other.dist[nb] < best) {
+                    best = nd + other.dist[nb];
+                    meet = nb;
+                }
+            }
+        }
+
+        if (trace.enabled()) {
+            trace.phase("search", System.nanoTime() - started);
+            trace.stats(stats);
+        }
+        if (meet == -1) return new AStar.Result(Double.POSITIVE_INFINITY, List.of(), stats);
+
+        // source .. meet from the forward parents, meet .. target from the backward ones
+        LinkedList<Long> path = new LinkedList<>();
+        for (int cur = meet; cur != -1; cur = fwd.parent[cur]) path.addFirst(csr.osmId(cur));
+        for (int cur = bwd.parent[meet]; cur != -1; cur = bwd.parent[cur]) path.addLast(csr.osmId(cur));
+        return new AStar.Result(best, path, stats);
+    }
+
+    // forward potential of v; the backward search uses its negation
+    private static double potential(CsrGraph g, int s, int t, int v) {
+        return (g.distance(v, t) - g.distance(s, v)) / 2;
+    }
+}
@@ -0,0 +1,237 @@
+package com.pdsa.touristappbackend.routing.alg;
+
+import com.pdsa.touristappbackend.routing.CsrGraph;
+import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.RoadOverlay;
+import com.pdsa.touristappbackend.routing.SearchStats;
+
+import java.util.Arrays;
+
+/**
+ * Bounded multi-source Dijkstra over the CSR graph, seeded with every node of a route corridor.
+ * Used to price detours to points of interest along a route:
+ *  - forward search: distance from the nearest corridor node to every node within the bound
+ *  - reverse search: distance from every node within the bound back to the nearest corridor node
+ *  - each label also carries its origin, the position in the corridor of the seed it grew from:
+ *    where the traveller leaves the route (forward) or rejoins it (reverse)
+ *  - so one search per direction covers all candidates (see PoiRankingService for the detour)
+ * Results are read by node index from the Workspace the search ran on (meters(), origin(),
+ * reached()), valid until that workspace's next search; labels() copies them out, as compact
+ * as the set of settled nodes, for reading after the workspace's thread moved on.
+ * Optimizations:
+ *  - All corridor nodes start at distance 0, so the search is a single bounded sweep
+ *  - Stops as soon as the smallest tentative distance exceeds the bound
+ *  - Primitive heap (IndexHeap) and stamped per-node arrays in a reusable Workspace, as in AStar:
+ *    no boxed maps, and edges decoded in place with an EdgeCursor instead of a List per node
+ *  - Road closures and penalties from the graph's RoadOverlay; the reverse search reads them on
+ *    the incoming edge, keyed by its source
+ *  - Counts settled nodes, heap pushes and edge queries in SearchStats for metrics
+ */
+public class CorridorDijkstra {
+
+    private CorridorDijkstra() {}
+
+    /**
+     * Reusable search state for one thread, indexed by CsrGraph node index; reset in O(1) with
+     * a stamp like AStar.Workspace. Holds the result of its last search. Never share a Workspace
+     * between threads.
+     */
+    public static class Workspace {
+        double[] dist = new double[0];
+        int[] origin = new int[0];
+        int[] seen = new int[0];
+        int[] closed = new int[0];
+        // nodes settled by the last search, in settling order
+        int[] settled = new int[0];
+        int settledCount;
+        int stamp;
+        final IndexHeap open = new IndexHeap();
+        final CsrGraph.EdgeCursor edges = new CsrGraph.EdgeCursor();
+
+        void reset(int n) {
+            if (seen.length != n) {
+                dist = new double[n];
+                origin = new int[n];
+                seen = new int[n];
+                closed = new int[n];
+                settled = new int[n];
+                stamp = 0;
+            }
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                Arrays.fill(closed, 0);
+                stamp = 1;
+            }
+            settledCount = 0;
+            open.clear();
+        }
+
+        /**
+         * Copy of the last search's result
+         * @return the settled nodes with their distance and origin
+         */
+        public Labels labels() {
+            int[] nodes = Arrays.copyOf(settled, settledCount);
+            Arrays.sort(nodes);
+            double[] meters = new double[nodes.length];
+            int[] origins = new int[nodes.length];
+            for (int k = 0; k < nodes.length; k++) {
+                meters[k] = dist[nodes[k]];
+                origins[k] = origin[nodes[k]];
+            }
+            return new Labels(nodes, meters, origins);
+        }
+
+        /**
+         * Whether the last search settled a node within its bound
+         * @param node - CsrGraph node index
+         * @return true if meters() holds its distance
+         */
+        public boolean reached(int node) {
+            return node >= 0 && node < closed.length && closed[node] == stamp;
+        }
+
+        /**
+         * Distance of a node from (forward) or to (reverse) the corridor in the last search
+         * @param node - CsrGraph node index
+         * @return meters, infinite if the node was not reached within the bound
+         */
+        public double meters(int node) {
+            return reached(node) ? dist[node] : Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * Corridor position of the seed a node's distance in the last search starts (forward) or
+         * ends (reverse) at; the first position for a node listed twice in the corridor
+         * @param node - CsrGraph node index, reached in the last search
+         * @return index into the corridor array passed to the search
+         */
+        public int origin(int node) {
+            return origin[node];
+        }
+    }
+
+    /**
+     * Result of one search copied out of its Workspace: the settled nodes sorted by index, with
+     * their distance and origin. Reads are binary searches; same meaning as the Workspace's.
+     */
+    public static class Labels {
+        private final int[] nodes;
+        private final double[] meters;
+        private final int[] origin;
+
+        Labels(int[] nodes, double[] meters, int[] origin) {
+            this.nodes = nodes;
+            this.meters = meters;
+            this.origin = origin;
+        }
+
+        public boolean reached(int node) {
+            return Arrays.binarySearch(nodes, node) >= 0;
+        }
+
+        public double meters(int node) {
+            int k = Arrays.binarySearch(nodes, node);
+            return k >= 0 ? meters[k] : Double.POSITIVE_INFINITY;
+        }
+
+        // node must be reached
+        public int origin(int node) {
+            return origin[Arrays.binarySearch(nodes, node)];
+        }
+
+        public int size() {
+            return nodes.length;
+        }
+    }
+
+    /**
+     * Distances from the corridor to every node reachable within the bound (outgoing edges).
+     * @param g - LazyGraph instance to provide graph data
+     * @param corridor - CsrGraph indexes of the route's nodes, all seeded with distance 0
+     * @param boundMeters - search radius in network meters
+     * @param ws - search state owned by the calling thread, receives the result
+     * @param stats - receives the work counters
+     * @return ws, to read the distances from
+     */
+    public static Workspace forward(LazyGraph g, int[] corridor, double boundMeters, Workspace ws,
+                                    SearchStats stats) {
+        search(g, corridor, boundMeters, false, ws, stats);
+        return ws;
+    }
+
+    /**
+     * Distances from every node within the bound to the corridor (incoming edges).
+     * @param g - LazyGraph instance to provide graph data
+     * @param corridor - CsrGraph indexes of the route's nodes, all seeded with distance 0
+     * @param boundMeters - search radius in network meters
+     * @param ws - search state owned by the calling thread, receives the result
+     * @param stats - receives the work counters
+     * @return ws, to read the distances from
+     */
+    public static Workspace reverse(LazyGraph g, int[] corridor, double boundMeters, Workspace ws,
+                                    SearchStats stats) {
+        search(g, corridor, boundMeters, true, ws, stats);
+        return ws;
+    }
+
+    private static void search(LazyGraph g, int[] corridor, double boundMeters, boolean reverse,
+                               Workspace ws, SearchStats stats) {
+        CsrGraph csr = g.csr();
+        RoadOverlay overlay = g.overlay();
+        ws.reset(csr.size());
+        double[] dist = ws.dist;
+        int[] origin = ws.origin;
+        int[] seen = ws.seen;
+        int[] closed = ws.closed;
+        int stamp = ws.stamp;
+        IndexHeap open = ws.open;
+
+        for (int k = 0; k < corridor.length; k++) {
+            int c = corridor[k];
+            if (seen[c] != stamp) {
+                seen[c] = stamp;
+                dist[c] = 0.0;
+                origin[c] = k;
+                open.push(c, 0.0);
+                stats.heapPushes++;
+            }
+        }
+
+        CsrGraph.EdgeCursor edges = ws.edges;
+        while (!open.isEmpty()) {
+            if (open.peekKey() > boundMeters) break;
+            int cur = open.poll();
+            if (closed[cur] == stamp) continue;
+            closed[cur] = stamp;
+            ws.settled[ws.settledCount++] = cur;
+            stats.settledNodes++;
+            stats.edgeQueries++;
+
+            double dCur = dist[cur];
+            int from = origin[cur];
+            boolean penalized = !reverse && overlay.touches(cur);
+            if (reverse) csr.in(cur, edges);
+            else csr.out(cur, edges);
+            while (edges.next()) {
+                int nb = edges.node();
+                if (closed[nb] == stamp) continue;
+                double w = edges.meters();
+                if (reverse) {
+                    if (overlay.touches(nb) && (w += overlay.penalty(nb, cur)) == Double.POSITIVE_INFINITY) continue;
+                } else if (penalized && (w += overlay.penalty(cur, nb)) == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                stats.relaxedEdges++;
+                double nd = dCur + w;
+                if (nd <= boundMeters && (seen[nb] != stamp || nd < dist[nb])) {
+                    seen[nb] = stamp;
+                    dist[nb] = nd;
+                    origin[nb] = from;
+                    open.push(nb, nd);
+                    stats.heapPushes++;
+                }
+            }
+        }
+    }
+}
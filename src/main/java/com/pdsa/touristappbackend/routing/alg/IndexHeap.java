@@ -0,0 +1,76 @@
+package com.pdsa.touristappbackend.routing.alg;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of (key, node index) pairs in two parallel primitive arrays.
+ * Lazy like the PriorityQueue it replaces: a node whose key improves is pushed again and the
+ * stale entry is skipped by the caller when it is polled. No boxing, no per-entry objects.
+ * Grows as needed and keeps its capacity across clear(), so one instance serves many searches.
+ */
+class IndexHeap {
+
+    private double[] keys = new double[256];
+    private int[] nodes = new int[256];
+    private int size;
+
+    void clear() {
+        size = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    double peekKey() {
+        return keys[0];
+    }
+
+    int peekNode() {
+        return nodes[0];
+    }
+
+    void push(int node, double key) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            nodes = Arrays.copyOf(nodes, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) break;
+            keys[i] = keys[parent];
+            nodes[i] = nodes[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        nodes[i] = node;
+    }
+
+    // removes the smallest entry and returns its node
+    int poll() {
+        int top = nodes[0];
+        int last = --size;
+        if (last > 0) siftDown(keys[last], nodes[last], last);
+        return top;
+    }
+
+    private void siftDown(double key, int node, int n) {
+        int i = 0;
+        int half = n >>> 1;
+        while (i < half) {
+            int c = 2 * i + 1;
+            if (c + 1 < n && keys[c + 1] < keys[c]) c++;
+            if (key <= keys[c]) break;
+            keys[i] = keys[c];
+            nodes[i] = nodes[c];
+            i = c;
+        }
+        keys[i] = key;
+        nodes[i] = node;
+    }
+}
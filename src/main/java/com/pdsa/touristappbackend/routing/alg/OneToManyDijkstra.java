@@ -0,0 +1,242 @@
+package com.pdsa.touristappbackend.routing.alg;
+
+import com.pdsa.touristappbackend.routing.CsrGraph;
+import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.RoadOverlay;
+import com.pdsa.touristappbackend.routing.SearchStats;
+
+import java.util.Arrays;
+
+/**
+ * Bounded Dijkstra from one node over the CSR graph, settling nodes in order of network distance.
+ * - distances(): to a set of target nodes, one row of a distance table. Used by the day-tour
+ *   planner to price every leg between its candidate stops: one search per stop instead of one
+ *   A* per pair
+ * - tree(): right after distances(), keeps the shortest paths to the targets from the search's
+ *   parents, so the legs a tour picks need no second search
+ * - expand(): hands every settled node to a Visitor until it asks to stop, e.g. once the
+ *   k nearest POIs are found
+ * Optimizations:
+ *  - Stops as soon as every target is settled (or the visitor is done), or when the smallest
+ *    tentative distance exceeds the bound
+ *  - Primitive heap (IndexHeap) and stamped per-node arrays in a reusable Workspace, so a row
+ *    allocates only its result
+ *  - Road closures and penalties from the graph's RoadOverlay, as in AStar
+ *  - Counts settled nodes, heap pushes and edge queries in SearchStats for metrics
+ */
+public class OneToManyDijkstra {
+
+    private OneToManyDijkstra() {}
+
+    /**
+     * Receives the settled nodes of expand(), nearest first
+     */
+    public interface Visitor {
+        /**
+         * @param node - CsrGraph index of the settled node
+         * @param meters - its network distance from the source
+         * @return false to stop the search
+         */
+        boolean settled(int node, double meters);
+    }
+
+    /**
+     * Reusable search state for one thread, indexed by CsrGraph node index; reset in O(1) with
+     * a stamp like AStar.Workspace. Never share a Workspace between threads.
+     */
+    public static class Workspace {
+        double[] dist = new double[0];
+        // predecessor on the shortest path, valid for seen nodes
+        int[] parent = new int[0];
+        int[] seen = new int[0];
+        int[] closed = new int[0];
+        // stamp of the search the node is a target of
+        int[] target = new int[0];
+        // stamp of the search whose tree() holds the node
+        int[] inTree = new int[0];
+        int stamp;
+        final IndexHeap open = new IndexHeap();
+        final CsrGraph.EdgeCursor edges = new CsrGraph.EdgeCursor();
+
+        void reset(int n) {
+            if (seen.length != n) {
+                dist = new double[n];
+                parent = new int[n];
+                seen = new int[n];
+                closed = new int[n];
+                target = new int[n];
+                inTree = new int[n];
+                stamp = 0;
+            }
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                Arrays.fill(closed, 0);
+                Arrays.fill(target, 0);
+                Arrays.fill(inTree, 0);
+                stamp = 1;
+            }
+            open.clear();
+        }
+    }
+
+    /**
+     * Shortest paths from one source to its targets, copied out of a Workspace: the union of the
+     * paths, as node -> parent pairs sorted by node
+     */
+    public static class Tree {
+        private final int source;
+        private final int[] nodes;
+        private final int[] parents;
+
+        Tree(int source, int[] nodes, int[] parents) {
+            this.source = source;
+            this.nodes = nodes;
+            this.parents = parents;
+        }
+
+        /**
+         * Path from the source to a target
+         * @param target - CsrGraph index of one of the targets
+         * @return node indexes from source to target, null if the target was not reached
+         */
+        public int[] path(int target) {
+            int length = 1;
+            for (int v = target; v != source; length++) {
+                int k = Arrays.binarySearch(nodes, v);
+                if (k < 0) return null;
+                v = parents[k];
+            }
+            int[] path = new int[length];
+            int v = target;
+            for (int i = length - 1; i > 0; i--) {
+                path[i] = v;
+                v = parents[Arrays.binarySearch(nodes, v)];
+            }
+            path[0] = source;
+            return path;
+        }
+    }
+
+    /**
+     * Network distances from a source to each target
+     * @param g - LazyGraph instance to provide graph data
+     * @param source - CsrGraph index of the source node
+     * @param targets - CsrGraph indexes of the targets, repeats allowed
+     * @param boundMeters - search radius in network meters
+     * @param ws - search state owned by the calling thread
+     * @param stats - receives the work counters
+     * @return distance in meters per target, infinite if unreachable within the bound
+     */
+    public static double[] distances(LazyGraph g, int source, int[] targets, double boundMeters,
+                                     Workspace ws, SearchStats stats) {
+        ws.reset(g.csr().size());
+        int[] target = ws.target;
+        int stamp = ws.stamp;
+        int[] remaining = {0};
+        for (int t : targets) {
+            if (target[t] != stamp) {
+                target[t] = stamp;
+                remaining[0]++;
+            }
+        }
+        if (remaining[0] > 0) {
+            search(g, source, boundMeters, ws, stats, (node, meters) -> target[node] != stamp || --remaining[0] > 0);
+        }
+
+        double[] out = new double[targets.length];
+        for (int k = 0; k < targets.length; k++) {
+            out[k] = ws.closed[targets[k]] == stamp ? ws.dist[targets[k]] : Double.POSITIVE_INFINITY;
+        }
+        return out;
+    }
+
+    /**
+     * Keep the paths of the last distances() search on a workspace, before the workspace is reused
+     * @param ws - workspace distances() just ran on
+     * @param source - the source of that search
+     * @param targets - its targets
+     * @return the paths to every reached target
+     */
+    public static Tree tree(Workspace ws, int source, int[] targets) {
+        int stamp = ws.stamp;
+        int[] inTree = ws.inTree;
+        int[] nodes = new int[16];
+        int n = 0;
+        inTree[source] = stamp;
+        // each path stops where it joins one collected before
+        for (int t : targets) {
+            if (ws.closed[t] != stamp) continue;
+            for (int v = t; inTree[v] != stamp; v = ws.parent[v]) {
+                inTree[v] = stamp;
+                if (n == nodes.length) nodes = Arrays.copyOf(nodes, n * 2);
+                nodes[n++] = v;
+            }
+        }
+        nodes = Arrays.copyOf(nodes, n);
+        Arrays.sort(nodes);
+        int[] parents = new int[n];
+        for (int k = 0; k < n; k++) parents[k] = ws.parent[nodes[k]];
+        return new Tree(source, nodes, parents);
+    }
+
+    /**
+     * Settle nodes nearest first until the visitor stops the search or the bound is reached
+     * @param g - LazyGraph instance to provide graph data
+     * @param source - CsrGraph index of the source node
+     * @param boundMeters - search radius in network meters
+     * @param ws - search state owned by the calling thread
+     * @param stats - receives the work counters
+     * @param visitor - called once per settled node, the source first
+     */
+    public static void expand(LazyGraph g, int source, double boundMeters, Workspace ws, SearchStats stats,
+                              Visitor visitor) {
+        ws.reset(g.csr().size());
+        search(g, source, boundMeters, ws, stats, visitor);
+    }
+
+    // the search itself, on a workspace already reset
+    private static void search(LazyGraph g, int source, double boundMeters, Workspace ws, SearchStats stats,
+                               Visitor visitor) {
+        CsrGraph csr = g.csr();
+        RoadOverlay overlay = g.overlay();
+        double[] dist = ws.dist;
+        int[] seen = ws.seen;
+        int[] closed = ws.closed;
+        int stamp = ws.stamp;
+        IndexHeap open = ws.open;
+
+        dist[source] = 0.0;
+        seen[source] = stamp;
+        open.push(source, 0.0);
+        stats.heapPushes++;
+
+        while (!open.isEmpty()) {
+            if (open.peekKey() > boundMeters) break;
+            int cur = open.poll();
+            if (closed[cur] == stamp) continue;
+            closed[cur] = stamp;
+            stats.settledNodes++;
+            if (!visitor.settled(cur, dist[cur])) break;
+
+            stats.edgeQueries++;
+            double dCur = dist[cur];
+            boolean penalized = overlay.touches(cur);
+            CsrGraph.EdgeCursor edges = ws.edges;
+            for (csr.out(cur, edges); edges.next(); ) {
+                int nb = edges.node();
+                if (closed[nb] == stamp) continue;
+                double w = edges.meters();
+                if (penalized && (w += overlay.penalty(cur, nb)) == Double.POSITIVE_INFINITY) continue;
+                stats.relaxedEdges++;
+                double nd = dCur + w;
+                if (nd <= boundMeters && (seen[nb] != stamp || nd < dist[nb])) {
+                    seen[nb] = stamp;
+                    dist[nb] = nd;
+                    ws.parent[nb] = cur;
+                    open.push(nb, nd);
+                    stats.heapPushes++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.pdsa.touristappbackend.routing.alg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Heuristic for the orienteering problem: a loop from a depot through a subset of stops that
+ * collects as much prize as possible without its cost exceeding a budget.
+ * Works on a precomputed cost table (table[i][j], stop 0 is the depot, infinite when there is no
+ * road), so legs may be asymmetric (one-way streets). Each stop also costs its service, e.g. the
+ * time spent at the attraction.
+ * Steps:
+ *  - greedy insertion: repeatedly insert the stop with the best prize per added cost at its
+ *    cheapest position, while the budget allows
+ *  - local search, until nothing improves or the deadline passes:
+ *    - 2-opt segment reversals that shorten the loop, freeing budget
+ *    - greedy insertion into the freed budget
+ *    - swaps of a visited stop for an unvisited one with a higher prize
+ *  - perturbation, while time remains: drop a few random stops of the best tour, refill it
+ *    without them, then repeat the local search, keeping the result if it collects more
+ *    (seeded, so repeatable)
+ * Every step keeps the tour feasible, so stopping at the deadline returns a valid tour.
+ * Stops are at most a few dozen, all moves are evaluated directly on the table.
+ */
+public class Orienteering {
+
+    // perturbation rounds at most, most tours stop improving long before
+    private static final int PERTURBATIONS = 200;
+
+    private Orienteering() {}
+
+    /**
+     * A closed tour, depot first
+     */
+    public static class Tour {
+        // stops in visiting order, without the depot at either end
+        public final int[] stops;
+        public final double cost;
+        public final double prize;
+
+        Tour(int[] stops, double cost, double prize) {
+            this.stops = stops;
+            this.cost = cost;
+            this.prize = prize;
+        }
+    }
+
+    /**
+     * Plan the tour
+     * @param table - travel cost between stops, stop 0 is the depot
+     * @param service - cost of visiting each stop (ignored for the depot)
+     * @param prize - value of visiting each stop (ignored for the depot)
+     * @param budget - maximum total cost of travel and service
+     * @param deadlineNanos - System.nanoTime() after which the local search stops
+     * @return the best tour found, possibly without any stop
+     */
+    public static Tour solve(double[][] table, double[] service, double[] prize, double budget, long deadlineNanos) {
+        int n = table.length;
+        // depot at both ends
+        List<Integer> best = new ArrayList<>(List.of(0, 0));
+        localSearch(best, table, service, prize, budget, deadlineNanos);
+        double bestPrize = prize(best, prize);
+        double bestCost = cost(best, table, service);
+
+        Random rnd = new Random(n);
+        for (int round = 0; round < PERTURBATIONS && best.size() > 2 && System.nanoTime() < deadlineNanos; round++) {
+            List<Integer> route = new ArrayList<>(best);
+            int drop = 1 + rnd.nextInt(Math.max(1, (route.size() - 2) / 3));
+            boolean[] visited = new boolean[n];
+            for (int stop : route) visited[stop] = true;
+            for (int d = 0; d < drop && route.size() > 2; d++) route.remove(1 + rnd.nextInt(route.size() - 2));
+            // with one-way legs a shortcut may not exist
+            if (!(cost(route, table, service) <= budget)) continue;
+            // the dropped stops stay out of the first insertion, so other stops get their place
+            insertGreedily(route, visited, table, service, prize, budget);
+            localSearch(route, table, service, prize, budget, deadlineNanos);
+            double p = prize(route, prize);
+            double c = cost(route, table, service);
+            if (p > bestPrize + 1e-9 || (p > bestPrize - 1e-9 && c < bestCost - 1e-9)) {
+                best = route;
+                bestPrize = p;
+                bestCost = c;
+            }
+        }
+
+        int[] stops = new int[best.size() - 2];
+        for (int k = 0; k < stops.length; k++) stops[k] = best.get(k + 1);
+        return new Tour(stops, bestCost, bestPrize);
+    }
+
+    private static void localSearch(List<Integer> route, double[][] table, double[] service, double[] prize,
+                                    double budget, long deadlineNanos) {
+        boolean[] visited = new boolean[table.length];
+        for (int stop : route) visited[stop] = true;
+        insertGreedily(route, visited, table, service, prize, budget);
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadlineNanos) {
+            improved = twoOpt(route, table, deadlineNanos);
+            improved |= insertGreedily(route, visited, table, service, prize, budget);
+            improved |= swap(route, visited, table, service, prize, budget, deadlineNanos);
+        }
+    }
+
+    private static double prize(List<Integer> route, double[] prize) {
+        double p = 0;
+        for (int k = 1; k + 1 < route.size(); k++) p += prize[route.get(k)];
+        return p;
+    }
+
+    static double cost(List<Integer> route, double[][] table, double[] service) {
+        double c = 0;
+        for (int k = 0; k + 1 < route.size(); k++) {
+            c += table[route.get(k)][route.get(k + 1)];
+            if (k > 0) c += service[route.get(k)];
+        }
+        return c;
+    }
+
+    // returns true if at least one stop was inserted
+    private static boolean insertGreedily(List<Integer> route, boolean[] visited, double[][] table,
+                                          double[] service, double[] prize, double budget) {
+        boolean any = false;
+        double cost = cost(route, table, service);
+        while (true) {
+            int bestStop = -1, bestPos = -1;
+            double bestRatio = -1, bestDelta = 0;
+            for (int j = 1; j < table.length; j++) {
+                if (visited[j] || prize[j] <= 0) continue;
+                int pos = -1;
+                double delta = Double.POSITIVE_INFINITY;
+                for (int k = 0; k + 1 < route.size(); k++) {
+                    double d = insertionCost(route, k, j, table, service);
+                    if (d < delta) {
+                        delta = d;
+                        pos = k;
+                    }
+                }
+                if (pos < 0 || cost + delta > budget) continue;
+                double ratio = prize[j] / Math.max(delta, 1e-9);
+                if (ratio > bestRatio) {
+                    bestRatio = ratio;
+                    bestStop = j;
+                    bestPos = pos;
+                    bestDelta = delta;
+                }
+            }
+            if (bestStop < 0) return any;
+            route.add(bestPos + 1, bestStop);
+            visited[bestStop] = true;
+            cost += bestDelta;
+            any = true;
+        }
+    }
+
+    // added cost of visiting stop j between route[k] and route[k + 1]
+    private static double insertionCost(List<Integer> route, int k, int j, double[][] table, double[] service) {
+        int a = route.get(k), b = route.get(k + 1);
+        return table[a][j] + table[j][b] - table[a][b] + service[j];
+    }
+
+    // first-improvement 2-opt; the reversed segment is re-priced since legs may be asymmetric
+    private static boolean twoOpt(List<Integer> route, double[][] table, long deadlineNanos) {
+        boolean any = false;
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadlineNanos) {
+            improved = false;
+            for (int i = 1; i < route.size() - 2 && !improved; i++) {
+                for (int j = i + 1; j < route.size() - 1 && !improved; j++) {
+                    double before = 0, after = table[route.get(i - 1)][route.get(j)] + table[route.get(i)][route.get(j + 1)];
+                    for (int k = i - 1; k <= j; k++) before += table[route.get(k)][route.get(k + 1)];
+                    for (int k = j; k > i; k--) after += table[route.get(k)][route.get(k - 1)];
+                    if (after < before - 1e-9) {
+                        for (int a = i, b = j; a < b; a++, b--) {
+                            int t = route.get(a);
+                            route.set(a, route.get(b));
+                            route.set(b, t);
+                        }
+                        improved = true;
+                        any = true;
+                    }
+                }
+            }
+        }
+        return any;
+    }
+
+    // replaces a visited stop with an unvisited one of higher prize that fits the budget
+    private static boolean swap(List<Integer> route, boolean[] visited, double[][] table, double[] service,
+                                double[] prize, double budget, long deadlineNanos) {
+        double cost = cost(route, table, service);
+        for (int k = 1; k < route.size() - 1; k++) {
+            if (System.nanoTime() >= deadlineNanos) return false;
+            int v = route.get(k);
+            double saved = table[route.get(k - 1)][v] + table[v][route.get(k + 1)] + service[v]
+                    - table[route.get(k - 1)][route.get(k + 1)];
+            route.remove(k);
+            for (int j = 1; j < table.length; j++) {
+                if (visited[j] || prize[j] <= prize[v]) continue;
+                for (int p = 0; p + 1 < route.size(); p++) {
+                    if (cost - saved + insertionCost(route, p, j, table, service) <= budget) {
+                        route.add(p + 1, j);
+                        visited[j] = true;
+                        visited[v] = false;
+                        return true;
+                    }
+                }
+            }
+            route.add(k, v);
+        }
+        return false;
+    }
+}
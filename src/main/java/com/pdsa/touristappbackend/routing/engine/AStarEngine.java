@@ -0,0 +1,32 @@
+package com.pdsa.touristappbackend.routing.engine;
+
+import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.SearchTrace;
+import com.pdsa.touristappbackend.routing.alg.AStar;
+import org.springframework.stereotype.Component;
+
+/**
+ * RoutingEngine running unidirectional AStar.
+ * Every thread keeps its own AStar.Workspace, so request and pool threads reuse their
+ * graph-sized search arrays instead of allocating new ones per query.
+ * Cheapest for short queries, where the Haversine heuristic keeps the search close to the
+ * straight line between the two nodes.
+ */
+@Component
+public class AStarEngine implements RoutingEngine {
+
+    public static final String NAME = "astar";
+
+    private final ThreadLocal<AStar.Workspace> workspaces = ThreadLocal.withInitial(AStar.Workspace::new);
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public Route route(LazyGraph g, long source, long target, SearchTrace trace) throws Exception {
+        AStar.Result r = AStar.shortestPath(g, source, target, workspaces.get(), trace);
+        return Route.of(g, NAME, r.getDistanceMeters(), r.getPathNodeIds(), r.getStats(), trace);
+    }
+}
@@ -0,0 +1,32 @@
+package com.pdsa.touristappbackend.routing.engine;
+
+import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.SearchTrace;
+import com.pdsa.touristappbackend.routing.alg.AStar;
+import com.pdsa.touristappbackend.routing.alg.BidirectionalAStar;
+import org.springframework.stereotype.Component;
+
+/**
+ * RoutingEngine running BidirectionalAStar, searching from both ends over the outgoing and
+ * incoming CSR edges. Chosen by the adaptive policy for long queries.
+ * Every thread keeps its own BidirectionalAStar.Workspace, like AStarEngine.
+ */
+@Component
+public class BidirectionalAStarEngine implements RoutingEngine {
+
+    public static final String NAME = "bidirectional-astar";
+
+    private final ThreadLocal<BidirectionalAStar.Workspace> workspaces =
+            ThreadLocal.withInitial(BidirectionalAStar.Workspace::new);
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public Route route(LazyGraph g, long source, long target, SearchTrace trace) throws Exception {
+        AStar.Result r = BidirectionalAStar.shortestPath(g, source, target, workspaces.get(), trace);
+        return Route.of(g, NAME, r.getDistanceMeters(), r.getPathNodeIds(), r.getStats(), trace);
+    }
+}
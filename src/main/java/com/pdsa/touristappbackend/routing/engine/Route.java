@@ -0,0 +1,65 @@
+package com.pdsa.touristappbackend.routing.engine;
+
+import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.RouteGeometry;
+import com.pdsa.touristappbackend.routing.SearchStats;
+import com.pdsa.touristappbackend.routing.SearchTrace;
+
+import java.util.List;
+
+/**
+ * Result of one RoutingEngine search, shared by every endpoint.
+ * Fields:
+ * - engine: name of the engine that produced it
+ * - distanceMeters: route length, infinite when the target is unreachable; penalties of the
+ *   graph's RoadOverlay steer the search but are not part of the length
+ * - pathNodeIds: the route as node ids, empty when unreachable
+ * - geometry: the route shape (unsimplified), built once from the node ids
+ * - stats: work counters of the search
+ * Immutable, so a coalesced result can be handed to several requests.
+ */
+public class Route {
+    public final String engine;
+    public final double distanceMeters;
+    public final List<Long> pathNodeIds;
+    public final RouteGeometry geometry;
+    public final SearchStats stats;
+
+    public Route(String engine, double distanceMeters, List<Long> pathNodeIds, RouteGeometry geometry,
+                 SearchStats stats) {
+        this.engine = engine;
+        this.distanceMeters = distanceMeters;
+        this.pathNodeIds = pathNodeIds;
+        this.geometry = geometry;
+        this.stats = stats;
+    }
+
+    /**
+     * Route for a path found by a search, building its geometry
+     * @param g - graph providing node coordinates
+     * @param engine - engine name
+     * @param distanceMeters - path cost found by the search
+     * @param pathNodeIds - path as node ids
+     * @param stats - work counters of the search
+     * @param trace - receives the geometry construction time as the "reconstruct" phase
+     * @return route with geometry
+     */
+    public static Route of(LazyGraph g, String engine, double distanceMeters, List<Long> pathNodeIds,
+                           SearchStats stats, SearchTrace trace) {
+        if (distanceMeters == Double.POSITIVE_INFINITY) return unreachable(engine, stats);
+        long start = trace.enabled() ? System.nanoTime() : 0;
+        RouteGeometry geometry = RouteGeometry.fromNodeIds(g, pathNodeIds);
+        // with penalties in force the search cost exceeds the road length
+        if (!g.overlay().isEmpty()) distanceMeters = g.pathLength(pathNodeIds);
+        if (trace.enabled()) trace.phase("reconstruct", System.nanoTime() - start);
+        return new Route(engine, distanceMeters, pathNodeIds, geometry, stats);
+    }
+
+    public static Route unreachable(String engine, SearchStats stats) {
+        return new Route(engine, Double.POSITIVE_INFINITY, List.of(), RouteGeometry.EMPTY, stats);
+    }
+
+    public boolean found() {
+        return distanceMeters != Double.POSITIVE_INFINITY;
+    }
+}
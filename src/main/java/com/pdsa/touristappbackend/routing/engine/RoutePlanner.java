@@ -0,0 +1,142 @@
+package com.pdsa.touristappbackend.routing.engine;
+
+import com.pdsa.touristappbackend.config.RoutingConfigProperties;
+import com.pdsa.touristappbackend.model.OsmNodeData;
+import com.pdsa.touristappbackend.routing.ExplainTrace;
+import com.pdsa.touristappbackend.routing.GraphProvider;
+import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.OutOfRegionException;
+import com.pdsa.touristappbackend.routing.Region;
+import com.pdsa.touristappbackend.routing.RegionRegistry;
+import com.pdsa.touristappbackend.routing.RoutingMetrics;
+import com.pdsa.touristappbackend.routing.SearchExecutor;
+import com.pdsa.touristappbackend.routing.SearchTrace;
+import com.pdsa.touristappbackend.routing.SingleFlight;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The one code path every routing endpoint (by-coords, multi-stop, poi, batch) snaps and searches through.
+ * - region(): the regional graph covering all points of a query (RegionRegistry), rejecting
+ *   out-of-region coordinates with OutOfRegionException before any snapping
+ * - snap(): nearest node with outgoing edges from the graph's snapping grid, timed in
+ *   RoutingMetrics and reported to the trace and the explain section
+ * - route(): picks the engine (RoutingEngines), runs it on the SearchExecutor and records
+ *   RoutingMetrics with the engine name as algorithm tag; identical concurrent queries
+ *   (same region, engine, source and target) are coalesced with SingleFlight, unless the caller
+ *   needs the search's own timings (explain=true)
+ * - search(): the same without executor and coalescing, for callers already on a pool worker
+ * Geometry simplification and the output format are left to the callers, so a coalesced
+ * Route serves requests with different geometry options.
+ */
+@Component
+public class RoutePlanner {
+
+    private final GraphProvider graphProvider;
+    private final RoutingEngines engines;
+    private final SearchExecutor searchExecutor;
+    private final RoutingMetrics metrics;
+    private final SingleFlight<List<Object>, Route> inFlight;
+
+    public RoutePlanner(GraphProvider graphProvider, RoutingEngines engines, SearchExecutor searchExecutor,
+                        RoutingMetrics metrics, RoutingConfigProperties cfg) {
+        this.graphProvider = graphProvider;
+        this.engines = engines;
+        this.searchExecutor = searchExecutor;
+        this.metrics = metrics;
+        this.inFlight = new SingleFlight<>(cfg.getCoalesceTimeoutMs());
+    }
+
+    /**
+     * Region serving a query
+     * @param latLon - lat, lon pairs of every point of the query
+     * @return tightest region containing all of them
+     * @throws OutOfRegionException - if no region does
+     */
+    public Region region(double... latLon) {
+        return regions().locate(latLon);
+    }
+
+    public RegionRegistry regions() {
+        return graphProvider.regions();
+    }
+
+    public LazyGraph graph(Region region) {
+        return graphProvider.getLazyGraph(region);
+    }
+
+    public RoutingEngines engines() {
+        return engines;
+    }
+
+    /**
+     * Snap a coordinate to the nearest connected node
+     * @param endpoint - endpoint tag for metrics
+     * @param region - region from region()
+     * @param label - point name for the explain section, e.g. "start", "stop1"
+     * @param lat - latitude
+     * @param lon - longitude
+     * @param explain - records the snap, or null
+     * @param trace - receives the "snap" phase
+     * @return nearest node with outgoing edges, null if the graph has none
+     */
+    public OsmNodeData snap(String endpoint, Region region, String label, double lat, double lon,
+                            ExplainTrace explain, SearchTrace trace) {
+        LazyGraph g = graph(region);
+        long start = System.nanoTime();
+        OsmNodeData node = g.nearestConnectedNode(lat, lon);
+        long nanos = System.nanoTime() - start;
+        metrics.recordSnap(endpoint, nanos);
+        trace.phase("snap", nanos);
+        if (explain != null) {
+            explain.snapped(label, lat, lon, node, node == null ? -1 : g.getComponent(node.getId()));
+        }
+        return node;
+    }
+
+    /**
+     * Route between two snapped nodes on the search executor
+     * @param endpoint - endpoint tag for metrics
+     * @param region - region both nodes were snapped in
+     * @param engine - engine name from the request, or null for routing.engine
+     * @param source - snapped source node
+     * @param target - snapped target node
+     * @param trace - receives the search's phases, counters and engine
+     * @param coalesce - share the search with identical concurrent queries; pass false when the
+     *                 trace must see this request's own search
+     * @return the route
+     * @throws Exception - if the search fails, or TimeoutException while waiting for a coalesced one
+     */
+    public Route route(String endpoint, Region region, String engine, OsmNodeData source, OsmNodeData target,
+                       SearchTrace trace, boolean coalesce) throws Exception {
+        RoutingEngine e = engines.select(engine, source, target);
+        if (!coalesce) {
+            return searchExecutor.run(() -> search(endpoint, region, e, source.getId(), target.getId(), trace));
+        }
+        List<Object> key = Arrays.asList(region.name, e.name(), source.getId(), target.getId());
+        return inFlight.execute(key,
+                () -> searchExecutor.run(() -> search(endpoint, region, e, source.getId(), target.getId(), trace)));
+    }
+
+    /**
+     * Run one search on the calling thread
+     * @param endpoint - endpoint tag for metrics
+     * @param region - region both nodes belong to
+     * @param engine - engine to run
+     * @param source - source node ID
+     * @param target - target node ID
+     * @param trace - receives the search's phases, counters and engine
+     * @return the route
+     * @throws Exception - if graph access fails
+     */
+    public Route search(String endpoint, Region region, RoutingEngine engine, long source, long target,
+                        SearchTrace trace) throws Exception {
+        trace.engine(engine.name());
+        long start = System.nanoTime();
+        Route r = engine.route(graph(region), source, target, trace);
+        metrics.recordSearch(endpoint, engine.name(), System.nanoTime() - start, r.stats, r.distanceMeters);
+        return r;
+    }
+}
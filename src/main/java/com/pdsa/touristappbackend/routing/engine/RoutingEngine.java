@@ -0,0 +1,33 @@
+package com.pdsa.touristappbackend.routing.engine;
+
+import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.SearchTrace;
+
+/**
+ * Point-to-point shortest path algorithm behind every routing endpoint.
+ * Implementations are Spring beans collected by RoutingEngines, so a new algorithm (for example
+ * one with a preprocessed speedup) only needs a @Component implementing this interface; it can
+ * then be chosen with routing.engine=<name> or a request's engine=<name> parameter.
+ * Contract:
+ * - results must be exact shortest paths under the Haversine edge weights of LazyGraph
+ * - the search reports settled nodes, a "search" phase and its SearchStats to the trace,
+ *   and the Route's geometry construction as a "reconstruct" phase (Route.of does this)
+ * - an unreachable target gives Route.unreachable, not an exception
+ * - route() is called concurrently from many threads; per-search state must not be shared
+ */
+public interface RoutingEngine {
+
+    // name used in configuration, request parameters and the algorithm tag of metrics
+    String name();
+
+    /**
+     * Shortest route between two graph nodes
+     * @param g - graph to search
+     * @param source - starting node ID
+     * @param target - ending node ID
+     * @param trace - receives settled nodes, phase times and counters
+     * @return route, infinite distance and empty path if the target is unreachable
+     * @throws Exception - if graph access fails
+     */
+    Route route(LazyGraph g, long source, long target, SearchTrace trace) throws Exception;
+}
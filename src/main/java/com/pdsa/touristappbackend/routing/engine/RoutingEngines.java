@@ -0,0 +1,77 @@
+package com.pdsa.touristappbackend.routing.engine;
+
+import com.pdsa.touristappbackend.config.RoutingConfigProperties;
+import com.pdsa.touristappbackend.model.OsmNodeData;
+import com.pdsa.touristappbackend.util.Haversine;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Registry of the RoutingEngine beans and the per-query engine choice.
+ * A query uses the engine named in the request, or routing.engine when it names none.
+ * The name "adaptive" picks by the straight-line distance between the snapped nodes:
+ * - below routing.bidirectional-min-meters: astar, whose search stays close to the straight line
+ * - from there on: bidirectional-astar, where two half-length searches beat one full-length one
+ * Unknown names are rejected with IllegalArgumentException, the configured default at startup.
+ */
+@Component
+public class RoutingEngines {
+
+    public static final String ADAPTIVE = "adaptive";
+
+    private final Map<String, RoutingEngine> engines = new LinkedHashMap<>();
+    private final String defaultEngine;
+    private final double bidirectionalMinMeters;
+
+    public RoutingEngines(List<RoutingEngine> engines, RoutingConfigProperties cfg) {
+        for (RoutingEngine e : engines) this.engines.put(e.name(), e);
+        this.defaultEngine = cfg.getEngine() == null ? ADAPTIVE : cfg.getEngine();
+        this.bidirectionalMinMeters = cfg.getBidirectionalMinMeters();
+        check(defaultEngine);
+    }
+
+    /**
+     * Reject a requested engine name before any work is done
+     * @param requested - engine name, "adaptive" or null for the default
+     * @throws IllegalArgumentException - if no such engine exists
+     */
+    public void check(String requested) {
+        if (requested == null || ADAPTIVE.equals(requested)) return;
+        get(requested);
+    }
+
+    /**
+     * Engine by name
+     * @param name - engine name
+     * @return the engine
+     * @throws IllegalArgumentException - if no such engine exists
+     */
+    public RoutingEngine get(String name) {
+        RoutingEngine e = engines.get(name);
+        if (e == null) {
+            throw new IllegalArgumentException("Unknown routing engine: " + name
+                    + " (known: " + ADAPTIVE + ", " + String.join(", ", engines.keySet()) + ")");
+        }
+        return e;
+    }
+
+    /**
+     * Engine for one query
+     * @param requested - engine name from the request, or null for routing.engine
+     * @param source - snapped source node
+     * @param target - snapped target node
+     * @return engine to run the query with
+     */
+    public RoutingEngine select(String requested, OsmNodeData source, OsmNodeData target) {
+        String name = requested != null ? requested : defaultEngine;
+        if (!ADAPTIVE.equals(name)) return get(name);
+
+        double straight = Haversine.meters(source.getLat(), source.getLon(), target.getLat(), target.getLon());
+        return get(straight < bidirectionalMinMeters ? AStarEngine.NAME : BidirectionalAStarEngine.NAME);
+    }
+
+    public Set<String> names() {
+        return Collections.unmodifiableSet(engines.keySet());
+    }
+}
@@ -0,0 +1,39 @@
+package com.pdsa.touristappbackend.routing.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event for loading a LazyGraph from SQLite: Hilbert-ordered, compressed CsrGraph,
+ * then component/grid build.
+ */
+@Name("com.pdsa.touristapp.GraphLoad")
+@Label("Graph Load")
+@Category({"Tourist App", "Routing"})
+@Description("Road graph loaded from SQLite")
+@StackTrace(false)
+public class GraphLoadEvent extends Event {
+
+    @Label("Database")
+    public String sqlitePath;
+
+    @Label("Nodes")
+    public int nodes;
+
+    @Label("Edges")
+    public int edges;
+
+    @Label("Graph Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Components")
+    public int components;
+
+    @Label("Node And Edge Load Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long loadTime;
+
+    @Label("Component Build Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long componentTime;
+}
@@ -0,0 +1,105 @@
+package com.pdsa.touristappbackend.routing.jfr;
+
+import com.pdsa.touristappbackend.routing.SearchStats;
+import com.pdsa.touristappbackend.routing.SearchTrace;
+import jdk.jfr.*;
+
+/**
+ * JFR event for one routing request (by-coords, multi-stop or poi).
+ * The event is also a SearchTrace, so the searches of the request fill in its phase
+ * durations and counters the same way they fill an explain response.
+ * When no recording has the event enabled, enabled() is false and callers skip it entirely.
+ * Usage:
+ * RouteQueryEvent event = new RouteQueryEvent("by-coords");
+ * event.begin();
+ * ... search with SearchTrace.tee(otherTrace, event) ...
+ * event.sourceNode = s; event.targetNode = t; event.distanceMeters = d;
+ * event.commit();
+ * Record with: java -XX:StartFlightRecording ... and look for com.pdsa.touristapp.RouteQuery.
+ */
+@Name("com.pdsa.touristapp.RouteQuery")
+@Label("Route Query")
+@Category({"Tourist App", "Routing"})
+@Description("Routing request with snapped nodes, search work and phase durations")
+@StackTrace(false)
+public class RouteQueryEvent extends Event implements SearchTrace {
+
+    @Label("Endpoint")
+    public String endpoint;
+
+    @Label("Engine")
+    @Description("Routing engine of the last search")
+    public String engine;
+
+    @Label("Source Node")
+    public long sourceNode;
+
+    @Label("Target Node")
+    public long targetNode;
+
+    @Label("Searches")
+    @Description("Graph searches run for this request; 0 when the result came from a coalesced search")
+    public int searches;
+
+    @Label("Settled Nodes")
+    public int settledNodes;
+
+    @Label("Adjacency Lookups")
+    public int sqlQueries;
+
+    @Label("Distance")
+    @Description("Route length in meters, infinite when there is no route")
+    public double distanceMeters;
+
+    @Label("Snap Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long snapTime;
+
+    @Label("Search Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long searchTime;
+
+    @Label("Reconstruct Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long reconstructTime;
+
+    @Label("POI Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long poiTime;
+
+    public RouteQueryEvent(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    public boolean enabled() {
+        return isEnabled();
+    }
+
+    @Override
+    public void phase(String name, long nanos) {
+        switch (name) {
+            case "snap" -> snapTime += nanos;
+            case "search" -> searchTime += nanos;
+            case "reconstruct" -> reconstructTime += nanos;
+            case "poi" -> poiTime += nanos;
+            default -> { }
+        }
+    }
+
+    @Override
+    public void settled(long nodeId) {
+    }
+
+    @Override
+    public void stats(SearchStats stats) {
+        searches++;
+        settledNodes += stats.settledNodes;
+        sqlQueries += stats.edgeQueries;
+    }
+
+    @Override
+    public void engine(String name) {
+        engine = name;
+    }
+}
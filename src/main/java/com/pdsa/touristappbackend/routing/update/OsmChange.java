@@ -0,0 +1,150 @@
+package com.pdsa.touristappbackend.routing.update;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The node and way edits of an OSM change file (.osc, osmChange XML), as published in the
+ * daily/minutely replication diffs or written by osmium derive-changes.
+ * Parsed with StAX in one pass, so a diff is never held as a DOM; gzip (.osc.gz) is detected
+ * from the stream's magic bytes. Relations are skipped, routing does not use them.
+ * Within one file the last edit of an element wins, like in the replication diffs.
+ * Usage:
+ * OsmChange change = OsmChange.parse(in);
+ * for (OsmChange.WayChange w : change.ways) { ... }
+ */
+public class OsmChange {
+
+    public enum Action { CREATE, MODIFY, DELETE }
+
+    public static class NodeChange {
+        public final Action action;
+        public final long id;
+        // NaN for a delete, which may carry no coordinates
+        public final double lat;
+        public final double lon;
+
+        public NodeChange(Action action, long id, double lat, double lon) {
+            this.action = action;
+            this.id = id;
+            this.lat = lat;
+            this.lon = lon;
+        }
+    }
+
+    public static class WayChange {
+        public final Action action;
+        public final long id;
+        // node refs in order; empty for a delete
+        public final List<Long> nodes;
+        public final Map<String, String> tags;
+
+        public WayChange(Action action, long id, List<Long> nodes, Map<String, String> tags) {
+            this.action = action;
+            this.id = id;
+            this.nodes = nodes;
+            this.tags = tags;
+        }
+    }
+
+    // by id, in file order of their first edit
+    public final Map<Long, NodeChange> nodes = new LinkedHashMap<>();
+    public final Map<Long, WayChange> ways = new LinkedHashMap<>();
+
+    /**
+     * Read an osmChange document
+     * @param in - .osc or .osc.gz content; not closed
+     * @return the edits
+     * @throws IOException - if the stream cannot be read or is not an osmChange document
+     */
+    public static OsmChange parse(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        buffered.mark(2);
+        int b1 = buffered.read(), b2 = buffered.read();
+        buffered.reset();
+        InputStream body = b1 == 0x1f && b2 == 0x8b ? new GZIPInputStream(buffered) : buffered;
+
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // change files never need external entities or DTDs
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try {
+            XMLStreamReader r = factory.createXMLStreamReader(body);
+            try {
+                return read(r);
+            } finally {
+                r.close();
+            }
+        } catch (XMLStreamException | IllegalArgumentException e) {
+            throw new IOException("Invalid OSM change file: " + e.getMessage(), e);
+        }
+    }
+
+    private static OsmChange read(XMLStreamReader r) throws XMLStreamException {
+        OsmChange change = new OsmChange();
+        Action action = null;
+        boolean root = false;
+        long wayId = 0;
+        List<Long> wayNodes = null;
+        Map<String, String> wayTags = null;
+
+        while (r.hasNext()) {
+            int event = r.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (r.getLocalName()) {
+                    case "osmChange" -> root = true;
+                    case "create" -> action = Action.CREATE;
+                    case "modify" -> action = Action.MODIFY;
+                    case "delete" -> action = Action.DELETE;
+                    case "node" -> {
+                        if (action == null) break;
+                        long id = Long.parseLong(r.getAttributeValue(null, "id"));
+                        String lat = r.getAttributeValue(null, "lat");
+                        String lon = r.getAttributeValue(null, "lon");
+                        if (action != Action.DELETE && (lat == null || lon == null)) {
+                            throw new IllegalArgumentException("node " + id + " has no coordinates");
+                        }
+                        change.nodes.put(id, new NodeChange(action, id,
+                                lat == null ? Double.NaN : Double.parseDouble(lat),
+                                lon == null ? Double.NaN : Double.parseDouble(lon)));
+                    }
+                    case "way" -> {
+                        if (action == null) break;
+                        wayId = Long.parseLong(r.getAttributeValue(null, "id"));
+                        wayNodes = new ArrayList<>();
+                        wayTags = new HashMap<>();
+                    }
+                    case "nd" -> {
+                        if (wayNodes != null) wayNodes.add(Long.parseLong(r.getAttributeValue(null, "ref")));
+                    }
+                    case "tag" -> {
+                        if (wayTags != null) wayTags.put(r.getAttributeValue(null, "k"), r.getAttributeValue(null, "v"));
+                    }
+                    default -> { }
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                switch (r.getLocalName()) {
+                    case "create", "modify", "delete" -> action = null;
+                    case "way" -> {
+                        if (wayNodes == null) break;
+                        change.ways.put(wayId, action == Action.DELETE
+                                ? new WayChange(action, wayId, List.of(), Map.of())
+                                : new WayChange(action, wayId, wayNodes, wayTags));
+                        wayNodes = null;
+                        wayTags = null;
+                    }
+                    default -> { }
+                }
+            }
+        }
+        if (!root) throw new IllegalArgumentException("no osmChange root element");
+        return change;
+    }
+}
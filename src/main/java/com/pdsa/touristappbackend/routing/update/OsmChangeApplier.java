@@ -0,0 +1,398 @@
+package com.pdsa.touristappbackend.routing.update;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Applies OSM change files to a road database (nodes / edges tables), so the daily update is
+ * work proportional to the edits instead of a full import of sri-lanka-latest.osm.pbf.
+ * Per change file, in one transaction:
+ * - moved nodes get their new coordinates; the weights of their edges follow, they are
+ *   computed from the coordinates when the graph loads
+ * - every edited way first loses the edges it produced (edges.way_id); if it is still a road
+ *   its consecutive node pairs are inserted again, honouring oneway, roundabouts and motorways
+ * - nodes only enter the table when a road uses them, and leave it once no edge does
+ * - graph_meta.version is incremented; GraphProvider compares it with the loaded graph and
+ *   swaps in a new graph version (see GraphProvider.reloadIfChanged)
+ * Schema: edges gets a nullable way_id column and indexes, and the graph_meta table is created,
+ * on first use.
+ * Way ids: an import without them must be backfilled once from the .pbf it came from
+ * (backfillWayIds, or --backfill on the command line); graph_meta.way_ids records that it ran.
+ * Until then edges without a way id are matched by their node pairs when their way is modified
+ * and is still a road, but the segments such a way loses, and every edge of such a way that is
+ * deleted or stops being a road, cannot be found: each deleted or modified way that removed no
+ * edge is counted in Result.unverifiedWays and the file logs a warning.
+ * A road node the change file does not carry (an existing node newly joined by a road) has no
+ * known coordinates; its segments are skipped and counted in Result.skippedSegments.
+ * Usage:
+ * OsmChangeApplier.Result r = new OsmChangeApplier().apply(conn, OsmChange.parse(in));
+ * or, for the update job: java ... OsmChangeApplier roads.db 2024-06-01.osc.gz ...
+ * and once per database imported without way ids: java ... OsmChangeApplier --backfill roads.db sri-lanka-latest.osm.pbf
+ */
+@Slf4j
+public class OsmChangeApplier {
+
+    // highway values that are not (yet, or any more) roads
+    private static final Set<String> NOT_ROADS = Set.of("proposed", "construction", "abandoned", "disused",
+            "razed", "platform", "bus_stop", "rest_area", "services", "elevator", "emergency_bay", "raceway");
+
+    /**
+     * Counts of one applied change file
+     */
+    public static class Result {
+        public long version;
+        public int nodesMoved;
+        public int nodesAdded;
+        public int nodesRemoved;
+        public int waysApplied;
+        public int edgesAdded;
+        public int edgesRemoved;
+        public int skippedSegments;
+        // deleted or modified ways whose old edges could not be looked up, the way ids not being backfilled
+        public int unverifiedWays;
+        public long millis;
+
+        @Override
+        public String toString() {
+            return "version " + version + ": " + waysApplied + " ways, edges +" + edgesAdded + "/-" + edgesRemoved
+                    + ", nodes +" + nodesAdded + "/-" + nodesRemoved + " moved " + nodesMoved
+                    + ", " + skippedSegments + " segments skipped, " + unverifiedWays + " ways unverified, "
+                    + millis + " ms";
+        }
+    }
+
+    /**
+     * Counts of a way id backfill
+     */
+    public static class BackfillResult {
+        public long waysRead;
+        public int roads;
+        public int edgesTagged;
+        // edges no road of the extract produces, e.g. of ways deleted since the import
+        public int edgesWithoutWay;
+        public long millis;
+
+        @Override
+        public String toString() {
+            return waysRead + " ways read, " + roads + " roads, " + edgesTagged + " edges tagged, "
+                    + edgesWithoutWay + " edges without a way, " + millis + " ms";
+        }
+    }
+
+    /**
+     * Apply one change file in a single transaction
+     * @param conn - connection to the road database; auto-commit is restored afterwards
+     * @param change - parsed change file
+     * @return counts and the new graph_meta version
+     * @throws SQLException - if a statement fails; the database is left unchanged
+     */
+    public Result apply(Connection conn, OsmChange change) throws SQLException {
+        long start = System.nanoTime();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            ensureSchema(conn);
+            Result result = new Result();
+            Set<Long> released = new HashSet<>();
+            boolean backfilled = meta(conn, "way_ids") > 0;
+            moveNodes(conn, change, result);
+            for (OsmChange.WayChange way : change.ways.values()) applyWay(conn, change, way, backfilled, released, result);
+            if (result.unverifiedWays > 0) {
+                log.warn("OsmChangeApplier: {} deleted or modified ways had no edges with their way id; edges of "
+                        + "ways from before the import may remain until the way ids are backfilled (--backfill)",
+                        result.unverifiedWays);
+            }
+            for (OsmChange.NodeChange n : change.nodes.values()) {
+                if (n.action == OsmChange.Action.DELETE) released.add(n.id);
+            }
+            result.nodesRemoved = removeUnused(conn, released);
+            result.version = bumpVersion(conn);
+            conn.commit();
+            result.millis = (System.nanoTime() - start) / 1_000_000;
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Version of the graph stored in a road database
+     * @param conn - connection to the road database
+     * @return graph_meta.version, 0 for a database no change file was applied to
+     * @throws SQLException - if the query fails
+     */
+    public static long version(Connection conn) throws SQLException {
+        return meta(conn, "version");
+    }
+
+    /**
+     * Tag the edges of an import without way ids with the ways of the extract it came from, in
+     * one transaction. Both directions of every consecutive node pair of a road are tagged, and
+     * only edges that have no way id yet, so running it again changes nothing. The graph itself
+     * does not change, graph_meta.version stays.
+     * @param conn - connection to the road database; auto-commit is restored afterwards
+     * @param pbf - .osm.pbf content the database was imported from (or a later extract)
+     * @return counts
+     * @throws IOException - if the extract cannot be read; the database is left unchanged
+     * @throws SQLException - if a statement fails; the database is left unchanged
+     */
+    public BackfillResult backfillWayIds(Connection conn, InputStream pbf) throws IOException, SQLException {
+        long start = System.nanoTime();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            ensureSchema(conn);
+            BackfillResult result = new BackfillResult();
+            try (PreparedStatement tag = conn.prepareStatement(
+                    "UPDATE edges SET way_id = ? WHERE way_id IS NULL AND from_node = ? AND to_node = ?")) {
+                result.waysRead = PbfWays.read(pbf, (id, nodes, tags) -> {
+                    if (direction(tags) == 0 || nodes.length < 2) return;
+                    result.roads++;
+                    tag.setLong(1, id);
+                    for (int k = 0; k + 1 < nodes.length; k++) {
+                        for (int dir = 0; dir < 2; dir++) {
+                            tag.setLong(2, nodes[k + dir]);
+                            tag.setLong(3, nodes[k + 1 - dir]);
+                            result.edgesTagged += tag.executeUpdate();
+                        }
+                    }
+                });
+            }
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM edges WHERE way_id IS NULL")) {
+                result.edgesWithoutWay = rs.next() ? rs.getInt(1) : 0;
+            }
+            setMeta(conn, "way_ids", 1);
+            conn.commit();
+            result.millis = (System.nanoTime() - start) / 1_000_000;
+            return result;
+        } catch (IOException | SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    // graph_meta value, 0 if the table or the key does not exist
+    private static long meta(Connection conn, String key) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name = 'graph_meta'")) {
+            if (!rs.next()) return 0;
+        }
+        try (PreparedStatement ps = conn.prepareStatement("SELECT value FROM graph_meta WHERE key = ?")) {
+            ps.setString(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private static void setMeta(Connection conn, String key, long value) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT OR REPLACE INTO graph_meta (key, value) VALUES (?, ?)")) {
+            ps.setString(1, key);
+            ps.setLong(2, value);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void ensureSchema(Connection conn) throws SQLException {
+        boolean hasWayId = false;
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA table_info(edges)")) {
+            while (rs.next()) hasWayId |= "way_id".equals(rs.getString("name"));
+        }
+        try (Statement st = conn.createStatement()) {
+            if (!hasWayId) {
+                st.execute("ALTER TABLE edges ADD COLUMN way_id INTEGER");
+                log.info("OsmChangeApplier: added edges.way_id");
+            }
+            st.execute("CREATE INDEX IF NOT EXISTS idx_edges_way ON edges(way_id)");
+            // node pair lookups: matching edges without way ids, backfill, unused node checks
+            st.execute("CREATE INDEX IF NOT EXISTS idx_edges_pair ON edges(from_node, to_node)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_edges_to ON edges(to_node)");
+            st.execute("CREATE TABLE IF NOT EXISTS graph_meta (key TEXT PRIMARY KEY, value INTEGER)");
+        }
+    }
+
+    // only nodes already in the table are roads; new ones are added when a way uses them
+    private static void moveNodes(Connection conn, OsmChange change, Result result) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE nodes SET lat = ?, lon = ? WHERE id = ?")) {
+            for (OsmChange.NodeChange n : change.nodes.values()) {
+                if (n.action == OsmChange.Action.DELETE) continue;
+                ps.setDouble(1, n.lat);
+                ps.setDouble(2, n.lon);
+                ps.setLong(3, n.id);
+                result.nodesMoved += ps.executeUpdate();
+            }
+        }
+    }
+
+    private void applyWay(Connection conn, OsmChange change, OsmChange.WayChange way, boolean backfilled,
+                          Set<Long> released, Result result) throws SQLException {
+        result.waysApplied++;
+        int removedByWayId;
+        try (PreparedStatement ends = conn.prepareStatement("SELECT from_node, to_node FROM edges WHERE way_id = ?");
+             PreparedStatement del = conn.prepareStatement("DELETE FROM edges WHERE way_id = ?")) {
+            ends.setLong(1, way.id);
+            try (ResultSet rs = ends.executeQuery()) {
+                while (rs.next()) {
+                    released.add(rs.getLong(1));
+                    released.add(rs.getLong(2));
+                }
+            }
+            del.setLong(1, way.id);
+            removedByWayId = del.executeUpdate();
+            result.edgesRemoved += removedByWayId;
+        }
+        if (!backfilled && removedByWayId == 0 && way.action != OsmChange.Action.CREATE) result.unverifiedWays++;
+        int direction = way.action == OsmChange.Action.DELETE ? 0 : direction(way.tags);
+        if (direction == 0 || way.nodes.size() < 2) return;
+
+        // segments of the new version that an import without way ids may already hold
+        try (PreparedStatement ps = conn.prepareStatement(
+                "DELETE FROM edges WHERE way_id IS NULL AND from_node = ? AND to_node = ?")) {
+            for (int k = 0; k + 1 < way.nodes.size(); k++) {
+                long a = way.nodes.get(k), b = way.nodes.get(k + 1);
+                for (int dir = 0; dir < 2; dir++) {
+                    ps.setLong(1, dir == 0 ? a : b);
+                    ps.setLong(2, dir == 0 ? b : a);
+                    result.edgesRemoved += ps.executeUpdate();
+                }
+                released.add(a);
+                released.add(b);
+            }
+        }
+
+        try (PreparedStatement exists = conn.prepareStatement("SELECT 1 FROM nodes WHERE id = ?");
+             PreparedStatement addNode = conn.prepareStatement("INSERT INTO nodes (id, lat, lon) VALUES (?, ?, ?)");
+             PreparedStatement addEdge = conn.prepareStatement(
+                     "INSERT INTO edges (from_node, to_node, way_id) VALUES (?, ?, ?)")) {
+            Map<Long, Boolean> known = new HashMap<>();
+            for (int k = 0; k + 1 < way.nodes.size(); k++) {
+                long a = way.nodes.get(k), b = way.nodes.get(k + 1);
+                if (!ensureNode(exists, addNode, change, a, known, result)
+                        || !ensureNode(exists, addNode, change, b, known, result)) {
+                    result.skippedSegments++;
+                    continue;
+                }
+                if (direction != -1) result.edgesAdded += insertEdge(addEdge, a, b, way.id);
+                if (direction != 1) result.edgesAdded += insertEdge(addEdge, b, a, way.id);
+            }
+        }
+    }
+
+    // 0: not a road, 1: forward only, -1: backward only, 2: both ways
+    static int direction(Map<String, String> tags) {
+        String highway = tags.get("highway");
+        if (highway == null || NOT_ROADS.contains(highway)) return 0;
+        String oneway = tags.getOrDefault("oneway", "");
+        if (oneway.equals("-1") || oneway.equals("reverse")) return -1;
+        if (oneway.equals("yes") || oneway.equals("true") || oneway.equals("1")) return 1;
+        if (oneway.equals("no")) return 2;
+        String junction = tags.getOrDefault("junction", "");
+        boolean impliedOneway = junction.equals("roundabout") || junction.equals("circular")
+                || highway.equals("motorway");
+        return impliedOneway ? 1 : 2;
+    }
+
+    private static boolean ensureNode(PreparedStatement exists, PreparedStatement addNode, OsmChange change,
+                                      long id, Map<Long, Boolean> known, Result result) throws SQLException {
+        Boolean k = known.get(id);
+        if (k != null) return k;
+        exists.setLong(1, id);
+        boolean present;
+        try (ResultSet rs = exists.executeQuery()) {
+            present = rs.next();
+        }
+        if (!present) {
+            OsmChange.NodeChange n = change.nodes.get(id);
+            if (n != null && n.action != OsmChange.Action.DELETE) {
+                addNode.setLong(1, id);
+                addNode.setDouble(2, n.lat);
+                addNode.setDouble(3, n.lon);
+                addNode.executeUpdate();
+                result.nodesAdded++;
+                present = true;
+            }
+        }
+        known.put(id, present);
+        return present;
+    }
+
+    private static int insertEdge(PreparedStatement ps, long from, long to, long wayId) throws SQLException {
+        ps.setLong(1, from);
+        ps.setLong(2, to);
+        ps.setLong(3, wayId);
+        return ps.executeUpdate();
+    }
+
+    // nodes that lost edges or were deleted, removed if no edge uses them any more
+    private static int removeUnused(Connection conn, Set<Long> candidates) throws SQLException {
+        int removed = 0;
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM nodes WHERE id = ? "
+                + "AND NOT EXISTS (SELECT 1 FROM edges WHERE from_node = ?) "
+                + "AND NOT EXISTS (SELECT 1 FROM edges WHERE to_node = ?)")) {
+            for (long id : candidates) {
+                ps.setLong(1, id);
+                ps.setLong(2, id);
+                ps.setLong(3, id);
+                removed += ps.executeUpdate();
+            }
+        }
+        return removed;
+    }
+
+    private static long bumpVersion(Connection conn) throws SQLException {
+        long next = version(conn) + 1;
+        setMeta(conn, "version", next);
+        return next;
+    }
+
+    /**
+     * Command line entry for the update job: applies change files to a database in order, or
+     * backfills its way ids from an extract
+     * @param args - database path, then one or more .osc / .osc.gz files;
+     *               or --backfill, the database path and the .osm.pbf file
+     * @throws Exception - if a file cannot be read or applied; earlier files stay applied
+     */
+    public static void main(String[] args) throws Exception {
+        boolean backfill = args.length == 3 && args[0].equals("--backfill");
+        if (args.length < 2 || (!backfill && args[0].startsWith("--"))) {
+            System.err.println("Usage: OsmChangeApplier <roads.db> <change.osc[.gz]>...");
+            System.err.println("       OsmChangeApplier --backfill <roads.db> <extract.osm.pbf>");
+            System.exit(2);
+        }
+        Class.forName("org.sqlite.JDBC");
+        if (backfill) {
+            try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + args[1]);
+                 InputStream in = new BufferedInputStream(Files.newInputStream(Path.of(args[2])), 1 << 16)) {
+                log.info("OsmChangeApplier: way ids from {} -> {}", args[2], new OsmChangeApplier().backfillWayIds(conn, in));
+            }
+            return;
+        }
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + args[0])) {
+            OsmChangeApplier applier = new OsmChangeApplier();
+            for (int i = 1; i < args.length; i++) {
+                OsmChange change;
+                try (InputStream in = Files.newInputStream(Path.of(args[i]))) {
+                    change = OsmChange.parse(in);
+                } catch (IOException e) {
+                    throw new IOException(args[i] + ": " + e.getMessage(), e);
+                }
+                log.info("OsmChangeApplier: {} -> {}", args[i], applier.apply(conn, change));
+            }
+        }
+    }
+}
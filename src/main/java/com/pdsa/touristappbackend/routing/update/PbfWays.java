@@ -0,0 +1,305 @@
+package com.pdsa.touristappbackend.routing.update;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Streams the ways of an OSM PBF extract (e.g. sri-lanka-latest.osm.pbf) with their node refs
+ * and the tags routing reads, for the one-time edges.way_id backfill (see OsmChangeApplier).
+ * Format: a sequence of blobs, each a length-prefixed BlobHeader then a raw or zlib Blob holding
+ * a PrimitiveBlock (string table + groups of nodes, dense nodes, ways, relations).
+ * Reference: https://wiki.openstreetmap.org/wiki/PBF_Format
+ * The protobuf messages are decoded by hand, only the fields needed here:
+ * - nodes, dense nodes and relations are skipped without being decoded
+ * - only the tags in KEYS are materialized, looked up through the block's string table
+ * - one blob (at most 32 MiB by the format) is held at a time, so memory stays flat
+ * lzma / lz4 / zstd blobs are rejected; planet and Geofabrik extracts use zlib.
+ * Usage:
+ * PbfWays.read(in, (id, nodes, tags) -> { ... });
+ */
+public final class PbfWays {
+
+    // the tags OsmChangeApplier.direction() reads
+    static final Set<String> KEYS = Set.of("highway", "oneway", "junction");
+    private static final int MAX_HEADER = 64 * 1024;
+    private static final int MAX_BLOB = 32 * 1024 * 1024;
+
+    private PbfWays() {}
+
+    /**
+     * Receives one way
+     */
+    @FunctionalInterface
+    public interface WayVisitor {
+        /**
+         * @param id - way id
+         * @param nodes - node refs in order
+         * @param tags - the way's tags among highway, oneway and junction
+         * @throws SQLException - passed through to the caller of read()
+         */
+        void way(long id, long[] nodes, Map<String, String> tags) throws SQLException;
+    }
+
+    /**
+     * Read every way of a PBF file in file order
+     * @param in - .osm.pbf content; not closed
+     * @param visitor - called once per way
+     * @return number of ways read
+     * @throws IOException - if the stream cannot be read or is not a supported PBF file
+     * @throws SQLException - thrown by the visitor
+     */
+    public static long read(InputStream in, WayVisitor visitor) throws IOException, SQLException {
+        DataInputStream data = new DataInputStream(in);
+        Inflater inflater = new Inflater();
+        long ways = 0;
+        try {
+            while (true) {
+                int headerSize;
+                try {
+                    headerSize = data.readInt();
+                } catch (EOFException e) {
+                    return ways;
+                }
+                if (headerSize <= 0 || headerSize > MAX_HEADER) throw new IOException("Invalid PBF blob header size " + headerSize);
+                Proto header = new Proto(readFully(data, headerSize));
+                String type = null;
+                int blobSize = -1;
+                while (header.next()) {
+                    if (header.field == 1 && header.wire == 2) type = header.string();
+                    else if (header.field == 3 && header.wire == 0) blobSize = (int) header.varint();
+                    else header.skip();
+                }
+                if (blobSize < 0 || blobSize > MAX_BLOB) throw new IOException("Invalid PBF blob size " + blobSize);
+                byte[] blob = readFully(data, blobSize);
+                if ("OSMData".equals(type)) ways += block(unpack(blob, inflater), visitor);
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] readFully(DataInputStream in, int size) throws IOException {
+        byte[] b = new byte[size];
+        in.readFully(b);
+        return b;
+    }
+
+    // the PrimitiveBlock bytes of a Blob
+    private static byte[] unpack(byte[] blob, Inflater inflater) throws IOException {
+        Proto p = new Proto(blob);
+        int rawSize = -1;
+        byte[] raw = null;
+        int zlibStart = -1, zlibLength = 0;
+        while (p.next()) {
+            switch (p.field) {
+                case 1 -> raw = Arrays.copyOfRange(blob, p.lengthDelimited(), p.pos);
+                case 2 -> rawSize = (int) p.varint();
+                case 3 -> {
+                    zlibStart = p.lengthDelimited();
+                    zlibLength = p.pos - zlibStart;
+                }
+                case 4, 6, 7 -> throw new IOException("Unsupported PBF compression (blob field " + p.field + "), expected zlib");
+                default -> p.skip();
+            }
+        }
+        if (raw != null) return raw;
+        if (zlibStart < 0 || rawSize < 0 || rawSize > MAX_BLOB) throw new IOException("PBF blob has no data");
+        byte[] out = new byte[rawSize];
+        inflater.reset();
+        inflater.setInput(blob, zlibStart, zlibLength);
+        try {
+            int n = 0;
+            while (n < rawSize && !inflater.finished()) {
+                int k = inflater.inflate(out, n, rawSize - n);
+                if (k == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                n += k;
+            }
+            if (n != rawSize) throw new IOException("PBF blob inflated to " + n + " bytes, expected " + rawSize);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt PBF blob: " + e.getMessage(), e);
+        }
+        return out;
+    }
+
+    private static long block(byte[] block, WayVisitor visitor) throws IOException, SQLException {
+        Proto p = new Proto(block);
+        // string table entries as offset / length into the block; groups kept until it is known
+        int[] strStart = new int[0], strLength = new int[0];
+        List<int[]> groups = new ArrayList<>();
+        while (p.next()) {
+            if (p.field == 1 && p.wire == 2) {
+                int start = p.lengthDelimited();
+                Proto table = new Proto(block, start, p.pos);
+                int n = 0;
+                while (table.next()) {
+                    if (table.field != 1 || table.wire != 2) {
+                        table.skip();
+                        continue;
+                    }
+                    if (n == strStart.length) {
+                        strStart = Arrays.copyOf(strStart, Math.max(64, n * 2));
+                        strLength = Arrays.copyOf(strLength, strStart.length);
+                    }
+                    strStart[n] = table.lengthDelimited();
+                    strLength[n] = table.pos - strStart[n];
+                    n++;
+                }
+                strStart = Arrays.copyOf(strStart, n);
+                strLength = Arrays.copyOf(strLength, n);
+            } else if (p.field == 2 && p.wire == 2) {
+                int start = p.lengthDelimited();
+                groups.add(new int[]{start, p.pos});
+            } else {
+                p.skip();
+            }
+        }
+
+        // string table index -> routing key, null for the keys not read
+        String[] keys = new String[strStart.length];
+        for (int i = 0; i < strStart.length; i++) {
+            if (strLength[i] > 8) continue;
+            String s = new String(block, strStart[i], strLength[i], StandardCharsets.UTF_8);
+            if (KEYS.contains(s)) keys[i] = s;
+        }
+
+        long ways = 0;
+        for (int[] g : groups) {
+            Proto group = new Proto(block, g[0], g[1]);
+            while (group.next()) {
+                if (group.field != 3 || group.wire != 2) {
+                    group.skip();
+                    continue;
+                }
+                int start = group.lengthDelimited();
+                way(new Proto(block, start, group.pos), block, strStart, strLength, keys, visitor);
+                ways++;
+            }
+        }
+        return ways;
+    }
+
+    private static void way(Proto w, byte[] block, int[] strStart, int[] strLength, String[] keys,
+                            WayVisitor visitor) throws IOException, SQLException {
+        long id = 0;
+        int[] k = new int[0], v = new int[0];
+        long[] refs = new long[0];
+        int nk = 0, nv = 0, nr = 0;
+        while (w.next()) {
+            switch (w.field) {
+                case 1 -> id = w.varint();
+                case 2, 3, 8 -> {
+                    // packed repeated; a plain varint is one element
+                    boolean packed = w.wire == 2;
+                    Proto values = packed ? new Proto(block, w.lengthDelimited(), w.pos) : w;
+                    for (boolean more = !packed || values.pos < values.limit; more;
+                         more = packed && values.pos < values.limit) {
+                        long x = values.varintValue();
+                        if (w.field == 2) {
+                            if (nk == k.length) k = Arrays.copyOf(k, Math.max(8, nk * 2));
+                            k[nk++] = (int) x;
+                        } else if (w.field == 3) {
+                            if (nv == v.length) v = Arrays.copyOf(v, Math.max(8, nv * 2));
+                            v[nv++] = (int) x;
+                        } else {
+                            if (nr == refs.length) refs = Arrays.copyOf(refs, Math.max(16, nr * 2));
+                            // zigzag, delta from the previous ref
+                            refs[nr] = (nr == 0 ? 0 : refs[nr - 1]) + ((x >>> 1) ^ -(x & 1));
+                            nr++;
+                        }
+                    }
+                }
+                default -> w.skip();
+            }
+        }
+        if (nk != nv) throw new IOException("Way " + id + " has " + nk + " keys and " + nv + " values");
+        Map<String, String> tags = new HashMap<>();
+        for (int i = 0; i < nk; i++) {
+            if (k[i] < 0 || k[i] >= keys.length || v[i] < 0 || v[i] >= strStart.length) {
+                throw new IOException("Way " + id + " has a tag outside the string table");
+            }
+            if (keys[k[i]] == null) continue;
+            tags.put(keys[k[i]], new String(block, strStart[v[i]], strLength[v[i]], StandardCharsets.UTF_8));
+        }
+        visitor.way(id, Arrays.copyOf(refs, nr), tags);
+    }
+
+    /**
+     * Protobuf wire format reader over a slice of a byte array. next() reads a field's key into
+     * field / wire; then exactly one of varint(), lengthDelimited(), string() or skip() consumes
+     * its value.
+     */
+    static final class Proto {
+        final byte[] buf;
+        int pos;
+        final int limit;
+        int field;
+        int wire;
+
+        Proto(byte[] buf) {
+            this(buf, 0, buf.length);
+        }
+
+        Proto(byte[] buf, int pos, int limit) {
+            this.buf = buf;
+            this.pos = pos;
+            this.limit = limit;
+        }
+
+        boolean next() throws IOException {
+            if (pos >= limit) return false;
+            long key = varintValue();
+            field = (int) (key >>> 3);
+            wire = (int) (key & 7);
+            return true;
+        }
+
+        long varint() throws IOException {
+            if (wire != 0) throw new IOException("PBF field " + field + " is not a varint");
+            return varintValue();
+        }
+
+        long varintValue() throws IOException {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos >= limit) throw new IOException("Truncated PBF message");
+                byte b = buf[pos++];
+                v |= (long) (b & 0x7f) << shift;
+                if (b >= 0) return v;
+            }
+            throw new IOException("PBF varint too long");
+        }
+
+        // start of the value; pos moves to its end
+        int lengthDelimited() throws IOException {
+            if (wire != 2) throw new IOException("PBF field " + field + " is not length-delimited");
+            long length = varintValue();
+            if (length < 0 || length > limit - pos) throw new IOException("Truncated PBF message");
+            int start = pos;
+            pos += (int) length;
+            return start;
+        }
+
+        String string() throws IOException {
+            int start = lengthDelimited();
+            return new String(buf, start, pos - start, StandardCharsets.UTF_8);
+        }
+
+        void skip() throws IOException {
+            switch (wire) {
+                case 0 -> varintValue();
+                case 1 -> pos += 8;
+                case 2 -> lengthDelimited();
+                case 5 -> pos += 4;
+                default -> throw new IOException("Unsupported PBF wire type " + wire);
+            }
+            if (pos > limit) throw new IOException("Truncated PBF message");
+        }
+    }
+}
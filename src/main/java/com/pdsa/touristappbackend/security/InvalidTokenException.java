@@ -0,0 +1,15 @@
+package com.pdsa.touristappbackend.security;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a session token is missing, malformed, tampered with or expired.
+ * Mapped to HTTP 401 so clients know to log in again.
+ */
+@ResponseStatus(HttpStatus.UNAUTHORIZED)
+public class InvalidTokenException extends RuntimeException {
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,19 @@
+package com.pdsa.touristappbackend.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * TokenClaims class representing the verified contents of a session token
+ * Fields:
+ * - userId: id of the logged in user
+ * - username: username of the logged in user
+ * - expiresAt: expiry time in epoch seconds
+ */
+@Data
+@AllArgsConstructor
+public class TokenClaims {
+    private long userId;
+    private String username;
+    private long expiresAt;
+}
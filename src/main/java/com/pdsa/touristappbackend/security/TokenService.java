@@ -0,0 +1,130 @@
+package com.pdsa.touristappbackend.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Issues and verifies signed, expiring session tokens.
+ * Token format: base64url(userId:expiresAt:username) "." base64url(HMAC-SHA256 of the first part)
+ * Verification only needs the shared secret, so routing requests can authenticate a user
+ * without a database round-trip.
+ * Properties:
+ * - auth.token.secret: HMAC key; when empty a random key is generated and tokens do not survive a restart
+ * - auth.token.ttl-seconds: token lifetime (default 86400)
+ */
+@Slf4j
+@Service
+public class TokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String BEARER = "Bearer ";
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder B64D = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+
+    public TokenService(@Value("${auth.token.secret:}") String secret,
+                        @Value("${auth.token.ttl-seconds:86400}") long ttlSeconds) {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+            log.warn("TokenService: auth.token.secret not set, using a random key");
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    /**
+     * Issue a token for a user
+     * @param userId - user id
+     * @param username - username
+     * @return verified claims of the new token together with its string form
+     */
+    public IssuedToken issue(long userId, String username) {
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+        String payload = B64.encodeToString((userId + ":" + expiresAt + ":" + username)
+                .getBytes(StandardCharsets.UTF_8));
+        String token = payload + "." + B64.encodeToString(sign(payload));
+        return new IssuedToken(token, new TokenClaims(userId, username, expiresAt));
+    }
+
+    /**
+     * Verify a token and return its claims
+     * @param token - token string as issued by issue()
+     * @return claims of a valid, unexpired token
+     * @throws InvalidTokenException - if the token is malformed, tampered with or expired
+     */
+    public TokenClaims verify(String token) {
+        if (token == null || token.isBlank()) throw new InvalidTokenException("Missing token");
+
+        int dot = token.indexOf('.');
+        if (dot <= 0) throw new InvalidTokenException("Malformed token");
+        String payload = token.substring(0, dot);
+
+        try {
+            byte[] signature = B64D.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(signature, sign(payload))) {
+                throw new InvalidTokenException("Invalid token signature");
+            }
+
+            String[] parts = new String(B64D.decode(payload), StandardCharsets.UTF_8).split(":", 3);
+            if (parts.length != 3) throw new InvalidTokenException("Malformed token");
+
+            long expiresAt = Long.parseLong(parts[1]);
+            if (expiresAt < System.currentTimeMillis() / 1000) {
+                throw new InvalidTokenException("Token expired");
+            }
+            return new TokenClaims(Long.parseLong(parts[0]), parts[2], expiresAt);
+        } catch (IllegalArgumentException e) {
+            // bad base64 or numbers
+            throw new InvalidTokenException("Malformed token");
+        }
+    }
+
+    /**
+     * Verify the token from an "Authorization: Bearer ..." header or a token parameter
+     * @param authorizationHeader - Authorization header value, may be null
+     * @param tokenParam - token query parameter, may be null
+     * @return claims of a valid token
+     * @throws InvalidTokenException - if neither carries a valid token
+     */
+    public TokenClaims verify(String authorizationHeader, String tokenParam) {
+        if (authorizationHeader != null && authorizationHeader.startsWith(BEARER)) {
+            return verify(authorizationHeader.substring(BEARER.length()).trim());
+        }
+        return verify(tokenParam);
+    }
+
+    private byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign token", e);
+        }
+    }
+
+    public static class IssuedToken {
+        public final String token;
+        public final TokenClaims claims;
+
+        public IssuedToken(String token, TokenClaims claims) {
+            this.token = token;
+            this.claims = claims;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.pdsa.touristappbackend.service;
+
+import com.pdsa.touristappbackend.config.RoutingConfigProperties;
+import com.pdsa.touristappbackend.model.BatchRouteItem;
+import com.pdsa.touristappbackend.model.LatLon;
+import com.pdsa.touristappbackend.model.OsmNodeData;
+import com.pdsa.touristappbackend.routing.Region;
+import com.pdsa.touristappbackend.routing.RegionRegistry;
+import com.pdsa.touristappbackend.routing.RouteGeometry;
+import com.pdsa.touristappbackend.routing.SearchExecutor;
+import com.pdsa.touristappbackend.routing.SearchTrace;
+import com.pdsa.touristappbackend.routing.engine.Route;
+import com.pdsa.touristappbackend.routing.engine.RoutePlanner;
+import com.pdsa.touristappbackend.routing.engine.RoutingEngine;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * BatchRoutingService computes routes for many origin/destination pairs in one call.
+ * Steps:
+ *  - find the served region containing both points of each item (RegionRegistry)
+ *  - snap every distinct coordinate once per region through RoutePlanner
+ *  - deduplicate items that snap to the same (region, source, target) node pair
+ *  - run the searches through RoutePlanner.search on the bounded SearchExecutor pool, with the
+ *    requested engine or the adaptive choice per pair (engines reuse per-worker search state)
+ *  - hand results to the sink in request order, each with a status:
+ *    "ok", "no_route" (target unreachable), "no_snap" (no road near a point),
+ *    "out_of_region" (no served region covers both points) or "error"
+ * Only a window of searches ahead of the writer is in flight, so memory stays bounded
+ * for large batches and results start flowing before the whole batch is done.
+ * Snaps and searches are recorded in RoutingMetrics with endpoint=batch.
+ */
+@Service
+public class BatchRoutingService {
+
+    // searches submitted ahead of the writer, per worker thread
+    private static final int WINDOW_PER_WORKER = 4;
+    private static final String ENDPOINT = "batch";
+
+    private final RoutePlanner planner;
+    private final RoutingConfigProperties cfg;
+    private final ForkJoinPool pool;
+
+    public BatchRoutingService(RoutePlanner planner, RoutingConfigProperties cfg, SearchExecutor searchExecutor) {
+        this.planner = planner;
+        this.cfg = cfg;
+        this.pool = searchExecutor.pool();
+    }
+
+    // Receives one result line per batch item, in order
+    public interface ResultSink {
+        void accept(Map<String, Object> line) throws IOException;
+    }
+
+    /**
+     * Reject batches that are empty or larger than routing.batch-max-items, or name an unknown engine
+     * @param items - origin/destination pairs
+     * @param engine - routing engine name, or null for routing.engine
+     * @throws IllegalArgumentException - if the batch is not acceptable
+     */
+    public void validate(List<BatchRouteItem> items, String engine) {
+        planner.engines().check(engine);
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Batch is empty");
+        }
+        if (items.size() > cfg.getBatchMaxItems()) {
+            throw new IllegalArgumentException("Batch too large: " + items.size()
+                    + " items, maximum is " + cfg.getBatchMaxItems());
+        }
+    }
+
+    /**
+     * Route every item of a batch
+     * @param items - origin/destination pairs
+     * @param format - geometry output format
+     * @param tolerance - simplification tolerance in meters, or null
+     * @param zoom - map zoom level used to derive the tolerance, or null
+     * @param engine - routing engine name, or null for routing.engine
+     * @param sink - receives one result per item in request order
+     * @throws IOException - if the sink fails
+     */
+    public void route(List<BatchRouteItem> items, RouteGeometry.Format format, Double tolerance, Integer zoom,
+                      String engine, ResultSink sink) throws IOException {
+        RegionRegistry regions = planner.regions();
+        int n = items.size();
+
+        // snap each distinct coordinate once per region; a key is (region, source node, target node)
+        Map<Region, Map<LatLon, OsmNodeData>> snapped = new HashMap<>();
+        List<List<Object>> keys = new ArrayList<>(n);
+        boolean[] outOfRegion = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            BatchRouteItem item = items.get(i);
+            Region region = regions.find(item.getStartLat(), item.getStartLon(), item.getEndLat(), item.getEndLon());
+            if (region == null) {
+                outOfRegion[i] = true;
+                keys.add(null);
+                continue;
+            }
+            Map<LatLon, OsmNodeData> cache = snapped.computeIfAbsent(region, r -> new HashMap<>());
+            OsmNodeData s = cache.computeIfAbsent(new LatLon(item.getStartLat(), item.getStartLon()),
+                    c -> planner.snap(ENDPOINT, region, null, c.getLat(), c.getLon(), null, SearchTrace.NOOP));
+            OsmNodeData t = cache.computeIfAbsent(new LatLon(item.getEndLat(), item.getEndLon()),
+                    c -> planner.snap(ENDPOINT, region, null, c.getLat(), c.getLon(), null, SearchTrace.NOOP));
+            keys.add(s == null || t == null ? null : Arrays.asList(region, s, t));
+        }
+
+        // last item index needing each node pair, so finished pairs can be released
+        Map<List<Object>, Integer> lastUse = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            if (keys.get(i) != null) lastUse.put(keys.get(i), i);
+        }
+
+        Map<List<Object>, CompletableFuture<Map<String, Object>>> inFlight = new HashMap<>();
+        int window = pool.getParallelism() * WINDOW_PER_WORKER;
+        int submitted = 0;
+
+        for (int i = 0; i < n; i++) {
+            for (; submitted < n && submitted <= i + window; submitted++) {
+                List<Object> key = keys.get(submitted);
+                if (key != null && !inFlight.containsKey(key)) {
+                    Region region = (Region) key.get(0);
+                    OsmNodeData s = (OsmNodeData) key.get(1);
+                    OsmNodeData t = (OsmNodeData) key.get(2);
+                    RoutingEngine e = planner.engines().select(engine, s, t);
+                    inFlight.put(key, CompletableFuture.supplyAsync(
+                            () -> search(region, e, s.getId(), t.getId(), format, tolerance, zoom), pool));
+                }
+            }
+
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("index", i);
+            if (items.get(i).getId() != null) line.put("id", items.get(i).getId());
+
+            List<Object> key = keys.get(i);
+            if (outOfRegion[i]) {
+                line.put("status", "out_of_region");
+            } else if (key == null) {
+                line.put("status", "no_snap");
+            } else {
+                line.putAll(outcome(inFlight.get(key)));
+                if (lastUse.get(key) == i) inFlight.remove(key);
+            }
+            sink.accept(line);
+        }
+    }
+
+    // runs on a pool worker, so the search runs inline rather than through the executor again
+    private Map<String, Object> search(Region region, RoutingEngine engine, long source, long target,
+                                       RouteGeometry.Format format, Double tolerance, Integer zoom) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("fromNode", source);
+        out.put("toNode", target);
+        try {
+            Route r = planner.search(ENDPOINT, region, engine, source, target, SearchTrace.NOOP);
+            if (!r.found()) {
+                out.put("status", "no_route");
+                return out;
+            }
+            out.put("status", "ok");
+            out.put("distanceMeters", r.distanceMeters);
+            r.geometry.simplify(r.geometry.tolerance(tolerance, zoom)).writeTo(out, format);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+        return out;
+    }
+
+    private static Map<String, Object> outcome(CompletableFuture<Map<String, Object>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("status", "error");
+            out.put("message", String.valueOf(cause.getMessage()));
+            return out;
+        }
+    }
+}
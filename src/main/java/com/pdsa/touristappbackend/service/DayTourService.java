@@ -0,0 +1,236 @@
+package com.pdsa.touristappbackend.service;
+
+import com.pdsa.touristappbackend.config.RoutingConfigProperties;
+import com.pdsa.touristappbackend.model.OsmNodeData;
+import com.pdsa.touristappbackend.repository.PoiSqliteRepository;
+import com.pdsa.touristappbackend.routing.*;
+import com.pdsa.touristappbackend.routing.alg.OneToManyDijkstra;
+import com.pdsa.touristappbackend.routing.alg.Orienteering;
+import com.pdsa.touristappbackend.routing.engine.Route;
+import com.pdsa.touristappbackend.routing.engine.RoutePlanner;
+import com.pdsa.touristappbackend.util.Haversine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Service planning a day tour: a loop from a start point through the POIs that best match the
+ * user's interests, within a time or distance budget (the orienteering problem).
+ * Steps:
+ * - candidates: POIs of the user's interest categories within half the budget's reach of the
+ *   start (straight line), ranked by PoiRankingService.score against the straight-line round trip;
+ *   the best routing.tour-max-candidates are snapped to their nearest road node
+ * - distance table: one OneToManyDijkstra per stop (start included) to all the others, bounded
+ *   by the budget's reach, so legs honour one-way streets and closures
+ * - solver: Orienteering (greedy insertion, then 2-opt, insertion and swaps), the prize of a
+ *   POI being the user's rating of its category
+ * - geometry: each chosen leg is read from the shortest-path tree its table row kept
+ *   (OneToManyDijkstra.tree), so no search runs after the solver
+ * Table and solver share routing.tour-time-limit-ms: rows are built best candidate first and the
+ * table is cut at 70% of the limit, the solver gets the rest and returns its best tour so far;
+ * the legs then only cost the geometry of their paths.
+ * Costs are seconds with a time budget (travel at speedKmh, walking between road and POI at
+ * WALK_METERS_PER_SECOND, visitMinutes per POI) and meters with a distance budget.
+ */
+@Slf4j
+@Service
+public class DayTourService {
+
+    public static final String ENDPOINT = "day-tour";
+
+    // POIs farther than this from any road node are left out
+    private static final double MAX_WALK_METERS = 300;
+    private static final double MAX_RADIUS_METERS = 50_000;
+    private static final double WALK_METERS_PER_SECOND = 1.25;
+    // share of the time limit the distance table may use
+    private static final double TABLE_SHARE = 0.7;
+
+    private final RoutePlanner planner;
+    private final PoiSqliteRepository poiRepo;
+    private final SearchExecutor searchExecutor;
+    private final RoutingMetrics metrics;
+    private final RoutingConfigProperties cfg;
+    private final ThreadLocal<OneToManyDijkstra.Workspace> workspaces =
+            ThreadLocal.withInitial(OneToManyDijkstra.Workspace::new);
+
+    public DayTourService(RoutePlanner planner, PoiSqliteRepository poiRepo, SearchExecutor searchExecutor,
+                          RoutingMetrics metrics, RoutingConfigProperties cfg) {
+        this.planner = planner;
+        this.poiRepo = poiRepo;
+        this.searchExecutor = searchExecutor;
+        this.metrics = metrics;
+        this.cfg = cfg;
+    }
+
+    /**
+     * A planned tour
+     * Fields:
+     * - stops: POIs in visiting order (id, name, category, lat, lon, legMeters from the previous stop)
+     * - legs: routes start -> first stop -> ... -> start
+     * - distanceMeters: total length of the legs
+     * - costMinutes: travel, walking and visits in minutes, null with a distance budget
+     * - score: sum of the user's ratings of the visited POIs
+     * - candidates: snapped POIs considered
+     */
+    public static class DayTour {
+        public final List<Map<String, Object>> stops;
+        public final List<Route> legs;
+        public final double distanceMeters;
+        public final Double costMinutes;
+        public final double score;
+        public final int candidates;
+
+        DayTour(List<Map<String, Object>> stops, List<Route> legs, double distanceMeters, Double costMinutes,
+                double score, int candidates) {
+            this.stops = stops;
+            this.legs = legs;
+            this.distanceMeters = distanceMeters;
+            this.costMinutes = costMinutes;
+            this.score = score;
+            this.candidates = candidates;
+        }
+    }
+
+    /**
+     * Plan a tour from a start point
+     * @param startLat - start and end latitude
+     * @param startLon - start and end longitude
+     * @param budgetMinutes - time budget, or null for a distance budget
+     * @param budgetMeters - distance budget, or null for a time budget
+     * @param speedKmh - travel speed on the roads, used with a time budget
+     * @param visitMinutes - time spent at each POI, used with a time budget
+     * @param interests - interest name (POI category) to the user's rating
+     * @return the tour, without stops if nothing fits the budget
+     * @throws IllegalArgumentException - if the budget is missing or invalid, or the start is outside every region
+     * @throws Exception - if a search fails
+     */
+    public DayTour plan(double startLat, double startLon, Double budgetMinutes, Double budgetMeters,
+                        double speedKmh, double visitMinutes, Map<String, Integer> interests) throws Exception {
+        if ((budgetMinutes == null) == (budgetMeters == null)) {
+            throw new IllegalArgumentException("Give exactly one of budgetMinutes and budgetMeters");
+        }
+        boolean timed = budgetMinutes != null;
+        double budget = timed ? budgetMinutes * 60 : budgetMeters;
+        if (!(budget > 0)) throw new IllegalArgumentException("The budget must be positive");
+        if (timed && !(speedKmh > 0)) throw new IllegalArgumentException("speedKmh must be positive");
+        if (timed && !(visitMinutes >= 0)) throw new IllegalArgumentException("visitMinutes must not be negative");
+        // cost units per meter of road
+        double perMeter = timed ? 3.6 / speedKmh : 1;
+        double reachMeters = budget / perMeter;
+
+        Region region = planner.region(startLat, startLon);
+        LazyGraph g = planner.graph(region);
+        OsmNodeData start = planner.snap(ENDPOINT, region, "start", startLat, startLon, null, SearchTrace.NOOP);
+        if (start == null) throw new IllegalArgumentException("No road near the start point");
+
+        List<Map<String, Object>> pois = candidates(g, startLat, startLon, Math.min(reachMeters / 2, MAX_RADIUS_METERS),
+                interests);
+        int n = pois.size() + 1;
+        int[] nodes = new int[n];
+        double[] service = new double[n];
+        double[] prize = new double[n];
+        nodes[0] = g.csr().index(start.getId());
+        for (int i = 1; i < n; i++) {
+            Map<String, Object> poi = pois.get(i - 1);
+            nodes[i] = g.csr().index((Long) poi.get("nodeId"));
+            double walk = 2 * (Double) poi.get("walkMeters");
+            service[i] = timed ? visitMinutes * 60 + walk / WALK_METERS_PER_SECOND : walk;
+            prize[i] = interests.getOrDefault((String) poi.get("category"), 1);
+        }
+
+        long started = System.nanoTime();
+        long limit = cfg.getTourTimeLimitMs() * 1_000_000;
+        OneToManyDijkstra.Tree[] trees = new OneToManyDijkstra.Tree[n];
+        Orienteering.Tour tour = searchExecutor.run(() -> {
+            SearchStats stats = new SearchStats();
+            double[][] table = table(g, nodes, reachMeters, perMeter, started + (long) (limit * TABLE_SHARE), trees, stats);
+            metrics.recordSearch(ENDPOINT, RoutingMetrics.ONE_TO_MANY_DIJKSTRA, System.nanoTime() - started,
+                    stats, Double.POSITIVE_INFINITY);
+            return Orienteering.solve(table, Arrays.copyOf(service, table.length), Arrays.copyOf(prize, table.length),
+                    budget, started + limit);
+        });
+
+        List<Map<String, Object>> stops = new ArrayList<>();
+        List<Route> legs = new ArrayList<>();
+        double distance = 0;
+        int from = 0;
+        for (int k = 0; k <= tour.stops.length; k++) {
+            Map<String, Object> poi = k < tour.stops.length ? pois.get(tour.stops[k] - 1) : null;
+            int to = poi == null ? 0 : tour.stops[k];
+            Route r = leg(g, trees[from], nodes[to]);
+            legs.add(r);
+            distance += r.distanceMeters;
+            if (poi != null) {
+                Map<String, Object> stop = new LinkedHashMap<>();
+                for (String key : List.of("id", "name", "category", "lat", "lon")) stop.put(key, poi.get(key));
+                stop.put("legMeters", r.distanceMeters);
+                stops.add(stop);
+            }
+            from = to;
+        }
+        log.debug("Day tour: {} of {} candidates in {} ms, cost {} of {}", tour.stops.length, n - 1,
+                (System.nanoTime() - started) / 1_000_000, tour.cost, budget);
+        return new DayTour(stops, legs, distance, timed ? tour.cost / 60 : null, tour.prize, n - 1);
+    }
+
+    // a leg of the tour from its table row's tree; the solver only picks legs with a finite cost
+    private static Route leg(LazyGraph g, OneToManyDijkstra.Tree tree, int target) {
+        int[] path = tree.path(target);
+        if (path == null) throw new IllegalStateException("Day tour leg without a path");
+        List<Long> ids = new ArrayList<>(path.length);
+        for (int v : path) ids.add(g.csr().osmId(v));
+        return Route.of(g, RoutingMetrics.ONE_TO_MANY_DIJKSTRA, g.pathLength(ids), ids, new SearchStats(),
+                SearchTrace.NOOP);
+    }
+
+    // best-matching POIs around the start, snapped; each gets nodeId and walkMeters
+    private List<Map<String, Object>> candidates(LazyGraph g, double lat, double lon, double radiusMeters,
+                                                 Map<String, Integer> interests) {
+        int max = cfg.getTourMaxCandidates();
+        // min-heap on score: the root is the weakest candidate kept so far
+        PriorityQueue<Map<String, Object>> best = new PriorityQueue<>(max + 1,
+                Comparator.comparingDouble(p -> (Double) p.get("score")));
+        poiRepo.forEachPoiByCategoryNear(lat, lon, radiusMeters, new ArrayList<>(interests.keySet()), poi -> {
+            double crow = Haversine.meters(lat, lon, (Double) poi.get("lat"), (Double) poi.get("lon"));
+            double score = PoiRankingService.score(interests.getOrDefault((String) poi.get("category"), 1), 2 * crow);
+            if (best.size() == max && score <= (Double) best.peek().get("score")) return;
+            poi.put("score", score);
+            best.add(poi);
+            if (best.size() > max) best.poll();
+        });
+
+        List<Map<String, Object>> ranked = new ArrayList<>(best);
+        ranked.sort((a, b) -> Double.compare((Double) b.get("score"), (Double) a.get("score")));
+        List<Map<String, Object>> snapped = new ArrayList<>();
+        for (Map<String, Object> poi : ranked) {
+            double poiLat = (Double) poi.get("lat");
+            double poiLon = (Double) poi.get("lon");
+            OsmNodeData access = g.nearestConnectedNode(poiLat, poiLon);
+            if (access == null) continue;
+            double walk = Haversine.meters(poiLat, poiLon, access.getLat(), access.getLon());
+            if (walk > MAX_WALK_METERS) continue;
+            poi.put("nodeId", access.getId());
+            poi.put("walkMeters", walk);
+            snapped.add(poi);
+        }
+        return snapped;
+    }
+
+    // rows of travel costs and their paths, best candidate first; stops early at the deadline, keeping the rows done
+    private double[][] table(LazyGraph g, int[] nodes, double reachMeters, double perMeter, long deadlineNanos,
+                             OneToManyDijkstra.Tree[] trees, SearchStats stats) {
+        OneToManyDijkstra.Workspace ws = workspaces.get();
+        double[][] rows = new double[nodes.length][];
+        int done = 0;
+        while (done < nodes.length && (done == 0 || System.nanoTime() < deadlineNanos)) {
+            double[] row = OneToManyDijkstra.distances(g, nodes[done], nodes, reachMeters, ws, stats);
+            trees[done] = OneToManyDijkstra.tree(ws, nodes[done], nodes);
+            for (int j = 0; j < row.length; j++) row[j] *= perMeter;
+            rows[done++] = row;
+        }
+        double[][] table = new double[done][];
+        for (int i = 0; i < done; i++) table[i] = Arrays.copyOf(rows[i], done);
+        return table;
+    }
+}
@@ -0,0 +1,94 @@
+package com.pdsa.touristappbackend.service;
+
+import com.pdsa.touristappbackend.routing.GraphProvider;
+import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.Region;
+import com.pdsa.touristappbackend.routing.RegionRegistry;
+import com.pdsa.touristappbackend.routing.update.OsmChange;
+import com.pdsa.touristappbackend.routing.update.OsmChangeApplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * GraphUpdateService applies uploaded OSM change files to a region's road database and swaps
+ * the new graph version in.
+ * - the change file is parsed completely before the database is touched, so a truncated
+ *   upload changes nothing
+ * - OsmChangeApplier writes it in one transaction on its own connection, then a loaded region
+ *   is reloaded right away (GraphProvider.reload) instead of waiting for the periodic check
+ * - one update at a time, across regions
+ * The same OsmChangeApplier runs as a command line job for updates done outside the process.
+ */
+@Slf4j
+@Service
+public class GraphUpdateService {
+
+    private final GraphProvider graphProvider;
+    private final OsmChangeApplier applier = new OsmChangeApplier();
+    private final ReentrantLock updateLock = new ReentrantLock();
+
+    public GraphUpdateService(GraphProvider graphProvider) {
+        this.graphProvider = graphProvider;
+    }
+
+    /**
+     * Apply a change file to a region's database and serve the result
+     * @param regionName - region name, or null for the default region
+     * @param in - .osc or .osc.gz content
+     * @return counts of the applied changes and the new version
+     * @throws IllegalArgumentException - if the region is unknown or the file is not an osmChange document
+     */
+    public OsmChangeApplier.Result apply(String regionName, InputStream in) throws Exception {
+        RegionRegistry registry = graphProvider.regions();
+        Region region = regionName == null ? registry.defaultRegion() : registry.get(regionName);
+        OsmChange change;
+        try {
+            change = OsmChange.parse(in);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+
+        updateLock.lock();
+        try {
+            OsmChangeApplier.Result result;
+            Class.forName("org.sqlite.JDBC");
+            try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + region.sqlitePath)) {
+                result = applier.apply(conn, change);
+            }
+            log.info("GraphUpdateService: region {} updated to {}", region.name, result);
+            if (graphProvider.isLoaded(region)) graphProvider.reload(region);
+            return result;
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * Version of every region, as served and as stored
+     * @return one entry per region: region, loaded, version, storedVersion, nodes, edges
+     */
+    public List<Map<String, Object>> versions() throws Exception {
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (Region region : graphProvider.regions().all()) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("region", region.name);
+            m.put("loaded", graphProvider.isLoaded(region));
+            if (graphProvider.isLoaded(region)) {
+                LazyGraph g = graphProvider.getLazyGraph(region);
+                m.put("version", g.version());
+                m.put("storedVersion", g.storedVersion());
+                m.put("nodes", g.csr().size());
+                m.put("edges", g.csr().edgeCount());
+            }
+            out.add(m);
+        }
+        return out;
+    }
+}
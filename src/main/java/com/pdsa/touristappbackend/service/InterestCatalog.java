@@ -0,0 +1,71 @@
+package com.pdsa.touristappbackend.service;
+
+import com.pdsa.touristappbackend.model.Interest;
+import com.pdsa.touristappbackend.repository.InterestRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * In-process cache of the interests table.
+ * The table is small and rarely changes, so it is loaded with a single query on first use
+ * and served from memory afterwards. Call invalidate() after changing the interests table;
+ * the next lookup reloads it. The table is maintained outside the application, so
+ * UserService.register invalidates when a name is missing, and the snapshot is also dropped every
+ * cache.interests.refresh-ms (default 10 minutes) to pick up renamed or removed interests.
+ */
+@Service
+public class InterestCatalog {
+
+    private final InterestRepository interestRepo;
+    private volatile Snapshot snapshot;
+
+    public InterestCatalog(InterestRepository interestRepo) {
+        this.interestRepo = interestRepo;
+    }
+
+    public Optional<Interest> findByName(String name) {
+        return Optional.ofNullable(snapshot().byName.get(name));
+    }
+
+    public Optional<Interest> findById(Long id) {
+        return Optional.ofNullable(snapshot().byId.get(id));
+    }
+
+    public Collection<Interest> getAll() {
+        return snapshot().byId.values();
+    }
+
+    @Scheduled(fixedDelayString = "${cache.interests.refresh-ms:600000}",
+            initialDelayString = "${cache.interests.refresh-ms:600000}")
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    private Snapshot snapshot() {
+        Snapshot s = snapshot;
+        if (s == null) {
+            s = new Snapshot(interestRepo.findAll());
+            snapshot = s;
+        }
+        return s;
+    }
+
+    // Immutable view of the table, swapped as a whole so readers never see a partial reload
+    private static class Snapshot {
+        final Map<Long, Interest> byId;
+        final Map<String, Interest> byName;
+
+        Snapshot(List<Interest> interests) {
+            Map<Long, Interest> ids = new LinkedHashMap<>();
+            Map<String, Interest> names = new HashMap<>();
+            for (Interest i : interests) {
+                ids.put(i.getId(), i);
+                names.put(i.getName(), i);
+            }
+            this.byId = Collections.unmodifiableMap(ids);
+            this.byName = Collections.unmodifiableMap(names);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.pdsa.touristappbackend.service;
+
+import com.pdsa.touristappbackend.model.OsmNodeData;
+import com.pdsa.touristappbackend.model.Poi;
+import com.pdsa.touristappbackend.repository.PoiSqliteRepository;
+import com.pdsa.touristappbackend.routing.*;
+import com.pdsa.touristappbackend.routing.alg.OneToManyDijkstra;
+import com.pdsa.touristappbackend.routing.engine.RoutePlanner;
+import com.pdsa.touristappbackend.util.Haversine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service finding the k POIs nearest to a point by road, not by straight line: a temple across
+ * the lake is farther than one down the street.
+ * - POIs are attached to road nodes once per graph, when GraphProvider publishes the graph's
+ *   GraphReadyEvent (PoiNodeIndex), so a graph reloaded with a new version gets a fresh index
+ * - a query snaps the point and runs one OneToManyDijkstra.expand() from it, checking the POIs
+ *   of each settled node; it stops once k POIs are found and no closer one can follow
+ *   (the next node is already farther than the k-th POI including its walk from the road)
+ * - distances count the walk from the point to the road and from the road to the POI
+ * Work is proportional to the area around the point that holds k matching POIs, bounded by maxMeters.
+ */
+@Slf4j
+@Service
+public class NearestPoiService {
+
+    public static final String ENDPOINT = "nearest-poi";
+
+    private final PoiSqliteRepository poiRepo;
+    private final RoutePlanner planner;
+    private final SearchExecutor searchExecutor;
+    private final RoutingMetrics metrics;
+    private final Map<String, PoiNodeIndex> indexes = new ConcurrentHashMap<>();
+    private final ThreadLocal<OneToManyDijkstra.Workspace> workspaces =
+            ThreadLocal.withInitial(OneToManyDijkstra.Workspace::new);
+
+    public NearestPoiService(PoiSqliteRepository poiRepo, RoutePlanner planner, SearchExecutor searchExecutor,
+                             RoutingMetrics metrics) {
+        this.poiRepo = poiRepo;
+        this.planner = planner;
+        this.searchExecutor = searchExecutor;
+        this.metrics = metrics;
+    }
+
+    @EventListener
+    public void onGraphReady(GraphReadyEvent event) {
+        long start = System.nanoTime();
+        PoiNodeIndex index = attach(event.region, event.graph);
+        indexes.put(event.region.name, index);
+        log.info("NearestPoiService: attached {} POIs to the road graph of region {} in {} ms", index.size(),
+                event.region.name, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // only the POIs near the region's roads are read, and only those that attach are kept
+    private PoiNodeIndex attach(Region region, LazyGraph graph) {
+        double[] box = PoiNodeIndex.attachBox(region);
+        return new PoiNodeIndex(graph, poiRepo.findPoisInBox(box[0], box[1], box[2], box[3]));
+    }
+
+    /**
+     * Nearest POIs by network distance
+     * @param lat - latitude of the user
+     * @param lon - longitude of the user
+     * @param k - number of POIs to return
+     * @param categories - categories to include, null or empty for all
+     * @param maxMeters - POIs farther by road are not returned
+     * @return up to k POIs (id, name, category, lat, lon, distanceMeters, networkMeters), nearest first
+     * @throws IllegalArgumentException - if the point is outside every region or far from any road
+     * @throws Exception - if the search fails
+     */
+    public List<Map<String, Object>> nearest(double lat, double lon, int k, Collection<String> categories,
+                                             double maxMeters) throws Exception {
+        if (k <= 0) throw new IllegalArgumentException("k must be positive");
+        Region region = planner.region(lat, lon);
+        // loading the graph attaches its POIs; the index carries the graph it was built for
+        LazyGraph loaded = planner.graph(region);
+        PoiNodeIndex index = indexes.computeIfAbsent(region.name, r -> attach(region, loaded));
+        LazyGraph g = index.graph;
+
+        long snapStart = System.nanoTime();
+        OsmNodeData start = g.nearestConnectedNode(lat, lon);
+        metrics.recordSnap(ENDPOINT, System.nanoTime() - snapStart);
+        if (start == null) throw new IllegalArgumentException("No road near the given point");
+        double startWalk = Haversine.meters(lat, lon, start.getLat(), start.getLon());
+
+        boolean[] accept = index.categoryFilter(categories);
+        if (accept != null && !any(accept)) return new ArrayList<>();
+
+        // best k so far, ascending by distance from the start node
+        double[] bestMeters = new double[k];
+        int[] bestPoi = new int[k];
+        int[] found = {0};
+        SearchStats stats = new SearchStats();
+        long searchStart = System.nanoTime();
+        searchExecutor.run(() -> {
+            OneToManyDijkstra.expand(g, g.csr().index(start.getId()), maxMeters, workspaces.get(), stats, (node, meters) -> {
+                if (found[0] == k && meters >= bestMeters[k - 1]) return false;
+                for (int p = index.first(node); p < index.first(node + 1); p++) {
+                    if (accept != null && !accept[index.category(p)]) continue;
+                    double total = meters + index.walkMeters(p);
+                    if (total > maxMeters || (found[0] == k && total >= bestMeters[k - 1])) continue;
+                    int at = found[0] < k ? found[0]++ : k - 1;
+                    while (at > 0 && bestMeters[at - 1] > total) {
+                        bestMeters[at] = bestMeters[at - 1];
+                        bestPoi[at] = bestPoi[at - 1];
+                        at--;
+                    }
+                    bestMeters[at] = total;
+                    bestPoi[at] = p;
+                }
+                return true;
+            });
+            return null;
+        });
+        metrics.recordSearch(ENDPOINT, RoutingMetrics.NEAREST_POI_DIJKSTRA, System.nanoTime() - searchStart,
+                stats, Double.POSITIVE_INFINITY);
+
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (int i = 0; i < found[0]; i++) {
+            Poi poi = index.poi(bestPoi[i]);
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("id", poi.getId());
+            m.put("name", poi.getName());
+            m.put("category", poi.getCategory());
+            m.put("lat", poi.getLat());
+            m.put("lon", poi.getLon());
+            m.put("distanceMeters", startWalk + bestMeters[i]);
+            m.put("networkMeters", bestMeters[i] - index.walkMeters(bestPoi[i]));
+            out.add(m);
+        }
+        return out;
+    }
+
+    private static boolean any(boolean[] flags) {
+        for (boolean f : flags) {
+            if (f) return true;
+        }
+        return false;
+    }
+}
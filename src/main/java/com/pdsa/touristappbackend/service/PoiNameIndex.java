@@ -0,0 +1,157 @@
+package com.pdsa.touristappbackend.service;
+
+import com.pdsa.touristappbackend.model.Poi;
+import com.pdsa.touristappbackend.util.Haversine;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable in-memory prefix index over POI names for typeahead search.
+ * Names are folded (lower case, Latin diacritics stripped, punctuation collapsed to spaces)
+ * and every word start of every name becomes one entry of a sorted array, so
+ * "temple" finds "Gangaramaya Temple" as well as "Temple Trees".
+ * Each entry is a single long packing (poi index, offset of the word in the folded name),
+ * sorted by the folded suffix starting at that offset, so a query is two binary searches
+ * (lowerBound / upperBound) plus a scan over the matching range - no per-entry strings are kept.
+ * The whole range is scored: it is sorted alphabetically, not by score, so any cut-off would
+ * drop the short names and, with a location, the nearby POIs of one- and two-letter queries.
+ * Usage:
+ * PoiNameIndex index = new PoiNameIndex(pois);
+ * List<Poi> hits = index.complete("gang", lat, lon, 10);
+ */
+public class PoiNameIndex {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    // distance at which the proximity boost is halved
+    private static final double PROXIMITY_SCALE_METERS = 1000;
+    private static final int MAX_OFFSET = 0xFFFF;
+
+    private final Poi[] pois;
+    private final String[] folded;
+    private final long[] entries;
+
+    public PoiNameIndex(List<Poi> source) {
+        this.pois = source.toArray(new Poi[0]);
+        this.folded = new String[pois.length];
+
+        List<Long> keys = new ArrayList<>();
+        for (int i = 0; i < pois.length; i++) {
+            String name = fold(pois[i].getName());
+            folded[i] = name;
+            for (int off = 0; off < name.length() && off <= MAX_OFFSET; off++) {
+                if (off == 0 || name.charAt(off - 1) == ' ') {
+                    keys.add(((long) i << 16) | off);
+                }
+            }
+        }
+        keys.sort(this::compareEntries);
+
+        this.entries = new long[keys.size()];
+        for (int i = 0; i < entries.length; i++) entries[i] = keys.get(i);
+    }
+
+    /**
+     * Fold a string for matching: NFD, strip combining marks, lower case, collapse separators
+     * @param s - raw text
+     * @return folded text, words separated by single spaces
+     */
+    public static String fold(String s) {
+        if (s == null) return "";
+        String n = Normalizer.normalize(s, Normalizer.Form.NFD);
+        n = DIACRITICS.matcher(n).replaceAll("");
+        n = SEPARATORS.matcher(n.toLowerCase(Locale.ROOT)).replaceAll(" ");
+        return n.trim();
+    }
+
+    public int size() {
+        return pois.length;
+    }
+
+    /**
+     * Return POIs whose name has a word starting with the query.
+     * Matches at the start of the name and names the query covers more completely rank higher;
+     * when a location is given, nearby POIs are boosted.
+     * @param query - typed prefix
+     * @param lat - optional latitude of the user, null to disable the proximity boost
+     * @param lon - optional longitude of the user
+     * @param limit - maximum number of results
+     * @return best matches first
+     */
+    public List<Poi> complete(String query, Double lat, Double lon, int limit) {
+        String q = fold(query);
+        if (q.isEmpty() || limit <= 0) return List.of();
+        boolean boost = lat != null && lon != null;
+
+        // best score per POI, a name can match on several words
+        Map<Integer, Double> scores = new HashMap<>();
+        for (int i = lowerBound(q), end = upperBound(q); i < end; i++) {
+            int poi = (int) (entries[i] >>> 16);
+            int off = (int) (entries[i] & MAX_OFFSET);
+
+            double score = (off == 0 ? 2.0 : 1.0) + (double) q.length() / folded[poi].length();
+            if (boost) {
+                double d = Haversine.meters(lat, lon, pois[poi].getLat(), pois[poi].getLon());
+                score *= 1 + 1 / (1 + d / PROXIMITY_SCALE_METERS);
+            }
+            scores.merge(poi, score, Math::max);
+        }
+
+        PriorityQueue<Map.Entry<Integer, Double>> best = new PriorityQueue<>(limit + 1, Map.Entry.comparingByValue());
+        for (Map.Entry<Integer, Double> e : scores.entrySet()) {
+            best.add(e);
+            if (best.size() > limit) best.poll();
+        }
+        List<Poi> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) result.add(pois[best.poll().getKey()]);
+        Collections.reverse(result);
+        return result;
+    }
+
+    // first entry whose suffix is >= q on its first q.length() chars
+    private int lowerBound(String q) {
+        int lo = 0, hi = entries.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            long e = entries[mid];
+            if (comparePrefix(folded[(int) (e >>> 16)], (int) (e & MAX_OFFSET), q) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // first entry whose suffix is > q on its first q.length() chars, the end of the matching range
+    private int upperBound(String q) {
+        int lo = 0, hi = entries.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            long e = entries[mid];
+            if (comparePrefix(folded[(int) (e >>> 16)], (int) (e & MAX_OFFSET), q) <= 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // compares s[off..off+q.length()) with q; a suffix shorter than q sorts first
+    private static int comparePrefix(String s, int off, String q) {
+        for (int k = 0; k < q.length(); k++) {
+            if (off + k >= s.length()) return -1;
+            int diff = s.charAt(off + k) - q.charAt(k);
+            if (diff != 0) return diff;
+        }
+        return 0;
+    }
+
+    private int compareEntries(long a, long b) {
+        String sa = folded[(int) (a >>> 16)];
+        String sb = folded[(int) (b >>> 16)];
+        int ia = (int) (a & MAX_OFFSET);
+        int ib = (int) (b & MAX_OFFSET);
+        while (ia < sa.length() && ib < sb.length()) {
+            int diff = sa.charAt(ia++) - sb.charAt(ib++);
+            if (diff != 0) return diff;
+        }
+        return (sa.length() - ia) - (sb.length() - ib);
+    }
+}
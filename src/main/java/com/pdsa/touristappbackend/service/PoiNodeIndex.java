@@ -0,0 +1,124 @@
+package com.pdsa.touristappbackend.service;
+
+import com.pdsa.touristappbackend.model.OsmNodeData;
+import com.pdsa.touristappbackend.model.Poi;
+import com.pdsa.touristappbackend.routing.CsrGraph;
+import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.Region;
+import com.pdsa.touristappbackend.util.Haversine;
+
+import java.util.*;
+
+/**
+ * Immutable attachment of POIs to the road nodes of one graph, built when the graph loads.
+ * Each POI is snapped once to its nearest connected road node (the graph's snapping grid, searched
+ * only within MAX_ATTACH_METERS); POIs farther than that from any road are left out, and only the
+ * attached ones are kept. Callers load the POIs of attachBox(region) rather than every POI.
+ * Layout, CSR style over the graph's node indexes:
+ * - the POIs of node i are pois[first[i] .. first[i + 1]), with their walk from the node in
+ *   walkMeters and their category as a small int in category
+ * - a network search asks poisAt(i) per settled node, an array range check, no map lookup
+ * The graph is kept with the index, so a search always runs on the graph the POIs were
+ * attached to, even while a new graph version is being swapped in.
+ * Usage:
+ * double[] box = PoiNodeIndex.attachBox(region);
+ * PoiNodeIndex index = new PoiNodeIndex(graph, repo.findPoisInBox(box[0], box[1], box[2], box[3]));
+ * for (int p = index.first(node); p < index.first(node + 1); p++) { index.poi(p); }
+ */
+public class PoiNodeIndex {
+
+    // farther than this from the road network, a POI is not reachable in any useful sense
+    private static final double MAX_ATTACH_METERS = 1000;
+    // a little under a degree of latitude by Haversine (111 195 m), so attachBox errs wide
+    private static final double METERS_PER_DEG_LAT = 111_000.0;
+
+    public final LazyGraph graph;
+    private final int[] first;
+    private final Poi[] pois;
+    private final double[] walkMeters;
+    private final int[] category;
+    private final Map<String, Integer> categoryIds = new HashMap<>();
+
+    public PoiNodeIndex(LazyGraph graph, List<Poi> source) {
+        this.graph = graph;
+        CsrGraph csr = graph.csr();
+        int n = csr.size();
+        int[] node = new int[source.size()];
+        double[] walk = new double[source.size()];
+        first = new int[n + 1];
+        int attached = 0;
+        for (int k = 0; k < source.size(); k++) {
+            Poi poi = source.get(k);
+            OsmNodeData access = graph.nearestConnectedNode(poi.getLat(), poi.getLon(), MAX_ATTACH_METERS);
+            node[k] = -1;
+            if (access == null) continue;
+            walk[k] = Haversine.meters(poi.getLat(), poi.getLon(), access.getLat(), access.getLon());
+            node[k] = csr.index(access.getId());
+            first[node[k] + 1]++;
+            attached++;
+        }
+        for (int i = 0; i < n; i++) first[i + 1] += first[i];
+
+        pois = new Poi[attached];
+        walkMeters = new double[attached];
+        category = new int[attached];
+        int[] fill = Arrays.copyOf(first, n);
+        for (int k = 0; k < source.size(); k++) {
+            if (node[k] < 0) continue;
+            int p = fill[node[k]]++;
+            Poi poi = source.get(k);
+            pois[p] = poi;
+            walkMeters[p] = walk[k];
+            category[p] = categoryIds.computeIfAbsent(String.valueOf(poi.getCategory()), c -> categoryIds.size());
+        }
+    }
+
+    /**
+     * Box holding every POI that can attach to a region's roads: the region's box padded by
+     * MAX_ATTACH_METERS, in longitude at the latitude where degrees are shortest
+     * @param region - region whose graph the POIs attach to
+     * @return {minLat, minLon, maxLat, maxLon}
+     */
+    public static double[] attachBox(Region region) {
+        double padLat = MAX_ATTACH_METERS / METERS_PER_DEG_LAT;
+        double farthestLat = Math.min(90, Math.max(Math.abs(region.minLat), Math.abs(region.maxLat)) + padLat);
+        double padLon = padLat / Math.max(0.1, Math.cos(Math.toRadians(farthestLat)));
+        return new double[]{region.minLat - padLat, region.minLon - padLon, region.maxLat + padLat, region.maxLon + padLon};
+    }
+
+    public int size() {
+        return pois.length;
+    }
+
+    // POIs of node i are first(i) .. first(i + 1) - 1
+    public int first(int node) {
+        return first[node];
+    }
+
+    public Poi poi(int p) {
+        return pois[p];
+    }
+
+    public double walkMeters(int p) {
+        return walkMeters[p];
+    }
+
+    public int category(int p) {
+        return category[p];
+    }
+
+    /**
+     * Category ids to accept
+     * @param categories - category names, null or empty for all
+     * @return accepted flag per category id, null for all
+     */
+    public boolean[] categoryFilter(Collection<String> categories) {
+        if (categories == null || categories.isEmpty()) return null;
+        boolean[] accept = new boolean[categoryIds.size()];
+        for (String c : categories) {
+            Integer id = categoryIds.get(c);
+            if (id != null) accept[id] = true;
+        }
+        return accept;
+    }
+}
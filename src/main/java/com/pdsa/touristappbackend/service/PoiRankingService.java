@@ -0,0 +1,154 @@
+package com.pdsa.touristappbackend.service;
+
+import com.pdsa.touristappbackend.model.OsmNodeData;
+import com.pdsa.touristappbackend.repository.PoiSqliteRepository;
+import com.pdsa.touristappbackend.routing.CsrGraph;
+import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.RouteGeometry;
+import com.pdsa.touristappbackend.routing.SearchExecutor;
+import com.pdsa.touristappbackend.routing.SearchStats;
+import com.pdsa.touristappbackend.routing.alg.CorridorDijkstra;
+import com.pdsa.touristappbackend.util.Haversine;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Service ranking POIs along a route by the real network detour needed to visit them.
+ * Runs one forward and one reverse bounded Dijkstra from the route corridor, then for each
+ * POI near the route snaps it to its nearest road node p and reads from both searches where the
+ * traveller leaves the route (corridor position i, the nearest from p's side) and rejoins it (j):
+ *  detour = d(i -> p) + d(p -> j) - route(i, j) + 2 x walk from p to the POI
+ * route(i, j) is the along-route distance between the two, negative when j lies behind i: the
+ * traveller then drives j .. i a second time, which the formula adds back. The detour is always
+ * one the traveller can actually drive, exact for that (i, j) pair; another pair can be shorter
+ * (a POI beside a long loop), so it is an upper bound on the best detour, never below it.
+ * Both legs must fit within the bound on their own.
+ * POIs whose detour exceeds the bound are dropped; the rest are scored by
+ *  score = user rating of the POI's category / (1 + detour / DETOUR_SCALE_METERS)
+ * so a strong interest can still win against a slightly longer detour.
+ * Threads: the two corridor searches run first, handed to SearchExecutor (the bounded search
+ * pool in virtual-thread mode) on CsrGraph node indexes, in workspaces kept per pool thread and
+ * reused; they depend only on the corridor. Their labels are copied out (CorridorDijkstra.Labels,
+ * sized by the nodes within the bound). The POI query (blocking SQLite I/O) then runs on the
+ * calling thread, a virtual thread in virtual-thread mode, and each row is snapped, priced and
+ * offered to a bounded min-heap as it streams out; only the best `limit` rows are kept, so memory
+ * per request does not grow with POI density.
+ */
+@Service
+public class PoiRankingService {
+
+    // detour at which a POI's interest weight is halved
+    private static final double DETOUR_SCALE_METERS = 500;
+
+    private final PoiSqliteRepository poiRepo;
+    private final SearchExecutor searchExecutor;
+    private final ThreadLocal<CorridorDijkstra.Workspace> forwardWorkspaces =
+            ThreadLocal.withInitial(CorridorDijkstra.Workspace::new);
+    private final ThreadLocal<CorridorDijkstra.Workspace> reverseWorkspaces =
+            ThreadLocal.withInitial(CorridorDijkstra.Workspace::new);
+
+    public PoiRankingService(PoiSqliteRepository poiRepo, SearchExecutor searchExecutor) {
+        this.poiRepo = poiRepo;
+        this.searchExecutor = searchExecutor;
+    }
+
+    /**
+     * Score a POI from the user's rating of its category and its detour.
+     * @param rating - user's rating of the POI category
+     * @param detourMeters - network detour to visit the POI
+     * @return score, higher is better
+     */
+    public static double score(int rating, double detourMeters) {
+        return rating / (1 + detourMeters / DETOUR_SCALE_METERS);
+    }
+
+    /**
+     * Extra distance of visiting a POI instead of staying on the route
+     * @param there - meters from the leave point to the POI's road node
+     * @param back - meters from the POI's road node to the rejoin point
+     * @param skipped - route meters from the leave to the rejoin point, negative if it lies behind
+     * @param walk - meters between the road node and the POI, walked both ways
+     * @return detour in meters, never negative
+     */
+    static double detour(double there, double back, double skipped, double walk) {
+        return Math.max(0, there + back - skipped) + 2 * walk;
+    }
+
+    // along-route meters at every corridor position, from the base edge weights
+    private static double[] alongRoute(CsrGraph csr, int[] corridor) {
+        double[] along = new double[corridor.length];
+        for (int k = 1; k < corridor.length; k++) {
+            double w = csr.weight(corridor[k - 1], corridor[k]);
+            along[k] = along[k - 1] + (Double.isNaN(w) ? csr.distance(corridor[k - 1], corridor[k]) : w);
+        }
+        return along;
+    }
+
+    /**
+     * Select the best POIs for the user along a route.
+     * @param graph - graph of the region the route was computed in
+     * @param corridor - node IDs of the route
+     * @param path - route shape, used to prefilter candidates
+     * @param interests - interest name (POI category) to the user's rating
+     * @param maxDetourMeters - POIs needing a longer detour are dropped
+     * @param limit - maximum number of POIs to return
+     * @param minScore - POIs scoring lower are dropped
+     * @param stats - receives the work counters of both corridor searches
+     * @return up to limit POIs with "detourMeters" and "score" added, best first
+     * @throws Exception - if graph access fails
+     */
+    public List<Map<String, Object>> topPoisAlongRoute(LazyGraph graph,
+                                                       List<Long> corridor,
+                                                       RouteGeometry path,
+                                                       Map<String, Integer> interests,
+                                                       double maxDetourMeters,
+                                                       int limit,
+                                                       double minScore,
+                                                       SearchStats stats) throws Exception {
+        if (corridor == null || corridor.isEmpty() || interests.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        CsrGraph csr = graph.csr();
+        int[] seeds = corridor.stream().mapToInt(csr::index).filter(i -> i >= 0).toArray();
+        // both searches are seeded from the corridor only, so they run before any POI is read
+        CorridorDijkstra.Labels[] searches = searchExecutor.run(() -> new CorridorDijkstra.Labels[]{
+                CorridorDijkstra.forward(graph, seeds, maxDetourMeters, forwardWorkspaces.get(), stats).labels(),
+                CorridorDijkstra.reverse(graph, seeds, maxDetourMeters, reverseWorkspaces.get(), stats).labels()});
+        CorridorDijkstra.Labels toPoi = searches[0];
+        CorridorDijkstra.Labels backToRoute = searches[1];
+        double[] along = alongRoute(csr, seeds);
+
+        // min-heap on score: the root is the weakest POI kept so far
+        PriorityQueue<Map<String, Object>> best = new PriorityQueue<>(limit + 1,
+                Comparator.comparingDouble(p -> (Double) p.get("score")));
+        poiRepo.forEachPoiByCategoryNearPath(path, new ArrayList<>(interests.keySet()), poi -> {
+            double lat = (Double) poi.get("lat");
+            double lon = (Double) poi.get("lon");
+            OsmNodeData access = graph.nearestConnectedNode(lat, lon);
+            if (access == null) return;
+            int node = csr.index(access.getId());
+            // either leg longer than the bound on its own
+            if (!toPoi.reached(node) || !backToRoute.reached(node)) return;
+
+            double skipped = along[backToRoute.origin(node)] - along[toPoi.origin(node)];
+            double walk = Haversine.meters(lat, lon, access.getLat(), access.getLon());
+            double detour = detour(toPoi.meters(node), backToRoute.meters(node), skipped, walk);
+            if (detour > maxDetourMeters) return;
+
+            double score = score(interests.getOrDefault((String) poi.get("category"), 1), detour);
+            if (score < minScore) return;
+            if (best.size() == limit && score <= (Double) best.peek().get("score")) return;
+
+            poi.put("detourMeters", detour);
+            poi.put("score", score);
+            best.add(poi);
+            if (best.size() > limit) best.poll();
+        });
+
+        List<Map<String, Object>> ranked = new ArrayList<>(best);
+        ranked.sort((a, b) -> Double.compare((Double) b.get("score"), (Double) a.get("score")));
+        return ranked;
+    }
+}
@@ -0,0 +1,37 @@
+package com.pdsa.touristappbackend.service;
+
+import com.pdsa.touristappbackend.model.Poi;
+import com.pdsa.touristappbackend.repository.PoiSqliteRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Service answering POI name typeahead queries from an in-memory PoiNameIndex.
+ * The index is built once at startup from PoiSqliteRepository, so keystrokes never hit SQLite.
+ * Call reload() after the POI database changes.
+ */
+@Slf4j
+@Service
+public class PoiSearchService {
+
+    private final PoiSqliteRepository poiRepo;
+    private volatile PoiNameIndex nameIndex;
+
+    public PoiSearchService(PoiSqliteRepository poiRepo) {
+        this.poiRepo = poiRepo;
+    }
+
+    @PostConstruct
+    public void reload() {
+        PoiNameIndex index = new PoiNameIndex(poiRepo.findAllNamedPois());
+        nameIndex = index;
+        log.info("PoiSearchService: indexed {} POI names", index.size());
+    }
+
+    public List<Poi> autocomplete(String query, Double lat, Double lon, int limit) {
+        return nameIndex.complete(query, lat, lon, limit);
+    }
+}
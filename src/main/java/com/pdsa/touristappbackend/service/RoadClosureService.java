@@ -0,0 +1,220 @@
+package com.pdsa.touristappbackend.service;
+
+import com.pdsa.touristappbackend.config.RoutingConfigProperties;
+import com.pdsa.touristappbackend.model.RoadClosureRequest;
+import com.pdsa.touristappbackend.routing.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * RoadClosureService keeps the temporary road closures and penalties and compiles them into
+ * each region graph's RoadOverlay.
+ * - closures are stored by OSM node ids, so they survive graph reloads; a graph that loads later
+ *   gets its overlay from the GraphReadyEvent, compiled again on its GraphSwappedEvent so an add
+ *   or remove that reached the previous graph while the new one was being built is not lost
+ * - add() validates a whole list first and then swaps one new overlay per touched region,
+ *   so a set of closures (e.g. all streets of a procession route) takes effect together
+ * - an overlay entry stops applying at its expiry by itself; expired closures are hidden from
+ *   the listing at once and dropped from the list and the overlays on the next add or remove,
+ *   or by the routing.closure-prune-ms task. Listing never changes anything.
+ * The base graph is never modified, and queries pay one bit test per settled node.
+ */
+@Slf4j
+@Service
+public class RoadClosureService {
+
+    private final GraphProvider graphProvider;
+    private final RoutingConfigProperties cfg;
+    // guarded by this
+    private final Map<String, RoadClosure> closures = new LinkedHashMap<>();
+    private long nextId = 1;
+
+    public RoadClosureService(GraphProvider graphProvider, RoutingConfigProperties cfg) {
+        this.graphProvider = graphProvider;
+        this.cfg = cfg;
+    }
+
+    /**
+     * A registered closure or penalty, as listed by the API
+     */
+    public static class RoadClosure {
+        public final String id;
+        public final String region;
+        public final List<Long> nodes;
+        public final boolean bothDirections;
+        // null when the road is closed
+        public final Double penaltyMeters;
+        public final String reason;
+        public final Instant createdAt;
+        public final Instant expiresAt;
+
+        RoadClosure(String id, String region, List<Long> nodes, boolean bothDirections, Double penaltyMeters,
+                    String reason, Instant createdAt, Instant expiresAt) {
+            this.id = id;
+            this.region = region;
+            this.nodes = nodes;
+            this.bothDirections = bothDirections;
+            this.penaltyMeters = penaltyMeters;
+            this.reason = reason;
+            this.createdAt = createdAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Register closures, all or none
+     * @param requests - closures to add
+     * @return the registered closures with their ids
+     * @throws IllegalArgumentException - if any request is invalid; nothing is registered then
+     */
+    public List<RoadClosure> add(List<RoadClosureRequest> requests) {
+        if (requests == null || requests.isEmpty()) throw new IllegalArgumentException("No closures given");
+        // validation may load a region graph, so it runs before taking the lock (see GraphReadyEvent)
+        List<Region> regions = new ArrayList<>();
+        for (RoadClosureRequest r : requests) regions.add(validate(r));
+
+        Instant now = Instant.now();
+        List<RoadClosure> added = new ArrayList<>();
+        synchronized (this) {
+            for (int i = 0; i < requests.size(); i++) {
+                RoadClosureRequest r = requests.get(i);
+                RoadClosure c = new RoadClosure(String.valueOf(nextId++), regions.get(i).name, List.copyOf(r.getNodes()),
+                        r.isBothDirections(), r.getPenaltyMeters(), r.getReason(), now,
+                        now.plusSeconds(r.getMinutes() * 60));
+                closures.put(c.id, c);
+                added.add(c);
+                log.info("Road closure {} added in {}: {} nodes, {}, until {} ({})", c.id, c.region, c.nodes.size(),
+                        c.penaltyMeters == null ? "closed" : "+" + c.penaltyMeters + " m", c.expiresAt, c.reason);
+            }
+            Set<String> touched = pruneExpired();
+            for (Region region : regions) touched.add(region.name);
+            publish(touched);
+        }
+        return added;
+    }
+
+    /**
+     * Remove a closure before its expiry
+     * @param id - closure id
+     * @return false if no such closure exists
+     */
+    public synchronized boolean remove(String id) {
+        RoadClosure c = closures.remove(id);
+        if (c == null) return false;
+        log.info("Road closure {} removed from {}", id, c.region);
+        Set<String> touched = pruneExpired();
+        touched.add(c.region);
+        publish(touched);
+        return true;
+    }
+
+    /**
+     * Closures that have not expired yet, read-only
+     * @return the closures in the order they were added
+     */
+    public synchronized List<RoadClosure> active() {
+        Instant now = Instant.now();
+        List<RoadClosure> active = new ArrayList<>();
+        for (RoadClosure c : closures.values()) {
+            if (c.expiresAt.isAfter(now)) active.add(c);
+        }
+        return active;
+    }
+
+    /**
+     * Drop expired closures and republish the overlays of the regions they were in
+     */
+    @Scheduled(fixedDelayString = "${routing.closure-prune-ms:60000}",
+            initialDelayString = "${routing.closure-prune-ms:60000}")
+    public synchronized void pruneAndPublish() {
+        publish(pruneExpired());
+    }
+
+    @EventListener
+    public synchronized void onGraphReady(GraphReadyEvent event) {
+        event.graph.setOverlay(compile(event.region.name, event.graph));
+    }
+
+    @EventListener
+    public synchronized void onGraphSwapped(GraphSwappedEvent event) {
+        publish(event.region);
+    }
+
+    private Region validate(RoadClosureRequest r) {
+        RegionRegistry registry = graphProvider.regions();
+        Region region = r.getRegion() == null ? registry.defaultRegion() : registry.get(r.getRegion());
+        List<Long> nodes = r.getNodes();
+        if (nodes == null || nodes.size() < 2) {
+            throw new IllegalArgumentException("A closure needs at least two consecutive road nodes");
+        }
+        if (r.getMinutes() <= 0 || r.getMinutes() > cfg.getClosureMaxMinutes()) {
+            throw new IllegalArgumentException("minutes must be between 1 and " + cfg.getClosureMaxMinutes());
+        }
+        Double penalty = r.getPenaltyMeters();
+        if (penalty != null && !(penalty >= 0 && penalty < Double.POSITIVE_INFINITY)) {
+            throw new IllegalArgumentException("penaltyMeters must be a non-negative number");
+        }
+
+        CsrGraph csr = graphProvider.getLazyGraph(region).csr();
+        for (int k = 0; k + 1 < nodes.size(); k++) {
+            int u = csr.index(nodes.get(k));
+            int v = csr.index(nodes.get(k + 1));
+            boolean forward = u >= 0 && v >= 0 && !Double.isNaN(csr.weight(u, v));
+            boolean backward = u >= 0 && v >= 0 && r.isBothDirections() && !Double.isNaN(csr.weight(v, u));
+            if (!forward && !backward) {
+                throw new IllegalArgumentException("No road between nodes " + nodes.get(k) + " and "
+                        + nodes.get(k + 1) + " in region " + region.name);
+            }
+        }
+        return region;
+    }
+
+    // drops expired closures, returns the names of the regions they were in
+    private Set<String> pruneExpired() {
+        Instant now = Instant.now();
+        Set<String> regions = new LinkedHashSet<>();
+        for (Iterator<RoadClosure> it = closures.values().iterator(); it.hasNext(); ) {
+            RoadClosure c = it.next();
+            if (c.expiresAt.isAfter(now)) continue;
+            it.remove();
+            regions.add(c.region);
+            log.info("Road closure {} expired in {}", c.id, c.region);
+        }
+        return regions;
+    }
+
+    private void publish(Set<String> regions) {
+        RegionRegistry registry = graphProvider.regions();
+        for (String name : regions) publish(registry.get(name));
+    }
+
+    // swaps a freshly compiled overlay into the region's graph, if it is loaded
+    private void publish(Region region) {
+        if (!graphProvider.isLoaded(region)) return;
+        LazyGraph g = graphProvider.getLazyGraph(region);
+        g.setOverlay(compile(region.name, g));
+    }
+
+    private RoadOverlay compile(String region, LazyGraph g) {
+        CsrGraph csr = g.csr();
+        RoadOverlay.Builder b = new RoadOverlay.Builder(csr.size());
+        for (RoadClosure c : closures.values()) {
+            if (!c.region.equals(region)) continue;
+            double penalty = c.penaltyMeters == null ? Double.POSITIVE_INFINITY : c.penaltyMeters;
+            long expires = c.expiresAt.toEpochMilli();
+            for (int k = 0; k + 1 < c.nodes.size(); k++) {
+                int u = csr.index(c.nodes.get(k));
+                int v = csr.index(c.nodes.get(k + 1));
+                if (u < 0 || v < 0) continue;
+                if (!Double.isNaN(csr.weight(u, v))) b.add(u, v, penalty, expires);
+                if (c.bothDirections && !Double.isNaN(csr.weight(v, u))) b.add(v, u, penalty, expires);
+            }
+        }
+        return b.build();
+    }
+}
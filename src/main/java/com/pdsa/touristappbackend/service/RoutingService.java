@@ -1,111 +1,166 @@
 package com.pdsa.touristappbackend.service;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.pdsa.touristappbackend.model.LatLon;
-import com.pdsa.touristappbackend.routing.GraphProvider;
-import com.pdsa.touristappbackend.routing.LazyGraph;
-import com.pdsa.touristappbackend.routing.alg.AStar;
-import lombok.RequiredArgsConstructor;
+import com.pdsa.touristappbackend.model.OsmNodeData;
+import com.pdsa.touristappbackend.routing.ExplainTrace;
+import com.pdsa.touristappbackend.routing.Region;
+import com.pdsa.touristappbackend.routing.RouteGeometry;
+import com.pdsa.touristappbackend.routing.RouteTimeoutException;
+import com.pdsa.touristappbackend.routing.SearchTrace;
+import com.pdsa.touristappbackend.routing.engine.Route;
+import com.pdsa.touristappbackend.routing.engine.RoutePlanner;
+import com.pdsa.touristappbackend.routing.jfr.RouteQueryEvent;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.Statement;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
 /**
  * RoutingService provides functionality to compute the shortest path between two geographical coordinates
- * using a graph representation of the road network. It utilizes the A* algorithm for pathfinding
- * and interacts with a SQLite database to retrieve graph nodes and edges.
- * The service includes methods to find the nearest connected graph nodes to given coordinates
- * and to compute the route between these nodes.
- * The results include the total distance and the list of coordinates along the path.
+ * using a graph representation of the road network.
+ * Snapping and the search go through RoutePlanner, shared with the other routing endpoints:
+ * both coordinates must lie in one served region (see RegionRegistry), whose graph is used;
+ * the coordinates snap to the nearest connected graph nodes and a RoutingEngine (chosen per request
+ * or by the adaptive policy, see RoutingEngines) computes the route between them.
+ * The results include the total distance and the coordinates along the path, either as a list
+ * or as an encoded polyline, optionally simplified with Douglas-Peucker.
  * Error handling is implemented to manage exceptions during database access and pathfinding.
+ * Snap and search times and search work counters are recorded in RoutingMetrics (endpoint "by-coords").
  * Designed for use in applications such as mapping, navigation, and location-based services.
  * Thread-safe for concurrent requests in a multi-threaded environment.
+ * Identical concurrent queries (same engine and snapped nodes) are coalesced by RoutePlanner:
+ * one search runs and the other callers wait for its result (up to routing.coalesce-timeout-ms);
+ * a caller that gives up gets a RouteTimeoutException (503), never an infinite-distance answer.
+ * With an ExplainTrace the response carries an "explain" section (phase timings, engine, search
+ * counters, snaps and optionally explored nodes); explained queries are never coalesced.
+ * Every request also emits a RouteQueryEvent when a JFR recording is running.
  * Scalable for large graphs with many nodes and edges.
  * Can be extended with additional features like alternative routes or waypoints.
  */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class RoutingService {
-    private final GraphProvider graphProvider;
+    private static final String ENDPOINT = "by-coords";
 
+    private final RoutePlanner planner;
+
+    public RoutingService(RoutePlanner planner) {
+        this.planner = planner;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     public static class RouteResult {
         public double distanceMeters;
         public List<LatLon> path;
+        public String polyline;
+        public Map<String, Object> explain;
 
         public RouteResult(double d, List<LatLon> p) {
             distanceMeters = d;
             path = p;
         }
-    }
-
-    public RouteResult routeByCoords(double startLat, double startLon, double endLat, double endLon) {
-        try {
-            LazyGraph g = graphProvider.getLazyGraph();
 
-            long s = findNearestConnected(g, startLat, startLon);
-            long t = findNearestConnected(g, endLat, endLon);
-
-            if (s == -1 || t == -1) {
-                System.out.println("DEBUG: No valid start or end node found.");
-                return new RouteResult(Double.POSITIVE_INFINITY, List.of());
+        public RouteResult(double d, RouteGeometry geometry, RouteGeometry.Format format) {
+            distanceMeters = d;
+            if (format == RouteGeometry.Format.POLYLINE) {
+                polyline = geometry.encodePolyline();
+            } else {
+                path = geometry.toLatLonList();
             }
+        }
+    }
 
-            System.out.println("DEBUG: Start node = " + s);
-            System.out.println("DEBUG: End node   = " + t);
-
-            AStar.Result res = AStar.shortestPath(g, s, t);
+    public RouteResult routeByCoords(double startLat, double startLon, double endLat, double endLon) {
+        return routeByCoords(startLat, startLon, endLat, endLon, RouteGeometry.Format.JSON, null, null);
+    }
 
-            List<LatLon> coords = res.getPathNodeIds().stream()
-                    .map(id -> {
-                        try {
-                            var n = g.getNode(id);
-                            return new LatLon(n.getLat(), n.getLon());
-                        } catch (Exception e) {
-                            return null;
-                        }
-                    })
-                    .filter(Objects::nonNull)
-                    .toList();
+    /**
+     * Route between two coordinates
+     * @param format - geometry output format
+     * @param tolerance - simplification tolerance in meters, or null
+     * @param zoom - map zoom level used to derive the tolerance when none is given, or null
+     * @return distance and geometry, infinite distance and empty path if no route exists
+     */
+    public RouteResult routeByCoords(double startLat, double startLon, double endLat, double endLon,
+                                     RouteGeometry.Format format, Double tolerance, Integer zoom) {
+        return routeByCoords(startLat, startLon, endLat, endLon, format, tolerance, zoom, null);
+    }
 
-            return new RouteResult(res.getDistanceMeters(), coords);
+    /**
+     * Route between two coordinates, optionally explaining the search
+     * @param format - geometry output format
+     * @param tolerance - simplification tolerance in meters, or null
+     * @param zoom - map zoom level used to derive the tolerance when none is given, or null
+     * @param explain - collects diagnostics into the result's explain section, or null
+     * @return distance and geometry, infinite distance and empty path if no route exists
+     */
+    public RouteResult routeByCoords(double startLat, double startLon, double endLat, double endLon,
+                                     RouteGeometry.Format format, Double tolerance, Integer zoom,
+                                     ExplainTrace explain) {
+        return routeByCoords(startLat, startLon, endLat, endLon, format, tolerance, zoom, explain, null);
+    }
 
+    /**
+     * Route between two coordinates with a chosen routing engine
+     * @param format - geometry output format
+     * @param tolerance - simplification tolerance in meters, or null
+     * @param zoom - map zoom level used to derive the tolerance when none is given, or null
+     * @param explain - collects diagnostics into the result's explain section, or null
+     * @param engine - routing engine name, "adaptive", or null for routing.engine
+     * @return distance and geometry, infinite distance and empty path if no route exists
+     * @throws IllegalArgumentException - if the engine is unknown, or OutOfRegionException if no
+     *                                  served region covers both coordinates
+     * @throws RouteTimeoutException - if waiting for a coalesced identical query timed out
+     * @throws IllegalStateException - if the search itself failed
+     */
+    public RouteResult routeByCoords(double startLat, double startLon, double endLat, double endLon,
+                                     RouteGeometry.Format format, Double tolerance, Integer zoom,
+                                     ExplainTrace explain, String engine) {
+        planner.engines().check(engine);
+        Region region = planner.region(startLat, startLon, endLat, endLon);
+        RouteQueryEvent event = new RouteQueryEvent(ENDPOINT);
+        event.begin();
+        SearchTrace trace = SearchTrace.tee(explain != null ? explain : SearchTrace.NOOP, event);
+        try {
+            RouteResult result = route(region, startLat, startLon, endLat, endLon, format, tolerance, zoom,
+                    explain, engine, trace, event);
+            if (explain != null) result.explain = explain.toMap(planner.graph(region));
+            event.distanceMeters = result.distanceMeters;
+            return result;
+
+        } catch (TimeoutException e) {
+            throw new RouteTimeoutException("Timed out waiting for an identical route query", e);
+        } catch (RuntimeException e) {
+            throw e;
         } catch (Exception e) {
-            e.printStackTrace();
-            return new RouteResult(Double.POSITIVE_INFINITY, List.of());
+            throw new IllegalStateException("Routing failed", e);
+        } finally {
+            event.commit();
         }
     }
 
-
-    private long findNearestConnected(LazyGraph g, double lat, double lon) throws Exception {
-        String fromCol = "from_node";
-        String toCol = "to_node";
-
-        try (Statement st = g.getConnection().createStatement();
-             ResultSet rs = st.executeQuery("PRAGMA table_info(edges)")) {
-            while (rs.next()) {
-                String name = rs.getString("name").toLowerCase();
-                if (name.equals("source")) fromCol = "source";
-                if (name.equals("target")) toCol = "target";
-            }
+    private RouteResult route(Region region, double startLat, double startLon, double endLat, double endLon,
+                              RouteGeometry.Format format, Double tolerance, Integer zoom,
+                              ExplainTrace explain, String engine, SearchTrace trace,
+                              RouteQueryEvent event) throws Exception {
+        OsmNodeData s = planner.snap(ENDPOINT, region, "start", startLat, startLon, explain, trace);
+        OsmNodeData t = planner.snap(ENDPOINT, region, "end", endLat, endLon, explain, trace);
+        event.sourceNode = s == null ? -1 : s.getId();
+        event.targetNode = t == null ? -1 : t.getId();
+
+        if (s == null || t == null) {
+            log.debug("No connected node near start or end");
+            return new RouteResult(Double.POSITIVE_INFINITY, List.of());
         }
 
-        String sql = "SELECT n.id, n.lat, n.lon " +
-                "FROM nodes n " +
-                "WHERE EXISTS (SELECT 1 FROM edges e WHERE e." + fromCol + " = n.id OR e." + toCol + " = n.id) " +
-                "ORDER BY ((n.lat-?)*(n.lat-?) + (n.lon-?)*(n.lon-?)) ASC LIMIT 1";
-
-        try (PreparedStatement ps = g.getConnection().prepareStatement(sql)) {
-            ps.setDouble(1, lat);
-            ps.setDouble(2, lat);
-            ps.setDouble(3, lon);
-            ps.setDouble(4, lon);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return rs.getLong("id");
-            }
-        }
-        return -1;
+        log.debug("Routing node {} -> node {}", s.getId(), t.getId());
+
+        // timings and counters of an explained query must belong to this request, so no coalescing
+        Route r = planner.route(ENDPOINT, region, engine, s, t, trace, explain == null);
+        RouteGeometry geometry = r.geometry.simplify(r.geometry.tolerance(tolerance, zoom));
+        return new RouteResult(r.distanceMeters, geometry, format);
     }
 }
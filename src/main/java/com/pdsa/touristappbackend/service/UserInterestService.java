@@ -1,59 +1,97 @@
 package com.pdsa.touristappbackend.service;
 
-import com.pdsa.touristappbackend.model.User;
-import com.pdsa.touristappbackend.model.UserInterest;
 import com.pdsa.touristappbackend.repository.UserInterestRepository;
-import com.pdsa.touristappbackend.repository.InterestRepository;
 import com.pdsa.touristappbackend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Service class for managing user interests and calculating their weights.
- * This class interacts with UserInterestRepository, InterestRepository, and UserRepository
+ * This class interacts with UserInterestRepository and UserRepository
  * to fetch and process user interest data.
  * The main functionality includes retrieving a map of user interests with associated weights.
- * The weight is currently set to 1 for each interest, but this can be extended in the future.
+ * The weight is the rating the user gave the interest (1 when no rating was stored).
+ * Interests and ratings are loaded with one join query and cached per user for
+ * cache.user-interests.ttl-seconds; call evict(username) after changing a user's interests
+ * (UserService.register does for new users).
  * The service throws a RuntimeException if the user is not found.
  */
 @Service
 public class UserInterestService {
 
+    private static final int DEFAULT_WEIGHT = 1;
+    private static final int MAX_CACHED_USERS = 10_000;
+
     private final UserInterestRepository userInterestRepo;
-    private final InterestRepository interestRepo;
     private final UserRepository userRepo;
+    private final long ttlMillis;
+    private final Map<String, CachedWeights> cache = new ConcurrentHashMap<>();
 
     public UserInterestService(UserInterestRepository userInterestRepo,
-                               InterestRepository interestRepo,
-                               UserRepository userRepo) {
+                               UserRepository userRepo,
+                               @Value("${cache.user-interests.ttl-seconds:300}") long ttlSeconds) {
         this.userInterestRepo = userInterestRepo;
-        this.interestRepo = interestRepo;
         this.userRepo = userRepo;
+        this.ttlMillis = ttlSeconds * 1000;
     }
 
 
     public Map<String, Integer> getWeightedUserInterests(String username) {
-        Map<String, Integer> weights = new HashMap<>();
+        long now = System.currentTimeMillis();
+        CachedWeights cached = cache.get(username);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.weights;
+        }
+
+        Map<String, Integer> weights = loadWeights(username);
+        if (cache.size() >= MAX_CACHED_USERS) {
+            cache.values().removeIf(c -> c.expiresAt <= now);
+            if (cache.size() >= MAX_CACHED_USERS) cache.clear();
+        }
+        cache.put(username, new CachedWeights(weights, now + ttlMillis));
+        return weights;
+    }
+
+    public void evict(String username) {
+        cache.remove(username);
+    }
 
-        User user = userRepo.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+    public void evictAll() {
+        cache.clear();
+    }
 
-        List<UserInterest> uiList = userInterestRepo.findByUserId(user.getId());
+    private Map<String, Integer> loadWeights(String username) {
+        Map<String, Integer> weights = new HashMap<>();
 
-        for (UserInterest ui : uiList) {
-            // interestId -> interest name
-            var interest = interestRepo.findById(ui.getInterestId())
-                    .orElse(null);
+        List<UserInterestRepository.InterestRating> rows =
+                userInterestRepo.findInterestRatingsByUsername(username);
 
-            if (interest != null) {
-                // For now weight = 1 (you can extend later with rating column)
-                weights.put(interest.getName(), 1);
-            }
+        // no rows: either the user has no interests or does not exist
+        if (rows.isEmpty() && userRepo.findByUsername(username).isEmpty()) {
+            throw new RuntimeException("User not found: " + username);
         }
 
-        return weights;
+        for (UserInterestRepository.InterestRating row : rows) {
+            Integer rating = row.getRating();
+            weights.put(row.getName(), rating != null ? rating : DEFAULT_WEIGHT);
+        }
+
+        return Collections.unmodifiableMap(weights);
+    }
+
+    private static class CachedWeights {
+        final Map<String, Integer> weights;
+        final long expiresAt;
+
+        CachedWeights(Map<String, Integer> weights, long expiresAt) {
+            this.weights = weights;
+            this.expiresAt = expiresAt;
+        }
     }
 }
@@ -3,24 +3,29 @@ package com.pdsa.touristappbackend.service;
 import com.pdsa.touristappbackend.model.Interest;
 import com.pdsa.touristappbackend.model.User;
 import com.pdsa.touristappbackend.model.UserRegisterRequest;
-import com.pdsa.touristappbackend.repository.InterestRepository;
 import com.pdsa.touristappbackend.repository.UserRepository;
+import com.pdsa.touristappbackend.security.PasswordHasher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.HashSet;
+import java.util.Optional;
 import java.util.Set;
 
 /**
  * Service class for user-related operations such as registration and login.
  * Handles user creation, interest association, and credential validation.
- * Uses UserRepository and InterestRepository for database interactions.
+ * Passwords are stored as salted PBKDF2 hashes; legacy plain-text passwords are
+ * accepted once at login and re-stored hashed.
+ * Uses UserRepository for database interactions and InterestCatalog to resolve interest names from memory;
+ * an unknown name reloads the catalog once, as interests are added to the table outside the application.
+ * Registering evicts the user from UserInterestService's cache, so routing sees the new interests at once.
  * Throws RuntimeException for error cases like existing usernames or invalid credentials.
  * Methods:
  * - register(UserRegisterRequest request): Registers a new user with interests.
  * - login(String username, String password): Validates user credentials and returns the user.
  * @see UserRepository
- * @see InterestRepository
+ * @see InterestCatalog
  * @see User
  * @see Interest
  * @see UserRegisterRequest
@@ -32,7 +37,13 @@ public class UserService {
     private UserRepository userRepository;
 
     @Autowired
-    private InterestRepository interestRepository;
+    private InterestCatalog interestCatalog;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private UserInterestService userInterestService;
 
     public User register(UserRegisterRequest request) {
         // Check if username exists
@@ -42,23 +53,39 @@ public class UserService {
 
         User user = new User();
         user.setUsername(request.getUsername());
-        user.setPassword(request.getPassword());
+        user.setPassword(passwordHasher.hash(request.getPassword()));
 
         Set<Interest> userInterests = new HashSet<>();
         for (String interestName : request.getInterests()) {
-            Interest interest = interestRepository.findByName(interestName)
-                    .orElseThrow(() -> new RuntimeException("Invalid interest: " + interestName));
-            userInterests.add(interest);
+            userInterests.add(resolveInterest(interestName));
         }
 
         user.setInterests(userInterests);
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userInterestService.evict(saved.getUsername());
+        return saved;
+    }
+
+    // from the cached catalog, reloading it once for a name it does not know yet
+    private Interest resolveInterest(String interestName) {
+        Optional<Interest> interest = interestCatalog.findByName(interestName);
+        if (interest.isEmpty()) {
+            interestCatalog.invalidate();
+            interest = interestCatalog.findByName(interestName);
+        }
+        return interest.orElseThrow(() -> new RuntimeException("Invalid interest: " + interestName));
     }
 
     public User login(String username, String password) {
-        return userRepository.findByUsername(username)
-                .filter(u -> u.getPassword().equals(password))
+        User user = userRepository.findByUsername(username)
+                .filter(u -> passwordHasher.matches(password, u.getPassword()))
                 .orElseThrow(() -> new RuntimeException("Invalid credentials"));
+
+        if (!passwordHasher.isHashed(user.getPassword())) {
+            user.setPassword(passwordHasher.hash(password));
+            user = userRepository.save(user);
+        }
+        return user;
     }
 }
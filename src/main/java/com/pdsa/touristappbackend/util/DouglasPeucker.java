@@ -0,0 +1,68 @@
+package com.pdsa.touristappbackend.util;
+
+import java.util.Arrays;
+
+
+/**
+ * Utility class for Douglas-Peucker line simplification on lat/lon arrays.
+ * Keeps the end points and recursively keeps the point farthest from the chord while it is
+ * more than the tolerance away; everything closer is dropped.
+ * Distances are measured in meters on a local equirectangular projection, which is accurate
+ * for city-scale routes. Implemented with an explicit stack so long routes cannot overflow.
+ * Usage: boolean[] keep = DouglasPeucker.simplify(lats, lons, count, toleranceMeters)
+ */
+public final class DouglasPeucker {
+    private static final double METERS_PER_DEG = 111_320.0;
+    private DouglasPeucker() {}
+
+    public static boolean[] simplify(double[] lats, double[] lons, int count, double toleranceMeters) {
+        boolean[] keep = new boolean[count];
+        if (count == 0) return keep;
+        keep[0] = true;
+        keep[count - 1] = true;
+        if (count < 3 || toleranceMeters <= 0) {
+            Arrays.fill(keep, true);
+            return keep;
+        }
+
+        double kx = METERS_PER_DEG * Math.cos(Math.toRadians(lats[0]));
+        double tol2 = toleranceMeters * toleranceMeters;
+
+        int[] stack = new int[2 * count];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = count - 1;
+
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+
+            double ax = lons[first] * kx, ay = lats[first] * METERS_PER_DEG;
+            double bx = lons[last] * kx, by = lats[last] * METERS_PER_DEG;
+            double dx = bx - ax, dy = by - ay;
+            double len2 = dx * dx + dy * dy;
+
+            double maxD2 = -1;
+            int index = -1;
+            for (int i = first + 1; i < last; i++) {
+                double px = lons[i] * kx - ax, py = lats[i] * METERS_PER_DEG - ay;
+                double t = len2 == 0 ? 0 : Math.max(0, Math.min(1, (px * dx + py * dy) / len2));
+                double ex = px - t * dx, ey = py - t * dy;
+                double d2 = ex * ex + ey * ey;
+                if (d2 > maxD2) {
+                    maxD2 = d2;
+                    index = i;
+                }
+            }
+
+            if (index != -1 && maxD2 > tol2) {
+                keep[index] = true;
+                stack[top++] = first;
+                stack[top++] = index;
+                stack[top++] = index;
+                stack[top++] = last;
+            }
+        }
+        return keep;
+    }
+}
@@ -0,0 +1,56 @@
+package com.pdsa.touristappbackend.util;
+
+/**
+ * Position of a grid cell along a Hilbert curve.
+ * The curve visits every cell of a 2^order x 2^order grid once and consecutive positions are
+ * always adjacent cells, so sorting points by their position keeps nearby points close together.
+ * Reference: https://en.wikipedia.org/wiki/Hilbert_curve (xy2d)
+ * Usage: HilbertCurve.index(HilbertCurve.cell(lon, minLon, maxLon), HilbertCurve.cell(lat, minLat, maxLat))
+ */
+public final class HilbertCurve {
+
+    // 2^15 cells per side: ~13 m cells over the whole island, positions fit in 30 bits
+    public static final int ORDER = 15;
+    private static final int SIDE = 1 << ORDER;
+
+    private HilbertCurve() {}
+
+    /**
+     * Grid cell of a coordinate within a range
+     * @param v - coordinate
+     * @param min - lower end of the range
+     * @param max - upper end of the range
+     * @return cell in [0, 2^ORDER)
+     */
+    public static int cell(double v, double min, double max) {
+        if (max <= min) return 0;
+        int c = (int) ((v - min) / (max - min) * SIDE);
+        return Math.max(0, Math.min(SIDE - 1, c));
+    }
+
+    /**
+     * Position of cell (x, y) along the curve
+     * @param x - column in [0, 2^ORDER)
+     * @param y - row in [0, 2^ORDER)
+     * @return position in [0, 4^ORDER)
+     */
+    public static long index(int x, int y) {
+        long d = 0;
+        for (int s = SIDE / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant so the curve stays continuous
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = SIDE - 1 - x;
+                    y = SIDE - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+}
@@ -0,0 +1,37 @@
+package com.pdsa.touristappbackend.util;
+
+
+/**
+ * Utility class for the encoded polyline format (precision 5), as used by Google Maps, OSRM and Leaflet plugins.
+ * Each coordinate is stored as the zig-zag encoded delta from the previous one in 5-bit chunks,
+ * so a route shape costs a few bytes per point instead of a JSON object.
+ * Reference: https://developers.google.com/maps/documentation/utilities/polylinealgorithm
+ * Usage: Polyline.encode(lats, lons, count)
+ */
+public final class Polyline {
+    private static final double FACTOR = 1e5;
+    private Polyline() {}
+
+    public static String encode(double[] lats, double[] lons, int count) {
+        StringBuilder sb = new StringBuilder(count * 8);
+        long prevLat = 0, prevLon = 0;
+        for (int i = 0; i < count; i++) {
+            long lat = Math.round(lats[i] * FACTOR);
+            long lon = Math.round(lons[i] * FACTOR);
+            encodeValue(lat - prevLat, sb);
+            encodeValue(lon - prevLon, sb);
+            prevLat = lat;
+            prevLon = lon;
+        }
+        return sb.toString();
+    }
+
+    private static void encodeValue(long v, StringBuilder sb) {
+        v = v < 0 ? ~(v << 1) : v << 1;
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+}
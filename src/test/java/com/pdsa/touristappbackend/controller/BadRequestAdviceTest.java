@@ -0,0 +1,165 @@
+package com.pdsa.touristappbackend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdsa.touristappbackend.config.RoutingConfigProperties;
+import com.pdsa.touristappbackend.routing.*;
+import com.pdsa.touristappbackend.routing.engine.AStarEngine;
+import com.pdsa.touristappbackend.routing.engine.BidirectionalAStarEngine;
+import com.pdsa.touristappbackend.routing.engine.RoutePlanner;
+import com.pdsa.touristappbackend.routing.engine.RoutingEngines;
+import com.pdsa.touristappbackend.security.TokenService;
+import com.pdsa.touristappbackend.service.PoiRankingService;
+import com.pdsa.touristappbackend.service.UserInterestService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class BadRequestAdviceTest {
+
+    private static final String SECRET = "test-secret-of-reasonable-length-0123456789";
+
+    @TempDir
+    static Path dir;
+
+    // a region whose graph has nodes but no roads
+    static LazyGraph roadless;
+
+    MockMvc mvc;
+    String token;
+
+    @BeforeAll
+    static void load() throws Exception {
+        roadless = TestGraphs.write(dir.resolve("roadless.db"), new long[]{1, 2}, new double[]{6.9, 6.91},
+                new double[]{79.85, 79.86}, new long[0][]);
+    }
+
+    @AfterAll
+    static void close() {
+        roadless.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        RoutingConfigProperties cfg = new RoutingConfigProperties();
+        cfg.getRegions().put("colombo", region(6.8, 79.8, 7.0, 80.0));
+        cfg.getRegions().put("kandy", region(7.2, 80.5, 7.4, 80.7));
+        GraphProvider graphs = mock(GraphProvider.class);
+        when(graphs.regions()).thenReturn(new RegionRegistry(cfg));
+        when(graphs.getLazyGraph(any())).thenReturn(roadless);
+
+        RoutingMetrics metrics = new RoutingMetrics(new SimpleMeterRegistry());
+        RoutingEngines engines = new RoutingEngines(List.of(new AStarEngine(), new BidirectionalAStarEngine()), cfg);
+        RoutePlanner planner = new RoutePlanner(graphs, engines, mock(SearchExecutor.class), metrics, cfg);
+        TokenService tokens = new TokenService(SECRET, 3600);
+        token = tokens.issue(1, "ann").token;
+        UserInterestService interests = mock(UserInterestService.class);
+        when(interests.getWeightedUserInterests("ann")).thenReturn(Map.of("temple", 5));
+
+        mvc = MockMvcBuilders.standaloneSetup(
+                        new MultiStopController(planner, new ObjectMapper()),
+                        new RoutePoiController(planner, interests, mock(PoiRankingService.class), tokens, metrics))
+                .setControllerAdvice(new BadRequestAdvice())
+                .build();
+    }
+
+    private static RoutingConfigProperties.RegionProperties region(double minLat, double minLon, double maxLat, double maxLon) {
+        RoutingConfigProperties.RegionProperties r = new RoutingConfigProperties.RegionProperties();
+        r.setSqlitePath("unused.db");
+        r.setMinlat(minLat);
+        r.setMinlon(minLon);
+        r.setMaxlat(maxLat);
+        r.setMaxlon(maxLon);
+        return r;
+    }
+
+    private ResultActions multiStop(String path, double endLat, double endLon, String... extra) throws Exception {
+        var request = get("/api/route/" + path)
+                .param("startLat", "6.9").param("startLon", "79.85")
+                .param("stopLat", "6.92").param("stopLon", "79.87")
+                .param("endLat", String.valueOf(endLat)).param("endLon", String.valueOf(endLon));
+        for (int i = 0; i < extra.length; i += 2) request.param(extra[i], extra[i + 1]);
+        return mvc.perform(request);
+    }
+
+    private ResultActions poi(double endLat, double endLon, String... extra) throws Exception {
+        var request = get("/api/route/poi").param("token", token)
+                .param("startLat", "6.9").param("startLon", "79.85")
+                .param("endLat", String.valueOf(endLat)).param("endLon", String.valueOf(endLon));
+        for (int i = 0; i < extra.length; i += 2) request.param(extra[i], extra[i + 1]);
+        return mvc.perform(request);
+    }
+
+    @Test
+    void outOfRegionPointsAreBadRequests() throws Exception {
+        multiStop("multi-stop", 1.0, 1.0)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", containsString("1.0, 1.0")));
+        multiStop("multi-stop/stream", 1.0, 1.0)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", containsString("1.0, 1.0")));
+        poi(1.0, 1.0)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", containsString("1.0, 1.0")));
+    }
+
+    @Test
+    void pointsInDifferentRegionsAreBadRequests() throws Exception {
+        multiStop("multi-stop", 7.3, 80.6)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", containsString("different regions")));
+        poi(7.3, 80.6)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", containsString("different regions")));
+    }
+
+    @Test
+    void noRoadNearAPointIsABadRequest() throws Exception {
+        multiStop("multi-stop", 6.95, 79.9)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("No road near the start point"));
+        poi(6.95, 79.9)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("No road near the start point"));
+    }
+
+    @Test
+    void unknownEngineIsABadRequest() throws Exception {
+        for (String path : new String[]{"multi-stop", "multi-stop/stream"}) {
+            multiStop(path, 6.95, 79.9, "engine", "dijkstra")
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error", containsString("Unknown routing engine: dijkstra")));
+        }
+        poi(6.95, 79.9, "engine", "dijkstra")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", containsString("Unknown routing engine: dijkstra")));
+    }
+
+    @Test
+    void unknownGeometryFormatIsABadRequest() throws Exception {
+        for (String path : new String[]{"multi-stop", "multi-stop/stream"}) {
+            multiStop(path, 6.95, 79.9, "format", "geojson")
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error").value("Unknown geometry format: geojson"));
+        }
+        poi(6.95, 79.9, "format", "geojson")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unknown geometry format: geojson"));
+    }
+}
@@ -0,0 +1,161 @@
+package com.pdsa.touristappbackend.routing;
+
+import com.pdsa.touristappbackend.util.Haversine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsrGraphTest {
+
+    @TempDir
+    Path dir;
+
+    // each edge as "from->to" in OSM ids, with its multiplicity
+    private static Map<String, Integer> count(List<long[]> edges) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (long[] e : edges) counts.merge(e[0] + "->" + e[1], 1, Integer::sum);
+        return counts;
+    }
+
+    private static List<long[]> decode(CsrGraph csr, boolean incoming) {
+        List<long[]> edges = new ArrayList<>();
+        CsrGraph.EdgeCursor c = new CsrGraph.EdgeCursor();
+        for (int i = 0; i < csr.size(); i++) {
+            if (incoming) csr.in(i, c);
+            else csr.out(i, c);
+            while (c.next()) {
+                int other = c.node();
+                assertTrue(other >= 0 && other < csr.size(), "decoded node " + other);
+                edges.add(incoming ? new long[]{csr.osmId(other), csr.osmId(i)} : new long[]{csr.osmId(i), csr.osmId(other)});
+            }
+        }
+        return edges;
+    }
+
+    @Test
+    void smallGraphRoundTrips() throws Exception {
+        // ids far apart, negative and near the long limits; 2 -> 3 twice, 3 -> 1 one-way, one edge to a missing node
+        long[] ids = {-7, 42, 5_000_000_000L, Long.MAX_VALUE - 1};
+        double[] lat = {6.9, 6.9012345, 7.2, 6.91};
+        double[] lon = {79.85, 79.8601, 80.6, 79.8512345};
+        long[][] edges = {
+                {-7, 42}, {42, -7},
+                {42, 5_000_000_000L}, {42, 5_000_000_000L},
+                {5_000_000_000L, Long.MAX_VALUE - 1},
+                {Long.MAX_VALUE - 1, -7},
+                {42, 99},
+        };
+        LazyGraph g = TestGraphs.write(dir.resolve("small.db"), ids, lat, lon, edges);
+        try {
+            CsrGraph csr = g.csr();
+            assertEquals(4, csr.size());
+            assertEquals(6, csr.edgeCount());
+            for (int k = 0; k < ids.length; k++) {
+                int i = csr.index(ids[k]);
+                assertTrue(i >= 0);
+                assertEquals(ids[k], csr.osmId(i));
+                assertEquals(lat[k], csr.lat(i), 0.6e-7);
+                assertEquals(lon[k], csr.lon(i), 0.6e-7);
+            }
+            assertEquals(-1, csr.index(99));
+            assertEquals(-1, csr.index(Long.MAX_VALUE));
+            assertEquals(-1, csr.index(Long.MIN_VALUE));
+
+            List<long[]> expected = List.of(edges).subList(0, 6);
+            assertEquals(count(expected), count(decode(csr, false)));
+            assertEquals(count(expected), count(decode(csr, true)));
+
+            int a = csr.index(-7), b = csr.index(42), c = csr.index(5_000_000_000L), d = csr.index(Long.MAX_VALUE - 1);
+            assertTrue(csr.hasOutgoing(a) && csr.hasOutgoing(b) && csr.hasOutgoing(c) && csr.hasOutgoing(d));
+            // one-way: the reverse edge does not exist
+            assertFalse(Double.isNaN(csr.weight(d, a)));
+            assertTrue(Double.isNaN(csr.weight(a, d)));
+            // the ~80 km edge needs a multi-byte weight varint
+            assertTrue(csr.weight(b, c) > 50_000);
+        } finally {
+            g.close();
+        }
+    }
+
+    @Test
+    void randomGraphRoundTrips() throws Exception {
+        Random rnd = new Random(11);
+        int n = 3000;
+        long[] ids = new long[n];
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        Set<Long> used = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            do ids[i] = rnd.nextBoolean() ? rnd.nextLong() : rnd.nextInt(1_000_000); while (!used.add(ids[i]));
+            lat[i] = 5.9 + rnd.nextDouble() * 4;
+            lon[i] = 79.5 + rnd.nextDouble() * 2.4;
+        }
+        // random pairs: index deltas of every size and sign, far and near neighbours, some repeated
+        List<long[]> edges = new ArrayList<>();
+        for (int e = 0; e < 6 * n; e++) {
+            int u = rnd.nextInt(n);
+            int v = rnd.nextInt(4) == 0 ? rnd.nextInt(n) : Math.floorMod(u + rnd.nextInt(21) - 10, n);
+            if (u == v) continue;
+            edges.add(new long[]{ids[u], ids[v]});
+            if (rnd.nextInt(20) == 0) edges.add(new long[]{ids[u], ids[v]});
+        }
+        LazyGraph g = TestGraphs.write(dir.resolve("random.db"), ids, lat, lon, edges.toArray(new long[0][]));
+        try {
+            CsrGraph csr = g.csr();
+            assertEquals(n, csr.size());
+            assertEquals(edges.size(), csr.edgeCount());
+            for (int k = 0; k < n; k++) assertEquals(ids[k], csr.osmId(csr.index(ids[k])));
+            assertEquals(count(edges), count(decode(csr, false)));
+            assertEquals(count(edges), count(decode(csr, true)));
+        } finally {
+            g.close();
+        }
+    }
+
+    @Test
+    void weightIsTheDistanceRoundedUpToDecimetres() throws Exception {
+        LazyGraph g = TestGraphs.grid(dir, 30, 3);
+        try {
+            CsrGraph csr = g.csr();
+            CsrGraph.EdgeCursor c = new CsrGraph.EdgeCursor();
+            int checked = 0;
+            for (int u = 0; u < csr.size(); u++) {
+                for (csr.out(u, c); c.next(); ) {
+                    int v = c.node();
+                    double w = c.meters();
+                    double d = csr.distance(u, v);
+                    // never below the heuristic, so A* stays admissible
+                    assertTrue(w >= d, w + " < " + d);
+                    assertTrue(w - d < 0.1 + 1e-9, w + " vs " + d);
+                    assertEquals(Math.round(w * 10), w * 10, 1e-9);
+                    assertEquals(w, csr.weight(u, v));
+                    assertEquals(d, Haversine.meters(csr.lat(u), csr.lon(u), csr.lat(v), csr.lon(v)));
+                    checked++;
+                }
+            }
+            assertEquals(csr.edgeCount(), checked);
+        } finally {
+            g.close();
+        }
+    }
+
+    @Test
+    void nodesCloseOnTheMapGetCloseIndexes() throws Exception {
+        LazyGraph g = TestGraphs.grid(dir, 32, 4);
+        try {
+            CsrGraph csr = g.csr();
+            // Hilbert order: consecutive indexes are grid neighbours (~110 m apart) far more often than not
+            int near = 0;
+            for (int i = 0; i + 1 < csr.size(); i++) {
+                if (csr.distance(i, i + 1) < 250) near++;
+            }
+            assertTrue(near > 0.9 * (csr.size() - 1), near + " of " + (csr.size() - 1));
+        } finally {
+            g.close();
+        }
+    }
+}
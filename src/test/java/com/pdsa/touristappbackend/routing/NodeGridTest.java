@@ -0,0 +1,102 @@
+package com.pdsa.touristappbackend.routing;
+
+import com.pdsa.touristappbackend.util.Haversine;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeGridTest {
+
+    @TempDir
+    static Path dir;
+
+    static CsrGraph csr;
+
+    @BeforeAll
+    static void load() throws Exception {
+        csr = TestGraphs.grid(dir, 25, 5).csr();
+    }
+
+    @Test
+    void nearestMatchesLinearScan() {
+        Random rnd = new Random(1);
+        // cells from much smaller to much larger than the node spacing (about 100 m)
+        for (double cell : new double[]{0.0002, 0.001, 0.005, 0.05}) {
+            NodeGrid grid = new NodeGrid(csr, cell, csr::hasOutgoing);
+            for (int q = 0; q < 300; q++) {
+                // inside the grid and up to a few km outside it
+                double lat = 6.9 - 0.02 + rnd.nextDouble() * 0.065;
+                double lon = 79.85 - 0.02 + rnd.nextDouble() * 0.065;
+                int got = grid.nearest(lat, lon);
+                assertTrue(got >= 0 && csr.hasOutgoing(got));
+                assertEquals(scan(lat, lon), meters(got, lat, lon), 1e-9, "cell " + cell + " at " + lat + "," + lon);
+            }
+        }
+    }
+
+    @Test
+    void boundedNearestMatchesLinearScanWithinTheRadius() {
+        Random rnd = new Random(2);
+        for (double cell : new double[]{0.0002, 0.001, 0.005, 0.05}) {
+            NodeGrid grid = new NodeGrid(csr, cell, csr::hasOutgoing);
+            for (int q = 0; q < 300; q++) {
+                // up to about 10 km outside the grid, where most points have no node in reach
+                double lat = 6.9 - 0.1 + rnd.nextDouble() * 0.225;
+                double lon = 79.85 - 0.1 + rnd.nextDouble() * 0.225;
+                double radius = 50 + rnd.nextDouble() * 2000;
+                int got = grid.nearest(lat, lon, radius);
+                double best = scan(lat, lon);
+                if (best > radius) {
+                    assertEquals(-1, got, "cell " + cell + " at " + lat + "," + lon + " within " + radius);
+                } else {
+                    assertTrue(got >= 0 && csr.hasOutgoing(got));
+                    assertEquals(best, meters(got, lat, lon), 1e-9, "cell " + cell + " at " + lat + "," + lon);
+                }
+            }
+        }
+        // a node exactly at the radius is found
+        NodeGrid grid = new NodeGrid(csr, NodeGrid.DEFAULT_CELL_SIZE_DEG, csr::hasOutgoing);
+        int i = grid.nearest(6.95, 79.9);
+        double d = meters(i, 6.95, 79.9);
+        assertEquals(i, grid.nearest(6.95, 79.9, d));
+        assertEquals(-1, grid.nearest(6.95, 79.9, Math.nextDown(d)));
+    }
+
+    @Test
+    void onlyIndexesIncludedNodes() {
+        NodeGrid grid = new NodeGrid(csr, NodeGrid.DEFAULT_CELL_SIZE_DEG, i -> i % 3 == 0);
+        for (int i = 0; i < csr.size(); i++) {
+            assertEquals(0, grid.nearest(csr.lat(i), csr.lon(i)) % 3);
+        }
+    }
+
+    @Test
+    void emptyGridFindsNothing() {
+        NodeGrid grid = new NodeGrid(csr, NodeGrid.DEFAULT_CELL_SIZE_DEG, i -> false);
+        assertEquals(0, grid.size());
+        assertEquals(-1, grid.nearest(6.9, 79.85));
+        assertEquals(-1, grid.nearest(6.9, 79.85, 1000));
+    }
+
+    @Test
+    void rejectsNonPositiveCellSize() {
+        assertThrows(IllegalArgumentException.class, () -> new NodeGrid(csr, 0, i -> true));
+    }
+
+    private static double scan(double lat, double lon) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < csr.size(); i++) {
+            if (csr.hasOutgoing(i)) best = Math.min(best, meters(i, lat, lon));
+        }
+        return best;
+    }
+
+    private static double meters(int i, double lat, double lon) {
+        return Haversine.meters(lat, lon, csr.lat(i), csr.lon(i));
+    }
+}
@@ -0,0 +1,114 @@
+package com.pdsa.touristappbackend.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoadOverlayTest {
+
+    private static final long NEVER = Long.MAX_VALUE;
+    private static final double CLOSED = Double.POSITIVE_INFINITY;
+
+    @Test
+    void emptyOverlayTouchesNothing() {
+        assertTrue(RoadOverlay.NONE.isEmpty());
+        assertFalse(RoadOverlay.NONE.touches(0));
+        assertFalse(RoadOverlay.NONE.touches(1_000_000));
+        assertEquals(0, RoadOverlay.NONE.penalty(3, 4));
+
+        RoadOverlay empty = new RoadOverlay.Builder(100).build();
+        assertTrue(empty.isEmpty());
+        assertFalse(empty.touches(99));
+        assertEquals(0, empty.penalty(1, 2));
+    }
+
+    @Test
+    void penaltiesOnOneEdgeAddUp() {
+        RoadOverlay ov = new RoadOverlay.Builder(10)
+                .add(1, 2, 100, NEVER)
+                .add(1, 2, 250, NEVER)
+                .add(2, 1, 40, NEVER)
+                .build();
+        assertEquals(3, ov.size());
+        assertEquals(350, ov.penalty(1, 2));
+        // directed: the opposite edge only has its own entry
+        assertEquals(40, ov.penalty(2, 1));
+        assertEquals(0, ov.penalty(1, 3));
+        assertTrue(ov.touches(1));
+        assertTrue(ov.touches(2));
+        assertFalse(ov.touches(3));
+    }
+
+    @Test
+    void closureWinsOverPenalties() {
+        RoadOverlay ov = new RoadOverlay.Builder(10)
+                .add(4, 5, 100, NEVER)
+                .add(4, 5, CLOSED, NEVER)
+                .add(4, 5, 30, NEVER)
+                .build();
+        assertEquals(CLOSED, ov.penalty(4, 5));
+    }
+
+    @Test
+    void expiredEntriesStopApplyingAtLookup() throws Exception {
+        long soon = System.currentTimeMillis() + 200;
+        RoadOverlay ov = new RoadOverlay.Builder(10)
+                .add(1, 2, CLOSED, soon)
+                .add(1, 2, 75, NEVER)
+                .add(3, 4, 20, soon)
+                .add(5, 6, 10, System.currentTimeMillis() - 1)
+                .build();
+        assertEquals(CLOSED, ov.penalty(1, 2));
+        assertEquals(20, ov.penalty(3, 4));
+        assertEquals(0, ov.penalty(5, 6));
+
+        while (System.currentTimeMillis() <= soon) Thread.sleep(soon - System.currentTimeMillis() + 1);
+        // the closure lapsed, the penalty under it remains
+        assertEquals(75, ov.penalty(1, 2));
+        assertEquals(0, ov.penalty(3, 4));
+        // touches() is only a filter: it stays set until the overlay is rebuilt
+        assertTrue(ov.touches(3));
+    }
+
+    @Test
+    void lookupsProbePastCollidingEdges() {
+        int nodes = 5000;
+        Random rnd = new Random(8);
+        RoadOverlay.Builder b = new RoadOverlay.Builder(nodes);
+        Map<Long, Double> expected = new HashMap<>();
+        // clustered around a few sources so many keys share slots and probe runs overlap
+        for (int e = 0; e < 3000; e++) {
+            int from = rnd.nextInt(40) * 100 + rnd.nextInt(3);
+            int to = rnd.nextInt(nodes);
+            double penalty = rnd.nextInt(10) == 0 ? CLOSED : rnd.nextInt(500);
+            b.add(from, to, penalty, NEVER);
+            expected.merge((long) from * nodes + to, penalty, Double::sum);
+        }
+        RoadOverlay ov = b.build();
+        for (Map.Entry<Long, Double> e : expected.entrySet()) {
+            int from = (int) (e.getKey() / nodes), to = (int) (e.getKey() % nodes);
+            assertTrue(ov.touches(from));
+            assertEquals(e.getValue(), ov.penalty(from, to), from + " -> " + to);
+        }
+        // edges without an entry, from marked and unmarked nodes alike
+        for (int k = 0; k < 20_000; k++) {
+            int from = rnd.nextInt(nodes), to = rnd.nextInt(nodes);
+            if (expected.containsKey((long) from * nodes + to)) continue;
+            assertEquals(0, ov.penalty(from, to), from + " -> " + to);
+        }
+    }
+
+    @Test
+    void builderRejectsBadEntries() {
+        RoadOverlay.Builder b = new RoadOverlay.Builder(10);
+        assertThrows(IllegalArgumentException.class, () -> b.add(-1, 2, 10, NEVER));
+        assertThrows(IllegalArgumentException.class, () -> b.add(1, 10, 10, NEVER));
+        assertThrows(IllegalArgumentException.class, () -> b.add(1, 2, -5, NEVER));
+        assertThrows(IllegalArgumentException.class, () -> b.add(1, 2, Double.NaN, NEVER));
+        assertTrue(b.build().isEmpty());
+    }
+}
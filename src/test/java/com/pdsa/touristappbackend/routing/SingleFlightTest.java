@@ -0,0 +1,152 @@
+package com.pdsa.touristappbackend.routing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+    private final CountDownLatch leaderStarted = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        pool.shutdownNow();
+    }
+
+    // leader task: signals it is running, then waits for the test to let it finish
+    private <V> Callable<V> blocking(Callable<V> result) {
+        return () -> {
+            leaderStarted.countDown();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return result.call();
+        };
+    }
+
+    // a waiter is parked on the leader's future once its thread sits in a timed wait
+    private static void awaitParked(List<Thread> threads) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (Thread t : threads) {
+            while (t.getState() != Thread.State.TIMED_WAITING) {
+                assertTrue(System.nanoTime() < deadline, t + " never waited");
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    private <V> Future<V> waiter(SingleFlight<String, V> flight, String key, Callable<V> task, List<Thread> threads) {
+        CountDownLatch registered = new CountDownLatch(1);
+        Future<V> f = pool.submit(() -> {
+            synchronized (threads) {
+                threads.add(Thread.currentThread());
+            }
+            registered.countDown();
+            return flight.execute(key, task);
+        });
+        try {
+            assertTrue(registered.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+        return f;
+    }
+
+    @Test
+    void waitersShareTheLeadersResult() throws Exception {
+        SingleFlight<String, Object> flight = new SingleFlight<>(10_000);
+        AtomicInteger runs = new AtomicInteger();
+        Object value = new Object();
+
+        Future<Object> leader = pool.submit(() -> flight.execute("a", blocking(() -> {
+            runs.incrementAndGet();
+            return value;
+        })));
+        assertTrue(leaderStarted.await(10, TimeUnit.SECONDS));
+        assertEquals(1, flight.inFlightCount());
+
+        List<Thread> threads = new ArrayList<>();
+        List<Future<Object>> waiters = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            waiters.add(waiter(flight, "a", () -> {
+                runs.incrementAndGet();
+                return new Object();
+            }, threads));
+        }
+        awaitParked(threads);
+        release.countDown();
+
+        assertSame(value, leader.get(10, TimeUnit.SECONDS));
+        for (Future<Object> w : waiters) assertSame(value, w.get(10, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+        assertEquals(0, flight.inFlightCount());
+    }
+
+    @Test
+    void otherKeysDoNotWait() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(10_000);
+        Future<String> leader = pool.submit(() -> flight.execute("a", blocking(() -> "a")));
+        assertTrue(leaderStarted.await(10, TimeUnit.SECONDS));
+
+        assertEquals("b", flight.execute("b", () -> "b"));
+        assertEquals(1, flight.inFlightCount());
+
+        release.countDown();
+        assertEquals("a", leader.get(10, TimeUnit.SECONDS));
+        assertEquals(0, flight.inFlightCount());
+    }
+
+    @Test
+    void waiterTimesOutWhileLeaderKeepsRunning() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(50);
+        Future<String> leader = pool.submit(() -> flight.execute("a", blocking(() -> "done")));
+        assertTrue(leaderStarted.await(10, TimeUnit.SECONDS));
+
+        AtomicInteger runs = new AtomicInteger();
+        long start = System.nanoTime();
+        assertThrows(TimeoutException.class, () -> flight.execute("a", () -> {
+            runs.incrementAndGet();
+            return "waiter";
+        }));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(0, runs.get());
+        assertFalse(leader.isDone());
+        assertEquals(1, flight.inFlightCount());
+
+        release.countDown();
+        assertEquals("done", leader.get(10, TimeUnit.SECONDS));
+        assertEquals(0, flight.inFlightCount());
+    }
+
+    @Test
+    void leaderFailureReachesWaitersAndClearsTheKey() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(10_000);
+        IllegalStateException failure = new IllegalStateException("no route");
+        Future<String> leader = pool.submit(() -> flight.execute("a", blocking(() -> {
+            throw failure;
+        })));
+        assertTrue(leaderStarted.await(10, TimeUnit.SECONDS));
+
+        List<Thread> threads = new ArrayList<>();
+        Future<String> waiter = waiter(flight, "a", () -> "waiter", threads);
+        awaitParked(threads);
+        release.countDown();
+
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(10, TimeUnit.SECONDS));
+        assertSame(failure, leaderError.getCause());
+        ExecutionException waiterError = assertThrows(ExecutionException.class, () -> waiter.get(10, TimeUnit.SECONDS));
+        assertSame(failure, waiterError.getCause());
+
+        // the failed flight is gone, the next caller leads a fresh one
+        assertEquals(0, flight.inFlightCount());
+        assertEquals("retry", flight.execute("a", () -> "retry"));
+        assertEquals(0, flight.inFlightCount());
+    }
+}
@@ -0,0 +1,96 @@
+package com.pdsa.touristappbackend.routing;
+
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Small road databases in the nodes/edges schema LazyGraph reads, for unit tests.
+ * Usage:
+ * LazyGraph g = TestGraphs.grid(tempDir, 20, 7);
+ * LazyGraph h = TestGraphs.write(tempDir.resolve("x.db"), ids, lat, lon, edges);
+ */
+public final class TestGraphs {
+
+    private TestGraphs() {}
+
+    /**
+     * Write nodes and edges to a new SQLite file and load it
+     * @param db - file to create
+     * @param ids - node ids
+     * @param lat - node latitudes
+     * @param lon - node longitudes
+     * @param edges - {from id, to id} per directed edge, repeats allowed
+     * @return the loaded graph
+     * @throws Exception - if writing or loading fails
+     */
+    public static LazyGraph write(Path db, long[] ids, double[] lat, double[] lon, long[][] edges) throws Exception {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + db)) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE TABLE nodes (id INTEGER PRIMARY KEY, lat REAL, lon REAL)");
+                st.execute("CREATE TABLE edges (from_node INTEGER, to_node INTEGER)");
+            }
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO nodes VALUES (?, ?, ?)")) {
+                for (int i = 0; i < ids.length; i++) {
+                    ps.setLong(1, ids[i]);
+                    ps.setDouble(2, lat[i]);
+                    ps.setDouble(3, lon[i]);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO edges VALUES (?, ?)")) {
+                for (long[] e : edges) {
+                    ps.setLong(1, e[0]);
+                    ps.setLong(2, e[1]);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+        }
+        return new LazyGraph(db.toString());
+    }
+
+    /**
+     * Jittered side x side grid near Colombo with ids far apart and out of order, some streets
+     * missing and some one-way
+     * @param dir - directory for the database
+     * @param side - nodes per row
+     * @param seed - random seed
+     * @return the loaded graph
+     * @throws Exception - if writing or loading fails
+     */
+    public static LazyGraph grid(Path dir, int side, long seed) throws Exception {
+        Random rnd = new Random(seed);
+        int n = side * side;
+        long[] ids = new long[n];
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            // large, uneven gaps: OSM ids are sparse and unrelated to position
+            ids[i] = 1_000_000_000L + (long) (n - i) * 7919 + rnd.nextInt(1000);
+            lat[i] = 6.9 + (i / side + rnd.nextDouble() * 0.4) * 0.001;
+            lon[i] = 79.85 + (i % side + rnd.nextDouble() * 0.4) * 0.001;
+        }
+        long[][] edges = new long[4 * n][];
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            int[] next = {i % side + 1 < side ? i + 1 : -1, i + side < n ? i + side : -1};
+            for (int j : next) {
+                if (j < 0) continue;
+                double u = rnd.nextDouble();
+                if (u < 0.1) continue;
+                if (u < 0.4) {
+                    edges[m++] = rnd.nextBoolean() ? new long[]{ids[i], ids[j]} : new long[]{ids[j], ids[i]};
+                } else {
+                    edges[m++] = new long[]{ids[i], ids[j]};
+                    edges[m++] = new long[]{ids[j], ids[i]};
+                }
+            }
+        }
+        return write(dir.resolve("grid-" + side + "-" + seed + ".db"), ids, lat, lon, Arrays.copyOf(edges, m));
+    }
+}
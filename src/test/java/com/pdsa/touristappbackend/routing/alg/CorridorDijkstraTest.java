@@ -0,0 +1,140 @@
+package com.pdsa.touristappbackend.routing.alg;
+
+import com.pdsa.touristappbackend.model.Edge;
+import com.pdsa.touristappbackend.routing.CsrGraph;
+import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.RoadOverlay;
+import com.pdsa.touristappbackend.routing.SearchStats;
+import com.pdsa.touristappbackend.routing.TestGraphs;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CorridorDijkstraTest {
+
+    private static final double BOUND = 400;
+
+    @TempDir
+    static Path dir;
+
+    static LazyGraph g;
+    static int[] corridor;
+
+    @BeforeAll
+    static void load() throws Exception {
+        g = TestGraphs.grid(dir, 20, 3);
+        CsrGraph csr = g.csr();
+        List<Long> route = AStar.shortestPath(g, csr.osmId(0), csr.osmId(csr.size() - 1)).getPathNodeIds();
+        assertFalse(route.isEmpty());
+        corridor = route.stream().mapToInt(csr::index).toArray();
+    }
+
+    @Test
+    void forwardMatchesMultiSourceReference() {
+        check(false);
+    }
+
+    @Test
+    void reverseMatchesMultiSourceReference() {
+        check(true);
+    }
+
+    @Test
+    void honoursClosuresAndPenaltiesInBothDirections() {
+        CsrGraph csr = g.csr();
+        Random rnd = new Random(11);
+        RoadOverlay.Builder b = new RoadOverlay.Builder(csr.size());
+        CsrGraph.EdgeCursor c = new CsrGraph.EdgeCursor();
+        long expires = System.currentTimeMillis() + 3_600_000;
+        for (int u = 0; u < csr.size(); u++) {
+            for (csr.out(u, c); c.next(); ) {
+                double r = rnd.nextDouble();
+                if (r < 0.05) b.add(u, c.node(), Double.POSITIVE_INFINITY, expires);
+                else if (r < 0.15) b.add(u, c.node(), 50, expires);
+            }
+        }
+        g.setOverlay(b.build());
+        try {
+            check(false);
+            check(true);
+        } finally {
+            g.setOverlay(RoadOverlay.NONE);
+        }
+    }
+
+    @Test
+    void workspaceIsReusedAcrossSearches() {
+        CorridorDijkstra.Workspace ws = new CorridorDijkstra.Workspace();
+        CorridorDijkstra.forward(g, corridor, BOUND, ws, new SearchStats());
+        int far = corridor[corridor.length - 1];
+        CorridorDijkstra.forward(g, new int[]{corridor[0]}, 1, ws, new SearchStats());
+        assertTrue(ws.reached(corridor[0]));
+        assertEquals(0.0, ws.meters(corridor[0]));
+        assertFalse(ws.reached(far));
+        assertEquals(Double.POSITIVE_INFINITY, ws.meters(far));
+    }
+
+    private static void check(boolean reverse) {
+        CsrGraph csr = g.csr();
+        CorridorDijkstra.Workspace ws = new CorridorDijkstra.Workspace();
+        SearchStats stats = new SearchStats();
+        if (reverse) CorridorDijkstra.reverse(g, corridor, BOUND, ws, stats);
+        else CorridorDijkstra.forward(g, corridor, BOUND, ws, stats);
+
+        Map<Long, Double> expected = reference(corridor, reverse);
+        CorridorDijkstra.Labels labels = ws.labels();
+        assertEquals(expected.size(), labels.size());
+        for (int v = 0; v < csr.size(); v++) {
+            Double ref = expected.get(csr.osmId(v));
+            if (ref == null) {
+                assertFalse(ws.reached(v), "node " + v + " is beyond the bound");
+                assertFalse(labels.reached(v));
+                assertEquals(Double.POSITIVE_INFINITY, labels.meters(v));
+                continue;
+            }
+            assertTrue(ws.reached(v), "node " + v + " is within the bound");
+            assertEquals(ref, ws.meters(v), 1e-9);
+            assertTrue(labels.reached(v));
+            assertEquals(ws.meters(v), labels.meters(v));
+            assertEquals(ws.origin(v), labels.origin(v));
+            // the origin is a corridor node the distance actually runs from / to
+            int origin = corridor[ws.origin(v)];
+            Double viaOrigin = reference(new int[]{origin}, reverse).get(csr.osmId(v));
+            assertNotNull(viaOrigin);
+            assertEquals(ref, viaOrigin, 1e-9);
+        }
+        assertTrue(stats.settledNodes >= expected.size());
+    }
+
+    // bounded multi-source Dijkstra on OSM ids through LazyGraph's edge lists
+    private static Map<Long, Double> reference(int[] seeds, boolean reverse) {
+        Map<Long, Double> dist = new HashMap<>();
+        Map<Long, Double> settled = new HashMap<>();
+        PriorityQueue<Object[]> open = new PriorityQueue<>(Comparator.comparingDouble(e -> (Double) e[1]));
+        for (int s : seeds) {
+            long id = g.csr().osmId(s);
+            dist.put(id, 0.0);
+            open.add(new Object[]{id, 0.0});
+        }
+        while (!open.isEmpty()) {
+            Object[] cur = open.poll();
+            long id = (Long) cur[0];
+            double d = (Double) cur[1];
+            if (settled.containsKey(id)) continue;
+            settled.put(id, d);
+            for (Edge e : reverse ? g.reverseNeighbors(id) : g.neighbors(id)) {
+                double nd = d + e.getWeightMeters();
+                if (nd <= BOUND && nd < dist.getOrDefault(e.getTo(), Double.POSITIVE_INFINITY)) {
+                    dist.put(e.getTo(), nd);
+                    open.add(new Object[]{e.getTo(), nd});
+                }
+            }
+        }
+        return settled;
+    }
+}
@@ -0,0 +1,88 @@
+package com.pdsa.touristappbackend.routing.alg;
+
+import com.pdsa.touristappbackend.routing.CsrGraph;
+import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.SearchStats;
+import com.pdsa.touristappbackend.routing.TestGraphs;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OneToManyDijkstraTest {
+
+    @TempDir
+    static Path dir;
+
+    static LazyGraph g;
+
+    @BeforeAll
+    static void load() throws Exception {
+        g = TestGraphs.grid(dir, 20, 4);
+    }
+
+    @AfterAll
+    static void close() {
+        g.close();
+    }
+
+    // the path's length over the graph's edges, failing on a step that is not an edge
+    private static double length(CsrGraph csr, int[] path) {
+        double meters = 0;
+        for (int k = 1; k < path.length; k++) {
+            double w = csr.weight(path[k - 1], path[k]);
+            assertFalse(Double.isNaN(w), path[k - 1] + " -> " + path[k] + " is not an edge");
+            meters += w;
+        }
+        return meters;
+    }
+
+    private void checkRows(double bound, long seed) {
+        CsrGraph csr = g.csr();
+        Random rnd = new Random(seed);
+        // one workspace for every row, as in the day-tour table
+        OneToManyDijkstra.Workspace ws = new OneToManyDijkstra.Workspace();
+        int reached = 0, missed = 0;
+        for (int row = 0; row < 30; row++) {
+            int source = rnd.nextInt(csr.size());
+            int[] targets = new int[1 + rnd.nextInt(8)];
+            for (int k = 0; k < targets.length; k++) targets[k] = rnd.nextInt(csr.size());
+            // the source itself and a repeated target
+            targets[0] = source;
+            if (targets.length > 2) targets[targets.length - 1] = targets[1];
+
+            double[] dist = OneToManyDijkstra.distances(g, source, targets, bound, ws, new SearchStats());
+            OneToManyDijkstra.Tree tree = OneToManyDijkstra.tree(ws, source, targets);
+            for (int k = 0; k < targets.length; k++) {
+                int[] path = tree.path(targets[k]);
+                if (Double.isInfinite(dist[k])) {
+                    assertNull(path, "unreached target " + targets[k] + " has a path");
+                    missed++;
+                    continue;
+                }
+                assertNotNull(path, "reached target " + targets[k] + " has no path");
+                assertEquals(source, path[0]);
+                assertEquals(targets[k], path[path.length - 1]);
+                assertEquals(dist[k], length(csr, path), 1e-6);
+                reached++;
+            }
+        }
+        assertTrue(reached > 30, reached + " reached");
+        if (bound < Double.POSITIVE_INFINITY) assertTrue(missed > 0, "bound never cut a target off");
+    }
+
+    @Test
+    void treePathsFollowEdgesAndMatchTheRowDistances() {
+        checkRows(Double.POSITIVE_INFINITY, 12);
+    }
+
+    @Test
+    void targetsBeyondTheBoundHaveNoPath() {
+        checkRows(600, 13);
+    }
+}
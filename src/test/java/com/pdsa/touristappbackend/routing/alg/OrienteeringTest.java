@@ -0,0 +1,121 @@
+package com.pdsa.touristappbackend.routing.alg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrienteeringTest {
+
+    private static final double INF = Double.POSITIVE_INFINITY;
+
+    // stops on a plane, legs priced by distance with a per-direction detour and some one-way pairs
+    private static double[][] asymmetric(Random rnd, int n) {
+        double[] x = new double[n], y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = rnd.nextDouble() * 1000;
+            y[i] = rnd.nextDouble() * 1000;
+        }
+        double[][] table = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i == j) continue;
+                table[i][j] = Math.hypot(x[i] - x[j], y[i] - y[j]) * (1 + rnd.nextDouble() * 0.6);
+                // never cut the depot off, so every stop stays reachable in some order
+                if (i != 0 && j != 0 && rnd.nextInt(8) == 0) table[i][j] = INF;
+            }
+        }
+        return table;
+    }
+
+    private static double cost(int[] stops, double[][] table, double[] service) {
+        double c = 0;
+        int prev = 0;
+        for (int s : stops) {
+            c += table[prev][s] + service[s];
+            prev = s;
+        }
+        return c + table[prev][0];
+    }
+
+    // best prize over every ordered subset of the stops
+    private static double bruteForce(double[][] table, double[] service, double[] prize, double budget) {
+        return extend(0, 0, 0, new boolean[table.length], table, service, prize, budget);
+    }
+
+    private static double extend(int last, double cost, double collected, boolean[] used, double[][] table,
+                                 double[] service, double[] prize, double budget) {
+        double best = cost + table[last][0] <= budget ? collected : Double.NEGATIVE_INFINITY;
+        for (int j = 1; j < table.length; j++) {
+            if (used[j]) continue;
+            double c = cost + table[last][j] + service[j];
+            if (!(c <= budget)) continue;
+            used[j] = true;
+            best = Math.max(best, extend(j, c, collected + prize[j], used, table, service, prize, budget));
+            used[j] = false;
+        }
+        return best;
+    }
+
+    @Test
+    void staysWithinBudgetAndMatchesBruteForceOnSmallInstances() {
+        Random rnd = new Random(42);
+        int instances = 200, optimal = 0;
+        double found = 0, best = 0;
+        for (int t = 0; t < instances; t++) {
+            int n = 3 + rnd.nextInt(6);
+            double[][] table = asymmetric(rnd, n);
+            double[] service = new double[n];
+            double[] prize = new double[n];
+            for (int i = 1; i < n; i++) {
+                service[i] = rnd.nextInt(200);
+                prize[i] = 1 + rnd.nextInt(5);
+            }
+            double budget = 500 + rnd.nextDouble() * 3000;
+
+            Orienteering.Tour tour = Orienteering.solve(table, service, prize, budget, System.nanoTime() + 5_000_000_000L);
+
+            boolean[] seen = new boolean[n];
+            double p = 0;
+            for (int s : tour.stops) {
+                assertTrue(s > 0 && s < n && !seen[s], "stop " + s + " repeated or the depot");
+                seen[s] = true;
+                p += prize[s];
+            }
+            double c = cost(tour.stops, table, service);
+            assertTrue(c <= budget + 1e-9, "instance " + t + ": cost " + c + " over budget " + budget);
+            assertEquals(c, tour.cost, 1e-6);
+            assertEquals(p, tour.prize, 1e-9);
+
+            double opt = bruteForce(table, service, prize, budget);
+            assertTrue(p <= opt + 1e-9);
+            if (p >= opt - 1e-9) optimal++;
+            found += p;
+            best += opt;
+        }
+        // a heuristic: allowed to miss the optimum now and then, never by much overall
+        assertTrue(optimal >= instances * 0.9, optimal + " of " + instances + " optimal");
+        assertTrue(found >= best * 0.98, found + " of " + best);
+    }
+
+    @Test
+    void emptyTourWhenNothingFits() {
+        double[][] table = {{0, 600, 700}, {600, 0, 100}, {700, 100, 0}};
+        Orienteering.Tour tour = Orienteering.solve(table, new double[]{0, 10, 10}, new double[]{0, 5, 5}, 1000,
+                System.nanoTime() + 1_000_000_000L);
+        assertEquals(0, tour.stops.length);
+        assertEquals(0, tour.prize);
+        assertEquals(0, tour.cost);
+    }
+
+    @Test
+    void oneWayLegsAreVisitedInTheirDirection() {
+        // 1 -> 2 only: the loop must be 0 -> 1 -> 2 -> 0
+        double[][] table = {{0, 100, 100}, {100, 0, 50}, {100, INF, 0}};
+        Orienteering.Tour tour = Orienteering.solve(table, new double[3], new double[]{0, 1, 1}, 250,
+                System.nanoTime() + 1_000_000_000L);
+        assertArrayEquals(new int[]{1, 2}, tour.stops);
+        assertEquals(250, tour.cost, 1e-9);
+    }
+}
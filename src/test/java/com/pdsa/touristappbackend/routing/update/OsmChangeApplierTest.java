@@ -0,0 +1,227 @@
+package com.pdsa.touristappbackend.routing.update;
+
+import com.pdsa.touristappbackend.routing.TestGraphs;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.*;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OsmChangeApplierTest {
+
+    @TempDir
+    Path dir;
+
+    // --- a minimal PBF writer: protobuf fields by hand, as PbfWays reads them ---
+
+    private static void varint(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7fL) != 0) {
+            out.write((int) ((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static void key(ByteArrayOutputStream out, int field, int wire) {
+        varint(out, (long) field << 3 | wire);
+    }
+
+    private static void bytes(ByteArrayOutputStream out, int field, byte[] b) {
+        key(out, field, 2);
+        varint(out, b.length);
+        out.writeBytes(b);
+    }
+
+    private static void packed(ByteArrayOutputStream out, int field, long[] values) {
+        ByteArrayOutputStream p = new ByteArrayOutputStream();
+        for (long v : values) varint(p, v);
+        bytes(out, field, p.toByteArray());
+    }
+
+    // way with tags as string table indexes {key, value, ...}
+    private static byte[] way(long id, int[] tags, long... refs) {
+        ByteArrayOutputStream w = new ByteArrayOutputStream();
+        key(w, 1, 0);
+        varint(w, id);
+        long[] k = new long[tags.length / 2], v = new long[tags.length / 2];
+        for (int i = 0; i < k.length; i++) {
+            k[i] = tags[2 * i];
+            v[i] = tags[2 * i + 1];
+        }
+        packed(w, 2, k);
+        packed(w, 3, v);
+        long[] deltas = new long[refs.length];
+        for (int i = 0; i < refs.length; i++) {
+            long d = refs[i] - (i == 0 ? 0 : refs[i - 1]);
+            deltas[i] = (d << 1) ^ (d >> 63);
+        }
+        packed(w, 8, deltas);
+        return w.toByteArray();
+    }
+
+    private static byte[] block(String[] strings, byte[]... ways) {
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        for (String s : strings) bytes(table, 1, s.getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream group = new ByteArrayOutputStream();
+        // dense nodes come first in real extracts and must be skipped
+        ByteArrayOutputStream dense = new ByteArrayOutputStream();
+        packed(dense, 1, new long[]{2, 2, 2});
+        bytes(group, 2, dense.toByteArray());
+        for (byte[] w : ways) bytes(group, 3, w);
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        bytes(block, 1, table.toByteArray());
+        bytes(block, 2, group.toByteArray());
+        key(block, 17, 0);
+        varint(block, 100);
+        return block.toByteArray();
+    }
+
+    private static void blob(DataOutputStream file, String type, byte[] payload, boolean zlib) throws IOException {
+        ByteArrayOutputStream blob = new ByteArrayOutputStream();
+        if (zlib) {
+            Deflater deflater = new Deflater();
+            deflater.setInput(payload);
+            deflater.finish();
+            byte[] buf = new byte[payload.length + 64];
+            int n = deflater.deflate(buf);
+            deflater.end();
+            key(blob, 2, 0);
+            varint(blob, payload.length);
+            bytes(blob, 3, Arrays.copyOf(buf, n));
+        } else {
+            bytes(blob, 1, payload);
+        }
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        bytes(header, 1, type.getBytes(StandardCharsets.UTF_8));
+        key(header, 3, 0);
+        varint(header, blob.size());
+        file.writeInt(header.size());
+        file.write(header.toByteArray());
+        file.write(blob.toByteArray());
+    }
+
+    private static final String[] STRINGS = {"", "highway", "residential", "oneway", "yes", "building", "house", "name", "Galle Road"};
+
+    // way 10: 1-2-3 two-way; way 11: 3-4 one-way; way 12: a building on nodes 1, 5
+    private static byte[] extract() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream file = new DataOutputStream(out);
+        blob(file, "OSMHeader", new byte[]{10, 0}, true);
+        blob(file, "OSMData", block(STRINGS,
+                way(10, new int[]{1, 2, 7, 8}, 1, 2, 3),
+                way(12, new int[]{5, 6}, 1, 5)), true);
+        blob(file, "OSMData", block(STRINGS,
+                way(11, new int[]{1, 2, 3, 4}, 3, 4)), false);
+        return out.toByteArray();
+    }
+
+    private Path roads() throws Exception {
+        Path db = dir.resolve("roads.db");
+        long[] ids = {1, 2, 3, 4, 5, 6};
+        double[] lat = {6.90, 6.901, 6.902, 6.903, 6.91, 6.911};
+        double[] lon = {79.85, 79.85, 79.85, 79.85, 79.86, 79.86};
+        // 5-6 belongs to no way of the extract: deleted since the import
+        long[][] edges = {{1, 2}, {2, 1}, {2, 3}, {3, 2}, {3, 4}, {5, 6}, {6, 5}};
+        TestGraphs.write(db, ids, lat, lon, edges).close();
+        return db;
+    }
+
+    private static OsmChange deleteWay(long id) throws IOException {
+        String xml = "<osmChange version=\"0.6\"><delete><way id=\"" + id + "\" version=\"9\"/></delete></osmChange>";
+        return OsmChange.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static int count(Connection conn, String sql) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    void pbfWaysReadsRefsAndRoutingTags() throws Exception {
+        List<Object[]> ways = new ArrayList<>();
+        long read = PbfWays.read(new ByteArrayInputStream(extract()), (id, nodes, tags) -> ways.add(new Object[]{id, nodes, tags}));
+        assertEquals(3, read);
+        assertEquals(10L, ways.get(0)[0]);
+        assertArrayEquals(new long[]{1, 2, 3}, (long[]) ways.get(0)[1]);
+        // only the keys routing reads
+        assertEquals(Map.of("highway", "residential"), ways.get(0)[2]);
+        assertEquals(Map.of(), ways.get(1)[2]);
+        assertEquals(11L, ways.get(2)[0]);
+        assertArrayEquals(new long[]{3, 4}, (long[]) ways.get(2)[1]);
+        assertEquals(Map.of("highway", "residential", "oneway", "yes"), ways.get(2)[2]);
+
+        // refs are deltas: large ids and steps back
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        blob(new DataOutputStream(out), "OSMData", block(STRINGS, way(7_000_000_000L, new int[]{},
+                9_000_000_000L, 12, 9_000_000_001L, -3)), true);
+        List<long[]> refs = new ArrayList<>();
+        PbfWays.read(new ByteArrayInputStream(out.toByteArray()), (id, nodes, tags) -> refs.add(nodes));
+        assertArrayEquals(new long[]{9_000_000_000L, 12, 9_000_000_001L, -3}, refs.get(0));
+    }
+
+    @Test
+    void truncatedExtractIsRejected() throws Exception {
+        byte[] pbf = extract();
+        assertThrows(IOException.class, () -> PbfWays.read(new ByteArrayInputStream(Arrays.copyOf(pbf, pbf.length - 5)), (id, nodes, tags) -> { }));
+    }
+
+    @Test
+    void deletesBeforeTheBackfillAreCountedAsUnverified() throws Exception {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + roads())) {
+            OsmChangeApplier.Result r = new OsmChangeApplier().apply(conn, deleteWay(10));
+            assertEquals(1, r.unverifiedWays);
+            assertEquals(0, r.edgesRemoved);
+            assertEquals(7, count(conn, "SELECT COUNT(*) FROM edges"));
+        }
+    }
+
+    @Test
+    void backfilledWayIdsLetDeletesRemoveTheirEdges() throws Exception {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + roads())) {
+            OsmChangeApplier applier = new OsmChangeApplier();
+            OsmChangeApplier.BackfillResult b = applier.backfillWayIds(conn, new ByteArrayInputStream(extract()));
+            assertEquals(3, b.waysRead);
+            assertEquals(2, b.roads);
+            // 1-2, 2-1, 2-3, 3-2 by way 10, 3-4 by way 11
+            assertEquals(5, b.edgesTagged);
+            assertEquals(2, b.edgesWithoutWay);
+            assertEquals(0, OsmChangeApplier.version(conn));
+            assertEquals(4, count(conn, "SELECT COUNT(*) FROM edges WHERE way_id = 10"));
+            assertEquals(1, count(conn, "SELECT COUNT(*) FROM edges WHERE way_id = 11"));
+
+            // again: nothing left to tag
+            assertEquals(0, applier.backfillWayIds(conn, new ByteArrayInputStream(extract())).edgesTagged);
+
+            OsmChangeApplier.Result r = applier.apply(conn, deleteWay(10));
+            assertEquals(0, r.unverifiedWays);
+            assertEquals(4, r.edgesRemoved);
+            assertEquals(1, r.version);
+            // node 1 and 2 lost their last edge, 3 still has 3-4
+            assertEquals(2, r.nodesRemoved);
+            assertEquals(3, count(conn, "SELECT COUNT(*) FROM edges"));
+
+            // a deleted way that never was a road is not a stale one once the ids are backfilled
+            assertEquals(0, applier.apply(conn, deleteWay(12)).unverifiedWays);
+        }
+    }
+
+    @Test
+    void failedBackfillChangesNothing() throws Exception {
+        byte[] pbf = extract();
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + roads())) {
+            assertThrows(IOException.class, () -> new OsmChangeApplier().backfillWayIds(conn,
+                    new ByteArrayInputStream(Arrays.copyOf(pbf, pbf.length - 5))));
+            assertTrue(conn.getAutoCommit());
+            assertEquals(7, count(conn, "SELECT COUNT(*) FROM edges"));
+            assertEquals(1, new OsmChangeApplier().apply(conn, deleteWay(10)).unverifiedWays);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.pdsa.touristappbackend.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    private final PasswordHasher hasher = new PasswordHasher();
+
+    @Test
+    void hashMatchesOnlyItsPassword() {
+        String stored = hasher.hash("correct horse");
+
+        assertTrue(hasher.isHashed(stored));
+        assertTrue(stored.startsWith("pbkdf2$310000$"));
+        assertFalse(stored.contains("correct horse"));
+        assertTrue(hasher.matches("correct horse", stored));
+        assertFalse(hasher.matches("correct horse ", stored));
+        assertFalse(hasher.matches("", stored));
+        assertFalse(hasher.matches(null, stored));
+    }
+
+    @Test
+    void samePasswordGetsDifferentSalts() {
+        String a = hasher.hash("secret");
+        String b = hasher.hash("secret");
+
+        assertNotEquals(a, b);
+        assertTrue(hasher.matches("secret", a));
+        assertTrue(hasher.matches("secret", b));
+    }
+
+    @Test
+    void legacyPlainTextIsComparedAsIs() {
+        assertFalse(hasher.isHashed("secret"));
+        assertFalse(hasher.isHashed(null));
+        assertTrue(hasher.matches("secret", "secret"));
+        assertFalse(hasher.matches("Secret", "secret"));
+        assertFalse(hasher.matches("secret", null));
+    }
+
+    @Test
+    void iterationCountIsPartOfTheStoredHash() {
+        // verification uses the stored count, so editing it breaks the match
+        String stored = hasher.hash("secret");
+        String[] parts = stored.split("\\$");
+        assertFalse(hasher.matches("secret", "pbkdf2$1000$" + parts[2] + "$" + parts[3]));
+    }
+
+    @Test
+    void corruptStoredValuesMatchNothing() {
+        String stored = hasher.hash("secret");
+        String[] parts = stored.split("\\$");
+        for (String bad : new String[]{"pbkdf2$", "pbkdf2$310000$" + parts[2],
+                "pbkdf2$many$" + parts[2] + "$" + parts[3],
+                "pbkdf2$0$" + parts[2] + "$" + parts[3],
+                "pbkdf2$310000$%%%$" + parts[3],
+                "pbkdf2$310000$" + parts[2] + "$%%%"}) {
+            assertFalse(hasher.matches("secret", bad), bad);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.pdsa.touristappbackend.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenServiceTest {
+
+    private static final String SECRET = "test-secret-of-reasonable-length-0123456789";
+
+    private final TokenService tokens = new TokenService(SECRET, 3600);
+
+    @Test
+    void verifiesTheTokensItIssues() {
+        TokenService.IssuedToken issued = tokens.issue(42, "ann");
+        TokenClaims claims = tokens.verify(issued.token);
+
+        assertEquals(42, claims.getUserId());
+        assertEquals("ann", claims.getUsername());
+        assertEquals(issued.claims.getExpiresAt(), claims.getExpiresAt());
+        long now = System.currentTimeMillis() / 1000;
+        assertTrue(claims.getExpiresAt() > now + 3500 && claims.getExpiresAt() <= now + 3600);
+    }
+
+    @Test
+    void usernameMayContainSeparators() {
+        TokenService.IssuedToken issued = tokens.issue(7, "a:b.c");
+        assertEquals("a:b.c", tokens.verify(issued.token).getUsername());
+    }
+
+    @Test
+    void readsBearerHeaderBeforeParameter() {
+        String header = tokens.issue(1, "header").token;
+        String param = tokens.issue(2, "param").token;
+
+        assertEquals("header", tokens.verify("Bearer " + header, param).getUsername());
+        assertEquals("param", tokens.verify(null, param).getUsername());
+        assertEquals("param", tokens.verify("Basic xyz", param).getUsername());
+    }
+
+    @Test
+    void rejectsTamperedPayload() {
+        String token = tokens.issue(42, "ann").token;
+        String signature = token.substring(token.indexOf('.') + 1);
+        long expiresAt = System.currentTimeMillis() / 1000 + 3600;
+        // same signature, another user
+        String forged = b64("1:" + expiresAt + ":admin") + "." + signature;
+
+        assertThrows(InvalidTokenException.class, () -> tokens.verify(forged));
+    }
+
+    @Test
+    void rejectsTamperedSignature() {
+        String token = tokens.issue(42, "ann").token;
+        // first signature character: it carries six signature bits, the last one only four and padding
+        int at = token.indexOf('.') + 1;
+        char c = token.charAt(at);
+        String tampered = token.substring(0, at) + (c == 'A' ? 'g' : 'A') + token.substring(at + 1);
+
+        assertThrows(InvalidTokenException.class, () -> tokens.verify(tampered));
+    }
+
+    @Test
+    void rejectsTokensSignedWithAnotherKey() {
+        String token = new TokenService("another-secret-of-reasonable-length-987654", 3600).issue(42, "ann").token;
+        assertThrows(InvalidTokenException.class, () -> tokens.verify(token));
+    }
+
+    @Test
+    void rejectsExpiredTokens() {
+        TokenService shortLived = new TokenService(SECRET, -10);
+        String token = shortLived.issue(42, "ann").token;
+
+        InvalidTokenException e = assertThrows(InvalidTokenException.class, () -> tokens.verify(token));
+        assertEquals("Token expired", e.getMessage());
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        String signedGarbage = tokens.issue(42, "ann").token;
+        String payload = signedGarbage.substring(0, signedGarbage.indexOf('.'));
+
+        for (String bad : new String[]{null, "", "   ", "no-dot", ".sig", payload + ".", payload + ".%%%",
+                "%%%.abc", payload + "." + payload}) {
+            assertThrows(InvalidTokenException.class, () -> tokens.verify(bad), String.valueOf(bad));
+        }
+        assertThrows(InvalidTokenException.class, () -> tokens.verify(null, null));
+    }
+
+    @Test
+    void rejectsSignedPayloadWithBadFields() {
+        // correctly signed by the same key, but not userId:expiresAt:username
+        for (String content : new String[]{"42:ann", "x:123:ann", "42:soon:ann"}) {
+            String payload = b64(content);
+            String token = payload + "." + signatureOf(payload);
+            assertThrows(InvalidTokenException.class, () -> tokens.verify(token), content);
+        }
+    }
+
+    @Test
+    void randomKeyWhenNoSecretIsConfigured() {
+        TokenService a = new TokenService("", 3600);
+        TokenService b = new TokenService(null, 3600);
+        String token = a.issue(1, "ann").token;
+
+        assertEquals("ann", a.verify(token).getUsername());
+        assertThrows(InvalidTokenException.class, () -> b.verify(token));
+    }
+
+    private static String b64(String s) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // signs a payload like TokenService does, to build well-signed but malformed tokens
+    private static String signatureOf(String payload) {
+        try {
+            javax.crypto.Mac mac = javax.crypto.Mac.getInstance("HmacSHA256");
+            mac.init(new javax.crypto.spec.SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
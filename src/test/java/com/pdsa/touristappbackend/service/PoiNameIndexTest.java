@@ -0,0 +1,88 @@
+package com.pdsa.touristappbackend.service;
+
+import com.pdsa.touristappbackend.model.Poi;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PoiNameIndexTest {
+
+    private static final double LAT = 6.93;
+    private static final double LON = 79.85;
+
+    @Test
+    void foldStripsDiacriticsCaseAndPunctuation() {
+        assertEquals("cafe nandu", PoiNameIndex.fold("  Café  Ñandú! "));
+        assertEquals("st mary s church", PoiNameIndex.fold("St. Mary's Church"));
+        assertEquals("galle face green", PoiNameIndex.fold("GALLE-FACE_Green"));
+        assertEquals("", PoiNameIndex.fold(null));
+        assertEquals("", PoiNameIndex.fold("--"));
+    }
+
+    @Test
+    void matchesEveryWordStartButNotInsideWords() {
+        PoiNameIndex index = new PoiNameIndex(List.of(
+                poi(1, "Gangaramaya Temple", LAT, LON),
+                poi(2, "Temple Trees", LAT, LON),
+                poi(3, "Seema Malaka", LAT, LON)));
+
+        assertEquals(List.of(2L, 1L), ids(index.complete("temp", null, null, 10)));
+        assertEquals(List.of(1L), ids(index.complete("GANGA", null, null, 10)));
+        assertEquals(List.of(), ids(index.complete("ramaya", null, null, 10)));
+        assertEquals(List.of(3L), ids(index.complete("malaka", null, null, 10)));
+        assertEquals(List.of(), ids(index.complete("temples", null, null, 10)));
+    }
+
+    @Test
+    void foldsTheQueryLikeTheNames() {
+        PoiNameIndex index = new PoiNameIndex(List.of(poi(1, "Café Nandú", LAT, LON)));
+        assertEquals(List.of(1L), ids(index.complete("CAFÉ nan", null, null, 10)));
+        assertEquals(List.of(1L), ids(index.complete("cafe-nandu", null, null, 10)));
+    }
+
+    @Test
+    void prefersNameStartsAndShortNames() {
+        PoiNameIndex index = new PoiNameIndex(List.of(
+                poi(1, "Old Lighthouse", LAT, LON),
+                poi(2, "Lighthouse Galle Fort Clock Tower", LAT, LON),
+                poi(3, "Lighthouse", LAT, LON)));
+        assertEquals(List.of(3L, 2L, 1L), ids(index.complete("light", null, null, 10)));
+        assertEquals(List.of(3L), ids(index.complete("light", null, null, 1)));
+    }
+
+    @Test
+    void nameMatchingOnSeveralWordsIsReturnedOnce() {
+        PoiNameIndex index = new PoiNameIndex(List.of(poi(1, "Park Park", LAT, LON)));
+        assertEquals(List.of(1L), ids(index.complete("park", null, null, 10)));
+    }
+
+    @Test
+    void proximityBoostReachesPastAlphabeticalOrder() {
+        // thousands of far "a..." names sorting before the one nearby
+        List<Poi> pois = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) pois.add(poi(i, String.format("aa%05d", i), LAT + 1, LON + 1));
+        pois.add(poi(99_999, "azure cafe", LAT, LON));
+        PoiNameIndex index = new PoiNameIndex(pois);
+
+        assertEquals(99_999L, index.complete("a", LAT, LON, 5).get(0).getId());
+        assertEquals(99_999L, index.complete("az", LAT, LON, 1).get(0).getId());
+    }
+
+    @Test
+    void emptyQueryOrLimitFindsNothing() {
+        PoiNameIndex index = new PoiNameIndex(List.of(poi(1, "Beach", LAT, LON)));
+        assertTrue(index.complete(" . ", null, null, 10).isEmpty());
+        assertTrue(index.complete("b", null, null, 0).isEmpty());
+    }
+
+    private static Poi poi(long id, String name, double lat, double lon) {
+        return new Poi(id, name, "attraction", lat, lon);
+    }
+
+    private static List<Long> ids(List<Poi> pois) {
+        return pois.stream().map(Poi::getId).toList();
+    }
+}
@@ -0,0 +1,98 @@
+package com.pdsa.touristappbackend.service;
+
+import com.pdsa.touristappbackend.model.Poi;
+import com.pdsa.touristappbackend.routing.CsrGraph;
+import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.Region;
+import com.pdsa.touristappbackend.routing.TestGraphs;
+import com.pdsa.touristappbackend.util.Haversine;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PoiNodeIndexTest {
+
+    @TempDir
+    static Path dir;
+
+    static LazyGraph g;
+
+    @BeforeAll
+    static void load() throws Exception {
+        g = TestGraphs.grid(dir, 20, 6);
+    }
+
+    @AfterAll
+    static void close() {
+        g.close();
+    }
+
+    @Test
+    void attachBoxHoldsEveryPointWithinReachOfTheRegion() {
+        Region region = new Region("test", "roads.db", 0.005, 6.9, 79.85, 6.92, 79.87);
+        double[] box = PoiNodeIndex.attachBox(region);
+        // 1 km out from each edge and corner
+        double[][] points = {
+                {6.9, 79.86, -1, 0}, {6.92, 79.86, 1, 0}, {6.91, 79.85, 0, -1}, {6.91, 79.87, 0, 1},
+                {6.92, 79.87, 1, 1}, {6.9, 79.85, -1, -1},
+        };
+        for (double[] p : points) {
+            double lat = p[0], lon = p[1];
+            // walk outwards in small steps until 1 km from the region's edge point
+            while (Haversine.meters(p[0], p[1], lat, lon) < 1000) {
+                lat += p[2] * 1e-6;
+                lon += p[3] * 1e-6;
+            }
+            lat -= p[2] * 1e-6;
+            lon -= p[3] * 1e-6;
+            assertTrue(lat >= box[0] && lon >= box[1] && lat <= box[2] && lon <= box[3], lat + "," + lon);
+        }
+        // and not much more than that
+        assertEquals(1000, Haversine.meters(box[2], 79.86, 6.92, 79.86), 20);
+    }
+
+    @Test
+    void attachesEachPoiToItsNearestRoadWithinReach() {
+        CsrGraph csr = g.csr();
+        Random rnd = new Random(3);
+        List<Poi> pois = new ArrayList<>();
+        for (int k = 0; k < 400; k++) {
+            // the grid spans about 2 km; POIs up to about 4 km around it
+            pois.add(new Poi((long) k, "poi " + k, k % 2 == 0 ? "temple" : "museum",
+                    6.9 - 0.035 + rnd.nextDouble() * 0.09, 79.85 - 0.035 + rnd.nextDouble() * 0.09));
+        }
+        PoiNodeIndex index = new PoiNodeIndex(g, pois);
+
+        Map<Long, Integer> nodeOf = new HashMap<>();
+        for (int i = 0; i < csr.size(); i++) {
+            for (int p = index.first(i); p < index.first(i + 1); p++) {
+                assertNull(nodeOf.put(index.poi(p).getId(), i), "POI attached twice");
+                assertEquals(Haversine.meters(index.poi(p).getLat(), index.poi(p).getLon(), csr.lat(i), csr.lon(i)),
+                        index.walkMeters(p), 1e-9);
+            }
+        }
+        assertEquals(nodeOf.size(), index.size());
+        int dropped = 0;
+        for (Poi poi : pois) {
+            double best = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < csr.size(); i++) {
+                if (csr.hasOutgoing(i)) best = Math.min(best, Haversine.meters(poi.getLat(), poi.getLon(), csr.lat(i), csr.lon(i)));
+            }
+            Integer node = nodeOf.get(poi.getId());
+            if (best > 1000) {
+                assertNull(node, "POI " + poi.getId() + " is " + best + " m from any road");
+                dropped++;
+            } else {
+                assertNotNull(node, "POI " + poi.getId() + " is " + best + " m from a road");
+                assertEquals(best, Haversine.meters(poi.getLat(), poi.getLon(), csr.lat(node), csr.lon(node)), 1e-9);
+            }
+        }
+        assertTrue(dropped > 0 && dropped < pois.size(), dropped + " dropped");
+    }
+}
@@ -0,0 +1,171 @@
+package com.pdsa.touristappbackend.service;
+
+import com.pdsa.touristappbackend.config.RoutingConfigProperties;
+import com.pdsa.touristappbackend.model.Edge;
+import com.pdsa.touristappbackend.repository.PoiSqliteRepository;
+import com.pdsa.touristappbackend.routing.CsrGraph;
+import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.SearchExecutor;
+import com.pdsa.touristappbackend.routing.SearchStats;
+import com.pdsa.touristappbackend.routing.TestGraphs;
+import com.pdsa.touristappbackend.routing.alg.AStar;
+import com.pdsa.touristappbackend.util.Haversine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PoiRankingServiceTest {
+
+    private static final double MAX_DETOUR = 600;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void detourSubtractsTheRouteItReplaces() {
+        // leave the route, 300 m out, 400 m back, rejoining 500 m further along
+        assertEquals(200 + 2 * 10, PoiRankingService.detour(300, 400, 500, 10), 1e-9);
+    }
+
+    @Test
+    void detourAddsTheRouteDrivenAgainWhenRejoiningBehind() {
+        // rejoining 100 m behind the leave point: those 100 m are driven twice
+        assertEquals(300 + 400 + 100, PoiRankingService.detour(300, 400, -100, 0), 1e-9);
+    }
+
+    @Test
+    void detourIsNeverNegative() {
+        assertEquals(2 * 5, PoiRankingService.detour(100, 100, 250, 5), 1e-9);
+    }
+
+    @Test
+    void scoreHalvesAtTheDetourScale() {
+        assertEquals(4.0, PoiRankingService.score(4, 0), 1e-9);
+        assertEquals(2.0, PoiRankingService.score(4, 500), 1e-9);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void queriesOnTheCallerAndPricesAchievableDetours() throws Exception {
+        LazyGraph g = TestGraphs.grid(dir, 15, 9);
+        CsrGraph csr = g.csr();
+        List<Long> route = AStar.shortestPath(g, csr.osmId(0), csr.osmId(csr.size() - 1)).getPathNodeIds();
+        assertFalse(route.isEmpty());
+
+        // one POI a few meters off every node
+        PoiSqliteRepository repo = mock(PoiSqliteRepository.class);
+        Thread caller = Thread.currentThread();
+        List<Thread> queriedOn = new ArrayList<>();
+        SearchStats stats = new SearchStats();
+        long[] settledBeforeQuery = {-1};
+        doAnswer(inv -> {
+            queriedOn.add(Thread.currentThread());
+            settledBeforeQuery[0] = stats.settledNodes;
+            Consumer<Map<String, Object>> sink = inv.getArgument(2);
+            for (int i = 0; i < csr.size(); i++) {
+                Map<String, Object> poi = new HashMap<>();
+                poi.put("id", csr.osmId(i));
+                poi.put("category", i % 2 == 0 ? "temple" : "beach");
+                poi.put("lat", csr.lat(i) + 0.00003);
+                poi.put("lon", csr.lon(i));
+                sink.accept(poi);
+            }
+            return null;
+        }).when(repo).forEachPoiByCategoryNearPath(any(), any(), any(Consumer.class));
+
+        RoutingConfigProperties cfg = new RoutingConfigProperties();
+        cfg.setSearchParallelism(1);
+        // virtual-thread mode: searches go to the pool
+        SearchExecutor executor = new SearchExecutor(cfg, true);
+        try {
+            PoiRankingService ranking = new PoiRankingService(repo, executor);
+            List<Map<String, Object>> pois = ranking.topPoisAlongRoute(g, route, null,
+                    Map.of("temple", 5, "beach", 1), MAX_DETOUR, 1000, 0, stats);
+
+            assertEquals(List.of(caller), queriedOn);
+            assertTrue(stats.settledNodes > 0);
+            // both searches finished before the first row, so rows stream straight into the heap
+            assertEquals(stats.settledNodes, settledBeforeQuery[0]);
+            assertFalse(pois.isEmpty());
+
+            int[] corridor = route.stream().mapToInt(csr::index).toArray();
+            double[] along = new double[corridor.length];
+            for (int k = 1; k < corridor.length; k++) along[k] = along[k - 1] + csr.weight(corridor[k - 1], corridor[k]);
+            double previousScore = Double.POSITIVE_INFINITY;
+            for (Map<String, Object> poi : pois) {
+                int node = csr.index((Long) poi.get("id"));
+                double walk = Haversine.meters((Double) poi.get("lat"), (Double) poi.get("lon"), csr.lat(node), csr.lon(node));
+                double reported = (Double) poi.get("detourMeters");
+                double[][] pairs = pairDetours(g, corridor, along, node);
+
+                assertTrue(reported <= MAX_DETOUR);
+                // an upper bound: never below the best leave/rejoin pair, and some pair really costs it
+                double best = Double.POSITIVE_INFINITY;
+                boolean achievable = false;
+                for (int i = 0; i < corridor.length; i++) {
+                    for (int j = 0; j < corridor.length; j++) {
+                        if (j >= i) best = Math.min(best, pairs[i][j]);
+                        achievable |= Math.abs(pairs[i][j] + 2 * walk - reported) < 1e-6;
+                    }
+                }
+                assertTrue(reported >= best + 2 * walk - 1e-6, poi + " best " + best);
+                assertTrue(achievable, poi + " is no leave/rejoin pair");
+                assertTrue((Double) poi.get("score") <= previousScore);
+                previousScore = (Double) poi.get("score");
+            }
+            // nodes on the route cost nothing but the walk
+            Map<String, Object> onRoute = pois.stream().filter(p -> route.contains((Long) p.get("id"))).findFirst().orElseThrow();
+            assertTrue((Double) onRoute.get("detourMeters") < 10);
+        } finally {
+            executor.shutdown();
+            g.close();
+        }
+    }
+
+    /** Detour through the node for every (leave, rejoin) pair of corridor positions, by plain Dijkstra */
+    private static double[][] pairDetours(LazyGraph g, int[] corridor, double[] along, int node) {
+        CsrGraph csr = g.csr();
+        double[] there = new double[corridor.length];
+        double[] from = new double[corridor.length];
+        for (int k = 0; k < corridor.length; k++) {
+            there[k] = dijkstra(g, csr.osmId(corridor[k]), csr.osmId(node));
+            from[k] = dijkstra(g, csr.osmId(node), csr.osmId(corridor[k]));
+        }
+        double[][] pairs = new double[corridor.length][corridor.length];
+        for (int i = 0; i < corridor.length; i++) {
+            for (int j = 0; j < corridor.length; j++) {
+                pairs[i][j] = Math.max(0, there[i] + from[j] - (along[j] - along[i]));
+            }
+        }
+        return pairs;
+    }
+
+    private static double dijkstra(LazyGraph g, long source, long target) {
+        Map<Long, Double> dist = new HashMap<>();
+        PriorityQueue<Object[]> open = new PriorityQueue<>(Comparator.comparingDouble(e -> (Double) e[1]));
+        open.add(new Object[]{source, 0.0});
+        Set<Long> done = new HashSet<>();
+        while (!open.isEmpty()) {
+            Object[] cur = open.poll();
+            long id = (Long) cur[0];
+            double d = (Double) cur[1];
+            if (!done.add(id)) continue;
+            if (id == target) return d;
+            for (Edge e : g.neighbors(id)) {
+                double nd = d + e.getWeightMeters();
+                if (nd < dist.getOrDefault(e.getTo(), Double.POSITIVE_INFINITY)) {
+                    dist.put(e.getTo(), nd);
+                    open.add(new Object[]{e.getTo(), nd});
+                }
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+}
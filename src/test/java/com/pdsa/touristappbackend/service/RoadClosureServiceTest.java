@@ -0,0 +1,99 @@
+package com.pdsa.touristappbackend.service;
+
+import com.pdsa.touristappbackend.config.RoutingConfigProperties;
+import com.pdsa.touristappbackend.model.RoadClosureRequest;
+import com.pdsa.touristappbackend.routing.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoadClosureServiceTest {
+
+    @TempDir
+    Path dir;
+
+    GraphProvider graphs;
+    RoadClosureService closures;
+    Region region;
+    // runs when the next GraphReadyEvent has been handled, i.e. between a reload's build and its swap
+    Runnable betweenBuildAndSwap;
+    final List<LazyGraph> loaded = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path db = dir.resolve("roads.db");
+        TestGraphs.write(db, new long[]{1, 2, 3}, new double[]{6.90, 6.901, 6.902}, new double[]{79.85, 79.85, 79.85},
+                new long[][]{{1, 2}, {2, 1}, {2, 3}, {3, 2}}).close();
+        RoutingConfigProperties cfg = new RoutingConfigProperties();
+        cfg.setSqlitePath(db.toString());
+        RegionRegistry registry = new RegionRegistry(cfg);
+        region = registry.defaultRegion();
+        // the Spring event multicaster, reduced to the two listeners under test
+        graphs = new GraphProvider(registry, event -> {
+            if (event instanceof GraphReadyEvent e) {
+                loaded.add(e.graph);
+                closures.onGraphReady(e);
+                Runnable r = betweenBuildAndSwap;
+                betweenBuildAndSwap = null;
+                if (r != null) r.run();
+            } else if (event instanceof GraphSwappedEvent e) {
+                closures.onGraphSwapped(e);
+            }
+        });
+        closures = new RoadClosureService(graphs, cfg);
+    }
+
+    @AfterEach
+    void close() {
+        loaded.forEach(LazyGraph::close);
+    }
+
+    private static RoadClosureRequest closure(long from, long to) {
+        return new RoadClosureRequest(null, List.of(from, to), true, null, 30, "test");
+    }
+
+    private static double penalty(LazyGraph g, long from, long to) {
+        return g.overlay().penalty(g.csr().index(from), g.csr().index(to));
+    }
+
+    @Test
+    void reloadedGraphCarriesTheClosuresOfTheServingOne() {
+        closures.add(List.of(closure(1, 2)));
+        LazyGraph g = graphs.reload(region);
+        assertNotSame(loaded.get(0), g);
+        assertEquals(Double.POSITIVE_INFINITY, penalty(g, 1, 2));
+        assertEquals(0, penalty(g, 2, 3));
+    }
+
+    @Test
+    void closureAddedBetweenBuildAndSwapReachesTheNewGraph() {
+        graphs.getLazyGraph(region);
+        List<RoadClosureService.RoadClosure> added = new ArrayList<>();
+        betweenBuildAndSwap = () -> added.addAll(closures.add(List.of(closure(2, 3))));
+
+        LazyGraph g = graphs.reload(region);
+
+        assertEquals(1, added.size());
+        assertSame(g, graphs.getLazyGraph(region));
+        assertEquals(Double.POSITIVE_INFINITY, penalty(g, 2, 3));
+        assertEquals(Double.POSITIVE_INFINITY, penalty(g, 3, 2));
+    }
+
+    @Test
+    void closureRemovedBetweenBuildAndSwapIsGoneFromTheNewGraph() {
+        String id = closures.add(List.of(closure(1, 2))).get(0).id;
+        betweenBuildAndSwap = () -> assertTrue(closures.remove(id));
+
+        LazyGraph g = graphs.reload(region);
+
+        assertEquals(0, penalty(g, 1, 2));
+        assertTrue(g.overlay().isEmpty());
+    }
+}
@@ -0,0 +1,64 @@
+package com.pdsa.touristappbackend.service;
+
+import com.pdsa.touristappbackend.model.OsmNodeData;
+import com.pdsa.touristappbackend.routing.Region;
+import com.pdsa.touristappbackend.routing.RouteGeometry;
+import com.pdsa.touristappbackend.routing.RouteTimeoutException;
+import com.pdsa.touristappbackend.routing.engine.RoutePlanner;
+import com.pdsa.touristappbackend.routing.engine.RoutingEngines;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RoutingServiceTest {
+
+    RoutePlanner planner;
+    RoutingService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        planner = mock(RoutePlanner.class);
+        Region region = new Region("test", "roads.db", 0.005, 6.9, 79.85, 6.92, 79.87);
+        when(planner.engines()).thenReturn(mock(RoutingEngines.class));
+        when(planner.region(anyDouble(), anyDouble(), anyDouble(), anyDouble())).thenReturn(region);
+        when(planner.snap(any(), any(), eq("start"), anyDouble(), anyDouble(), any(), any()))
+                .thenReturn(new OsmNodeData(1, 6.9, 79.85));
+        when(planner.snap(any(), any(), eq("end"), anyDouble(), anyDouble(), any(), any()))
+                .thenReturn(new OsmNodeData(2, 6.91, 79.86));
+        service = new RoutingService(planner);
+    }
+
+    private RoutingService.RouteResult route() {
+        return service.routeByCoords(6.9, 79.85, 6.91, 79.86, RouteGeometry.Format.JSON, null, null, null, null);
+    }
+
+    @Test
+    void timedOutWaitIsNotReportedAsNoRoute() throws Exception {
+        when(planner.route(any(), any(), any(), any(), any(), any(), anyBoolean()))
+                .thenThrow(new TimeoutException());
+        assertThrows(RouteTimeoutException.class, this::route);
+    }
+
+    @Test
+    void failedSearchIsNotReportedAsNoRoute() throws Exception {
+        when(planner.route(any(), any(), any(), any(), any(), any(), anyBoolean()))
+                .thenThrow(new SQLException("disk I/O error"));
+        IllegalStateException e = assertThrows(IllegalStateException.class, this::route);
+        assertInstanceOf(SQLException.class, e.getCause());
+    }
+
+    @Test
+    void noSnapIsStillAnEmptyRoute() throws Exception {
+        when(planner.snap(any(), any(), eq("end"), anyDouble(), anyDouble(), any(), any())).thenReturn(null);
+        RoutingService.RouteResult r = route();
+        assertEquals(Double.POSITIVE_INFINITY, r.distanceMeters);
+        assertTrue(r.path.isEmpty());
+        verify(planner, never()).route(any(), any(), any(), any(), any(), any(), anyBoolean());
+    }
+}
@@ -0,0 +1,82 @@
+package com.pdsa.touristappbackend.service;
+
+import com.pdsa.touristappbackend.model.Interest;
+import com.pdsa.touristappbackend.model.User;
+import com.pdsa.touristappbackend.model.UserRegisterRequest;
+import com.pdsa.touristappbackend.repository.UserRepository;
+import com.pdsa.touristappbackend.security.PasswordHasher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserServiceTest {
+
+    @Mock
+    UserRepository userRepository;
+    @Mock
+    InterestCatalog interestCatalog;
+    @Mock
+    PasswordHasher passwordHasher;
+    @Mock
+    UserInterestService userInterestService;
+    @InjectMocks
+    UserService userService;
+
+    @Test
+    void registerEvictsCachedInterests() {
+        Interest beach = interest(1L, "beach");
+        when(userRepository.findByUsername("ann")).thenReturn(Optional.empty());
+        when(interestCatalog.findByName("beach")).thenReturn(Optional.of(beach));
+        when(userRepository.save(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        User saved = userService.register(request("ann", "beach"));
+
+        assertEquals(1, saved.getInterests().size());
+        verify(userInterestService).evict("ann");
+        verify(interestCatalog, never()).invalidate();
+    }
+
+    @Test
+    void unknownInterestReloadsTheCatalogOnce() {
+        Interest surf = interest(2L, "surf");
+        when(userRepository.findByUsername("ann")).thenReturn(Optional.empty());
+        when(interestCatalog.findByName("surf")).thenReturn(Optional.empty(), Optional.of(surf));
+        when(userRepository.save(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        userService.register(request("ann", "surf"));
+
+        verify(interestCatalog, times(1)).invalidate();
+    }
+
+    @Test
+    void interestMissingAfterReloadIsRejected() {
+        when(userRepository.findByUsername("ann")).thenReturn(Optional.empty());
+        when(interestCatalog.findByName("nope")).thenReturn(Optional.empty());
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> userService.register(request("ann", "nope")));
+        assertEquals("Invalid interest: nope", e.getMessage());
+        verify(userRepository, never()).save(any());
+        verify(userInterestService, never()).evict(any());
+    }
+
+    private static Interest interest(Long id, String name) {
+        Interest i = new Interest();
+        i.setId(id);
+        i.setName(name);
+        return i;
+    }
+
+    private static UserRegisterRequest request(String username, String... interests) {
+        return new UserRegisterRequest(username, "secret", List.of(interests));
+    }
+}
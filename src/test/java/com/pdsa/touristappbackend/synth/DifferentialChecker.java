@@ -0,0 +1,323 @@
+package com.pdsa.touristappbackend.synth;
+
+import com.pdsa.touristappbackend.routing.AStarRouter;
+import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.SearchTrace;
+import com.pdsa.touristappbackend.routing.engine.AStarEngine;
+import com.pdsa.touristappbackend.routing.engine.BidirectionalAStarEngine;
+import com.pdsa.touristappbackend.routing.engine.RoutingEngine;
+import com.pdsa.touristappbackend.util.Haversine;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Differential checker: runs routing engines over seeded random queries and compares every
+ * answer with a plain reference Dijkstra.
+ * The reference reads the SQLite file itself into compact arrays and shares no code with
+ * LazyGraph or the engines, only the edge cost model: Haversine between coordinates rounded to
+ * 1e-7 degree, rounded up to whole decimetres (the graph's compact storage, see CsrGraph).
+ * Closures and penalties registered with penalize() are added to the reference's edge costs;
+ * install the same entries as the graph's RoadOverlay before checking.
+ * A query fails when:
+ * - one side finds a route and the other does not
+ * - the returned path does not start at the source, end at the target or follow existing edges
+ * - the cost of the returned path (penalties included) differs from the reference by more than
+ *   a relative 1e-9 (plus 1 mm)
+ * - the returned distance is not the road length of the returned path (penalties excluded, as
+ *   in engine.Route)
+ * Usage:
+ * mvn -Pjmh test-compile exec:exec@tool -Dtool=com.pdsa.touristappbackend.synth.DifferentialChecker \
+ *     -Dtool.args="--db target/synth/roads-100000-1.db --queries 1000 --seed 1"
+ * Options: --db, --queries (default 1000), --seed (default 1), --engines (comma separated, default all)
+ * Exits with status 1 if any query fails.
+ */
+public class DifferentialChecker {
+
+    private static final double RELATIVE_TOLERANCE = 1e-9;
+    private static final double ABSOLUTE_TOLERANCE_METERS = 1e-3;
+    private static final int MAX_REPORTED = 20;
+
+    public record Route(double distanceMeters, List<Long> path) {}
+
+    // Engine under test
+    @FunctionalInterface
+    public interface Engine {
+        Route route(long source, long target) throws Exception;
+    }
+
+    private final long[] ids;
+    private final Map<Long, Integer> index = new HashMap<>();
+    private final double[] lat;
+    private final double[] lon;
+    // CSR adjacency: targets of node i are adjTo[adjStart[i] .. adjStart[i + 1])
+    private final int[] adjStart;
+    private final int[] adjTo;
+    // extra meters by edge (from * n + to, checker indexes), infinite when closed
+    private final Map<Long, Double> penalties = new HashMap<>();
+
+    public DifferentialChecker(Path db) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + db);
+             Statement st = conn.createStatement()) {
+            List<long[]> nodes = new ArrayList<>();
+            List<double[]> coords = new ArrayList<>();
+            try (ResultSet rs = st.executeQuery("SELECT id, lat, lon FROM nodes")) {
+                while (rs.next()) {
+                    nodes.add(new long[]{rs.getLong(1)});
+                    coords.add(new double[]{rs.getDouble(2), rs.getDouble(3)});
+                }
+            }
+            int n = nodes.size();
+            ids = new long[n];
+            lat = new double[n];
+            lon = new double[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = nodes.get(i)[0];
+                lat[i] = coords.get(i)[0];
+                lon[i] = coords.get(i)[1];
+                index.put(ids[i], i);
+            }
+
+            List<int[]> edges = new ArrayList<>();
+            int[] degree = new int[n + 1];
+            try (ResultSet rs = st.executeQuery("SELECT from_node, to_node FROM edges")) {
+                while (rs.next()) {
+                    Integer from = index.get(rs.getLong(1));
+                    Integer to = index.get(rs.getLong(2));
+                    if (from == null || to == null) continue;
+                    edges.add(new int[]{from, to});
+                    degree[from + 1]++;
+                }
+            }
+            adjStart = new int[n + 1];
+            for (int i = 0; i < n; i++) adjStart[i + 1] = adjStart[i] + degree[i + 1];
+            adjTo = new int[edges.size()];
+            int[] fill = Arrays.copyOf(adjStart, n);
+            for (int[] e : edges) adjTo[fill[e[0]]++] = e[1];
+        }
+    }
+
+    /**
+     * Add a closure or penalty to the reference costs; entries on the same edge add up
+     * @param from - source node id
+     * @param to - target node id
+     * @param extraMeters - meters added to the edge, infinite to close it
+     */
+    public void penalize(long from, long to, double extraMeters) {
+        Integer u = index.get(from), v = index.get(to);
+        if (u == null || v == null || !hasEdge(u, v)) {
+            throw new IllegalArgumentException("No edge " + from + " -> " + to);
+        }
+        penalties.merge(edgeKey(u, v), extraMeters, Double::sum);
+    }
+
+    /**
+     * Reference shortest path by Dijkstra, with the penalties in force
+     * @param source - source node id
+     * @param target - target node id
+     * @return cost and path, infinite cost and empty path if unreachable
+     */
+    public Route reference(long source, long target) {
+        int s = index.get(source), t = index.get(target);
+        double[] dist = new double[ids.length];
+        int[] prev = new int[ids.length];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(prev, -1);
+        dist[s] = 0;
+
+        PriorityQueue<double[]> open = new PriorityQueue<>(Comparator.comparingDouble(e -> e[0]));
+        open.add(new double[]{0, s});
+        while (!open.isEmpty()) {
+            double[] cur = open.poll();
+            int u = (int) cur[1];
+            if (cur[0] > dist[u]) continue;
+            if (u == t) break;
+            for (int k = adjStart[u]; k < adjStart[u + 1]; k++) {
+                int v = adjTo[k];
+                double nd = dist[u] + cost(u, v);
+                if (nd < dist[v]) {
+                    dist[v] = nd;
+                    prev[v] = u;
+                    open.add(new double[]{nd, v});
+                }
+            }
+        }
+        if (dist[t] == Double.POSITIVE_INFINITY) return new Route(Double.POSITIVE_INFINITY, List.of());
+        LinkedList<Long> path = new LinkedList<>();
+        for (int v = t; v != -1; v = prev[v]) path.addFirst(ids[v]);
+        return new Route(dist[t], path);
+    }
+
+    /**
+     * Seeded random query pairs over the graph's nodes
+     * @param count - number of queries
+     * @param seed - random seed
+     * @return pairs as {source, target}
+     */
+    public long[][] queries(int count, long seed) {
+        Random rnd = new Random(seed);
+        long[][] pairs = new long[count][];
+        for (int i = 0; i < count; i++) {
+            pairs[i] = new long[]{ids[rnd.nextInt(ids.length)], ids[rnd.nextInt(ids.length)]};
+        }
+        return pairs;
+    }
+
+    /**
+     * Check an engine against the reference, silently
+     * @param name - engine name for the report
+     * @param engine - engine under test
+     * @param pairs - queries
+     * @return number of failed queries
+     */
+    public int check(String name, Engine engine, long[][] pairs) {
+        return check(name, engine, pairs, null);
+    }
+
+    /**
+     * Check an engine against the reference
+     * @param name - engine name for the report
+     * @param engine - engine under test
+     * @param pairs - queries
+     * @param report - receives the first failures and a summary line, or null
+     * @return number of failed queries
+     */
+    public int check(String name, Engine engine, long[][] pairs, PrintStream report) {
+        int failed = 0;
+        long engineNanos = 0;
+        for (long[] q : pairs) {
+            Route expected = reference(q[0], q[1]);
+            String problem;
+            try {
+                long start = System.nanoTime();
+                Route actual = engine.route(q[0], q[1]);
+                engineNanos += System.nanoTime() - start;
+                problem = compare(q[0], q[1], expected, actual);
+            } catch (Exception e) {
+                problem = "threw " + e;
+            }
+            if (problem != null) {
+                if (report != null && failed < MAX_REPORTED) {
+                    report.printf("  %s %d -> %d: %s%n", name, q[0], q[1], problem);
+                }
+                failed++;
+            }
+        }
+        if (report != null) {
+            report.printf("%-14s %d/%d queries match, %.2f ms per query%n",
+                    name, pairs.length - failed, pairs.length, engineNanos / 1e6 / pairs.length);
+        }
+        return failed;
+    }
+
+    private String compare(long source, long target, Route expected, Route actual) {
+        boolean expectReachable = expected.distanceMeters() != Double.POSITIVE_INFINITY;
+        boolean reachable = actual.distanceMeters() != Double.POSITIVE_INFINITY;
+        if (expectReachable != reachable) {
+            return "reachable=" + reachable + ", reference says " + expectReachable;
+        }
+        if (!reachable) return null;
+
+        List<Long> path = actual.path();
+        if (path.isEmpty() || path.get(0) != source || path.get(path.size() - 1) != target) {
+            return "path does not run from source to target";
+        }
+        double length = 0, cost = 0;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            Integer u = index.get(path.get(i)), v = index.get(path.get(i + 1));
+            if (u == null || v == null || !hasEdge(u, v)) {
+                return "path uses missing edge " + path.get(i) + " -> " + path.get(i + 1);
+            }
+            length += weight(u, v);
+            cost += cost(u, v);
+        }
+        if (!(Math.abs(expected.distanceMeters() - cost) <= RELATIVE_TOLERANCE * expected.distanceMeters() + ABSOLUTE_TOLERANCE_METERS)) {
+            return String.format("path costs %.3f m, reference %.3f m", cost, expected.distanceMeters());
+        }
+        if (Math.abs(length - actual.distanceMeters()) > RELATIVE_TOLERANCE * length + ABSOLUTE_TOLERANCE_METERS) {
+            return String.format("path length %.3f m, reported %.3f m", length, actual.distanceMeters());
+        }
+        return null;
+    }
+
+    private boolean hasEdge(int u, int v) {
+        for (int k = adjStart[u]; k < adjStart[u + 1]; k++) {
+            if (adjTo[k] == v) return true;
+        }
+        return false;
+    }
+
+    private double cost(int u, int v) {
+        if (penalties.isEmpty()) return weight(u, v);
+        return weight(u, v) + penalties.getOrDefault(edgeKey(u, v), 0.0);
+    }
+
+    private long edgeKey(int u, int v) {
+        return (long) u * ids.length + v;
+    }
+
+    private double weight(int u, int v) {
+        double meters = Haversine.meters(fixed(lat[u]), fixed(lon[u]), fixed(lat[v]), fixed(lon[v]));
+        return Math.ceil(meters * 10 - 1e-9) / 10;
+    }
+
+    private static double fixed(double degrees) {
+        return (int) Math.round(degrees * 1e7) / 1e7;
+    }
+
+    /**
+     * Every RoutingEngine, by name
+     * @param g - graph the engines route on
+     * @return engine name to engine
+     */
+    static Map<String, Engine> routingEngines(LazyGraph g) {
+        Map<String, Engine> engines = new LinkedHashMap<>();
+        for (RoutingEngine e : List.of(new AStarEngine(), new BidirectionalAStarEngine())) {
+            engines.put(e.name(), (s, t) -> {
+                var r = e.route(g, s, t, SearchTrace.NOOP);
+                return new Route(r.distanceMeters, r.pathNodeIds);
+            });
+        }
+        return engines;
+    }
+
+    /**
+     * Engines available to the command line checker, by name: every RoutingEngine plus the
+     * older AStarRouter, which reports the penalized cost as its distance and so only passes
+     * without an overlay
+     * @param g - graph the engines route on
+     * @return engine name to engine
+     */
+    static Map<String, Engine> engines(LazyGraph g) {
+        Map<String, Engine> engines = routingEngines(g);
+        AStarRouter router = new AStarRouter(g);
+        engines.put("astar-router", (s, t) -> {
+            AStarRouter.Result r = router.shortestPath(s, t);
+            return new Route(r.distance, r.pathNodeIds);
+        });
+        return engines;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opts = Options.parse(args);
+        Path db = Path.of(opts.get("db", "target/synth/roads-100000-1.db"));
+
+        DifferentialChecker checker = new DifferentialChecker(db);
+        long[][] pairs = checker.queries(opts.getInt("queries", 1000), opts.getLong("seed", 1));
+
+        LazyGraph g = new LazyGraph(db.toString());
+        Map<String, Engine> engines = engines(g);
+        String selected = opts.get("engines", String.join(",", engines.keySet()));
+
+        int failed = 0;
+        for (String name : selected.split(",")) {
+            Engine engine = engines.get(name.trim());
+            if (engine == null) throw new IllegalArgumentException("Unknown engine " + name + ", known: " + engines.keySet());
+            failed += checker.check(name.trim(), engine, pairs, System.out);
+        }
+        g.getConnection().close();
+        if (failed > 0) System.exit(1);
+    }
+}
@@ -0,0 +1,92 @@
+package com.pdsa.touristappbackend.synth;
+
+import com.pdsa.touristappbackend.routing.CsrGraph;
+import com.pdsa.touristappbackend.routing.LazyGraph;
+import com.pdsa.touristappbackend.routing.RoadOverlay;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DifferentialCheckerTest {
+
+    private static final int QUERIES = 300;
+
+    @TempDir
+    static Path dir;
+
+    static Path db;
+    static LazyGraph graph;
+
+    @BeforeAll
+    static void generate() throws Exception {
+        db = dir.resolve("roads.db");
+        new RoadNetworkGenerator(2500, 7).write(db);
+        graph = new LazyGraph(db.toString());
+    }
+
+    @AfterAll
+    static void close() throws Exception {
+        graph.close();
+    }
+
+    @Test
+    void everyEngineMatchesTheReference() throws Exception {
+        DifferentialChecker checker = new DifferentialChecker(db);
+        long[][] pairs = checker.queries(QUERIES, 1);
+        for (Map.Entry<String, DifferentialChecker.Engine> e : DifferentialChecker.engines(graph).entrySet()) {
+            assertEquals(0, checker.check(e.getKey(), e.getValue(), pairs), e.getKey());
+        }
+    }
+
+    @Test
+    void everyRoutingEngineMatchesTheReferenceUnderAnOverlay() throws Exception {
+        DifferentialChecker checker = new DifferentialChecker(db);
+        long[][] pairs = checker.queries(QUERIES, 2);
+        double[] before = new double[pairs.length];
+        for (int q = 0; q < pairs.length; q++) before[q] = checker.reference(pairs[q][0], pairs[q][1]).distanceMeters();
+
+        // close or penalize a seeded share of the edges, some of them twice, in both the graph and the checker
+        CsrGraph csr = graph.csr();
+        RoadOverlay.Builder overlay = new RoadOverlay.Builder(csr.size());
+        CsrGraph.EdgeCursor edges = new CsrGraph.EdgeCursor();
+        Random rnd = new Random(3);
+        int entries = 0;
+        for (int u = 0; u < csr.size(); u++) {
+            csr.out(u, edges);
+            while (edges.next()) {
+                double roll = rnd.nextDouble();
+                if (roll > 0.15) continue;
+                int v = edges.node();
+                int times = roll < 0.03 ? 2 : 1;
+                for (int k = 0; k < times; k++) {
+                    double extra = roll < 0.05 ? Double.POSITIVE_INFINITY : 50 + rnd.nextInt(1000);
+                    overlay.add(u, v, extra, Long.MAX_VALUE);
+                    checker.penalize(csr.osmId(u), csr.osmId(v), extra);
+                    entries++;
+                }
+            }
+        }
+        graph.setOverlay(overlay.build());
+        try {
+            int changed = 0;
+            for (int q = 0; q < pairs.length; q++) {
+                if (checker.reference(pairs[q][0], pairs[q][1]).distanceMeters() != before[q]) changed++;
+            }
+            assertTrue(entries > 0);
+            assertTrue(changed > QUERIES / 3, changed + " answers changed");
+
+            for (Map.Entry<String, DifferentialChecker.Engine> e : DifferentialChecker.routingEngines(graph).entrySet()) {
+                assertEquals(0, checker.check(e.getKey(), e.getValue(), pairs), e.getKey());
+            }
+        } finally {
+            graph.setOverlay(RoadOverlay.NONE);
+        }
+    }
+}
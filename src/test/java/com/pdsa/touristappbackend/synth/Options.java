@@ -0,0 +1,36 @@
+package com.pdsa.touristappbackend.synth;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// "--name value" command line options of the synth tools
+class Options {
+    private final Map<String, String> values = new HashMap<>();
+
+    static Options parse(String[] args) {
+        Options opts = new Options();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --option value at " + args[i]);
+            }
+            opts.values.put(args[i].substring(2), args[++i]);
+        }
+        return opts;
+    }
+
+    String get(String name, String def) {
+        return values.getOrDefault(name, def);
+    }
+
+    int getInt(String name, int def) {
+        return values.containsKey(name) ? Integer.parseInt(values.get(name)) : def;
+    }
+
+    long getLong(String name, long def) {
+        return values.containsKey(name) ? Long.parseLong(values.get(name)) : def;
+    }
+
+    double getDouble(String name, double def) {
+        return values.containsKey(name) ? Double.parseDouble(values.get(name)) : def;
+    }
+}
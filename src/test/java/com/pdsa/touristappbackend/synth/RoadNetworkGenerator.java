@@ -0,0 +1,195 @@
+package com.pdsa.touristappbackend.synth;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.Random;
+
+/**
+ * Seeded generator of road-like planar graphs in the nodes/edges schema LazyGraph reads,
+ * for testing routing at many times the size of the Colombo database.
+ * Layout:
+ * - a square grid (~100 m spacing) starting at the south-west corner of the Colombo box,
+ *   sized to the requested node count (the last row may be partial)
+ * - every node jittered by up to JITTER of the spacing, which keeps the graph planar
+ * - every arterialEvery-th row and column is an arterial: complete and drivable both ways
+ * - local streets: a share is missing (dead ends and detours), a share is one-way with the
+ *   direction alternating by row/column as in a real one-way grid, the rest are two-way
+ * - node ids are a seeded shuffle of 1..n, so nothing can rely on ids following geometry
+ * The same arguments always produce the same file.
+ * Usage:
+ * mvn -Pjmh test-compile exec:exec@tool -Dtool=com.pdsa.touristappbackend.synth.RoadNetworkGenerator \
+ *     -Dtool.args="--nodes 1000000 --seed 1 --out target/synth/roads-1m.db"
+ * Options: --nodes, --seed, --out, --one-way (share, default 0.3), --missing (share, default 0.05),
+ * --arterial-every (default 10)
+ */
+public class RoadNetworkGenerator {
+
+    public static final double ORIGIN_LAT = 6.85;
+    public static final double ORIGIN_LON = 79.83;
+    public static final double SPACING_DEG = 0.0009;
+    // maximum jitter as a share of the spacing; below 0.5 no two streets can cross
+    private static final double JITTER = 0.2;
+
+    private final int nodes;
+    private final long seed;
+    private double oneWayShare = 0.3;
+    private double missingShare = 0.05;
+    private int arterialEvery = 10;
+
+    public RoadNetworkGenerator(int nodes, long seed) {
+        if (nodes < 4) throw new IllegalArgumentException("At least 4 nodes");
+        this.nodes = nodes;
+        this.seed = seed;
+    }
+
+    public RoadNetworkGenerator oneWayShare(double share) {
+        this.oneWayShare = share;
+        return this;
+    }
+
+    public RoadNetworkGenerator missingShare(double share) {
+        this.missingShare = share;
+        return this;
+    }
+
+    public RoadNetworkGenerator arterialEvery(int every) {
+        this.arterialEvery = Math.max(1, every);
+        return this;
+    }
+
+    // nodes per row of the grid
+    public int side() {
+        return (int) Math.ceil(Math.sqrt(nodes));
+    }
+
+    // {minLat, minLon, maxLat, maxLon} covered by the grid
+    public double[] bbox() {
+        double extent = (side() - 1) * SPACING_DEG;
+        return new double[]{ORIGIN_LAT, ORIGIN_LON, ORIGIN_LAT + extent, ORIGIN_LON + extent};
+    }
+
+    /**
+     * Write the graph to a new SQLite file
+     * @param file - output path, replaced if it exists
+     * @throws SQLException - if writing fails
+     */
+    public void write(Path file) throws SQLException {
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new SQLException("Cannot prepare " + file, e);
+        }
+
+        Random rnd = new Random(seed);
+        int side = side();
+        long[] ids = shuffledIds(rnd);
+
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file)) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("PRAGMA journal_mode = OFF");
+                st.execute("PRAGMA synchronous = OFF");
+                st.execute("CREATE TABLE nodes (id INTEGER PRIMARY KEY, lat REAL, lon REAL)");
+                st.execute("CREATE TABLE edges (from_node INTEGER, to_node INTEGER)");
+            }
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO nodes VALUES (?, ?, ?)")) {
+                for (int i = 0; i < nodes; i++) {
+                    int r = i / side, c = i % side;
+                    ps.setLong(1, ids[i]);
+                    ps.setDouble(2, ORIGIN_LAT + (r + jitter(rnd)) * SPACING_DEG);
+                    ps.setDouble(3, ORIGIN_LON + (c + jitter(rnd)) * SPACING_DEG);
+                    ps.addBatch();
+                    if (i % 10_000 == 9_999) ps.executeBatch();
+                }
+                ps.executeBatch();
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO edges VALUES (?, ?)")) {
+                int pending = 0;
+                for (int i = 0; i < nodes; i++) {
+                    int r = i / side, c = i % side;
+                    // east: part of row r, west-bound when one-way on odd rows
+                    if (c + 1 < side && i + 1 < nodes) {
+                        pending += street(ps, rnd, ids[i], ids[i + 1], r % arterialEvery == 0, r % 2 == 0);
+                    }
+                    // north: part of column c, south-bound when one-way on odd columns
+                    if (i + side < nodes) {
+                        pending += street(ps, rnd, ids[i], ids[i + side], c % arterialEvery == 0, c % 2 == 0);
+                    }
+                    if (pending >= 10_000) {
+                        ps.executeBatch();
+                        pending = 0;
+                    }
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE INDEX idx_edges_from ON edges(from_node)");
+                st.execute("CREATE INDEX idx_edges_to ON edges(to_node)");
+            }
+            conn.commit();
+        }
+    }
+
+    // adds the edges of one street segment, returns how many were added
+    private int street(PreparedStatement ps, Random rnd, long a, long b, boolean arterial, boolean forward)
+            throws SQLException {
+        if (arterial) {
+            edge(ps, a, b);
+            edge(ps, b, a);
+            return 2;
+        }
+        double u = rnd.nextDouble();
+        if (u < missingShare) return 0;
+        if (u < missingShare + oneWayShare) {
+            if (forward) edge(ps, a, b);
+            else edge(ps, b, a);
+            return 1;
+        }
+        edge(ps, a, b);
+        edge(ps, b, a);
+        return 2;
+    }
+
+    private static void edge(PreparedStatement ps, long from, long to) throws SQLException {
+        ps.setLong(1, from);
+        ps.setLong(2, to);
+        ps.addBatch();
+    }
+
+    private static double jitter(Random rnd) {
+        return (rnd.nextDouble() * 2 - 1) * JITTER;
+    }
+
+    private long[] shuffledIds(Random rnd) {
+        long[] ids = new long[nodes];
+        for (int i = 0; i < nodes; i++) ids[i] = i + 1;
+        for (int i = nodes - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            long t = ids[i];
+            ids[i] = ids[j];
+            ids[j] = t;
+        }
+        return ids;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opts = Options.parse(args);
+        RoadNetworkGenerator gen = new RoadNetworkGenerator(opts.getInt("nodes", 100_000), opts.getLong("seed", 1))
+                .oneWayShare(opts.getDouble("one-way", 0.3))
+                .missingShare(opts.getDouble("missing", 0.05))
+                .arterialEvery(opts.getInt("arterial-every", 10));
+        Path out = Path.of(opts.get("out", "target/synth/roads-" + gen.nodes + "-" + gen.seed + ".db"));
+
+        long start = System.nanoTime();
+        gen.write(out);
+        System.out.printf("Wrote %d nodes (%dx%d grid) to %s in %.1f s%n",
+                gen.nodes, gen.side(), gen.side(), out, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,53 @@
+package com.pdsa.touristappbackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DouglasPeuckerTest {
+
+    // about 11 m per 1e-4 degree of latitude
+    private static final double[] ZIGZAG_LATS = {6.9, 6.9001, 6.9, 6.9001, 6.9};
+    private static final double[] ZIGZAG_LONS = {79.85, 79.8501, 79.8502, 79.8503, 79.8504};
+
+    @Test
+    void zeroToleranceKeepsEveryPoint() {
+        assertArrayEquals(new boolean[]{true, true, true, true, true},
+                DouglasPeucker.simplify(ZIGZAG_LATS, ZIGZAG_LONS, 5, 0));
+    }
+
+    @Test
+    void collinearPointsCollapseToTheEnds() {
+        double[] lats = {6.9, 6.901, 6.902, 6.903, 6.904};
+        double[] lons = {79.85, 79.851, 79.852, 79.853, 79.854};
+        assertArrayEquals(new boolean[]{true, false, false, false, true},
+                DouglasPeucker.simplify(lats, lons, 5, 0.01));
+    }
+
+    @Test
+    void twoPointLineIsKept() {
+        assertArrayEquals(new boolean[]{true, true},
+                DouglasPeucker.simplify(new double[]{6.9, 6.95}, new double[]{79.85, 79.9}, 2, 100));
+    }
+
+    @Test
+    void emptyAndSinglePointLines() {
+        assertEquals(0, DouglasPeucker.simplify(new double[0], new double[0], 0, 10).length);
+        assertArrayEquals(new boolean[]{true}, DouglasPeucker.simplify(new double[]{6.9}, new double[]{79.85}, 1, 10));
+    }
+
+    @Test
+    void keepsOnlyDeviationsAboveTolerance() {
+        // interior points are about 11 m off the chord
+        assertArrayEquals(new boolean[]{true, true, true, true, true},
+                DouglasPeucker.simplify(ZIGZAG_LATS, ZIGZAG_LONS, 5, 5));
+        assertArrayEquals(new boolean[]{true, false, false, false, true},
+                DouglasPeucker.simplify(ZIGZAG_LATS, ZIGZAG_LONS, 5, 20));
+    }
+
+    @Test
+    void simplifiesOnlyTheFirstCountPoints() {
+        boolean[] keep = DouglasPeucker.simplify(ZIGZAG_LATS, ZIGZAG_LONS, 3, 20);
+        assertArrayEquals(new boolean[]{true, false, true}, keep);
+    }
+}
@@ -0,0 +1,105 @@
+package com.pdsa.touristappbackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HilbertCurveTest {
+
+    private static final int SIDE = 1 << HilbertCurve.ORDER;
+
+    // walks an aligned block of 2^k x 2^k cells: the curve fills it with one run of positions, each next to the last
+    private static void assertBlockIsOneAdjacentRun(int x0, int y0, int k) {
+        int side = 1 << k;
+        long cells = (long) side * side;
+        long first = Long.MAX_VALUE;
+        long[] positions = new long[(int) cells];
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                long d = HilbertCurve.index(x0 + x, y0 + y);
+                positions[y * side + x] = d;
+                first = Math.min(first, d);
+            }
+        }
+        assertEquals(0, first % cells, "block starts at a multiple of its size");
+        int[] xs = new int[(int) cells];
+        int[] ys = new int[(int) cells];
+        boolean[] seen = new boolean[(int) cells];
+        for (int c = 0; c < cells; c++) {
+            int p = (int) (positions[c] - first);
+            assertTrue(p >= 0 && p < cells && !seen[p], "position " + positions[c] + " repeated or outside the block");
+            seen[p] = true;
+            xs[p] = c % side;
+            ys[p] = c / side;
+        }
+        for (int p = 1; p < cells; p++) {
+            int step = Math.abs(xs[p] - xs[p - 1]) + Math.abs(ys[p] - ys[p - 1]);
+            assertEquals(1, step, "positions " + (first + p - 1) + " and " + (first + p) + " are not adjacent");
+        }
+    }
+
+    @Test
+    void consecutivePositionsAreAdjacentCells() {
+        assertEquals(0, HilbertCurve.index(0, 0));
+        assertBlockIsOneAdjacentRun(0, 0, 8);
+        assertBlockIsOneAdjacentRun(SIDE - 256, SIDE - 256, 8);
+        Random rnd = new Random(5);
+        for (int t = 0; t < 20; t++) {
+            int k = 1 + rnd.nextInt(6);
+            int blocks = SIDE >> k;
+            assertBlockIsOneAdjacentRun(rnd.nextInt(blocks) << k, rnd.nextInt(blocks) << k, k);
+        }
+    }
+
+    // inverse of index() (d2xy in the Wikipedia reference), written independently of it
+    private static int[] cellAt(long d) {
+        int x = 0, y = 0;
+        long t = d;
+        for (int s = 1; s < SIDE; s *= 2) {
+            int rx = (int) (1 & (t / 2));
+            int ry = (int) (1 & (t ^ rx));
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                int swap = x;
+                x = y;
+                y = swap;
+            }
+            x += s * rx;
+            y += s * ry;
+            t /= 4;
+        }
+        return new int[]{x, y};
+    }
+
+    @Test
+    void consecutivePositionsAcrossTheWholeCurveAreAdjacent() {
+        long cells = (long) SIDE * SIDE;
+        Random rnd = new Random(6);
+        long[] starts = new long[1000];
+        // the quadrant and sub-quadrant boundaries, where the curve turns, plus random positions
+        for (int q = 1; q < 16; q++) starts[q] = q * cells / 16 - 1;
+        for (int i = 16; i < starts.length; i++) starts[i] = Math.floorMod(rnd.nextLong(), cells - 1);
+        for (long d : starts) {
+            int[] a = cellAt(d), b = cellAt(d + 1);
+            assertEquals(d, HilbertCurve.index(a[0], a[1]));
+            assertEquals(d + 1, HilbertCurve.index(b[0], b[1]));
+            assertEquals(1, Math.abs(a[0] - b[0]) + Math.abs(a[1] - b[1]), "positions " + d + " and " + (d + 1));
+        }
+    }
+
+    @Test
+    void cellClampsToTheGrid() {
+        assertEquals(0, HilbertCurve.cell(6.0, 6.0, 7.0));
+        assertEquals(SIDE - 1, HilbertCurve.cell(7.0, 6.0, 7.0));
+        assertEquals(SIDE / 2, HilbertCurve.cell(6.5, 6.0, 7.0));
+        assertEquals(0, HilbertCurve.cell(5.0, 6.0, 7.0));
+        assertEquals(SIDE - 1, HilbertCurve.cell(8.0, 6.0, 7.0));
+        // empty range: everything in one cell
+        assertEquals(0, HilbertCurve.cell(6.0, 6.0, 6.0));
+    }
+}
@@ -0,0 +1,33 @@
+package com.pdsa.touristappbackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolylineTest {
+
+    @Test
+    void encodesGoogleReferenceVector() {
+        // https://developers.google.com/maps/documentation/utilities/polylinealgorithm
+        double[] lats = {38.5, 40.7, 43.252};
+        double[] lons = {-120.2, -120.95, -126.453};
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", Polyline.encode(lats, lons, 3));
+    }
+
+    @Test
+    void encodesOnlyTheFirstCountPoints() {
+        double[] lats = {38.5, 40.7, 43.252};
+        double[] lons = {-120.2, -120.95, -126.453};
+        assertEquals("_p~iF~ps|U", Polyline.encode(lats, lons, 1));
+        assertEquals("", Polyline.encode(lats, lons, 0));
+    }
+
+    @Test
+    void roundsToFiveDecimals() {
+        // both round to the same 1e-5 grid point, so the second point is a zero delta ("??")
+        double[] lats = {6.927079, 6.9270794};
+        double[] lons = {79.861244, 79.8612436};
+        String encoded = Polyline.encode(lats, lons, 2);
+        assertTrue(encoded.endsWith("??"), encoded);
+    }
+}